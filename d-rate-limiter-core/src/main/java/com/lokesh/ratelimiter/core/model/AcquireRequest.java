@@ -0,0 +1,24 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One entry of a batched acquire.
+ *
+ * <p>
+ * Architectural Role: <b>Value Object</b> carrying the arguments of
+ * {@code RateLimiterRepository#tryAcquire} so several decisions can be sent
+ * together.
+ *
+ * @param key             The identity being limited (e.g. {@code user_1}).
+ * @param configs         The plans to evaluate atomically (ADR 005).
+ * @param tokensToConsume The weight of the request.
+ */
+public record AcquireRequest(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+
+    public AcquireRequest {
+        Objects.requireNonNull(key, "Key must not be null");
+        configs = List.copyOf(Objects.requireNonNull(configs, "Configs must not be null"));
+    }
+}
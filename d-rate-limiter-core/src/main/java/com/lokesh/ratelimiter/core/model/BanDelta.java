@@ -0,0 +1,26 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bans a node added to one partition of its penalty-box filter since its last
+ * publish.
+ *
+ * <p>
+ * Architectural Role: <b>Replication Message</b>. Exchanged between nodes by
+ * {@code PenaltyChannel}. Adding a key to a Bloom filter only sets bits, so
+ * applying a delta is idempotent and commutative: duplicated or reordered
+ * messages do no harm, and a lost one only lets that ban go unshared.
+ *
+ * @param partition The partition the bans expire with: bans in partition
+ *                  {@code p} end at {@code (p + 1) × firstBan} epoch millis.
+ * @param hashes    The 64-bit hashes of the banned keys.
+ */
+public record BanDelta(long partition, List<Long> hashes) {
+
+    public BanDelta {
+        Objects.requireNonNull(hashes, "Hashes must not be null");
+        hashes = List.copyOf(hashes);
+    }
+}
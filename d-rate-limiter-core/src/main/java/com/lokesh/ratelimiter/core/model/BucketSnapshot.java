@@ -0,0 +1,21 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.Objects;
+
+/**
+ * A bucket state paired with the key it is stored under.
+ *
+ * <p>
+ * Architectural Role: <b>Read Model</b>. Produced by bulk exports for
+ * observability; it is a point-in-time copy and never written back.
+ *
+ * @param key    The full bucket key (e.g. {@code ratelimiter:default:user_1:gold}).
+ * @param bucket The stored state, not refilled to the current time.
+ */
+public record BucketSnapshot(String key, TokenBucket bucket) {
+
+    public BucketSnapshot {
+        Objects.requireNonNull(key, "Key must not be null");
+        Objects.requireNonNull(bucket, "Bucket must not be null");
+    }
+}
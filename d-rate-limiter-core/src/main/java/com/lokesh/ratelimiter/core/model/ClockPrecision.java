@@ -0,0 +1,36 @@
+package com.lokesh.ratelimiter.core.model;
+
+/**
+ * The unit in which a local engine reads the clock for bucket arithmetic.
+ *
+ * <p>
+ * Buckets are always stamped in epoch milliseconds (ADR 007); a finer
+ * precision only changes the instant refill is computed to (see
+ * {@link TokenBucket#tryConsume(long, int, RateLimitConfig, ClockPrecision)}).
+ * Use {@link #MICROS} for plans that refill more than one token per
+ * millisecond, whose buckets a millisecond clock would refill in steps.
+ */
+public enum ClockPrecision {
+
+    /** Epoch milliseconds. */
+    MILLIS(1),
+
+    /** Epoch microseconds. */
+    MICROS(1_000);
+
+    private final long ticksPerMilli;
+
+    ClockPrecision(long ticksPerMilli) {
+        this.ticksPerMilli = ticksPerMilli;
+    }
+
+    /** @return the number of ticks in one millisecond. */
+    public long ticksPerMilli() {
+        return ticksPerMilli;
+    }
+
+    /** @return the whole milliseconds of a time in this unit, rounded down. */
+    public long toMillis(long ticks) {
+        return Math.floorDiv(ticks, ticksPerMilli);
+    }
+}
@@ -0,0 +1,32 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.Objects;
+
+/**
+ * One entry of a grow-only counter (G-Counter CRDT): the total number of tokens
+ * a site has consumed from one bucket since it started counting.
+ *
+ * <p>
+ * Architectural Role: <b>Replication Message</b>. Exchanged between sites by
+ * {@code PeerChannel}. Because {@code consumed} is a running total rather than
+ * an increment, merging is taking the maximum per site: duplicated, reordered
+ * or lost messages are repaired by the next one.
+ *
+ * @param siteId   The writer that consumed the tokens: the site id, followed
+ *                 by {@code '#'} and an incarnation when the sender restarts
+ *                 its counters (e.g. {@code east#1718000000000.42}).
+ * @param key      The identity being limited (e.g. {@code user_1}).
+ * @param plan     The plan of the bucket, so peers can create it on first sight.
+ * @param consumed Total tokens consumed by {@code siteId}; never decreases.
+ */
+public record ConsumptionCount(String siteId, String key, RateLimitConfig plan, long consumed) {
+
+    public ConsumptionCount {
+        Objects.requireNonNull(siteId, "Site id must not be null");
+        Objects.requireNonNull(key, "Key must not be null");
+        Objects.requireNonNull(plan, "Plan must not be null");
+        if (consumed < 0) {
+            throw new IllegalArgumentException("Consumed must not be negative");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rate-limit keys one node saw for the first time since its last flush.
+ *
+ * <p>
+ * Architectural Role: <b>Write-Behind Message</b>. Sent in batches to
+ * {@code CardinalityStore}; an empty list only reads the estimate back.
+ *
+ * @param set       The distinct-key set, one per tenant and window (e.g.
+ *                  {@code ratelimiter:cardinality:acme:493827}).
+ * @param keys      The keys to add.
+ * @param expiresAt When the store may drop the set, in epoch milliseconds.
+ */
+public record DistinctKeys(String set, List<String> keys, long expiresAt) {
+
+    public DistinctKeys {
+        Objects.requireNonNull(set, "Set must not be null");
+        Objects.requireNonNull(keys, "Keys must not be null");
+        keys = List.copyOf(keys);
+    }
+}
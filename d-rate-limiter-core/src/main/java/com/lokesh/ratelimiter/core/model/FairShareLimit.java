@@ -0,0 +1,67 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Defines a hierarchical limit: a global allowance shared by tenants, and each
+ * tenant's share shared by its users.
+ *
+ * <p>
+ * Architectural Role: <b>Policy Entity</b>. Flat plans let one noisy user spend
+ * a whole tenant's allowance and one tenant spend the global one. Here every
+ * level of the global → tenant → user path has its own bucket, sized as its
+ * weighted fair share of the level above; {@link PathConsumption} defines how
+ * children borrow from their parents.
+ *
+ * <p>
+ * <b>Shares</b>: A tenant of weight {@code w} gets {@code w / tenantShares} of
+ * the global capacity and rate; a user of weight {@code v} gets
+ * {@code v / userShares} of its tenant's. Shares are relative to these totals,
+ * not to the children currently active.
+ *
+ * @param planName        Unique identifier for the limit; used for key
+ *                        generation.
+ * @param capacity        Global burst size.
+ * @param tokensPerSecond Global refill rate.
+ * @param tenantShares    Total weight the global allowance is divided into.
+ * @param userShares      Total weight a tenant's allowance is divided into.
+ */
+public record FairShareLimit(String planName, long capacity, double tokensPerSecond, long tenantShares,
+        long userShares) {
+
+    public FairShareLimit {
+        Objects.requireNonNull(planName, "planName must not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero");
+        }
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Tokens per second must be greater than zero");
+        }
+        if (tenantShares <= 0 || userShares <= 0) {
+            throw new IllegalArgumentException("Shares must be greater than zero");
+        }
+    }
+
+    /**
+     * Derives the bucket configurations along a path.
+     *
+     * <p>
+     * A share's capacity is rounded down but kept at one token at least, so
+     * every user can make progress.
+     *
+     * @param path the tenant and user being limited.
+     * @return the global, tenant and user configurations, in that order.
+     */
+    public List<RateLimitConfig> configs(FairSharePath path) {
+        RateLimitConfig global = new RateLimitConfig(planName, capacity, tokensPerSecond);
+        RateLimitConfig tenant = share(global, path.tenantWeight(), tenantShares);
+        return List.of(global, tenant, share(tenant, path.userWeight(), userShares));
+    }
+
+    private RateLimitConfig share(RateLimitConfig parent, long weight, long shares) {
+        double fraction = (double) weight / shares;
+        return new RateLimitConfig(planName, Math.max(1, (long) (parent.capacity() * fraction)),
+                parent.tokensPerSecond() * fraction);
+    }
+}
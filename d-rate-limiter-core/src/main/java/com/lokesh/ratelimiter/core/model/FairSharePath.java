@@ -0,0 +1,30 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.Objects;
+
+/**
+ * The tenant → user path a request is limited along (see
+ * {@link FairShareLimit}).
+ *
+ * @param tenant       The tenant ID (e.g. {@code acme-corp}).
+ * @param tenantWeight The tenant's weight among all tenants.
+ * @param user         The user ID within the tenant.
+ * @param userWeight   The user's weight among the tenant's users.
+ */
+public record FairSharePath(String tenant, long tenantWeight, String user, long userWeight) {
+
+    public FairSharePath {
+        Objects.requireNonNull(tenant, "Tenant must not be null");
+        Objects.requireNonNull(user, "User must not be null");
+        if (tenantWeight <= 0 || userWeight <= 0) {
+            throw new IllegalArgumentException("Weights must be greater than zero");
+        }
+    }
+
+    /**
+     * Creates a path in which the tenant and the user both have weight one.
+     */
+    public static FairSharePath of(String tenant, String user) {
+        return new FairSharePath(tenant, 1, user, 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.lokesh.ratelimiter.core.model;
+
+/**
+ * A node's observed demand on one apportioned plan and the fraction of the
+ * plan it currently enforces locally.
+ *
+ * <p>
+ * Architectural Role: <b>Coordination Message</b>. Published with every
+ * heartbeat through {@code NodeRegistry}, so each node can size its own share
+ * against the others' demand and claims.
+ *
+ * @param demand Tokens per second requested on this node during its last
+ *               rebalance interval, admitted or not.
+ * @param share  Fraction of the plan's capacity and rate the node enforces,
+ *               between 0 and 1.
+ */
+public record NodeShare(double demand, double share) {
+
+    public NodeShare {
+        if (!(demand >= 0)) {
+            throw new IllegalArgumentException("Demand must not be negative");
+        }
+        if (!(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException("Share must be between 0 and 1");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of consuming tokens along a hierarchical path, and the reference
+ * implementation of that consumption.
+ *
+ * <p>
+ * Architectural Role: <b>Domain Logic</b>. {@code acquire_hierarchical.lua}
+ * mirrors {@link #tryConsume} step by step (ADR 006); parity tests compare the
+ * two.
+ *
+ * <p>
+ * <b>Borrowing</b>: The request is paid by the lowest bucket on the path that
+ * holds enough tokens, its <em>lender</em>: the user's own share first, else
+ * the tenant's, else the global bucket. The cost is then charged to every
+ * bucket on the path, so buckets below the lender go negative:
+ * <ul>
+ * <li>A child borrowing beyond its share owes the tokens, and repays them from
+ * its own refill before it can spend its share again.</li>
+ * <li>A parent is charged for its children's own-share traffic too, so it only
+ * lends capacity its other children leave unused. A child within its share is
+ * not denied because a sibling drained the parent, as long as the parent's
+ * debt stays within its capacity.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Parent Ceiling</b>: Every bucket above the lender may owe at most its own
+ * capacity after the charge. A request that would push an ancestor deeper is
+ * denied, so children within their shares cannot together exceed their
+ * parent's rate for longer than one parent burst.
+ *
+ * @param allowed   {@code true} if some bucket on the path could lend.
+ * @param updated   The bucket states to store, global first; refilled only if
+ *                  denied.
+ * @param remaining Tokens the lender has left; if denied, the most any bucket
+ *                  holds, or the tokens of the ancestor at its ceiling.
+ * @param waitMillis If denied, time until the first bucket on the path can
+ *                   lend, or until every ancestor is back within its
+ *                   ceiling.
+ */
+public record PathConsumption(boolean allowed, List<TokenBucket> updated, double remaining, long waitMillis) {
+
+    /**
+     * Consumes {@code cost} tokens along a path.
+     *
+     * @param path    the stored buckets, global first; {@code null} for a bucket
+     *                not created yet, which starts full.
+     * @param configs the configurations of the buckets, in the same order.
+     * @param now     the current time in epoch milliseconds.
+     * @param cost    the number of tokens to consume.
+     * @return the decision and the states to store.
+     */
+    public static PathConsumption tryConsume(List<TokenBucket> path, List<RateLimitConfig> configs, long now,
+            int cost) {
+        int levels = configs.size();
+        List<TokenBucket> refilled = new ArrayList<>(levels);
+        for (int i = 0; i < levels; i++) {
+            RateLimitConfig config = configs.get(i);
+            TokenBucket bucket = path.get(i);
+            refilled.add((bucket != null ? bucket : new TokenBucket(config.capacity(), now)).refill(now, config));
+        }
+
+        int lender = levels - 1;
+        while (lender >= 0 && refilled.get(lender).tokens() < cost) {
+            lender--;
+        }
+
+        if (lender < 0) {
+            double most = Double.NEGATIVE_INFINITY;
+            long wait = Long.MAX_VALUE;
+            for (int i = 0; i < levels; i++) {
+                double tokens = refilled.get(i).tokens();
+                most = Math.max(most, tokens);
+                wait = Math.min(wait, (long) Math.ceil(((cost - tokens) / configs.get(i).tokensPerSecond()) * 1000.0));
+            }
+            return new PathConsumption(false, refilled, most, wait);
+        }
+
+        double ceilingRemaining = Double.POSITIVE_INFINITY;
+        long ceilingWait = 0;
+        for (int i = 0; i < lender; i++) {
+            RateLimitConfig config = configs.get(i);
+            double tokens = refilled.get(i).tokens();
+            double shortfall = cost - config.capacity() - tokens;
+            if (shortfall > 0) {
+                ceilingRemaining = Math.min(ceilingRemaining, tokens);
+                ceilingWait = Math.max(ceilingWait,
+                        (long) Math.ceil((shortfall / config.tokensPerSecond()) * 1000.0));
+            }
+        }
+        if (ceilingWait > 0) {
+            return new PathConsumption(false, refilled, ceilingRemaining, ceilingWait);
+        }
+
+        List<TokenBucket> charged = new ArrayList<>(levels);
+        for (TokenBucket bucket : refilled) {
+            charged.add(new TokenBucket(bucket.tokens() - cost, now));
+        }
+        return new PathConsumption(true, charged, charged.get(lender).tokens(), 0);
+    }
+}
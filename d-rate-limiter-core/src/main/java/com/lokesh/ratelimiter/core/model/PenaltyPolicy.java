@@ -0,0 +1,54 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * When a key that keeps being denied is banned, and for how long.
+ *
+ * <p>
+ * Architectural Role: <b>Configuration Value</b> of the penalty box. A key is
+ * banned once it collects {@code strikes} denials within {@code strikeWindow};
+ * each further ban lasts twice as long as the previous one, up to
+ * {@code maxBan}. Nodes sharing bans must use the same policy.
+ *
+ * @param strikes      Denials within the window that earn a ban.
+ * @param strikeWindow How long denials count towards a ban.
+ * @param firstBan     Length of a key's first ban, and the granularity at
+ *                     which bans expire.
+ * @param maxBan       Upper bound of an escalated ban.
+ * @param expectedBans Bans expected to expire within one {@code firstBan};
+ *                     sizes the filter for about 1% false positives.
+ */
+public record PenaltyPolicy(int strikes, Duration strikeWindow, Duration firstBan, Duration maxBan,
+        int expectedBans) {
+
+    public PenaltyPolicy {
+        Objects.requireNonNull(strikeWindow, "Strike window must not be null");
+        Objects.requireNonNull(firstBan, "First ban must not be null");
+        Objects.requireNonNull(maxBan, "Max ban must not be null");
+        if (strikes < 1) {
+            throw new IllegalArgumentException("Strikes must be at least 1");
+        }
+        if (strikeWindow.toMillis() < 1 || firstBan.toMillis() < 1) {
+            throw new IllegalArgumentException("Strike window and first ban must be at least 1ms");
+        }
+        if (maxBan.compareTo(firstBan) < 0) {
+            throw new IllegalArgumentException("Max ban must not be shorter than the first ban");
+        }
+        if (expectedBans < 1) {
+            throw new IllegalArgumentException("Expected bans must be at least 1");
+        }
+    }
+
+    /**
+     * @param offence the key's ban count including this one, starting at 1.
+     * @return the length of that ban in milliseconds.
+     */
+    public long banMillis(int offence) {
+        long first = firstBan.toMillis();
+        long max = maxBan.toMillis();
+        int doublings = Math.min(offence - 1, 62);
+        return first > max >> doublings ? max : Math.min(max, first << doublings);
+    }
+}
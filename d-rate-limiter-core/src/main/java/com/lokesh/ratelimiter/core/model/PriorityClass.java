@@ -0,0 +1,32 @@
+package com.lokesh.ratelimiter.core.model;
+
+/**
+ * How important a request is when there are not enough tokens for everyone.
+ *
+ * <p>
+ * Architectural Role: <b>Value Object</b>. Each class except {@link #CRITICAL}
+ * may only take tokens above a reserved floor of every bucket it draws from
+ * (see {@code LoadShedder}), so lower classes are denied first and the
+ * headroom they leave is kept for the classes above them.
+ */
+public enum PriorityClass {
+
+    /** Traffic that must keep its latency objective; never held back by a floor. */
+    CRITICAL,
+
+    /** Interactive traffic of paying or authenticated clients. */
+    INTERACTIVE,
+
+    /** Bulk and background work that can be retried later. */
+    BATCH,
+
+    /** Requests without an authenticated principal. */
+    ANONYMOUS;
+
+    /**
+     * @return whether this class is served before {@code other}.
+     */
+    public boolean outranks(PriorityClass other) {
+        return ordinal() < other.ordinal();
+    }
+}
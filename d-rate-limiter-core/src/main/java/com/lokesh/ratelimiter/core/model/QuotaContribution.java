@@ -0,0 +1,26 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.util.Objects;
+
+/**
+ * Tokens one node consumed from a quota counter so far, as a running total.
+ *
+ * <p>
+ * Architectural Role: <b>Write-Behind Message</b>. Sent in batches to
+ * {@code QuotaStore}, which keeps the latest total of each node. Sending the
+ * same contribution twice, e.g. again after a timeout, changes nothing.
+ *
+ * @param key       The counter, one per identity, plan and window (e.g.
+ *                  {@code ratelimiter:default:user_1:monthly:2026-10}).
+ * @param node      The contributing node.
+ * @param total     Tokens the node consumed from the counter; lower after
+ *                  refunds.
+ * @param expiresAt When the store may drop the counter, in epoch milliseconds.
+ */
+public record QuotaContribution(String key, String node, long total, long expiresAt) {
+
+    public QuotaContribution {
+        Objects.requireNonNull(key, "Key must not be null");
+        Objects.requireNonNull(node, "Node must not be null");
+    }
+}
@@ -0,0 +1,85 @@
+package com.lokesh.ratelimiter.core.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Calendar window of a quota plan, aligned to UTC.
+ *
+ * <p>
+ * Architectural Role: <b>Policy Value</b>. Unlike a token bucket, a quota
+ * resets at the start of each window: a monthly quota of 10M calls is 10M
+ * calls between the first of one month and the first of the next.
+ */
+public enum QuotaPeriod {
+
+    /** From midnight to midnight UTC. */
+    DAILY {
+        @Override
+        LocalDate start(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        LocalDate next(LocalDate start) {
+            return start.plusDays(1);
+        }
+
+        @Override
+        String id(LocalDate start) {
+            return start.toString();
+        }
+    },
+
+    /** From the first of a month to the first of the next, UTC. */
+    MONTHLY {
+        @Override
+        LocalDate start(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        LocalDate next(LocalDate start) {
+            return start.plusMonths(1);
+        }
+
+        @Override
+        String id(LocalDate start) {
+            return start.toString().substring(0, 7);
+        }
+    };
+
+    /**
+     * @param epochMillis a point in time.
+     * @return the identifier of the window containing it, e.g.
+     *         {@code 2026-10-19} or {@code 2026-10}.
+     */
+    public String windowId(long epochMillis) {
+        return id(start(date(epochMillis)));
+    }
+
+    /**
+     * @param epochMillis a point in time.
+     * @return the end of the window containing it, in epoch milliseconds
+     *         (exclusive).
+     */
+    public long windowEnd(long epochMillis) {
+        return next(start(date(epochMillis))).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /** @return a nominal window length in seconds: one day, or 30 days. */
+    public long nominalSeconds() {
+        return this == DAILY ? 86_400L : 30 * 86_400L;
+    }
+
+    abstract LocalDate start(LocalDate date);
+
+    abstract LocalDate next(LocalDate start);
+
+    abstract String id(LocalDate start);
+
+    private static LocalDate date(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
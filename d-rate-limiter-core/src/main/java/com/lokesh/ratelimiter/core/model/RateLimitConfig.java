@@ -16,13 +16,56 @@ import java.util.Objects;
  *       ensure no invalid configuration reaches the runtime engine.</li>
  *   <li><b>Identity (Epic 1.5)</b>: Includes {@code planName} to ensure unique 
  *       key namespacing in distributed storage.</li>
+ *   <li><b>Sampling</b>: A {@code sampled} plan may be checked against the store
+ *       for only a fraction of requests (see {@code SampledRateLimiterRepository});
+ *       meant for global limits where exactness does not matter.</li>
+ *   <li><b>Quotas</b>: A plan with a {@code quota} period is a calendar quota of
+ *       {@code capacity} tokens per window rather than a token bucket (see
+ *       {@code QuotaRateLimiterRepository}); its {@code tokensPerSecond} is the
+ *       nominal average, used only by stores that treat it as a bucket.</li>
  * </ul>
  * 
  * @param planName Unique identifier for the plan (e.g., "gold"). Used for key generation.
  * @param capacity Maximum number of tokens the bucket can hold (Burst size).
  * @param tokensPerSecond The refill rate of the bucket.
+ * @param sampled Whether decisions may be sampled rather than checked one by one.
+ * @param quota The calendar window of a quota plan; {@code null} for a token bucket.
  */
-public record RateLimitConfig(String planName, long capacity, double tokensPerSecond) {
+public record RateLimitConfig(String planName, long capacity, double tokensPerSecond, boolean sampled,
+        QuotaPeriod quota) {
+
+    /**
+     * Creates an exactly enforced plan.
+     */
+    public RateLimitConfig(String planName, long capacity, double tokensPerSecond) {
+        this(planName, capacity, tokensPerSecond, false);
+    }
+
+    /**
+     * Creates a token-bucket plan.
+     */
+    public RateLimitConfig(String planName, long capacity, double tokensPerSecond, boolean sampled) {
+        this(planName, capacity, tokensPerSecond, sampled, null);
+    }
+
+    /**
+     * Creates a calendar quota plan.
+     *
+     * @param planName Unique identifier for the plan (e.g., "monthly").
+     * @param limit    Tokens allowed per window.
+     * @param period   The window, e.g. {@link QuotaPeriod#MONTHLY}.
+     * @return the plan.
+     */
+    public static RateLimitConfig quota(String planName, long limit, QuotaPeriod period) {
+        Objects.requireNonNull(period, "period must not be null");
+        return new RateLimitConfig(planName, limit, (double) limit / period.nominalSeconds(), false, period);
+    }
+
+    /** @return whether this is a calendar quota rather than a token bucket. */
+    public boolean isQuota() {
+        return quota != null;
+    }
+
     public RateLimitConfig {
         Objects.requireNonNull(planName, "planName must not be null");
         if (capacity <= 0) {
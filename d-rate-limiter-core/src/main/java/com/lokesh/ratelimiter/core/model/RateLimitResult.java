@@ -27,6 +27,8 @@ package com.lokesh.ratelimiter.core.model;
  * @param waitMillis      If denied, how long (in milliseconds) to wait before
  *                        retrying.
  *                        Maps naturally to the {@code Retry-After} HTTP header.
+ *                        If allowed by a reservation, how long to wait before
+ *                        using the tokens.
  * @param reason          Short machine-friendly reason (e.g. {@code "OK"},
  *                        {@code "RATE_LIMITED"},
  *                        {@code "FAIL_OPEN: Redis timeout"}).
@@ -56,6 +58,18 @@ public record RateLimitResult(
         return new RateLimitResult(false, remainingTokens, waitMillis, reason);
     }
 
+    /**
+     * Creates an allowed result for tokens reserved ahead of their refill.
+     *
+     * @param remainingTokens effective remaining tokens, negative while the
+     *                        reservation is outstanding.
+     * @param waitMillis      how long the caller must wait before using the
+     *                        tokens.
+     */
+    public static RateLimitResult reserved(double remainingTokens, long waitMillis) {
+        return new RateLimitResult(true, remainingTokens, waitMillis, "RESERVED");
+    }
+
     /**
      * Creates a fail-open result.
      *
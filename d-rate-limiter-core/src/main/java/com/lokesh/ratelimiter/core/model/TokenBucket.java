@@ -46,18 +46,137 @@ public record TokenBucket(double tokens, long lastRefillMillis) {
      * @return A {@link ConsumptionResult} containing the outcome and updated state.
      */
     public ConsumptionResult tryConsume(long now, int cost, RateLimitConfig config) {
-        TokenBucket refilled = refill(now, config);
+        return tryConsume(now, cost, config, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Attempts to consume tokens, refilling the bucket to a time read in
+     * {@code precision}.
+     *
+     * <p>
+     * <b>Sub-Millisecond Refill</b>: The updated bucket is still stamped with
+     * the whole millisecond; its tokens are lowered by the refill of the
+     * remainder, which the next refill adds back. No refill is lost, at the
+     * cost of {@code tokens()} lagging by less than one millisecond of refill.
+     *
+     * @param now       The current time in {@code precision}.
+     * @param cost      The number of tokens to consume.
+     * @param config    The policy to apply.
+     * @param precision The unit of {@code now}.
+     * @return A {@link ConsumptionResult} containing the outcome and updated state.
+     */
+    public ConsumptionResult tryConsume(long now, int cost, RateLimitConfig config, ClockPrecision precision) {
+        return tryConsumeAbove(now, cost, config, 0, precision);
+    }
+
+    /**
+     * Attempts to consume tokens while leaving a floor of the bucket untouched.
+     *
+     * <p>
+     * <b>Reserved Headroom</b>: The request is allowed only if
+     * {@code floor × capacity} tokens are still left after it; a lower priority
+     * class uses a higher floor, so it is denied while a higher class is still
+     * served. A floor of {@code 0} is {@link #tryConsume}.
+     *
+     * @param now       The current time in {@code precision}.
+     * @param cost      The number of tokens to consume.
+     * @param config    The policy to apply.
+     * @param floor     The fraction of capacity that must remain, in
+     *                  {@code [0, 1]}.
+     * @param precision The unit of {@code now}.
+     * @return A {@link ConsumptionResult}; when denied, its wait is the time
+     *         until the tokens above the floor cover the cost.
+     */
+    public ConsumptionResult tryConsumeAbove(long now, int cost, RateLimitConfig config, double floor,
+            ClockPrecision precision) {
+        double available = tokensAt(now, config, precision);
+        double spendable = available - floor * config.capacity();
 
-        if (refilled.tokens() >= cost) {
-            TokenBucket updated = new TokenBucket(refilled.tokens() - cost, now);
-            return ConsumptionResult.success(updated);
+        if (spendable >= cost) {
+            return ConsumptionResult.success(stamped(available - cost, now, config, precision));
         }
 
         // Calculate wait time: (tokens_needed / refill_rate) * 1000ms
-        double needed = cost - refilled.tokens();
+        double needed = cost - spendable;
         long waitMillis = (long) Math.ceil((needed / config.tokensPerSecond()) * 1000.0);
 
-        return ConsumptionResult.denied(refilled, waitMillis);
+        return ConsumptionResult.denied(refill(now, config, precision), waitMillis);
+    }
+
+    /**
+     * Reserves tokens that may not have been refilled yet.
+     *
+     * <p>
+     * If the bucket cannot pay now but will within {@code maxWaitMillis}, the
+     * tokens are deducted anyway and the bucket goes negative. The returned result
+     * is allowed, and its {@code waitMillis} is the time the caller must wait
+     * before using the tokens. Later reservations see the debt and wait longer, so
+     * reservations are granted in the order they were made.
+     *
+     * @param now           The current time in epoch milliseconds.
+     * @param cost          The number of tokens to reserve.
+     * @param config        The policy to apply.
+     * @param maxWaitMillis The longest wait the caller accepts.
+     * @return A {@link ConsumptionResult}; denied if the wait would exceed
+     *         {@code maxWaitMillis}.
+     */
+    public ConsumptionResult tryReserve(long now, int cost, RateLimitConfig config, long maxWaitMillis) {
+        return tryReserve(now, cost, config, maxWaitMillis, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Reserves tokens, reading the time in {@code precision} (see
+     * {@link #tryConsume(long, int, RateLimitConfig, ClockPrecision)}).
+     */
+    public ConsumptionResult tryReserve(long now, int cost, RateLimitConfig config, long maxWaitMillis,
+            ClockPrecision precision) {
+        double available = tokensAt(now, config, precision);
+        double needed = cost - available;
+        long waitMillis = needed > 0 ? (long) Math.ceil((needed / config.tokensPerSecond()) * 1000.0) : 0;
+        if (waitMillis > maxWaitMillis) {
+            return ConsumptionResult.denied(refill(now, config, precision), waitMillis);
+        }
+        return new ConsumptionResult(true, stamped(available - cost, now, config, precision), waitMillis);
+    }
+
+    /**
+     * Returns the tokens of a cancelled reservation, capped at capacity.
+     *
+     * @param now    The current time in epoch milliseconds.
+     * @param cost   The number of tokens reserved.
+     * @param config The policy to apply.
+     * @return A new {@code TokenBucket}.
+     */
+    public TokenBucket refund(long now, int cost, RateLimitConfig config) {
+        return refund(now, cost, config, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Returns the tokens of a cancelled reservation, reading the time in
+     * {@code precision}.
+     */
+    public TokenBucket refund(long now, int cost, RateLimitConfig config, ClockPrecision precision) {
+        if (now <= lastRefillMillis * precision.ticksPerMilli()) {
+            return new TokenBucket(Math.min(config.capacity(), tokens + cost), lastRefillMillis);
+        }
+        return stamped(Math.min(config.capacity(), tokensAt(now, config, precision) + cost), now, config, precision);
+    }
+
+    /**
+     * Deducts tokens consumed elsewhere, without a floor: the bucket may go
+     * negative, and later requests wait until the debt is refilled.
+     *
+     * @param now       The current time in {@code precision} units.
+     * @param cost      The number of tokens to deduct.
+     * @param config    The policy to apply.
+     * @param precision The unit of {@code now}.
+     * @return A new {@code TokenBucket}.
+     */
+    public TokenBucket debit(long now, long cost, RateLimitConfig config, ClockPrecision precision) {
+        if (now <= lastRefillMillis * precision.ticksPerMilli()) {
+            return new TokenBucket(tokens - cost, lastRefillMillis);
+        }
+        return stamped(tokensAt(now, config, precision) - cost, now, config, precision);
     }
 
     /**
@@ -84,14 +203,43 @@ public record TokenBucket(double tokens, long lastRefillMillis) {
      * @return A new {@code TokenBucket} with updated token count and timestamp.
      */
     public TokenBucket refill(long currentMillis, RateLimitConfig config) {
-        if (currentMillis <= lastRefillMillis) {
+        return refill(currentMillis, config, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Refills the bucket to a time read in {@code precision}; the result is
+     * stamped as described in
+     * {@link #tryConsume(long, int, RateLimitConfig, ClockPrecision)}.
+     */
+    public TokenBucket refill(long now, RateLimitConfig config, ClockPrecision precision) {
+        if (now <= lastRefillMillis * precision.ticksPerMilli()) {
             return this;
         }
+        return stamped(tokensAt(now, config, precision), now, config, precision);
+    }
 
-        long elapsedMillis = currentMillis - lastRefillMillis;
-        double tokensToAdd = (elapsedMillis / 1000.0) * config.tokensPerSecond();
-        double newTokens = Math.min(config.capacity(), tokens + tokensToAdd);
+    /** @return the tokens held at {@code now}, capped at capacity. */
+    private double tokensAt(long now, RateLimitConfig config, ClockPrecision precision) {
+        long elapsed = now - lastRefillMillis * precision.ticksPerMilli();
+        if (elapsed <= 0) {
+            return tokens;
+        }
+        double tokensToAdd = (elapsed / (1000.0 * precision.ticksPerMilli())) * config.tokensPerSecond();
+        return Math.min(config.capacity(), tokens + tokensToAdd);
+    }
 
-        return new TokenBucket(newTokens, currentMillis);
+    /**
+     * @return a bucket holding {@code tokensAtNow} at {@code now}, stamped with
+     *         the whole millisecond.
+     */
+    private static TokenBucket stamped(double tokensAtNow, long now, RateLimitConfig config,
+            ClockPrecision precision) {
+        long millis = precision.toMillis(now);
+        long remainder = now - millis * precision.ticksPerMilli();
+        if (remainder == 0) {
+            return new TokenBucket(tokensAtNow, millis);
+        }
+        double sinceStamp = (remainder / (1000.0 * precision.ticksPerMilli())) * config.tokensPerSecond();
+        return new TokenBucket(tokensAtNow - sinceStamp, millis);
     }
-}
\ No newline at end of file
+}
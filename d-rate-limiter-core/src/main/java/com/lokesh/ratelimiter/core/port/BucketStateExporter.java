@@ -0,0 +1,37 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+
+import java.util.stream.Stream;
+
+/**
+ * Driven Port (Outbound): Bulk, read-only export of stored bucket states.
+ *
+ * <p>
+ * Complements {@link RateLimiterRepository#getState(String)}, which only
+ * supports point lookups, for operational questions such as "which users of
+ * this tenant are currently throttled?".
+ *
+ * <p>
+ * <b>Contract</b>:
+ * <ul>
+ * <li>The returned stream is lazy and holds at most one batch in memory.</li>
+ * <li>Implementations must not block the store (e.g. no {@code KEYS} in
+ * Redis) and should cap their own read rate so an export does not disturb
+ * production traffic.</li>
+ * <li>The export is weakly consistent: buckets created or expired while it runs
+ * may or may not appear.</li>
+ * <li>Callers should close the stream (try-with-resources) when they stop
+ * early.</li>
+ * </ul>
+ */
+public interface BucketStateExporter {
+
+    /**
+     * Streams every bucket whose key matches {@code keyPattern}.
+     *
+     * @param keyPattern a glob-style pattern, e.g. {@code ratelimiter:acme:*}.
+     * @return a lazy stream of snapshots.
+     */
+    Stream<BucketSnapshot> export(String keyPattern);
+}
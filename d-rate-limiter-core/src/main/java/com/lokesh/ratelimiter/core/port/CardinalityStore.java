@@ -0,0 +1,27 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.DistinctKeys;
+
+import java.util.List;
+
+/**
+ * Driven Port (Outbound): Shared estimates of how many distinct rate-limit
+ * keys each tenant used, updated write-behind by every node.
+ *
+ * <p>
+ * <b>Contract</b>: Adding keys is idempotent, and each reply is the estimated
+ * size of the set including every node's flushed keys, so a flush is also a
+ * read. Estimates may be approximate (e.g. HyperLogLog). Calls run on the
+ * flush thread, never on the request path; they may block for a round-trip
+ * and may throw.
+ */
+public interface CardinalityStore {
+
+    /**
+     * Adds keys to their sets, creating missing sets.
+     *
+     * @param batches the keys to add, per set.
+     * @return the estimated set sizes, in batch order.
+     */
+    List<Long> addAndCount(List<DistinctKeys> batches);
+}
@@ -0,0 +1,42 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.ClockPrecision;
+
+/**
+ * Driven Port (Outbound): The time source of the local engines.
+ *
+ * <p>
+ * Architectural Alignment:
+ * <ul>
+ * <li><b>ADR 007 (Time Source)</b>: Local repositories read epoch time only
+ * through this port, so tests can control it and deployments can trade
+ * precision for cost (e.g. a cached clock updated by one ticker thread).</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Concurrency Contract</b>: Implementations MUST be thread-safe and cheap;
+ * they are read on every decision, under the bucket lock.
+ */
+@FunctionalInterface
+public interface Clock {
+
+    /**
+     * @return the current time in epoch milliseconds.
+     */
+    long millis();
+
+    /**
+     * @return the current time in epoch microseconds; by default
+     *         {@link #millis()} scaled, so only as precise as milliseconds.
+     */
+    default long micros() {
+        return millis() * 1_000;
+    }
+
+    /**
+     * @return the current time in the given unit.
+     */
+    default long now(ClockPrecision precision) {
+        return precision == ClockPrecision.MICROS ? micros() : millis();
+    }
+}
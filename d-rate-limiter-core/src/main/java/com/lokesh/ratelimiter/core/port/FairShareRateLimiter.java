@@ -0,0 +1,31 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+
+/**
+ * Driving Port (Inbound): Rate limit checks against hierarchical limits.
+ *
+ * <p>Architectural Alignment:
+ * <ul>
+ *   <li><b>ADR 001 (Hexagonal)</b>: Kept apart from {@link RateLimiter}, since only
+ *       some stores can evaluate it (see {@link FairShareRepository}).</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface FairShareRateLimiter {
+
+    /**
+     * Evaluates a request against a hierarchical limit, along its tenant → user
+     * path (see {@link FairShareLimit}).
+     *
+     * @param limit The hierarchical limit to evaluate.
+     * @param path The tenant and user being limited; the user is the identity
+     *             reported to listeners.
+     * @param tokensToConsume The number of tokens this specific request costs.
+     * @return A {@link RateLimitResult} containing the decision and the lender's
+     *         remaining tokens.
+     */
+    RateLimitResult allowFairShare(FairShareLimit limit, FairSharePath path, int tokensToConsume);
+}
@@ -0,0 +1,35 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PathConsumption;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+
+/**
+ * Driven Port (Outbound): Stores that can evaluate hierarchical limits.
+ *
+ * <p>Architectural Alignment:
+ * <ul>
+ *   <li><b>ADR 001 (Hexagonal)</b>: A capability of its own rather than a method of
+ *       {@link RateLimiterRepository}: only stores that keep a path's buckets together
+ *       implement it, so a missing capability is found when the application is wired,
+ *       not on a request.</li>
+ *   <li><b>ADR 004 (Atomic Operations)</b>: Implementations must consume along the whole
+ *       path atomically.</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface FairShareRepository {
+
+    /**
+     * Atomically consumes tokens along the global → tenant → user path of a
+     * hierarchical limit, letting children borrow from their parents (see
+     * {@link PathConsumption#tryConsume}).
+     *
+     * @param limit           The hierarchical limit.
+     * @param path            The tenant and user being limited.
+     * @param tokensToConsume The weight of the current request.
+     * @return A {@link RateLimitResult} for the whole path.
+     */
+    RateLimitResult tryAcquireFairShare(FairShareLimit limit, FairSharePath path, int tokensToConsume);
+}
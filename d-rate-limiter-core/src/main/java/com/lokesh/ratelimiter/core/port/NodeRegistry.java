@@ -0,0 +1,38 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Driven Port (Outbound): Heartbeats of the nodes that split apportioned plans
+ * between them.
+ *
+ * <p>
+ * <b>Contract</b>:
+ * <ul>
+ * <li>A node is live until {@code ttl} after its last {@link #publish}; then it
+ * disappears from {@link #liveNodes()} and its share is free for the others.</li>
+ * <li>Both calls run on the rebalance thread, never on the request path; they
+ * may block for a round-trip and may throw.</li>
+ * </ul>
+ */
+public interface NodeRegistry {
+
+    /**
+     * Records a heartbeat with the node's demand and share per plan, replacing
+     * its previous entry.
+     *
+     * @param nodeId unique name of the publishing node.
+     * @param plans  the node's entry per plan name.
+     * @param ttl    how long the node counts as live without a new heartbeat.
+     */
+    void publish(String nodeId, Map<String, NodeShare> plans, Duration ttl);
+
+    /**
+     * @return the latest entries of every live node, keyed by node id, then by
+     *         plan name; including the caller's own.
+     */
+    Map<String, Map<String, NodeShare>> liveNodes();
+}
@@ -0,0 +1,37 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.ConsumptionCount;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Driven Port (Outbound): Exchanges consumption counters between independent
+ * sites (data centres, Redis instances) that enforce the same limits.
+ *
+ * <p>
+ * <b>Contract</b>:
+ * <ul>
+ * <li>Delivery may be delayed, duplicated, reordered or lost; counters are
+ * running totals, so the receiver stays correct either way.</li>
+ * <li>A channel must not deliver a site's own messages back to it.</li>
+ * <li>{@link #publish} must not block for long: it runs on the sync thread,
+ * never on the request path.</li>
+ * </ul>
+ */
+public interface PeerChannel {
+
+    /**
+     * Sends counters of the local site to every peer.
+     *
+     * @param counts the counters that changed since the last publish.
+     */
+    void publish(List<ConsumptionCount> counts);
+
+    /**
+     * Registers the receiver of counters published by peers.
+     *
+     * @param receiver called with each received batch, on the channel's thread.
+     */
+    void subscribe(Consumer<List<ConsumptionCount>> receiver);
+}
@@ -0,0 +1,37 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.BanDelta;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Driven Port (Outbound): Shares the bans of the penalty box between the nodes
+ * of a deployment.
+ *
+ * <p>
+ * <b>Contract</b>:
+ * <ul>
+ * <li>Delivery may be delayed, duplicated, reordered or lost; deltas only set
+ * bits, so the receiver stays correct either way.</li>
+ * <li>A channel must not deliver a node's own messages back to it.</li>
+ * <li>{@link #publish} must not block for long: it runs on the sync thread,
+ * never on the request path.</li>
+ * </ul>
+ */
+public interface PenaltyChannel {
+
+    /**
+     * Sends the bans added on this node to every other node.
+     *
+     * @param deltas the bans added since the last publish, per partition.
+     */
+    void publish(List<BanDelta> deltas);
+
+    /**
+     * Registers the receiver of bans published by other nodes.
+     *
+     * @param receiver called with each received batch, on the channel's thread.
+     */
+    void subscribe(Consumer<List<BanDelta>> receiver);
+}
@@ -0,0 +1,27 @@
+package com.lokesh.ratelimiter.core.port;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+
+import java.util.List;
+
+/**
+ * Driven Port (Outbound): Shared totals of calendar quotas, updated
+ * write-behind by every node.
+ *
+ * <p>
+ * <b>Contract</b>: Each contribution replaces its node's previous one for the
+ * counter, atomically, and its reply is the sum over every node, so a flush is
+ * also a read. Replacing instead of adding makes a retried flush harmless.
+ * Calls run on the flush thread, or on a request path only when a node has
+ * used up its slack; they may block for a round-trip and may throw.
+ */
+public interface QuotaStore {
+
+    /**
+     * Records every node's running total, creating missing counters.
+     *
+     * @param contributions the totals to record.
+     * @return the counters' totals over all nodes, in contribution order.
+     */
+    List<Long> contribute(List<QuotaContribution> contributions);
+}
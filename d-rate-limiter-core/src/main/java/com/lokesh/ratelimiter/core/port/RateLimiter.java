@@ -1,7 +1,11 @@
 package com.lokesh.ratelimiter.core.port;
 
+import com.lokesh.ratelimiter.core.model.PriorityClass;
 import com.lokesh.ratelimiter.core.model.RateLimitResult;
+
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Driving Port (Inbound): The primary service interface for performing rate limit checks.
@@ -24,4 +28,55 @@ public interface RateLimiter {
      * @return A {@link RateLimitResult} containing the decision and remaining token metadata.
      */
     RateLimitResult allow(String key, List<String> planNames, int tokensToConsume);
-}
\ No newline at end of file
+
+    /**
+     * Evaluates a request of a given priority class. Under load, lower classes
+     * are denied while higher ones are still served (see
+     * {@link PriorityClass}); by default the class is ignored.
+     *
+     * <p>
+     * The caller decides the class, e.g. {@link PriorityClass#ANONYMOUS} for a
+     * request without a principal. Requests evaluated through
+     * {@link #allow(String, List, int)} are never shed.
+     *
+     * @param key The identity being limited (e.g., User ID, IP address).
+     * @param planNames The names of the plans to evaluate (resolved via {@link PlanRegistry}).
+     * @param tokensToConsume The number of tokens this specific request costs.
+     * @param priority The class of the request.
+     * @return A {@link RateLimitResult} containing the decision and remaining token metadata.
+     */
+    default RateLimitResult allow(String key, List<String> planNames, int tokensToConsume, PriorityClass priority) {
+        return allow(key, planNames, tokensToConsume);
+    }
+
+    /**
+     * Waits for a permit instead of being denied.
+     *
+     * <p>
+     * By default, a denied request is retried after the wait it reports, for as
+     * long as that fits in {@code maxWait}. Waiters are not ordered: one that
+     * arrives later may be served first. {@code DefaultRateLimiter} reserves the
+     * tokens up front instead, which serves callers in order at exactly the plan
+     * rate.
+     *
+     * @param key The identity being limited (e.g., User ID, IP address).
+     * @param planNames The names of the plans to evaluate (resolved via {@link PlanRegistry}).
+     * @param tokensToConsume The number of tokens this specific request costs.
+     * @param maxWait The longest the caller is willing to wait.
+     * @return An allowed result once the permit is usable, or a denial if it
+     *         would not be usable within {@code maxWait}.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    default RateLimitResult acquire(String key, List<String> planNames, int tokensToConsume, Duration maxWait)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            RateLimitResult result = allow(key, planNames, tokensToConsume);
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (result.allowed() || result.waitMillis() <= 0 || result.waitMillis() > remainingMillis) {
+                return result;
+            }
+            Thread.sleep(result.waitMillis());
+        }
+    }
+}
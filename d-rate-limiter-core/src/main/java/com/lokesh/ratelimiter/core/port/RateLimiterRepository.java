@@ -1,9 +1,11 @@
 package com.lokesh.ratelimiter.core.port;
 
+import com.lokesh.ratelimiter.core.model.AcquireRequest;
 import com.lokesh.ratelimiter.core.model.RateLimitConfig;
 import com.lokesh.ratelimiter.core.model.RateLimitResult;
 import com.lokesh.ratelimiter.core.model.TokenBucket;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,98 @@ public interface RateLimiterRepository {
      */
     RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume);
 
+    /**
+     * Executes an atomic check-and-decrement that leaves a floor of every bucket
+     * untouched (see {@link TokenBucket#tryConsumeAbove}); lower priority
+     * classes use it so the headroom stays with the classes above them.
+     *
+     * <p>
+     * Stores that cannot reserve headroom fall back to {@link #tryAcquire},
+     * ignoring the floor: every class is then served alike, as without load
+     * shedding.
+     *
+     * @param key             The unique identifier for the rate limit bucket.
+     * @param configs         The list of policies to evaluate concurrently.
+     * @param tokensToConsume The weight of the current request.
+     * @param floor           The fraction of each bucket's capacity that must
+     *                        remain, in {@code [0, 1]}.
+     * @return A {@link RateLimitResult} representing the atomic outcome of all
+     *         checks.
+     */
+    default RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        return tryAcquire(key, configs, tokensToConsume);
+    }
+
+    /**
+     * Executes several independent acquires, e.g. a batch of decisions collected
+     * by the caller. Implementations may send them together (pipelining).
+     *
+     * <p>
+     * Entries do not affect each other: an entry that fails is reported as
+     * {@link RateLimitResult#failOpen} (ADR 002) and the others are still
+     * decided.
+     *
+     * @param requests the acquires to execute.
+     * @return one result per request, in request order.
+     */
+    default List<RateLimitResult> tryAcquireBatch(List<AcquireRequest> requests) {
+        List<RateLimitResult> results = new ArrayList<>(requests.size());
+        for (AcquireRequest request : requests) {
+            try {
+                results.add(tryAcquire(request.key(), request.configs(), request.tokensToConsume()));
+            } catch (RuntimeException e) {
+                results.add(RateLimitResult.failOpen(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Executes {@code requests} identical acquires on one key, with the same
+     * outcome as issuing them one after another. Implementations may decide them
+     * in one round-trip by granting as many requests as the buckets can pay for.
+     *
+     * @param key              The unique identifier for the rate limit bucket.
+     * @param configs          The list of policies to evaluate concurrently.
+     * @param tokensPerRequest The weight of each request.
+     * @param requests         The number of requests.
+     * @return one result per request, in the order they were decided.
+     */
+    default List<RateLimitResult> tryAcquireRepeated(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests) {
+        List<RateLimitResult> results = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            results.add(tryAcquire(key, configs, tokensPerRequest));
+        }
+        return results;
+    }
+
+    /**
+     * Executes {@code requests} identical acquires on one key that each leave a
+     * floor of every bucket untouched, with the same outcome as issuing them one
+     * after another through {@link #tryAcquireAbove}.
+     *
+     * @param key              The unique identifier for the rate limit bucket.
+     * @param configs          The list of policies to evaluate concurrently.
+     * @param tokensPerRequest The weight of each request.
+     * @param requests         The number of requests.
+     * @param floor            The fraction of each bucket's capacity that must
+     *                         remain, in {@code [0, 1]}.
+     * @return one result per request, in the order they were decided.
+     */
+    default List<RateLimitResult> tryAcquireRepeatedAbove(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests, double floor) {
+        if (floor <= 0) {
+            return tryAcquireRepeated(key, configs, tokensPerRequest, requests);
+        }
+        List<RateLimitResult> results = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            results.add(tryAcquireAbove(key, configs, tokensPerRequest, floor));
+        }
+        return results;
+    }
+
     /**
      * Retrieves the current state of a specific bucket. 
      * Primarily for observability and testing.
@@ -44,4 +138,62 @@ public interface RateLimiterRepository {
      * @return An {@link Optional} containing the {@link TokenBucket} state.
      */
     Optional<TokenBucket> getState(String key);
-}
\ No newline at end of file
+
+    /**
+     * Atomically reserves tokens across multiple configurations, letting buckets
+     * go negative when the tokens will be refilled within {@code maxWaitMillis}
+     * (see {@link TokenBucket#tryReserve}).
+     *
+     * <p>
+     * Stores that cannot reserve fall back to {@link #tryAcquire}: the request
+     * is allowed without a wait or denied with the time until it could be, and
+     * the caller retries after that wait.
+     *
+     * @param key             The unique identifier for the rate limit bucket.
+     * @param configs         The list of policies to evaluate concurrently.
+     * @param tokensToConsume The weight of the current request.
+     * @param maxWaitMillis   The longest wait the caller accepts.
+     * @return An allowed result whose {@code waitMillis} is the time until the
+     *         reserved tokens may be used, or a denial if that exceeds
+     *         {@code maxWaitMillis}.
+     */
+    default RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return tryAcquire(key, configs, tokensToConsume);
+    }
+
+    /**
+     * Deducts tokens consumed elsewhere, e.g. at a peer site, from every bucket.
+     * Buckets may go negative, so local callers pay off the debt first.
+     *
+     * <p>
+     * By default the tokens are taken with {@link #tryAcquire}, which only
+     * deducts them if every bucket holds them: stores that cannot go negative
+     * err on the lenient side.
+     *
+     * @param key     The unique identifier for the rate limit bucket.
+     * @param configs The policies to debit.
+     * @param tokens  The number of tokens to deduct.
+     */
+    default void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        for (long left = tokens; left > 0; left -= Integer.MAX_VALUE) {
+            tryAcquire(key, configs, (int) Math.min(left, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Returns the tokens of a cancelled reservation to every bucket (see
+     * {@link TokenBucket#refund}).
+     *
+     * <p>
+     * Stores that cannot reserve never hand out a permit before its tokens are
+     * available (see {@link #tryReserve}), so there is nothing to return and
+     * the default does nothing.
+     *
+     * @param key             The unique identifier for the rate limit bucket.
+     * @param configs         The policies the reservation was made against.
+     * @param tokensToConsume The weight of the reservation.
+     */
+    default void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+    }
+}
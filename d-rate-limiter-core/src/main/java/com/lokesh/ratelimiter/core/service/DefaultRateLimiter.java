@@ -1,20 +1,30 @@
 package com.lokesh.ratelimiter.core.service;
 
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PriorityClass;
 import com.lokesh.ratelimiter.core.model.RateLimitConfig;
 import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.FairShareRateLimiter;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
 import com.lokesh.ratelimiter.core.port.PlanRegistry;
 import com.lokesh.ratelimiter.core.port.RateLimiter;
 import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
 import com.lokesh.ratelimiter.core.port.RateLimitEventListener;
+import com.lokesh.ratelimiter.core.support.LoadShedder;
 import com.lokesh.ratelimiter.core.support.MissingPlanPolicy;
+import com.lokesh.ratelimiter.core.support.PenaltyBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Default implementation of the {@link RateLimiter} port.
@@ -28,6 +38,25 @@ import java.util.Optional;
  * <li><b>Observability (Fix 7)</b>: Notifies listeners of all rate-limiting
  * events.</li>
  * <li><b>Security (Fix 2)</b>: Enforces plan resolution policies.</li>
+ * <li><b>Waiting Acquire</b>: {@link #acquire} reserves tokens, then parks the
+ * caller with {@link LockSupport#parkNanos} until they are refilled: no polling,
+ * and a waiting virtual thread releases its carrier. Stores that cannot reserve
+ * deny with a wait instead; the request is then retried after it.</li>
+ * <li><b>Penalty Box</b>: Keys banned by an optional {@link PenaltyBox} are
+ * rejected before their plans are resolved, without calling the repository or
+ * the listeners.</li>
+ * <li><b>Priority Classes</b>: With a {@link LoadShedder}, a request of a given
+ * {@link PriorityClass} only takes tokens above its class's floor of every
+ * bucket. A denial caused by the floor alone is reported as
+ * {@link LoadShedder#DENY_REASON}. Waiting acquires ignore the class. The time
+ * every decision waits for the repository is reported as queue latency, so a
+ * saturated store raises the floors.</li>
+ * <li><b>Fair Share</b>: {@link #fairShare} binds a
+ * {@link FairShareRepository} and returns a {@link FairShareRateLimiter} that
+ * evaluates {@link FairShareLimit}s with the same penalty box, listeners and
+ * fail-open as {@link #allow}; the user is the key, the limit's plan name the
+ * plan. Only stores that can evaluate hierarchical limits implement that port,
+ * so an unsupported store is found when the application is wired.</li>
  * </ul>
  */
 public class DefaultRateLimiter implements RateLimiter {
@@ -38,6 +67,8 @@ public class DefaultRateLimiter implements RateLimiter {
     private final PlanRegistry planRegistry;
     private final List<RateLimitEventListener> listeners;
     private final MissingPlanPolicy missingPlanPolicy;
+    private final PenaltyBox penaltyBox;
+    private final LoadShedder loadShedder;
 
     /**
      * Convenience constructor using sensible defaults: no listeners,
@@ -64,15 +95,221 @@ public class DefaultRateLimiter implements RateLimiter {
             PlanRegistry planRegistry,
             List<RateLimitEventListener> listeners,
             MissingPlanPolicy missingPlanPolicy) {
+        this(repository, planRegistry, listeners, missingPlanPolicy, null);
+    }
+
+    /**
+     * Full constructor with a penalty box. The box must also be among the
+     * {@code listeners} to learn about denials.
+     *
+     * @param repository        the driven port for atomic bucket operations.
+     * @param planRegistry      the registry from which plan configs are resolved.
+     * @param listeners         zero or more observers for allow/deny/fail-open
+     *                          events.
+     * @param missingPlanPolicy how to react when a requested plan is not found.
+     * @param penaltyBox        the bans to enforce first, or {@code null} for
+     *                          none.
+     * @throws NullPointerException if any other argument is {@code null}.
+     */
+    public DefaultRateLimiter(RateLimiterRepository repository,
+            PlanRegistry planRegistry,
+            List<RateLimitEventListener> listeners,
+            MissingPlanPolicy missingPlanPolicy,
+            PenaltyBox penaltyBox) {
+        this(repository, planRegistry, listeners, missingPlanPolicy, penaltyBox, null);
+    }
+
+    /**
+     * Full constructor with a penalty box and load shedding.
+     *
+     * @param repository        the driven port for atomic bucket operations.
+     * @param planRegistry      the registry from which plan configs are resolved.
+     * @param listeners         zero or more observers for allow/deny/fail-open
+     *                          events.
+     * @param missingPlanPolicy how to react when a requested plan is not found.
+     * @param penaltyBox        the bans to enforce first, or {@code null} for
+     *                          none.
+     * @param loadShedder       the floors of the priority classes, or
+     *                          {@code null} to serve every class alike.
+     * @throws NullPointerException if any other argument is {@code null}.
+     */
+    public DefaultRateLimiter(RateLimiterRepository repository,
+            PlanRegistry planRegistry,
+            List<RateLimitEventListener> listeners,
+            MissingPlanPolicy missingPlanPolicy,
+            PenaltyBox penaltyBox,
+            LoadShedder loadShedder) {
         this.repository = Objects.requireNonNull(repository, "Repository must not be null");
         this.planRegistry = Objects.requireNonNull(planRegistry, "PlanRegistry must not be null");
         this.listeners = Objects.requireNonNull(listeners, "Listeners must not be null");
         this.missingPlanPolicy = Objects.requireNonNull(missingPlanPolicy, "MissingPlanPolicy must not be null");
+        this.penaltyBox = penaltyBox;
+        this.loadShedder = loadShedder;
     }
 
     @Override
     public RateLimitResult allow(String key, List<String> planNames, int tokensToConsume) {
+        return allow(key, planNames, tokensToConsume, null, 0);
+    }
+
+    @Override
+    public RateLimitResult allow(String key, List<String> planNames, int tokensToConsume, PriorityClass priority) {
+        Objects.requireNonNull(priority, "Priority must not be null");
+        return allow(key, planNames, tokensToConsume, priority,
+                loadShedder != null ? loadShedder.floor(priority) : 0);
+    }
+
+    private RateLimitResult allow(String key, List<String> planNames, int tokensToConsume, PriorityClass priority,
+            double floor) {
+        // 0. Banned keys (In-Memory - No I/O)
+        Optional<RateLimitResult> banned = checkPenaltyBox(key);
+        if (banned.isPresent()) {
+            return banned.get();
+        }
+
         // 1. Resolve Plans (Logic/Config - Should Fail-Fast if configured)
+        List<RateLimitConfig> configs = resolvePlans(key, planNames);
+
+        // 2. Execute Check (Infrastructure - Should Fail-Open)
+        try {
+            if (configs.isEmpty()) {
+                RateLimitResult res = RateLimitResult.allow(-1);
+                notifyAllow(key, planNames, res);
+                return res;
+            }
+
+            long start = System.nanoTime();
+            RateLimitResult result;
+            try {
+                result = floor > 0
+                        ? shed(repository.tryAcquireAbove(key, configs, tokensToConsume, floor), tokensToConsume,
+                                priority)
+                        : repository.tryAcquire(key, configs, tokensToConsume);
+            } finally {
+                if (loadShedder != null) {
+                    loadShedder.recordQueueLatency(System.nanoTime() - start);
+                }
+            }
+
+            if (result.allowed()) {
+                notifyAllow(key, planNames, result);
+            } else {
+                notifyDeny(key, planNames, result);
+            }
+
+            return result;
+        } catch (Exception e) {
+            return failOpen(key, e);
+        }
+    }
+
+    /**
+     * Returns a rate limiter for hierarchical limits that evaluates them in
+     * {@code fairShareRepository} and shares this one's penalty box and
+     * listeners.
+     *
+     * @param fairShareRepository the store holding the hierarchical buckets.
+     * @return the hierarchical rate limiter.
+     * @throws NullPointerException if {@code fairShareRepository} is
+     *                              {@code null}.
+     */
+    public FairShareRateLimiter fairShare(FairShareRepository fairShareRepository) {
+        Objects.requireNonNull(fairShareRepository, "FairShareRepository must not be null");
+        return (limit, path, tokensToConsume) -> allowFairShare(fairShareRepository, limit, path, tokensToConsume);
+    }
+
+    private RateLimitResult allowFairShare(FairShareRepository fairShareRepository, FairShareLimit limit,
+            FairSharePath path, int tokensToConsume) {
+        Objects.requireNonNull(limit, "Limit must not be null");
+        Objects.requireNonNull(path, "Path must not be null");
+        String key = path.user();
+        Optional<RateLimitResult> banned = checkPenaltyBox(key);
+        if (banned.isPresent()) {
+            return banned.get();
+        }
+
+        List<String> planNames = List.of(limit.planName());
+        try {
+            RateLimitResult result = fairShareRepository.tryAcquireFairShare(limit, path, tokensToConsume);
+            if (result.allowed()) {
+                notifyAllow(key, planNames, result);
+            } else {
+                notifyDeny(key, planNames, result);
+            }
+            return result;
+        } catch (Exception e) {
+            return failOpen(key, e);
+        }
+    }
+
+    @Override
+    public RateLimitResult acquire(String key, List<String> planNames, int tokensToConsume, Duration maxWait)
+            throws InterruptedException {
+        Objects.requireNonNull(maxWait, "MaxWait must not be null");
+        Optional<RateLimitResult> banned = checkPenaltyBox(key);
+        if (banned.isPresent()) {
+            return banned.get();
+        }
+        List<RateLimitConfig> configs = resolvePlans(key, planNames);
+        if (configs.isEmpty()) {
+            RateLimitResult res = RateLimitResult.allow(-1);
+            notifyAllow(key, planNames, res);
+            return res;
+        }
+
+        long start = System.nanoTime();
+        RateLimitResult result;
+        while (true) {
+            long budget = Math.max(0, maxWait.toMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            try {
+                result = repository.tryReserve(key, configs, tokensToConsume, budget);
+            } catch (Exception e) {
+                return failOpen(key, e);
+            }
+            if (result.allowed() || result.waitMillis() <= 0 || result.waitMillis() > budget) {
+                break;
+            }
+            // Stores that cannot reserve deny with the wait instead: retry after it.
+            if (!parkUntil(System.nanoTime() + result.waitMillis() * 1_000_000L)) {
+                throw new InterruptedException("Interrupted while waiting for a permit for key [" + key + "]");
+            }
+        }
+        if (!result.allowed()) {
+            notifyDeny(key, planNames, result);
+            return result;
+        }
+
+        // Reservations are ordered by the debt they leave behind, so waking at
+        // the reserved time is all the fairness needed.
+        if (!parkUntil(System.nanoTime() + result.waitMillis() * 1_000_000L)) {
+            refund(key, configs, tokensToConsume);
+            throw new InterruptedException("Interrupted while waiting for a permit for key [" + key + "]");
+        }
+        notifyAllow(key, planNames, result);
+        return result;
+    }
+
+    /**
+     * Parks until {@code deadline} ({@link System#nanoTime}).
+     *
+     * @return {@code false} if interrupted first.
+     */
+    private boolean parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves plan names into configurations, applying the
+     * {@link MissingPlanPolicy}.
+     */
+    private List<RateLimitConfig> resolvePlans(String key, List<String> planNames) {
         List<RateLimitConfig> configs = new ArrayList<>();
         for (String planName : planNames) {
             Optional<RateLimitConfig> config = planRegistry.getPlan(planName);
@@ -88,30 +325,40 @@ public class DefaultRateLimiter implements RateLimiter {
             throw new IllegalStateException(
                     "No valid plans found for key [" + key + "] and policy REQUIRE_AT_LEAST_ONE");
         }
+        return configs;
+    }
 
-        // 2. Execute Check (Infrastructure - Should Fail-Open)
-        try {
-            if (configs.isEmpty()) {
-                RateLimitResult res = RateLimitResult.allow(-1);
-                notifyAllow(key, planNames, res);
-                return res;
-            }
+    /**
+     * Reports a denial as shed when every bucket held the tokens, but only
+     * below the class's floor.
+     */
+    private RateLimitResult shed(RateLimitResult result, int tokensToConsume, PriorityClass priority) {
+        if (result.allowed() || result.remainingTokens() < tokensToConsume) {
+            return result;
+        }
+        loadShedder.recordShed(priority);
+        return RateLimitResult.deny(result.remainingTokens(), result.waitMillis(), LoadShedder.DENY_REASON);
+    }
 
-            RateLimitResult result = repository.tryAcquire(key, configs, tokensToConsume);
+    /** Rejects banned keys; without a penalty box, no key is banned. */
+    private Optional<RateLimitResult> checkPenaltyBox(String key) {
+        return penaltyBox != null ? penaltyBox.check(key) : Optional.empty();
+    }
 
-            if (result.allowed()) {
-                notifyAllow(key, planNames, result);
-            } else {
-                notifyDeny(key, planNames, result);
-            }
+    /** FAIL-OPEN (ADR 002): Never block the user due to infrastructure errors. */
+    private RateLimitResult failOpen(String key, Exception e) {
+        log.error("Rate limiter infrastructure failure for key [{}]. Defaulting to FAIL-OPEN. Reason: {}",
+                key, e.getMessage(), e);
+        notifyFailOpen(key, e.getMessage());
+        return RateLimitResult.failOpen(e.getMessage());
+    }
 
-            return result;
+    /** Returns a cancelled reservation; a failed refund only costs throughput. */
+    private void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        try {
+            repository.refund(key, configs, tokensToConsume);
         } catch (Exception e) {
-            // FAIL-OPEN (ADR 002): Never block the user due to infrastructure errors.
-            log.error("Rate limiter infrastructure failure for key [{}]. Defaulting to FAIL-OPEN. Reason: {}",
-                    key, e.getMessage(), e);
-            notifyFailOpen(key, e.getMessage());
-            return RateLimitResult.failOpen(e.getMessage());
+            log.warn("Failed to refund cancelled reservation for key [{}]. Reason: {}", key, e.getMessage());
         }
     }
 
@@ -0,0 +1,406 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.NodeRegistry;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RateLimiterRepository} that splits global plans between nodes, so
+ * each node decides them locally against its own share.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b>. A global limit, such as the total
+ * traffic to a partner API, is one bucket that every node would otherwise
+ * update on every request, turning its key into a single hot slot.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Local Shares</b>: For an apportioned plan, the node keeps an
+ * in-memory bucket with its share {@code s} of the plan's capacity and rate.
+ * Between rebalances, no request leaves the node. Requests with any plan that
+ * is not apportioned are passed to the delegate unchanged.</li>
+ * <li><b>Heartbeats</b>: Every {@code rebalanceInterval} the node publishes
+ * its demand (tokens requested per second, admitted or not) and its share per
+ * plan to a {@link NodeRegistry}. A node missing three heartbeats is
+ * dropped.</li>
+ * <li><b>Demand Weighting</b>: A node's target share is
+ * {@code 0.1 / n + 0.9 × d / D} for {@code n} live nodes with total demand
+ * {@code D}; the even part lets an idle node absorb a burst. Without demand
+ * the plan is split evenly.</li>
+ * <li><b>Claim Only Headroom</b>: A node above its target shrinks to it at
+ * once. A node below it grows only into the headroom
+ * {@code 1 − Σ shares} it sees, in proportion to its gap among all nodes
+ * below target.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Error Bound</b>: After a round in which every node saw the others' latest
+ * shares, the shares add up to at most 1, so the nodes together never admit
+ * more than the plan allows. Growing buckets do not gain tokens, only refill
+ * faster; shrinking buckets lose what exceeds their new capacity.
+ * <ul>
+ * <li><b>Join</b>: A new node starts with no share and admits nothing until
+ * the others released some, usually after two rounds. Joins never
+ * over-admit.</li>
+ * <li><b>Leave</b>: The share of a node that stopped is free once its
+ * heartbeat expired. Nodes whose rounds overlap may claim the same headroom;
+ * the aggregate share then exceeds 1 by at most that headroom, for at most one
+ * interval {@code T}: at most {@code H × r × T} tokens for headroom
+ * {@code H} and plan rate {@code r}.</li>
+ * <li><b>Partition</b>: A node that cannot reach the registry keeps deciding
+ * with its share until its heartbeat has expired, then falls back to its even
+ * part, {@code 0.1 / n}, which the others do not see and may hand out
+ * again.</li>
+ * </ul>
+ * Each round measures the aggregate share from the registry; see
+ * {@link #aggregateShare}. Bucket capacities are rounded down, but to at least
+ * one token.
+ *
+ * <p>
+ * <b>Idle Eviction</b>: Local buckets are dropped once full again, at the
+ * resolution of the rebalance interval (see {@link IdleBucketEvictor}).
+ */
+public class ApportionedRateLimiterRepository implements RateLimiterRepository, AutoCloseable {
+
+    /** Fraction of every plan split evenly between live nodes. */
+    public static final double EVEN_FRACTION = 0.1;
+
+    /** Missed heartbeats after which a node is dropped. */
+    private static final int TTL_INTERVALS = 3;
+
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private static final Logger log = LoggerFactory.getLogger(ApportionedRateLimiterRepository.class);
+
+    private final String nodeId;
+    private final RateLimiterRepository delegate;
+    private final NodeRegistry registry;
+    private final InMemoryRateLimiterRepository local;
+    private final IdleBucketEvictor<String> evictor;
+    private final Map<String, Apportionment> plans = new ConcurrentHashMap<>();
+    private final long intervalMillis;
+    private final Duration ttl;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    /** Written by the rebalance thread only. */
+    private long lastRebalance;
+    private long lastPublished;
+
+    /**
+     * Creates a repository that rebalances every {@code rebalanceInterval}; the
+     * first round runs right away.
+     *
+     * @param nodeId            unique name of this node.
+     * @param delegate          the shared store for plans that are not
+     *                          apportioned.
+     * @param registry          the heartbeats of all nodes.
+     * @param planNames         the plans to split between nodes.
+     * @param rebalanceInterval time between rounds; see the error bound.
+     * @throws IllegalArgumentException if the interval is shorter than 1ms.
+     */
+    public ApportionedRateLimiterRepository(String nodeId, RateLimiterRepository delegate, NodeRegistry registry,
+            Set<String> planNames, Duration rebalanceInterval) {
+        this(nodeId, delegate, registry, planNames, rebalanceInterval, SystemClock.INSTANCE, true);
+    }
+
+    /**
+     * @param clock      source of the current time in epoch milliseconds.
+     * @param background whether to rebalance on a background thread; tests call
+     *                   {@link #rebalance()} directly.
+     */
+    ApportionedRateLimiterRepository(String nodeId, RateLimiterRepository delegate, NodeRegistry registry,
+            Set<String> planNames, Duration rebalanceInterval, Clock clock, boolean background) {
+        this.nodeId = Objects.requireNonNull(nodeId, "Node id must not be null");
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.registry = Objects.requireNonNull(registry, "Registry must not be null");
+        Objects.requireNonNull(planNames, "Plan names must not be null");
+        Objects.requireNonNull(rebalanceInterval, "Rebalance interval must not be null");
+        this.intervalMillis = rebalanceInterval.toMillis();
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Rebalance interval must be at least 1ms");
+        }
+        this.ttl = Duration.ofMillis(intervalMillis * TTL_INTERVALS);
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        this.local = new InMemoryRateLimiterRepository(clock);
+        if (background) {
+            this.evictor = local.startIdleEviction(Duration.ofMillis(intervalMillis));
+        } else {
+            this.evictor = new IdleBucketEvictor<>(local.idleAccess(), clock, Duration.ofMillis(intervalMillis), false);
+            local.useEvictor(evictor);
+        }
+        planNames.forEach(plan -> plans.put(plan, new Apportionment()));
+        this.lastRebalance = clock.millis();
+        this.lastPublished = lastRebalance;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-rebalance-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (background) {
+            scheduler.scheduleWithFixedDelay(this::rebalanceSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        if (!isApportioned(configs)) {
+            return delegate.tryAcquire(key, configs, tokensToConsume);
+        }
+        List<RateLimitConfig> shares = shares(configs, tokensToConsume);
+        return shares != null
+                ? local.tryAcquire(key, shares, tokensToConsume)
+                : RateLimitResult.deny(0, intervalMillis, DENY_REASON);
+    }
+
+    /** The floor is a fraction of capacity, so it applies to the share as is. */
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        if (!isApportioned(configs)) {
+            return delegate.tryAcquireAbove(key, configs, tokensToConsume, floor);
+        }
+        List<RateLimitConfig> shares = shares(configs, tokensToConsume);
+        return shares != null
+                ? local.tryAcquireAbove(key, shares, tokensToConsume, floor)
+                : RateLimitResult.deny(0, intervalMillis, DENY_REASON);
+    }
+
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        if (!isApportioned(configs)) {
+            return delegate.tryReserve(key, configs, tokensToConsume, maxWaitMillis);
+        }
+        List<RateLimitConfig> shares = shares(configs, tokensToConsume);
+        return shares != null
+                ? local.tryReserve(key, shares, tokensToConsume, maxWaitMillis)
+                : RateLimitResult.deny(0, intervalMillis, DENY_REASON);
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        if (!isApportioned(configs)) {
+            delegate.refund(key, configs, tokensToConsume);
+            return;
+        }
+        List<RateLimitConfig> shares = shares(configs, 0);
+        if (shares != null) {
+            local.refund(key, shares, tokensToConsume);
+        }
+    }
+
+    /** Reads the local bucket of an apportioned plan, else the delegate's. */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        Optional<TokenBucket> state = local.getState(key);
+        return state.isPresent() ? state : delegate.getState(key);
+    }
+
+    /** @return this node's current share of a plan; 0 for unknown plans. */
+    public double share(String planName) {
+        Apportionment apportionment = plans.get(planName);
+        return apportionment != null ? apportionment.share : 0;
+    }
+
+    /**
+     * The sum of the shares of all live nodes as of the last round. Above 1, the
+     * nodes together admit up to {@code aggregateShare - 1} times the plan's
+     * capacity and rate beyond the limit.
+     *
+     * @return the aggregate share; 0 for unknown plans.
+     */
+    public double aggregateShare(String planName) {
+        Apportionment apportionment = plans.get(planName);
+        return apportionment != null ? apportionment.aggregate : 0;
+    }
+
+    /**
+     * Publishes this node's demand and recomputes its shares from the other
+     * nodes' heartbeats. Runs on the background thread; call it directly to
+     * rebalance on demand.
+     */
+    public void rebalance() {
+        long now = clock.millis();
+        double seconds = Math.max(1, now - lastRebalance) / 1000.0;
+        lastRebalance = now;
+
+        Map<String, Map<String, NodeShare>> live;
+        try {
+            live = registry.liveNodes();
+        } catch (RuntimeException e) {
+            retreatIfExpired(now);
+            throw e;
+        }
+
+        Map<String, NodeShare> heartbeat = new HashMap<>();
+        plans.forEach((plan, apportionment) -> {
+            double demand = apportionment.requested.sumThenReset() / seconds;
+            List<NodeShare> peers = new ArrayList<>();
+            live.forEach((node, entries) -> {
+                NodeShare entry = entries.get(plan);
+                if (entry != null && !node.equals(nodeId)) {
+                    peers.add(entry);
+                }
+            });
+
+            double share = nextShare(apportionment.share, demand, peers);
+            double aggregate = share + peers.stream().mapToDouble(NodeShare::share).sum();
+            apportionment.share = share;
+            apportionment.aggregate = aggregate;
+            apportionment.nodes = peers.size() + 1;
+            heartbeat.put(plan, new NodeShare(demand, share));
+            if (aggregate > 1 + 1e-9) {
+                log.debug("Plan [{}] is apportioned {} times across {} node(s)", plan, aggregate, peers.size() + 1);
+            }
+        });
+
+        try {
+            registry.publish(nodeId, heartbeat, ttl);
+            lastPublished = now;
+        } catch (RuntimeException e) {
+            retreatIfExpired(now);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops rebalancing and idle eviction; the heartbeat expires after three
+     * intervals.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        evictor.close();
+    }
+
+    /** @return the evictor of the local buckets; for tests. */
+    IdleBucketEvictor<String> evictor() {
+        return evictor;
+    }
+
+    /** @return the number of local buckets currently held. */
+    int localSize() {
+        return local.size();
+    }
+
+    /**
+     * Splits the headroom in proportion to the gaps of all nodes below target,
+     * so nodes that see the same heartbeats never claim more than it together.
+     */
+    private static double nextShare(double current, double demand, Collection<NodeShare> peers) {
+        int nodes = peers.size() + 1;
+        double totalDemand = demand;
+        double claimed = current;
+        for (NodeShare peer : peers) {
+            totalDemand += peer.demand();
+            claimed += peer.share();
+        }
+
+        double target = target(demand, totalDemand, nodes);
+        double headroom = 1 - claimed;
+        if (target <= current || headroom <= 0) {
+            return Math.min(current, target);
+        }
+        double gaps = target - current;
+        for (NodeShare peer : peers) {
+            gaps += Math.max(0, target(peer.demand(), totalDemand, nodes) - peer.share());
+        }
+        return Math.min(target, current + headroom * (target - current) / gaps);
+    }
+
+    private static double target(double demand, double totalDemand, int nodes) {
+        if (totalDemand <= 0) {
+            return 1.0 / nodes;
+        }
+        return EVEN_FRACTION / nodes + (1 - EVEN_FRACTION) * demand / totalDemand;
+    }
+
+    /** Falls back to the even part once the others have dropped this node. */
+    private void retreatIfExpired(long now) {
+        if (now - lastPublished < ttl.toMillis()) {
+            return;
+        }
+        plans.values().forEach(apportionment ->
+                apportionment.share = Math.min(apportionment.share, EVEN_FRACTION / apportionment.nodes));
+    }
+
+    private boolean isApportioned(List<RateLimitConfig> configs) {
+        if (configs.isEmpty()) {
+            return false;
+        }
+        for (RateLimitConfig config : configs) {
+            if (!plans.containsKey(config.planName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the demand and scales each plan to this node's share.
+     *
+     * @return the scaled plans, or {@code null} if the node holds no share of
+     *         one of them.
+     */
+    private List<RateLimitConfig> shares(List<RateLimitConfig> configs, int tokensToConsume) {
+        double[] shares = new double[configs.size()];
+        boolean held = true;
+        for (int i = 0; i < configs.size(); i++) {
+            Apportionment apportionment = plans.get(configs.get(i).planName());
+            apportionment.requested.add(tokensToConsume);
+            shares[i] = apportionment.share;
+            held &= shares[i] > 0;
+        }
+        if (!held) {
+            return null;
+        }
+        List<RateLimitConfig> scaled = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            RateLimitConfig config = configs.get(i);
+            scaled.add(new RateLimitConfig(config.planName(), Math.max(1, (long) (config.capacity() * shares[i])),
+                    config.tokensPerSecond() * shares[i], config.sampled()));
+        }
+        return scaled;
+    }
+
+    private void rebalanceSafely() {
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebalance apportioned plans of node [{}]; retrying next interval. Reason: {}",
+                    nodeId, e.getMessage(), e);
+        }
+    }
+
+    /** This node's view of one apportioned plan. */
+    private static final class Apportionment {
+
+        private final LongAdder requested = new LongAdder();
+        private volatile double share;
+        private volatile double aggregate;
+        private volatile int nodes = 1;
+    }
+}
@@ -0,0 +1,20 @@
+package com.lokesh.ratelimiter.core.support;
+
+/**
+ * A vectorized path of {@link ColumnarBucketStore#tryConsume}. The store falls
+ * back to its scalar loop for whatever the kernel leaves over, or when there is
+ * no kernel.
+ */
+interface BatchKernel {
+
+    /** @return the number of buckets evaluated per step. */
+    int lanes();
+
+    /**
+     * Evaluates whole vectors of requests; the slots must be distinct.
+     *
+     * @return the number of requests evaluated; the caller finishes the rest.
+     */
+    int tryConsume(double[] tokens, long[] lastRefillMillis, double[] capacity, double[] tokensPerSecond,
+            int[] slots, int[] costs, int count, long now, boolean[] allowed);
+}
@@ -0,0 +1,44 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ClockPrecision;
+import com.lokesh.ratelimiter.core.model.ConsumptionResult;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+
+/**
+ * The per-bucket step of a chained request, applied by the local repositories
+ * to every plan under their lock: a consume, possibly above a reserved floor,
+ * a reservation, a refund or a debit.
+ */
+@FunctionalInterface
+interface BucketOperation {
+
+    /**
+     * @param now the current time in {@code precision} units.
+     * @return the decision and the state to store if every bucket allows.
+     */
+    ConsumptionResult apply(TokenBucket bucket, long now, ClockPrecision precision, RateLimitConfig config);
+
+    static BucketOperation consume(int cost) {
+        return (bucket, now, precision, config) -> bucket.tryConsume(now, cost, config, precision);
+    }
+
+    static BucketOperation consumeAbove(int cost, double floor) {
+        return (bucket, now, precision, config) -> bucket.tryConsumeAbove(now, cost, config, floor, precision);
+    }
+
+    static BucketOperation reserve(int cost, long maxWaitMillis) {
+        return (bucket, now, precision, config) -> bucket.tryReserve(now, cost, config, maxWaitMillis,
+                precision);
+    }
+
+    static BucketOperation refund(int cost) {
+        return (bucket, now, precision, config) -> ConsumptionResult.success(
+                bucket.refund(now, cost, config, precision));
+    }
+
+    static BucketOperation debit(long cost) {
+        return (bucket, now, precision, config) -> ConsumptionResult.success(
+                bucket.debit(now, cost, config, precision));
+    }
+}
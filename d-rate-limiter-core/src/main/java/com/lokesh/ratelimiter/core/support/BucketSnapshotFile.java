@@ -0,0 +1,239 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.support.InMemoryRateLimiterRepository.StoredBucket;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary snapshot formats of the {@link InMemoryRateLimiterRepository} and the
+ * {@link OffHeapRateLimiterRepository}.
+ *
+ * <p>
+ * Both directions go through memory-mapped windows of the file, so writing and
+ * restoring are single sequential passes without per-record system calls.
+ *
+ * <p>
+ * <b>Layout</b> (big-endian):
+ *
+ * <pre>
+ * header : int magic ('RLSN') | int version | long writtenAtMillis | long count
+ * record : int keyLength | byte[keyLength] key (UTF-8)
+ *          | double tokens | long lastRefillMillis | long capacity | double tokensPerSecond
+ * </pre>
+ *
+ * <p>
+ * Off-heap tables only know key hashes, so their snapshots ({@code 'RLSO'})
+ * hold fixed-size slot records instead:
+ *
+ * <pre>
+ * header : int magic ('RLSO') | int version | long writtenAtMillis | long count
+ * record : long keyHash | double tokens | long lastRefillMillis | long fullAtMillis
+ * </pre>
+ *
+ * <p>
+ * Files are written to a temporary sibling and moved into place, so a crash
+ * during a snapshot leaves the previous one intact.
+ */
+final class BucketSnapshotFile {
+
+    static final int MAGIC = 0x524C534E;
+    static final int SLOT_MAGIC = 0x524C534F;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int RECORD_FIXED_BYTES = 4 + 8 + 8 + 8 + 8;
+    private static final int SLOT_RECORD_BYTES = 8 + 8 + 8 + 8;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private BucketSnapshotFile() {
+    }
+
+    /**
+     * Writes {@code buckets} to {@code file}.
+     *
+     * @return the number of records written.
+     */
+    static long write(Path file, long nowMillis, Iterable<Map.Entry<String, StoredBucket>> buckets)
+            throws IOException {
+        return write(file, MAGIC, nowMillis, window -> {
+            long count = 0;
+            for (Map.Entry<String, StoredBucket> entry : buckets) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                StoredBucket stored = entry.getValue();
+                window.ensure(RECORD_FIXED_BYTES + key.length);
+                window.buffer.putInt(key.length).put(key)
+                        .putDouble(stored.bucket().tokens())
+                        .putLong(stored.bucket().lastRefillMillis())
+                        .putLong(stored.capacity())
+                        .putDouble(stored.tokensPerSecond());
+                count++;
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Writes every live slot of {@code table} to {@code file}.
+     *
+     * @return the number of records written.
+     */
+    static long writeSlots(Path file, long nowMillis, OffHeapBucketTable table) throws IOException {
+        return write(file, SLOT_MAGIC, nowMillis, window -> {
+            long[] count = new long[1];
+            IOException[] failure = new IOException[1];
+            table.forEach((hash, tokens, lastRefillMillis, fullAtMillis) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    window.ensure(SLOT_RECORD_BYTES);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return;
+                }
+                window.buffer.putLong(hash).putDouble(tokens).putLong(lastRefillMillis).putLong(fullAtMillis);
+                count[0]++;
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            return count[0];
+        });
+    }
+
+    private static long write(Path file, int magic, long nowMillis, RecordWriter records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long count;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Window window = new Window(channel, FileChannel.MapMode.READ_WRITE);
+            window.ensure(HEADER_BYTES);
+            window.buffer.putInt(magic).putInt(VERSION).putLong(nowMillis).putLong(0L);
+
+            count = records.write(window);
+
+            long size = window.position();
+            window.buffer.force();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putLong(COUNT_OFFSET, count);
+            header.force();
+            channel.truncate(size);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads every record of {@code file} in file order.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    static void read(Path file, BiConsumer<String, StoredBucket> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Window window = new Window(channel, FileChannel.MapMode.READ_ONLY);
+            long count = readHeader(window, MAGIC, file);
+
+            for (long i = 0; i < count; i++) {
+                window.ensure(4);
+                int keyLength = window.buffer.getInt();
+                window.ensure(keyLength + RECORD_FIXED_BYTES - 4);
+                byte[] key = new byte[keyLength];
+                window.buffer.get(key);
+                TokenBucket bucket = new TokenBucket(window.buffer.getDouble(), window.buffer.getLong());
+                consumer.accept(new String(key, StandardCharsets.UTF_8),
+                        new StoredBucket(bucket, window.buffer.getLong(), window.buffer.getDouble()));
+            }
+        }
+    }
+
+    /**
+     * Reads every slot record of a file written by {@link #writeSlots}.
+     *
+     * @throws IOException if the file cannot be read or is not a slot snapshot.
+     */
+    static void readSlots(Path file, OffHeapBucketTable.SlotVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Window window = new Window(channel, FileChannel.MapMode.READ_ONLY);
+            long count = readHeader(window, SLOT_MAGIC, file);
+
+            for (long i = 0; i < count; i++) {
+                window.ensure(SLOT_RECORD_BYTES);
+                visitor.accept(window.buffer.getLong(), window.buffer.getDouble(), window.buffer.getLong(),
+                        window.buffer.getLong());
+            }
+        }
+    }
+
+    /** Validates the header and returns the record count. */
+    private static long readHeader(Window window, int magic, Path file) throws IOException {
+        window.ensure(HEADER_BYTES);
+        if (window.buffer.getInt() != magic) {
+            throw new IOException("Not a rate limiter snapshot: " + file);
+        }
+        int version = window.buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + file);
+        }
+        window.buffer.getLong(); // writtenAtMillis, informational
+        return window.buffer.getLong();
+    }
+
+    /** Writes the records after the header and returns their count. */
+    @FunctionalInterface
+    private interface RecordWriter {
+
+        long write(Window window) throws IOException;
+    }
+
+    /**
+     * A sliding memory-mapped window over a file. {@link #ensure} re-maps at the
+     * current position whenever the next item does not fit.
+     */
+    private static final class Window {
+
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private long base;
+        private MappedByteBuffer buffer;
+
+        Window(FileChannel channel, FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.mode = mode;
+        }
+
+        long position() {
+            return buffer == null ? base : base + buffer.position();
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer != null && buffer.remaining() >= bytes) {
+                return;
+            }
+            long position = position();
+            long length = Math.max(WINDOW_BYTES, bytes);
+            if (mode == FileChannel.MapMode.READ_ONLY) {
+                length = Math.min(length, channel.size() - position);
+                if (length < bytes) {
+                    throw new IOException("Truncated snapshot at offset " + position);
+                }
+            } else if (buffer != null) {
+                buffer.force();
+            }
+            base = position;
+            buffer = channel.map(mode, position, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+}
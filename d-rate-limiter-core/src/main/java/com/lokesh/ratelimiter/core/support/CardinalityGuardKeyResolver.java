@@ -0,0 +1,231 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.DistinctKeys;
+import com.lokesh.ratelimiter.core.port.CardinalityStore;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.KeyResolver;
+import com.lokesh.ratelimiter.core.port.RequestSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link KeyResolver} that bounds how many distinct keys a tenant can create,
+ * collapsing the excess into one overflow key per tenant.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b> over the key resolver. A client that
+ * rotates the value of the header a {@link HeaderKeyResolver} reads would
+ * otherwise create a bucket per request and fill the store's memory.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Local Buffer</b>: Keys a node admits are remembered per tenant and
+ * window; a key seen before is resolved with one set lookup. Keys seen for the
+ * first time are buffered and sent to the {@link CardinalityStore} in one batch
+ * by {@link #flush()}, whose replies are the tenants' estimated distinct-key
+ * counts across all nodes.</li>
+ * <li><b>Budget</b>: Once a tenant's estimate, or the keys this node admitted
+ * for it, reach the budget, new keys resolve to {@link #overflowKey}; keys
+ * admitted before keep their own bucket.</li>
+ * <li><b>Windows</b>: Counts restart every {@code window}, so a tenant's
+ * legitimate keys can churn; the store drops a set one window after it
+ * ended.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Error Bound</b>: A node admits at most {@code budget} keys per tenant and
+ * window, so {@code N} nodes create at most {@code N × budget} buckets per
+ * tenant; in practice the budget plus the keys admitted during one flush
+ * interval.
+ */
+public class CardinalityGuardKeyResolver implements KeyResolver, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CardinalityGuardKeyResolver.class);
+
+    private static final String SET_PREFIX = "ratelimiter:cardinality:";
+
+    private final KeyResolver keyResolver;
+    private final KeyResolver tenantResolver;
+    private final CardinalityStore store;
+    private final long budget;
+    private final long windowMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a guard that flushes every {@code flushInterval}.
+     *
+     * @param keyResolver    resolves the key to be guarded.
+     * @param tenantResolver resolves the tenant the key is counted against.
+     * @param store          the shared distinct-key estimates.
+     * @param budget         distinct keys a tenant may use per window.
+     * @param window         how long keys count towards the budget.
+     * @param flushInterval  how often to send new keys to the store.
+     * @throws IllegalArgumentException if the budget is not positive or a
+     *                                  duration is shorter than 1ms.
+     */
+    public CardinalityGuardKeyResolver(KeyResolver keyResolver, KeyResolver tenantResolver, CardinalityStore store,
+            long budget, Duration window, Duration flushInterval) {
+        this(keyResolver, tenantResolver, store, budget, window, flushInterval, SystemClock.INSTANCE, true);
+    }
+
+    /**
+     * @param background whether to flush on a background thread; tests call
+     *                   {@link #flush()} directly.
+     */
+    CardinalityGuardKeyResolver(KeyResolver keyResolver, KeyResolver tenantResolver, CardinalityStore store,
+            long budget, Duration window, Duration flushInterval, Clock clock, boolean background) {
+        this.keyResolver = Objects.requireNonNull(keyResolver, "Key resolver must not be null");
+        this.tenantResolver = Objects.requireNonNull(tenantResolver, "Tenant resolver must not be null");
+        this.store = Objects.requireNonNull(store, "Cardinality store must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        Objects.requireNonNull(window, "Window must not be null");
+        Objects.requireNonNull(flushInterval, "Flush interval must not be null");
+        if (budget < 1) {
+            throw new IllegalArgumentException("Budget must be at least 1");
+        }
+        long intervalMillis = flushInterval.toMillis();
+        if (window.toMillis() < 1 || intervalMillis < 1) {
+            throw new IllegalArgumentException("Window and flush interval must be at least 1ms");
+        }
+        this.budget = budget;
+        this.windowMillis = window.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-cardinality-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (background) {
+            scheduler.scheduleWithFixedDelay(this::flushSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String resolve(RequestSource source) {
+        String key = keyResolver.resolve(source);
+        String tenantId = tenantResolver.resolve(source);
+        long window = Math.floorDiv(clock.millis(), windowMillis);
+        Tenant tenant = tenants.get(tenantId);
+        if (tenant == null || tenant.window != window) {
+            tenant = tenants.compute(tenantId, (id, t) -> t != null && t.window >= window ? t : new Tenant(window));
+        }
+
+        if (tenant.admitted.contains(key)) {
+            return key;
+        }
+        if (tenant.estimate >= budget || tenant.admitted.size() >= budget) {
+            return overflowKey(tenantId);
+        }
+        if (tenant.admitted.add(key)) {
+            tenant.pending.add(key);
+        }
+        return key;
+    }
+
+    /**
+     * Sends the keys admitted since the last flush to the store and takes its
+     * replies as the tenants' estimates. Tenants of ended windows are dropped.
+     *
+     * @throws RuntimeException if the store fails; the keys are kept for the
+     *                          next flush.
+     */
+    public void flush() {
+        long window = Math.floorDiv(clock.millis(), windowMillis);
+        tenants.values().removeIf(tenant -> tenant.window < window);
+
+        List<Tenant> batch = new ArrayList<>();
+        List<DistinctKeys> sets = new ArrayList<>();
+        tenants.forEach((tenantId, tenant) -> {
+            List<String> keys = new ArrayList<>();
+            for (Iterator<String> it = tenant.pending.iterator(); it.hasNext();) {
+                keys.add(it.next());
+                it.remove();
+            }
+            batch.add(tenant);
+            sets.add(new DistinctKeys(setKey(tenantId, tenant.window), keys,
+                    (tenant.window + 2) * windowMillis));
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> estimates;
+        try {
+            estimates = store.addAndCount(sets);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).pending.addAll(sets.get(i).keys());
+            }
+            throw e;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).estimate = estimates.get(i);
+        }
+    }
+
+    /**
+     * @return the last estimate of a tenant's distinct keys in the current
+     *         window; empty if the tenant is not tracked.
+     */
+    public OptionalLong estimate(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return tenant != null ? OptionalLong.of(tenant.estimate) : OptionalLong.empty();
+    }
+
+    /** Flushes what is left and stops flushing. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * @return the key shared by a tenant's requests beyond its budget, e.g.
+     *         {@code overflow:acme}.
+     */
+    public static String overflowKey(String tenantId) {
+        return "overflow:" + tenantId;
+    }
+
+    /**
+     * @return the store's set of a tenant's keys in a window, e.g.
+     *         {@code ratelimiter:cardinality:acme:493827}.
+     */
+    public static String setKey(String tenantId, long window) {
+        return SET_PREFIX + tenantId + ":" + window;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush distinct keys; retrying next interval. Reason: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Keys of one tenant in one window. */
+    private static final class Tenant {
+
+        private final long window;
+        private final Set<String> admitted = ConcurrentHashMap.newKeySet();
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+        private volatile long estimate;
+
+        Tenant(long window) {
+            this.window = window;
+        }
+    }
+}
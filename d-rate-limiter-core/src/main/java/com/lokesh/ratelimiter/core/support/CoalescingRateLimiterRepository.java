@@ -0,0 +1,203 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link RateLimiterRepository} that merges concurrent acquires on the same
+ * key into one call to the underlying store.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b>. A bursty client sending dozens of
+ * simultaneous requests on one key would otherwise cost one script call each,
+ * and those calls serialize on the key anyway.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>In-Flight Coalescing</b>: A request for a (key, plan set, weight,
+ * floor) with no call in flight goes straight to the store. Requests arriving
+ * while a call is in flight queue up; when it returns, the queued requests are
+ * sent together through
+ * {@link RateLimiterRepository#tryAcquireRepeatedAbove}, which grants as many
+ * of them as the buckets can pay for above the floor.</li>
+ * <li><b>Arrival Order</b>: Results are handed out in the order requests
+ * queued, so every caller gets what it would have got had the requests been
+ * sent one by one.</li>
+ * <li><b>No Added Latency</b>: Nothing waits for a timer; a queued request
+ * waits at most for the call ahead of it, which it would have queued behind in
+ * the store anyway.</li>
+ * <li><b>Failures</b> are rethrown to every caller of the failed call, so each
+ * one fails open on its own (ADR 002). Errors are handed out the same way, and
+ * the batch queued behind a failed call still starts.</li>
+ * </ul>
+ * Reservations, refunds and batches are passed through unchanged.
+ */
+public class CoalescingRateLimiterRepository implements RateLimiterRepository {
+
+    private final RateLimiterRepository delegate;
+    private final ConcurrentHashMap<GroupKey, Group> groups = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the store making the decisions.
+     */
+    public CoalescingRateLimiterRepository(RateLimiterRepository delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return coalesce(new GroupKey(key, List.copyOf(configs), tokensToConsume, 0));
+    }
+
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        return coalesce(new GroupKey(key, List.copyOf(configs), tokensToConsume, Math.max(0, floor)));
+    }
+
+    private RateLimitResult coalesce(GroupKey groupKey) {
+        while (true) {
+            Group group = groups.computeIfAbsent(groupKey, k -> new Group());
+            Batch batch;
+            int position;
+            group.lock.lock();
+            try {
+                if (group.retired) {
+                    continue;
+                }
+                if (group.running == null) {
+                    batch = new Batch();
+                    group.running = batch;
+                    batch.start.complete(null);
+                } else {
+                    if (group.queued == null) {
+                        group.queued = new Batch();
+                    }
+                    batch = group.queued;
+                }
+                position = batch.size++;
+            } finally {
+                group.lock.unlock();
+            }
+
+            if (position == 0) {
+                batch.start.join();
+                run(groupKey, group, batch);
+            }
+            return await(batch).get(position);
+        }
+    }
+
+    @Override
+    public List<RateLimitResult> tryAcquireRepeated(String key, List<RateLimitConfig> configs, int tokensPerRequest,
+            int requests) {
+        return delegate.tryAcquireRepeated(key, configs, tokensPerRequest, requests);
+    }
+
+    @Override
+    public List<RateLimitResult> tryAcquireRepeatedAbove(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests, double floor) {
+        return delegate.tryAcquireRepeatedAbove(key, configs, tokensPerRequest, requests, floor);
+    }
+
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return delegate.tryReserve(key, configs, tokensToConsume, maxWaitMillis);
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        delegate.refund(key, configs, tokensToConsume);
+    }
+
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        return delegate.getState(key);
+    }
+
+    /** Sends a batch that can no longer grow, then starts the one queued behind it. */
+    private void run(GroupKey key, Group group, Batch batch) {
+        try {
+            batch.results.complete(decide(key, batch.size));
+        } catch (Throwable e) {
+            // Every waiter, including this caller, gets the failure from its batch.
+            batch.results.completeExceptionally(e);
+        }
+
+        Batch next;
+        group.lock.lock();
+        try {
+            next = group.queued;
+            group.queued = null;
+            group.running = next;
+            if (next == null) {
+                group.retired = true;
+                groups.remove(key, group);
+            }
+        } finally {
+            group.lock.unlock();
+        }
+        if (next != null) {
+            next.start.complete(null);
+        }
+    }
+
+    private List<RateLimitResult> decide(GroupKey key, int requests) {
+        if (key.floor() > 0) {
+            return requests == 1
+                    ? List.of(delegate.tryAcquireAbove(key.key(), key.configs(), key.tokens(), key.floor()))
+                    : delegate.tryAcquireRepeatedAbove(key.key(), key.configs(), key.tokens(), requests,
+                            key.floor());
+        }
+        return requests == 1
+                ? List.of(delegate.tryAcquire(key.key(), key.configs(), key.tokens()))
+                : delegate.tryAcquireRepeated(key.key(), key.configs(), key.tokens(), requests);
+    }
+
+    private static List<RateLimitResult> await(Batch batch) {
+        try {
+            return batch.results.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record GroupKey(String key, List<RateLimitConfig> configs, int tokens, double floor) {
+    }
+
+    /** The call in flight for one group and the batch queued behind it. */
+    private static final class Group {
+        final ReentrantLock lock = new ReentrantLock();
+        Batch running;
+        Batch queued;
+        boolean retired;
+    }
+
+    /**
+     * Requests sent in one call. Its first request sends it once {@code start}
+     * completes; {@code size} only changes under the group lock before that.
+     */
+    private static final class Batch {
+        final CompletableFuture<Void> start = new CompletableFuture<>();
+        final CompletableFuture<List<RateLimitResult>> results = new CompletableFuture<>();
+        int size;
+    }
+}
@@ -0,0 +1,122 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.port.Clock;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Clock} whose reads return a cached time that one ticker thread
+ * refreshes at a fixed resolution.
+ *
+ * <p>
+ * Architectural Role: <b>Performance Support Implementation</b>. At tens of
+ * millions of decisions per second a wall-clock read per decision is
+ * measurable; a read here is one volatile load.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Padding</b>: The cached time sits alone on its cache line, so the
+ * ticker's writes do not invalidate lines holding the readers' other
+ * data.</li>
+ * <li><b>Precision</b>: Reads lag the source by up to one resolution and never
+ * move backwards unless the source does; both {@link #millis()} and
+ * {@link #micros()} come from the same cached value.</li>
+ * </ul>
+ */
+public final class CoarseClock implements Clock, AutoCloseable {
+
+    /** Default time between two refreshes. */
+    public static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(1);
+
+    private final Clock source;
+    private final PaddedTime time = new PaddedTime();
+    private final ScheduledExecutorService ticker;
+
+    private CoarseClock(Clock source, long resolutionMicros) {
+        this.source = source;
+        this.time.micros = source.micros();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-coarse-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, resolutionMicros, resolutionMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Starts a clock caching the system clock every millisecond.
+     *
+     * @return the running clock; close it on shutdown.
+     */
+    public static CoarseClock start() {
+        return start(SystemClock.INSTANCE, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Starts a clock caching {@code source}.
+     *
+     * @param source     the clock to cache.
+     * @param resolution time between two refreshes.
+     * @return the running clock; close it on shutdown.
+     * @throws IllegalArgumentException if the resolution is shorter than 1µs.
+     */
+    public static CoarseClock start(Clock source, Duration resolution) {
+        Objects.requireNonNull(source, "Source must not be null");
+        Objects.requireNonNull(resolution, "Resolution must not be null");
+        long resolutionMicros = resolution.toNanos() / 1_000;
+        if (resolutionMicros < 1) {
+            throw new IllegalArgumentException("Resolution must be at least 1µs");
+        }
+        return new CoarseClock(source, resolutionMicros);
+    }
+
+    @Override
+    public long millis() {
+        return Math.floorDiv(time.micros, 1_000);
+    }
+
+    @Override
+    public long micros() {
+        return time.micros;
+    }
+
+    /** Stops refreshing; reads return the last cached time. */
+    @Override
+    public void close() {
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tick() {
+        time.micros = source.micros();
+    }
+
+    /** Cache-line padding before the value (see {@link PaddedTime}). */
+    @SuppressWarnings("unused")
+    private abstract static class LeftPadding {
+        private long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    /** The cached time in epoch microseconds. */
+    private abstract static class Value extends LeftPadding {
+        protected volatile long micros;
+    }
+
+    /**
+     * The cached time padded on both sides; subclass fields are laid out after
+     * superclass fields, so the value cannot share a line with other data.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedTime extends Value {
+        private long p11, p12, p13, p14, p15, p16, p17;
+    }
+}
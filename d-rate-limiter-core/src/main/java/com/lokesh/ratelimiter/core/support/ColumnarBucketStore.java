@@ -0,0 +1,255 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process token buckets stored column by column, evaluated many at a time.
+ *
+ * <p>
+ * Architectural Role: <b>Batch Support</b> for callers that decide large
+ * numbers of requests at once, e.g. replaying a decision log to reconcile
+ * quotas or checking a gateway's whole batch of requests. Each bucket is a
+ * slot in four parallel arrays (tokens, last refill, capacity, rate), so one
+ * batch walks primitive arrays instead of chasing one object per bucket.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Vector API</b>: When the core is built with the {@code vector}
+ * profile and the JVM runs with {@code --add-modules jdk.incubator.vector},
+ * {@link #tryConsume} refills and consumes one SIMD register of buckets per
+ * step ({@code VectorBucketKernel}). Otherwise, or if the incubator API does
+ * not link, the same arithmetic runs one bucket at a time.</li>
+ * <li><b>Exactness</b>: Both paths compute exactly what
+ * {@link TokenBucket#tryConsume(long, int, RateLimitConfig)} computes, bit for
+ * bit; the lane operations are the same IEEE operations in the same
+ * order.</li>
+ * <li><b>Repeated Slots</b>: A batch naming a slot twice must see the first
+ * request's effect in the second, which lanes evaluated side by side cannot;
+ * such batches take the scalar path.</li>
+ * </ul>
+ *
+ * <p>
+ * The store does not grow and never evicts; {@link #slot} throws
+ * {@link IllegalStateException} once {@code maxBuckets} slots are taken.
+ */
+public class ColumnarBucketStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarBucketStore.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final String VECTOR_KERNEL = "com.lokesh.ratelimiter.core.support.VectorBucketKernel";
+
+    private final double[] tokens;
+    private final long[] lastRefillMillis;
+    private final double[] capacity;
+    private final double[] tokensPerSecond;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final BatchKernel kernel;
+    private final int[] seen;
+    private int batch;
+
+    /**
+     * Creates a store using the Vector API if the build includes it and the JVM
+     * enables it.
+     *
+     * @param maxBuckets the number of slots.
+     */
+    public ColumnarBucketStore(int maxBuckets) {
+        this(maxBuckets, vectorAvailable());
+    }
+
+    /**
+     * @param vectorized whether batches use the Vector API; tests compare both
+     *                   paths.
+     * @throws IllegalStateException if the Vector API is requested but not
+     *                               available.
+     */
+    ColumnarBucketStore(int maxBuckets, boolean vectorized) {
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("Max buckets must be at least 1");
+        }
+        if (vectorized && !vectorAvailable()) {
+            throw new IllegalStateException("The Vector API is not available; build with -Pvector and run with"
+                    + " --add-modules " + VECTOR_MODULE);
+        }
+        this.tokens = new double[maxBuckets];
+        this.lastRefillMillis = new long[maxBuckets];
+        this.capacity = new double[maxBuckets];
+        this.tokensPerSecond = new double[maxBuckets];
+        this.seen = new int[maxBuckets];
+        this.kernel = vectorized ? VectorKernel.INSTANCE : null;
+    }
+
+    /**
+     * Finds the slot of a bucket, creating a full one stamped {@code now} for a
+     * new key. The slot takes the plan's current capacity and rate.
+     *
+     * @param key    the identity being limited.
+     * @param config the plan applied to it.
+     * @param now    the current time in epoch milliseconds.
+     * @return the slot to pass to {@link #tryConsume}.
+     * @throws IllegalStateException if the store is full.
+     */
+    public int slot(String key, RateLimitConfig config, long now) {
+        Objects.requireNonNull(config, "Config must not be null");
+        String bucketKey = InMemoryRateLimiterRepository.bucketKey(key, config);
+        lock.lock();
+        try {
+            Integer slot = slots.get(bucketKey);
+            if (slot == null) {
+                if (slots.size() == tokens.length) {
+                    throw new IllegalStateException("Columnar store is full: " + tokens.length + " buckets");
+                }
+                slot = slots.size();
+                slots.put(bucketKey, slot);
+                tokens[slot] = config.capacity();
+                lastRefillMillis[slot] = now;
+            }
+            capacity[slot] = config.capacity();
+            tokensPerSecond[slot] = config.tokensPerSecond();
+            return slot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Decides a batch of requests at one instant, in order.
+     *
+     * @param slots   the bucket of each request, from {@link #slot}.
+     * @param costs   the tokens each request consumes.
+     * @param count   the number of requests, a prefix of both arrays.
+     * @param now     the current time in epoch milliseconds.
+     * @param allowed receives whether each request was allowed.
+     * @return the number of allowed requests.
+     * @throws IllegalArgumentException if an array is shorter than
+     *                                  {@code count} or a slot was never
+     *                                  assigned.
+     */
+    public int tryConsume(int[] slots, int[] costs, int count, long now, boolean[] allowed) {
+        if (count < 0 || slots.length < count || costs.length < count || allowed.length < count) {
+            throw new IllegalArgumentException("Batch arrays must hold " + count + " requests");
+        }
+        lock.lock();
+        try {
+            boolean distinct = checkSlots(slots, count);
+            int done = kernel != null && distinct
+                    ? kernel.tryConsume(tokens, lastRefillMillis, capacity, tokensPerSecond, slots, costs, count, now,
+                            allowed)
+                    : 0;
+            for (int i = done; i < count; i++) {
+                allowed[i] = tryConsume(slots[i], costs[i], now);
+            }
+            int admitted = 0;
+            for (int i = 0; i < count; i++) {
+                admitted += allowed[i] ? 1 : 0;
+            }
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the state of a slot.
+     */
+    public TokenBucket get(int slot) {
+        lock.lock();
+        try {
+            Objects.checkIndex(slot, slots.size());
+            return new TokenBucket(tokens[slot], lastRefillMillis[slot]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of slots taken.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether batches are evaluated with the Vector API.
+     */
+    public boolean vectorized() {
+        return kernel != null;
+    }
+
+    /**
+     * The scalar path: {@link TokenBucket#tryConsume(long, int, RateLimitConfig)}
+     * on one slot.
+     */
+    private boolean tryConsume(int slot, int cost, long now) {
+        long elapsed = now - lastRefillMillis[slot];
+        double available = elapsed > 0
+                ? Math.min(capacity[slot], tokens[slot] + (elapsed / 1000.0) * tokensPerSecond[slot])
+                : tokens[slot];
+        boolean allowed = available >= cost;
+        tokens[slot] = allowed ? available - cost : available;
+        if (allowed || elapsed > 0) {
+            lastRefillMillis[slot] = now;
+        }
+        return allowed;
+    }
+
+    /** @return whether no slot appears twice in the batch. */
+    private boolean checkSlots(int[] batchSlots, int count) {
+        if (++batch == 0) {
+            Arrays.fill(seen, 0);
+            batch = 1;
+        }
+        boolean distinct = true;
+        for (int i = 0; i < count; i++) {
+            int slot = batchSlots[i];
+            if (slot < 0 || slot >= slots.size()) {
+                throw new IllegalArgumentException("Unknown slot: " + slot);
+            }
+            distinct &= seen[slot] != batch;
+            seen[slot] = batch;
+        }
+        return distinct;
+    }
+
+    /** @return whether the Vector API kernel was built and links on this JVM. */
+    static boolean vectorAvailable() {
+        return VectorKernel.INSTANCE != null;
+    }
+
+    /** Looks the kernel up once, on first use; {@code null} if unavailable. */
+    private static final class VectorKernel {
+
+        static final BatchKernel INSTANCE = load();
+
+        private static BatchKernel load() {
+            if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+                return null;
+            }
+            try {
+                BatchKernel kernel = (BatchKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+                return kernel.lanes() > 1 ? kernel : null;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API unavailable, evaluating batches one bucket at a time. Reason: {}", e.toString());
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.RateLimitEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Records every rate-limit decision as a fixed-width binary record in
+ * memory-mapped, rotating segment files, for billing disputes and offline
+ * tuning. {@link DecisionLogReader} streams the segments back.
+ *
+ * <p>
+ * Architectural Role: <b>Observability Adapter</b> of the
+ * {@link RateLimitEventListener} SPI; register it like any other listener.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Stripes</b>: Writers are spread over a power-of-two number of stripes
+ * by thread id. Each stripe owns a {@value #CHUNK_BYTES}-byte chunk of the
+ * current segment and fills it with plain buffer writes; only claiming the
+ * next chunk touches shared state (one atomic increment). Stripes rather than
+ * thread-locals keep virtual threads from claiming a chunk each, and stripe
+ * locks are {@link ReentrantLock}s, so a virtual thread waiting for one does
+ * not pin its carrier.</li>
+ * <li><b>Segments</b>: A segment is mapped once at its full size. The next one
+ * is pre-allocated in the background, so when the chunks run out rotation
+ * only swaps it in. Stripes finish their current chunk in the previous
+ * segment, so records within a segment are ordered per stripe, not
+ * globally.</li>
+ * <li><b>Housekeeping</b>: A daemon thread forces each rotated segment to
+ * disk, deletes the oldest ones beyond {@code maxSegments} and pre-allocates
+ * the next one; no file is forced, deleted or created on a writer's thread
+ * unless pre-allocation failed.</li>
+ * <li><b>Durability</b>: Records live in the page cache as soon as they are
+ * written, so they survive a crash of the JVM but not of the host. Segments
+ * are forced to disk right after rotation and on {@link #close()}. The unused
+ * tail of a chunk stays zero-filled and is skipped by the reader.</li>
+ * <li><b>Plans</b>: Plan names are interned to 16-bit ids, appended to the
+ * {@value #PLANS_FILE} file of the directory the first time they are seen. Ids
+ * are assigned under a lock; the line is appended after it is released. A
+ * record holds the first {@value #MAX_PLANS} plans of its chain and the chain
+ * length.</li>
+ * <li><b>Keys</b>: Only the 64-bit {@link #keyHash} of the key is stored;
+ * hash a disputed key the same way to find its records.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Segment layout</b> (little-endian):
+ *
+ * <pre>
+ * header : int magic ('RLDL') | int version | int recordBytes | int chunkBytes
+ *          | long createdAtMillis | long sequence
+ * record : long timestampMillis | long keyHash | short[3] planIds | byte planCount
+ *          | byte outcome (ordinal + 1; 0 marks an unused slot)
+ *          | float remainingTokens | int waitMillis
+ * </pre>
+ *
+ * <p>
+ * The listener never throws: if a segment cannot be created, decisions are
+ * counted as {@link #dropped()} until a later rotation succeeds.
+ */
+public final class DecisionLog implements RateLimitEventListener, AutoCloseable {
+
+    /** What happened to a request. */
+    public enum Outcome {
+        /** Allowed with tokens available now. */
+        ALLOWED,
+        /** Allowed by reserving tokens ahead of their refill. */
+        RESERVED,
+        /** Denied because a bucket was empty. */
+        DENIED,
+        /** Denied by the {@link LoadShedder} to protect higher priorities. */
+        SHED,
+        /** Denied by the {@link PenaltyBox} without reaching a bucket. */
+        BANNED,
+        /** Allowed because the decision could not be made. */
+        FAIL_OPEN
+    }
+
+    static final int MAGIC = 0x524C444C;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int CREATED_AT_OFFSET = 16;
+    static final int RECORD_BYTES = 32;
+    static final int CHUNK_BYTES = 64 * 1024;
+    static final int MAX_PLANS = 3;
+    static final String PLANS_FILE = "plans.txt";
+    static final String SEGMENT_PREFIX = "decisions-";
+    static final String SEGMENT_SUFFIX = ".rldl";
+
+    /** Default segment size. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /** Default number of segments kept on disk. */
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionLog.class);
+
+    /** Plan id of plans beyond the 16-bit id space, and of empty slots. */
+    private static final short NO_PLAN = 0;
+
+    /** Time between two attempts to create a segment after a failure. */
+    private static final long RETRY_MILLIS = 1_000;
+
+    private final Path directory;
+    private final int chunksPerSegment;
+    private final int maxSegments;
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final Map<String, Short> planIds = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final ReentrantLock rotationLock = new ReentrantLock();
+    private final ReentrantLock planLock = new ReentrantLock();
+    private final ScheduledExecutorService housekeeper;
+    private volatile Segment current;
+    private volatile boolean closed;
+    /** The pre-allocated next segment; guarded by {@link #rotationLock}. */
+    private Segment spare;
+    private long nextSequence;
+    private long retryAtMillis;
+    /** The highest plan id loaded or assigned; guarded by {@link #planLock}. */
+    private int lastPlanId;
+
+    private DecisionLog(Path directory, int chunksPerSegment, int maxSegments, Clock clock, long nextSequence) {
+        this.directory = directory;
+        this.chunksPerSegment = chunksPerSegment;
+        this.maxSegments = maxSegments;
+        this.clock = clock;
+        this.nextSequence = nextSequence;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-decision-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a log in {@code directory} with the default segment size and
+     * retention, timestamped by the system clock.
+     *
+     * @throws IOException if the directory or the first segment cannot be
+     *                     created.
+     */
+    public static DecisionLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Opens a log in {@code directory}. Segments already in the directory are
+     * kept and new ones continue their sequence.
+     *
+     * @param directory    where segments and the plan dictionary are written.
+     * @param segmentBytes the size of one segment; rounded down to whole
+     *                     chunks.
+     * @param maxSegments  how many segments to keep, including the one being
+     *                     written.
+     * @param clock        the source of record timestamps.
+     * @return the open log; close it on shutdown.
+     * @throws IllegalArgumentException if a segment cannot hold one chunk or
+     *                                  fewer than one segment is kept.
+     * @throws IOException              if the directory or the first segment
+     *                                  cannot be created.
+     */
+    public static DecisionLog open(Path directory, long segmentBytes, int maxSegments, Clock clock)
+            throws IOException {
+        Objects.requireNonNull(directory, "Directory must not be null");
+        Objects.requireNonNull(clock, "Clock must not be null");
+        long chunks = (segmentBytes - HEADER_BYTES) / CHUNK_BYTES;
+        if (chunks < 1 || chunks > Integer.MAX_VALUE / CHUNK_BYTES) {
+            throw new IllegalArgumentException(
+                    "Segment size must be between " + (HEADER_BYTES + CHUNK_BYTES) + " bytes and 2GB");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("At least one segment must be kept");
+        }
+        Files.createDirectories(directory);
+
+        long sequence = 0;
+        for (Path segment : segments(directory)) {
+            sequence = Math.max(sequence, sequenceOf(segment));
+        }
+        DecisionLog decisionLog = new DecisionLog(directory, (int) chunks, maxSegments, clock, sequence + 1);
+        try {
+            decisionLog.readPlans();
+            decisionLog.current = decisionLog.openSegment();
+            decisionLog.deleteExpiredSegments(decisionLog.current.sequence);
+        } catch (IOException | RuntimeException e) {
+            decisionLog.housekeeper.shutdownNow();
+            throw e;
+        }
+        decisionLog.housekeeper.execute(decisionLog::preallocate);
+        return decisionLog;
+    }
+
+    /**
+     * @return the hash stored for {@code key}; use it to find a key's records.
+     */
+    public static long keyHash(String key) {
+        return KeyHashing.hash(key);
+    }
+
+    @Override
+    public void onAllow(String key, List<String> plans, RateLimitResult result) {
+        record(key, plans, result.waitMillis() > 0 ? Outcome.RESERVED : Outcome.ALLOWED, result);
+    }
+
+    @Override
+    public void onDeny(String key, List<String> plans, RateLimitResult result) {
+        Outcome outcome;
+        if (LoadShedder.DENY_REASON.equals(result.reason())) {
+            outcome = Outcome.SHED;
+        } else if (PenaltyBox.DENY_REASON.equals(result.reason())) {
+            outcome = Outcome.BANNED;
+        } else {
+            outcome = Outcome.DENIED;
+        }
+        record(key, plans, outcome, result);
+    }
+
+    @Override
+    public void onFailOpen(String key, String reason) {
+        record(key, List.of(), Outcome.FAIL_OPEN, null);
+    }
+
+    /**
+     * @return the number of decisions not recorded because no segment could
+     *         be written.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Waits for pending housekeeping, forces the current segment to disk,
+     * deletes the unused pre-allocated one and stops recording; later
+     * decisions are counted as dropped.
+     */
+    @Override
+    public void close() {
+        Segment last;
+        Segment unused;
+        rotationLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = current;
+            unused = spare;
+            current = null;
+            spare = null;
+        } finally {
+            rotationLock.unlock();
+        }
+        housekeeper.shutdown();
+        try {
+            housekeeper.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (last != null) {
+            last.buffer.force();
+        }
+        if (unused != null) {
+            try {
+                Files.deleteIfExists(unused.file);
+            } catch (IOException e) {
+                log.warn("Failed to delete the unused decision log segment {}. Reason: {}", unused.file,
+                        e.getMessage(), e);
+            }
+        }
+    }
+
+    private void record(String key, List<String> plans, Outcome outcome, RateLimitResult result) {
+        long timestamp = clock.millis();
+        long hash = keyHash(key);
+        int planCount = plans.size();
+        short plan0 = planCount > 0 ? planId(plans.get(0)) : NO_PLAN;
+        short plan1 = planCount > 1 ? planId(plans.get(1)) : NO_PLAN;
+        short plan2 = planCount > 2 ? planId(plans.get(2)) : NO_PLAN;
+        float remaining = result != null ? (float) result.remainingTokens() : -1f;
+        int wait = result != null ? (int) Math.min(result.waitMillis(), Integer.MAX_VALUE) : 0;
+
+        Stripe stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        stripe.lock.lock();
+        try {
+            if (closed) {
+                dropped.increment();
+                return;
+            }
+            ByteBuffer chunk = stripe.chunk;
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = stripe.chunk = claimChunk();
+                if (chunk == null) {
+                    dropped.increment();
+                    return;
+                }
+            }
+            chunk.putLong(timestamp)
+                    .putLong(hash)
+                    .putShort(plan0)
+                    .putShort(plan1)
+                    .putShort(plan2)
+                    .put((byte) Math.min(planCount, 255))
+                    .put((byte) (outcome.ordinal() + 1))
+                    .putFloat(remaining)
+                    .putInt(wait);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** @return the next free chunk, rotating if needed; {@code null} if none can be had. */
+    private ByteBuffer claimChunk() {
+        Segment segment = current;
+        while (segment != null) {
+            int index = segment.nextChunk.getAndIncrement();
+            if (index < chunksPerSegment) {
+                return segment.buffer.slice(HEADER_BYTES + index * CHUNK_BYTES, CHUNK_BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            segment = rotate(segment);
+        }
+        return null;
+    }
+
+    /**
+     * Replaces {@code full} with the pre-allocated segment unless another stripe
+     * already did, and hands {@code full} to the housekeeping thread. Creates
+     * the segment in place only if pre-allocation has not produced one.
+     */
+    private Segment rotate(Segment full) {
+        rotationLock.lock();
+        try {
+            if (closed || current != full) {
+                return current;
+            }
+            long now = clock.millis();
+            if (now < retryAtMillis) {
+                return null;
+            }
+            Segment next = spare;
+            spare = null;
+            try {
+                if (next == null) {
+                    next = openSegment();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to rotate the decision log in {}; dropping decisions until the next attempt. "
+                        + "Reason: {}", directory, e.getMessage(), e);
+                retryAtMillis = now + RETRY_MILLIS;
+                return null;
+            }
+            next.buffer.putLong(CREATED_AT_OFFSET, now);
+            current = next;
+            housekeeper.execute(() -> housekeep(full));
+            return next;
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    /** Forces a rotated segment, applies the retention and prepares the next segment. */
+    private void housekeep(Segment sealed) {
+        try {
+            sealed.buffer.force();
+            deleteExpiredSegments(sealed.sequence + 1);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to flush or trim the decision log in {}. Reason: {}", directory, e.getMessage(), e);
+        }
+        preallocate();
+    }
+
+    /**
+     * Creates the next segment ahead of rotation. Runs under the rotation lock
+     * so that segments are always swapped in in sequence order.
+     */
+    private void preallocate() {
+        rotationLock.lock();
+        try {
+            if (closed || spare != null) {
+                return;
+            }
+            spare = openSegment();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to pre-allocate a decision log segment in {}; the next rotation will retry. Reason: {}",
+                    directory, e.getMessage(), e);
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        long sequence = nextSequence++;
+        Path file = directory.resolve(segmentName(sequence));
+        long size = HEADER_BYTES + (long) chunksPerSegment * CHUNK_BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(RECORD_BYTES)
+                    .putInt(CHUNK_BYTES)
+                    .putLong(clock.millis())
+                    .putLong(sequence);
+            return new Segment(file, sequence, buffer);
+        }
+    }
+
+    /**
+     * Deletes the oldest segments beyond the retention, counting segments up to
+     * {@code newestSequence}; a pre-allocated segment is never counted or
+     * deleted.
+     */
+    private void deleteExpiredSegments(long newestSequence) throws IOException {
+        List<Path> written = segments(directory).stream()
+                .filter(segment -> sequenceOf(segment) <= newestSequence)
+                .toList();
+        for (int i = 0; i < written.size() - maxSegments; i++) {
+            Files.deleteIfExists(written.get(i));
+        }
+    }
+
+    private short planId(String plan) {
+        Short id = planIds.get(plan);
+        return id != null ? id : registerPlan(plan);
+    }
+
+    private short registerPlan(String plan) {
+        short id;
+        planLock.lock();
+        try {
+            Short known = planIds.get(plan);
+            if (known != null) {
+                return known;
+            }
+            if (lastPlanId >= 0xFFFF) {
+                return NO_PLAN;
+            }
+            id = (short) ++lastPlanId;
+            planIds.put(plan, id);
+        } finally {
+            planLock.unlock();
+        }
+        // Each line is one O_APPEND write, so concurrent registrations do not interleave.
+        try {
+            Files.writeString(directory.resolve(PLANS_FILE), (id & 0xFFFF) + "\t" + plan + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Failed to record plan [{}] in the decision log dictionary. Reason: {}", plan, e.getMessage(), e);
+            // Keep the id taken so ids stay unique, but never write it into a record.
+            planIds.replace(plan, id, NO_PLAN);
+            return NO_PLAN;
+        }
+        return id;
+    }
+
+    /** Loads the dictionary; ids may have gaps where a registration failed to be written. */
+    private void readPlans() throws IOException {
+        planLock.lock();
+        try {
+            DecisionLogReader.readPlans(directory).forEach((id, plan) -> {
+                planIds.put(plan, (short) (int) id);
+                lastPlanId = Math.max(lastPlanId, id);
+            });
+        } finally {
+            planLock.unlock();
+        }
+    }
+
+    static String segmentName(long sequence) {
+        return SEGMENT_PREFIX + String.format("%016d", sequence) + SEGMENT_SUFFIX;
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** @return the segments of {@code directory}, oldest first. */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    /** A mapped segment and the index of its next unclaimed chunk. */
+    private static final class Segment {
+
+        private final Path file;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+
+        Segment(Path file, long sequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+    }
+
+    /** The chunk a group of threads is filling. */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private ByteBuffer chunk;
+    }
+}
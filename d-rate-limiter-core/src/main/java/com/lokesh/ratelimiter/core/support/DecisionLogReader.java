@@ -0,0 +1,229 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.support.DecisionLog.Outcome;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Streams the decisions written by a {@link DecisionLog}, oldest segment first,
+ * for offline aggregation.
+ *
+ * <p>
+ * Segments are read through read-only mappings, one at a time, so a directory
+ * of any size is read in a single sequential pass. Records within a segment are
+ * grouped by writer stripe; sort by {@link Decision#timestampMillis()} if the
+ * aggregation needs global order. The segment being written can be read as
+ * well; a record written concurrently may then be seen half-written.
+ *
+ * <p>
+ * The class doubles as a command-line tool:
+ *
+ * <pre>
+ * java ... DecisionLogReader &lt;directory&gt;        # decisions per plan chain and outcome
+ * java ... DecisionLogReader &lt;directory&gt; &lt;key&gt;  # every decision of one key
+ * </pre>
+ */
+public final class DecisionLogReader {
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final Path directory;
+    private final Map<Integer, String> plans;
+    private final Map<Long, List<String>> chains = new HashMap<>();
+
+    private DecisionLogReader(Path directory, Map<Integer, String> plans) {
+        this.directory = directory;
+        this.plans = plans;
+    }
+
+    /**
+     * One recorded decision.
+     *
+     * @param timestampMillis when the decision was made.
+     * @param keyHash         the {@link DecisionLog#keyHash} of the key.
+     * @param plans           the first plans of the chain; {@code "?"} for a
+     *                        plan missing from the dictionary.
+     * @param planCount       the length of the chain, which may exceed
+     *                        {@code plans}.
+     * @param outcome         what happened to the request.
+     * @param remainingTokens the remaining tokens reported to the caller;
+     *                        {@code -1} if unknown.
+     * @param waitMillis      the wait reported to the caller.
+     */
+    public record Decision(
+            long timestampMillis,
+            long keyHash,
+            List<String> plans,
+            int planCount,
+            Outcome outcome,
+            float remainingTokens,
+            long waitMillis) {
+    }
+
+    /**
+     * Opens the log in {@code directory} for reading.
+     *
+     * @throws IOException if the plan dictionary cannot be read.
+     */
+    public static DecisionLogReader open(Path directory) throws IOException {
+        Objects.requireNonNull(directory, "Directory must not be null");
+        return new DecisionLogReader(directory, readPlans(directory));
+    }
+
+    /**
+     * @return the segments of the log, oldest first.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public List<Path> segments() throws IOException {
+        return DecisionLog.segments(directory);
+    }
+
+    /**
+     * Passes every decision of every segment to {@code consumer}.
+     *
+     * @return the number of decisions read.
+     * @throws IOException if a segment cannot be read or is not a decision log
+     *                     segment.
+     */
+    public long read(Consumer<Decision> consumer) throws IOException {
+        long count = 0;
+        for (Path segment : segments()) {
+            count += read(segment, consumer);
+        }
+        return count;
+    }
+
+    /**
+     * Passes every decision of one segment to {@code consumer}.
+     *
+     * @return the number of decisions read.
+     * @throws IOException if the segment cannot be read or is not a decision
+     *                     log segment.
+     */
+    public long read(Path segment, Consumer<Decision> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < DecisionLog.HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a decision log segment: " + segment);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != DecisionLog.MAGIC) {
+                throw new IOException("Not a decision log segment: " + segment);
+            }
+            int version = buffer.getInt(4);
+            if (version != DecisionLog.VERSION) {
+                throw new IOException("Unsupported decision log version " + version + ": " + segment);
+            }
+            int recordBytes = buffer.getInt(8);
+            int chunkBytes = buffer.getInt(12);
+            if (recordBytes != DecisionLog.RECORD_BYTES || chunkBytes <= 0 || chunkBytes % recordBytes != 0) {
+                throw new IOException("Corrupt decision log header: " + segment);
+            }
+
+            long count = 0;
+            for (int chunk = DecisionLog.HEADER_BYTES; chunk + chunkBytes <= size; chunk += chunkBytes) {
+                // A chunk is filled front to back; its first unused slot ends it.
+                for (int record = chunk; record < chunk + chunkBytes; record += recordBytes) {
+                    int outcome = buffer.get(record + 23);
+                    if (outcome == 0) {
+                        break;
+                    }
+                    if (outcome > OUTCOMES.length) {
+                        throw new IOException("Corrupt decision log record at offset " + record + ": " + segment);
+                    }
+                    consumer.accept(new Decision(
+                            buffer.getLong(record),
+                            buffer.getLong(record + 8),
+                            chain(buffer.getShort(record + 16), buffer.getShort(record + 18),
+                                    buffer.getShort(record + 20), buffer.get(record + 22) & 0xFF),
+                            buffer.get(record + 22) & 0xFF,
+                            OUTCOMES[outcome - 1],
+                            buffer.getFloat(record + 24),
+                            buffer.getInt(record + 28)));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /** Resolves plan ids to names once per distinct chain. */
+    private List<String> chain(short plan0, short plan1, short plan2, int planCount) {
+        int stored = Math.min(planCount, DecisionLog.MAX_PLANS);
+        long packed = (long) stored << 48 | (plan0 & 0xFFFFL) << 32 | (plan1 & 0xFFFFL) << 16 | plan2 & 0xFFFFL;
+        return chains.computeIfAbsent(packed, ignored -> {
+            short[] ids = { plan0, plan1, plan2 };
+            List<String> names = new ArrayList<>(stored);
+            for (int i = 0; i < stored; i++) {
+                names.add(plans.getOrDefault(ids[i] & 0xFFFF, "?"));
+            }
+            return List.copyOf(names);
+        });
+    }
+
+    /** @return the plan dictionary of {@code directory}, by id; empty if none was written. */
+    static Map<Integer, String> readPlans(Path directory) throws IOException {
+        Path file = directory.resolve(DecisionLog.PLANS_FILE);
+        Map<Integer, String> plans = new HashMap<>();
+        if (!Files.exists(file)) {
+            return plans;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                plans.put(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * Prints the number of decisions per plan chain and outcome, or every
+     * decision of one key.
+     *
+     * <p>
+     * Usage: {@code DecisionLogReader <directory> [key]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: DecisionLogReader <directory> [key]");
+            System.exit(2);
+        }
+        DecisionLogReader reader = open(Path.of(args[0]));
+        if (args.length == 2) {
+            long keyHash = DecisionLog.keyHash(args[1]);
+            reader.read(decision -> {
+                if (decision.keyHash() == keyHash) {
+                    System.out.println(decision.timestampMillis() + "\t" + String.join(",", decision.plans())
+                            + "\t" + decision.outcome() + "\t" + decision.remainingTokens()
+                            + "\t" + decision.waitMillis());
+                }
+            });
+            return;
+        }
+
+        Map<String, EnumMap<Outcome, long[]>> counts = new TreeMap<>();
+        long total = reader.read(decision -> counts
+                .computeIfAbsent(String.join(",", decision.plans()), ignored -> new EnumMap<>(Outcome.class))
+                .computeIfAbsent(decision.outcome(), ignored -> new long[1])[0]++);
+        counts.forEach((chain, byOutcome) -> byOutcome.forEach((outcome, count) ->
+                System.out.println((chain.isEmpty() ? "-" : chain) + "\t" + outcome + "\t" + count[0])));
+        System.out.println("total\t" + total);
+    }
+}
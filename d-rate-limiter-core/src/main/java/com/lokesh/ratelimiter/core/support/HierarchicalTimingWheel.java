@@ -0,0 +1,124 @@
+package com.lokesh.ratelimiter.core.support;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck) with 64 slots per level.
+ *
+ * <p>
+ * Inserting and expiring a timer are O(1); a timer due far in the future sits in
+ * a coarse level and is cascaded into finer levels as its deadline approaches,
+ * at most once per level. With four levels the wheel spans
+ * {@code 64⁴ = 16.7M} ticks; later deadlines are parked in the last slot of the
+ * top level and re-examined when it cascades.
+ *
+ * <p>
+ * <b>Not thread-safe</b>: owned by a single thread (see
+ * {@link IdleBucketEvictor}).
+ *
+ * @param <T> the timer payload.
+ */
+final class HierarchicalTimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final Node<T>[][] wheels;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    HierarchicalTimingWheel(long startTick) {
+        this.wheels = new Node[LEVELS][SLOTS];
+        this.currentTick = startTick;
+    }
+
+    /**
+     * Schedules {@code payload} to expire at {@code deadlineTick}. Deadlines in
+     * the past expire on the next tick.
+     */
+    void schedule(T payload, long deadlineTick) {
+        insert(new Node<>(payload, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Advances the wheel to {@code tick}, passing every expired payload to
+     * {@code expired}. Payloads may be rescheduled from within the callback.
+     */
+    void advanceTo(long tick, Consumer<T> expired) {
+        while (currentTick < tick) {
+            currentTick++;
+            cascade();
+            int slot = (int) (currentTick & MASK);
+            Node<T> node = wheels[0][slot];
+            wheels[0][slot] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                size--;
+                expired.accept(node.payload);
+                node = next;
+            }
+        }
+    }
+
+    /** @return the number of pending timers. */
+    int size() {
+        return size;
+    }
+
+    /** @return the last processed tick. */
+    long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * When a level wraps to slot 0, the current slot of the next level is due to
+     * be redistributed into finer levels.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (BITS * (level - 1))) & MASK) != 0) {
+                return;
+            }
+            int slot = (int) ((currentTick >>> (BITS * level)) & MASK);
+            Node<T> node = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                insert(node);
+                node = next;
+            }
+        }
+    }
+
+    private void insert(Node<T> node) {
+        long delta = node.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (BITS * (level + 1)))) {
+                int slot = (int) ((node.deadlineTick >>> (BITS * level)) & MASK);
+                node.next = wheels[level][slot];
+                wheels[level][slot] = node;
+                return;
+            }
+        }
+        // Beyond the wheel's span: park in the top level slot that cascades last.
+        int slot = (int) (((currentTick >>> (BITS * (LEVELS - 1))) - 1) & MASK);
+        node.next = wheels[LEVELS - 1][slot];
+        wheels[LEVELS - 1][slot] = node;
+    }
+
+    private static final class Node<T> {
+
+        private final T payload;
+        private final long deadlineTick;
+        private Node<T> next;
+
+        Node(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evicts idle buckets from a local bucket store.
+ *
+ * <p>
+ * A full bucket carries no information, since {@link TokenBucket#refill} caps
+ * tokens at capacity and a missing bucket is treated as full. Each bucket is
+ * therefore scheduled in a {@link HierarchicalTimingWheel} for the moment it
+ * would be full again, and removed then.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Lazy Rescheduling</b>: Touching a bucket does not move its timer. When
+ * the timer fires, the bucket's current state is re-read; if it is not full yet,
+ * the timer is re-armed at its new refill time. Touches cost nothing, and each
+ * live bucket has exactly one pending timer, so memory tracks active keys.</li>
+ * <li><b>Non-Blocking</b>: Request threads only append newly created buckets to
+ * a lock-free queue. The wheel is owned by one background thread, which removes
+ * buckets with a conditional delete that fails if the bucket was touched after it
+ * was examined.</li>
+ * </ul>
+ *
+ * @param <K> the store's key type.
+ */
+public final class IdleBucketEvictor<K> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(IdleBucketEvictor.class);
+
+    /**
+     * The operations the evictor needs from a bucket store.
+     *
+     * @param <K> the store's key type.
+     */
+    public interface BucketAccess<K> {
+
+        /** @return the stored state, or {@code null} if the bucket is absent. */
+        TokenBucket read(K key);
+
+        /**
+         * Removes the bucket if its {@code lastRefillMillis} still equals
+         * {@code expectedLastRefillMillis}.
+         *
+         * @return {@code true} if the bucket was removed.
+         */
+        boolean removeIfUnchanged(K key, long expectedLastRefillMillis);
+    }
+
+    private final BucketAccess<K> access;
+    private final Clock clock;
+    private final long tickMillis;
+    private final ConcurrentLinkedQueue<Timer<K>> inbox = new ConcurrentLinkedQueue<>();
+    private final HierarchicalTimingWheel<Timer<K>> wheel;
+    private final ScheduledExecutorService scheduler;
+    private volatile long evicted;
+
+    /**
+     * Starts an evictor that advances every {@code tick}.
+     *
+     * @param access the bucket store.
+     * @param clock  the store's time source, in epoch milliseconds.
+     * @param tick   wheel resolution; buckets are evicted up to one tick late.
+     * @throws IllegalArgumentException if the tick is shorter than 1ms.
+     */
+    public IdleBucketEvictor(BucketAccess<K> access, Clock clock, Duration tick) {
+        this(access, clock, tick, true);
+    }
+
+    /**
+     * @param background whether to advance on a background thread; tests drive
+     *                   {@link #advance()} directly.
+     */
+    IdleBucketEvictor(BucketAccess<K> access, Clock clock, Duration tick, boolean background) {
+        this.access = Objects.requireNonNull(access, "Access must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        Objects.requireNonNull(tick, "Tick must not be null");
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1ms");
+        }
+        this.tickMillis = tick.toMillis();
+        this.wheel = new HierarchicalTimingWheel<>(clock.millis() / tickMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (background) {
+            scheduler.scheduleWithFixedDelay(this::runSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Registers a newly created bucket. Called by the store on insert only; later
+     * touches need no call.
+     */
+    public void track(K key, RateLimitConfig config) {
+        inbox.add(new Timer<>(key, config));
+    }
+
+    /**
+     * Processes pending registrations and expires due timers up to the current
+     * time. Runs on the background thread; exposed for deterministic tests.
+     */
+    void advance() {
+        long now = clock.millis();
+        Timer<K> timer;
+        while ((timer = inbox.poll()) != null) {
+            schedule(timer, now);
+        }
+        wheel.advanceTo(now / tickMillis, expired -> expire(expired, now));
+    }
+
+    /** @return the number of buckets currently tracked. */
+    int tracked() {
+        return wheel.size() + inbox.size();
+    }
+
+    /** @return the number of buckets evicted so far. */
+    long evicted() {
+        return evicted;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void expire(Timer<K> timer, long now) {
+        TokenBucket state = access.read(timer.key);
+        if (state == null) {
+            return;
+        }
+        if (state.refill(now, timer.config).tokens() >= timer.config.capacity()) {
+            if (access.removeIfUnchanged(timer.key, state.lastRefillMillis())) {
+                evicted++;
+                return;
+            }
+            // Touched since it was read: re-examine on the next tick.
+            wheel.schedule(timer, now / tickMillis + 1);
+            return;
+        }
+        schedule(timer, now, state);
+    }
+
+    private void schedule(Timer<K> timer, long now) {
+        TokenBucket state = access.read(timer.key);
+        if (state != null) {
+            schedule(timer, now, state);
+        }
+    }
+
+    /** Arms the timer for the moment {@code state} is full again. */
+    private void schedule(Timer<K> timer, long now, TokenBucket state) {
+        double missing = Math.max(0, timer.config.capacity() - state.tokens());
+        long fullAt = state.lastRefillMillis() + (long) Math.ceil(missing * 1000.0 / timer.config.tokensPerSecond());
+        // Round up so the bucket is full when the tick fires.
+        wheel.schedule(timer, Math.floorDiv(Math.max(fullAt, now) + tickMillis - 1, tickMillis));
+    }
+
+    private void runSafely() {
+        try {
+            advance();
+        } catch (RuntimeException e) {
+            log.warn("Idle bucket eviction failed; retrying next tick. Reason: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Timer<K>(K key, RateLimitConfig config) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.DistinctKeys;
+import com.lokesh.ratelimiter.core.port.CardinalityStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link CardinalityStore} shared by the nodes of one JVM.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for tests and
+ * single-JVM simulations of {@link CardinalityGuardKeyResolver}. Counts are
+ * exact; sets never expire, their names carry the window, so old ones are
+ * merely unused.
+ */
+public final class InMemoryCardinalityStore implements CardinalityStore {
+
+    private final ConcurrentHashMap<String, Set<String>> sets = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Long> addAndCount(List<DistinctKeys> batches) {
+        List<Long> results = new ArrayList<>(batches.size());
+        for (DistinctKeys batch : batches) {
+            Set<String> set = sets.computeIfAbsent(batch.set(), name -> ConcurrentHashMap.newKeySet());
+            set.addAll(batch.keys());
+            results.add((long) set.size());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.NodeRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link NodeRegistry} shared by the nodes of one JVM.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for tests and
+ * single-JVM simulations of {@link ApportionedRateLimiterRepository}.
+ */
+public final class InMemoryNodeRegistry implements NodeRegistry {
+
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+
+    /** Creates a registry expiring heartbeats by the system clock. */
+    public InMemoryNodeRegistry() {
+        this(SystemClock.INSTANCE);
+    }
+
+    /**
+     * @param clock source of the current time in epoch milliseconds.
+     */
+    public InMemoryNodeRegistry(Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+    }
+
+    @Override
+    public void publish(String nodeId, Map<String, NodeShare> plans, Duration ttl) {
+        heartbeats.put(nodeId, new Heartbeat(Map.copyOf(plans), clock.millis() + ttl.toMillis()));
+    }
+
+    @Override
+    public Map<String, Map<String, NodeShare>> liveNodes() {
+        long now = clock.millis();
+        heartbeats.values().removeIf(heartbeat -> heartbeat.expiresAt() <= now);
+        Map<String, Map<String, NodeShare>> live = new HashMap<>();
+        heartbeats.forEach((nodeId, heartbeat) -> live.put(nodeId, heartbeat.plans()));
+        return live;
+    }
+
+    private record Heartbeat(Map<String, NodeShare> plans, long expiresAt) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ConsumptionCount;
+import com.lokesh.ratelimiter.core.port.PeerChannel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-process stand-in for the network between sites, connecting the
+ * {@link PeerChannel}s it hands out.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for tests and
+ * single-JVM simulations of {@link ReplicatedRateLimiterRepository}. Delivery is
+ * synchronous, on the publishing thread.
+ */
+public final class InMemoryPeerNetwork {
+
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return a new channel receiving everything the other members publish.
+     */
+    public PeerChannel join() {
+        Member member = new Member();
+        members.add(member);
+        return member;
+    }
+
+    private final class Member implements PeerChannel {
+
+        private volatile Consumer<List<ConsumptionCount>> receiver = counts -> {
+        };
+
+        @Override
+        public void publish(List<ConsumptionCount> counts) {
+            List<ConsumptionCount> batch = List.copyOf(counts);
+            for (Member member : members) {
+                if (member != this) {
+                    member.receiver.accept(batch);
+                }
+            }
+        }
+
+        @Override
+        public void subscribe(Consumer<List<ConsumptionCount>> receiver) {
+            this.receiver = receiver;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link QuotaStore} shared by the nodes of one JVM.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for tests and
+ * single-JVM simulations of {@link QuotaRateLimiterRepository}. Counters never
+ * expire; their keys name the window, so old ones are merely unused.
+ */
+public final class InMemoryQuotaStore implements QuotaStore {
+
+    private final ConcurrentHashMap<String, Map<String, Long>> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Long> contribute(List<QuotaContribution> contributions) {
+        List<Long> results = new ArrayList<>(contributions.size());
+        for (QuotaContribution contribution : contributions) {
+            long[] total = new long[1];
+            counters.compute(contribution.key(), (key, nodes) -> {
+                Map<String, Long> updated = nodes != null ? nodes : new ConcurrentHashMap<>();
+                updated.put(contribution.node(), contribution.total());
+                total[0] = sum(updated);
+                return updated;
+            });
+            results.add(total[0]);
+        }
+        return results;
+    }
+
+    /** @return the total of a counter over all nodes; 0 if it was never written. */
+    public long total(String key) {
+        Map<String, Long> nodes = counters.get(key);
+        return nodes != null ? sum(nodes) : 0;
+    }
+
+    private static long sum(Map<String, Long> nodes) {
+        return nodes.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,359 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ClockPrecision;
+import com.lokesh.ratelimiter.core.model.ConsumptionResult;
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PathConsumption;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process implementation of the {@link RateLimiterRepository} and
+ * {@link FairShareRepository} ports.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b>. Suitable for
+ * single-instance deployments, local development and tests. Limits are not
+ * shared between application instances.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Domain Math (Fix 6)</b>: Every bucket is updated through
+ * {@link TokenBucket#tryConsume}, the same logic the Redis script mirrors.</li>
+ * <li><b>Atomic Chained Limits (ADR 005)</b>: All buckets of one key are
+ * guarded by the same lock stripe; tokens are deducted from every bucket or from
+ * none. Stripes are {@link ReentrantLock}s, so virtual threads are not
+ * pinned.</li>
+ * <li><b>Reservations</b>: {@link #tryReserve} and {@link #refund} run under
+ * the same stripe, so a reservation is all-or-nothing as well.</li>
+ * <li><b>Hierarchical Limits</b>: {@link #tryAcquireFairShare} applies
+ * {@link PathConsumption#tryConsume}, the reference the Redis script is tested
+ * against. All paths of one limit share the stripe of its global bucket.</li>
+ * <li><b>Key Layout</b>: Buckets are stored under the same
+ * {@code ratelimiter:default:{key}:{plan}} keys as the Redis adapter (see
+ * {@link #bucketKey}).</li>
+ * <li><b>Fast Restart</b>: {@link #snapshot(Path)} and {@link #restore(Path)}
+ * persist state across deploys (see {@link BucketSnapshotFile}).</li>
+ * <li><b>Idle Eviction</b>: {@link #startIdleEviction} drops buckets once they
+ * are full again, so memory follows active keys.</li>
+ * </ul>
+ */
+public class InMemoryRateLimiterRepository implements RateLimiterRepository, FairShareRepository,
+        PeriodicSnapshotter.Target {
+
+    private static final int DEFAULT_STRIPES = 256;
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private final ConcurrentHashMap<String, StoredBucket> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final Clock clock;
+    private final ClockPrecision precision;
+    private volatile IdleBucketEvictor<String> evictor;
+
+    /**
+     * Creates a repository using the system clock.
+     */
+    public InMemoryRateLimiterRepository() {
+        this(SystemClock.INSTANCE);
+    }
+
+    /**
+     * Creates a repository with a custom time source.
+     *
+     * @param clock supplies the current time in epoch milliseconds (ADR 007).
+     */
+    public InMemoryRateLimiterRepository(Clock clock) {
+        this(clock, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Creates a repository that reads the clock in the given precision.
+     *
+     * @param clock     the time source.
+     * @param precision {@link ClockPrecision#MICROS} for plans refilling more
+     *                  than one token per millisecond.
+     */
+    public InMemoryRateLimiterRepository(Clock clock, ClockPrecision precision) {
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        this.precision = Objects.requireNonNull(precision, "Precision must not be null");
+        this.stripes = new ReentrantLock[DEFAULT_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return execute(key, configs, BucketOperation.consume(tokensToConsume));
+    }
+
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        return execute(key, configs, BucketOperation.consumeAbove(tokensToConsume, floor));
+    }
+
+    /**
+     * Reserves tokens; buckets may go negative (see {@link TokenBucket#tryReserve}).
+     */
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return execute(key, configs, BucketOperation.reserve(tokensToConsume, maxWaitMillis));
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        execute(key, configs, BucketOperation.refund(tokensToConsume));
+    }
+
+    /**
+     * Deducts tokens without a floor (see {@link TokenBucket#debit}).
+     */
+    @Override
+    public void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        execute(key, configs, BucketOperation.debit(tokens));
+    }
+
+    @Override
+    public RateLimitResult tryAcquireFairShare(FairShareLimit limit, FairSharePath path, int tokensToConsume) {
+        List<String> keys = fairShareKeys(limit, path);
+        List<RateLimitConfig> configs = limit.configs(path);
+
+        ReentrantLock lock = stripes[(keys.get(0).hashCode() & 0x7fffffff) % stripes.length];
+        lock.lock();
+        try {
+            List<TokenBucket> stored = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                StoredBucket bucket = buckets.get(key);
+                stored.add(bucket != null ? bucket.bucket() : null);
+            }
+            PathConsumption consumption = PathConsumption.tryConsume(stored, configs, clock.millis(),
+                    tokensToConsume);
+            if (!consumption.allowed()) {
+                return RateLimitResult.deny(consumption.remaining(), consumption.waitMillis(), DENY_REASON);
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                RateLimitConfig config = configs.get(i);
+                if (buckets.put(keys.get(i), new StoredBucket(consumption.updated().get(i), config.capacity(),
+                        config.tokensPerSecond())) == null) {
+                    track(keys.get(i), config);
+                }
+            }
+            return RateLimitResult.allow(consumption.remaining());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RateLimitResult execute(String key, List<RateLimitConfig> configs, BucketOperation operation) {
+        String[] keys = new String[configs.size()];
+        TokenBucket[] updated = new TokenBucket[configs.size()];
+
+        ReentrantLock lock = stripes[(key.hashCode() & 0x7fffffff) % stripes.length];
+        lock.lock();
+        try {
+            long now = clock.now(precision);
+            boolean allowed = true;
+            double minRemaining = Double.MAX_VALUE;
+            long maxWait = 0;
+
+            for (int i = 0; i < configs.size(); i++) {
+                RateLimitConfig config = configs.get(i);
+                keys[i] = bucketKey(key, config);
+                StoredBucket stored = buckets.get(keys[i]);
+                TokenBucket bucket = stored != null
+                        ? stored.bucket()
+                        : new TokenBucket(config.capacity(), precision.toMillis(now));
+
+                ConsumptionResult result = operation.apply(bucket, now, precision, config);
+                updated[i] = result.updatedBucket();
+                allowed &= result.allowed();
+                maxWait = Math.max(maxWait, result.waitMillis());
+                minRemaining = Math.min(minRemaining, result.updatedBucket().tokens());
+            }
+
+            if (!allowed) {
+                return RateLimitResult.deny(minRemaining, maxWait, DENY_REASON);
+            }
+            for (int i = 0; i < configs.size(); i++) {
+                RateLimitConfig config = configs.get(i);
+                if (buckets.put(keys[i], new StoredBucket(updated[i], config.capacity(),
+                        config.tokensPerSecond())) == null) {
+                    track(keys[i], config);
+                }
+            }
+            return maxWait > 0
+                    ? RateLimitResult.reserved(minRemaining, maxWait)
+                    : RateLimitResult.allow(minRemaining);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a bucket without modifying it.
+     *
+     * @param key the full bucket key, as produced by {@link #bucketKey}.
+     */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        StoredBucket stored = buckets.get(key);
+        return stored != null ? Optional.of(stored.bucket()) : Optional.empty();
+    }
+
+    /**
+     * Derives the key of the bucket guarding {@code key} under {@code config}.
+     *
+     * @param key    the identity being limited.
+     * @param config the plan applied to it.
+     * @return the bucket key, e.g. {@code ratelimiter:default:user_1:gold}.
+     */
+    public static String bucketKey(String key, RateLimitConfig config) {
+        return RateLimitKey.builder().withUser(key).withPlan(config.planName()).build();
+    }
+
+    /**
+     * Derives the keys of the buckets along a hierarchical path; {@code *} stands
+     * for a whole level.
+     *
+     * @return the global, tenant and user bucket keys, e.g.
+     *         {@code ratelimiter:*:*:api}, {@code ratelimiter:acme:*:api} and
+     *         {@code ratelimiter:acme:user_1:api}.
+     */
+    public static List<String> fairShareKeys(FairShareLimit limit, FairSharePath path) {
+        return List.of(
+                RateLimitKey.builder().withTenant("*").withUser("*").withPlan(limit.planName()).build(),
+                RateLimitKey.builder().withTenant(path.tenant()).withUser("*").withPlan(limit.planName()).build(),
+                RateLimitKey.builder().withTenant(path.tenant()).withUser(path.user()).withPlan(limit.planName())
+                        .build());
+    }
+
+    /**
+     * @return the number of buckets currently held.
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Writes every bucket to {@code file}, replacing it atomically.
+     *
+     * <p>
+     * Each bucket is copied consistently, but the snapshot as a whole is not a
+     * point-in-time image: buckets updated while it runs may be captured before
+     * or after the update.
+     *
+     * @param file the snapshot file.
+     * @return the number of buckets written.
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public long snapshot(Path file) throws IOException {
+        return BucketSnapshotFile.write(file, clock.millis(), buckets.entrySet());
+    }
+
+    /**
+     * Loads buckets from a snapshot written by {@link #snapshot(Path)}.
+     *
+     * <p>
+     * Every bucket is refilled for the downtime with {@link TokenBucket#refill}.
+     * Buckets that are full again are dropped, since a missing bucket is treated
+     * as full anyway. Buckets already present in this repository are kept.
+     *
+     * @param file the snapshot file.
+     * @return the number of buckets restored.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    @Override
+    public long restore(Path file) throws IOException {
+        long now = clock.millis();
+        long[] restored = new long[1];
+        BucketSnapshotFile.read(file, (key, stored) -> {
+            RateLimitConfig config = stored.toConfig();
+            TokenBucket refilled = stored.bucket().refill(now, config);
+            if (refilled.tokens() < stored.capacity()
+                    && buckets.putIfAbsent(key, new StoredBucket(refilled, stored.capacity(),
+                            stored.tokensPerSecond())) == null) {
+                track(key, config);
+                restored[0]++;
+            }
+        });
+        return restored[0];
+    }
+
+    /**
+     * Starts evicting buckets once they are full again (see
+     * {@link IdleBucketEvictor}). Only buckets created afterwards are tracked, so
+     * call this before serving traffic or restoring a snapshot.
+     *
+     * @param tick eviction resolution.
+     * @return the running evictor; close it on shutdown.
+     */
+    public IdleBucketEvictor<String> startIdleEviction(Duration tick) {
+        IdleBucketEvictor<String> started = new IdleBucketEvictor<>(idleAccess(), clock, tick);
+        this.evictor = started;
+        return started;
+    }
+
+    IdleBucketEvictor.BucketAccess<String> idleAccess() {
+        return new IdleBucketEvictor.BucketAccess<>() {
+            @Override
+            public TokenBucket read(String key) {
+                StoredBucket stored = buckets.get(key);
+                return stored != null ? stored.bucket() : null;
+            }
+
+            @Override
+            public boolean removeIfUnchanged(String key, long expectedLastRefillMillis) {
+                // The timer's config is the one the bucket was created with; a key
+                // whose capacity changed since is only dropped once full under the
+                // current one.
+                StoredBucket stored = buckets.get(key);
+                return stored != null
+                        && stored.bucket().lastRefillMillis() == expectedLastRefillMillis
+                        && stored.bucket().refill(clock.millis(), stored.toConfig()).tokens() >= stored.capacity()
+                        && buckets.remove(key, stored);
+            }
+        };
+    }
+
+    /** Attaches an evictor driven by the caller; for tests. */
+    void useEvictor(IdleBucketEvictor<String> evictor) {
+        this.evictor = evictor;
+    }
+
+    private void track(String key, RateLimitConfig config) {
+        IdleBucketEvictor<String> idle = evictor;
+        if (idle != null) {
+            idle.track(key, config);
+        }
+    }
+
+    /**
+     * A bucket together with the plan parameters needed to refill it without
+     * the plan registry.
+     */
+    record StoredBucket(TokenBucket bucket, long capacity, double tokensPerSecond) {
+
+        RateLimitConfig toConfig() {
+            return new RateLimitConfig("snapshot", capacity, tokensPerSecond);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.lokesh.ratelimiter.core.support;
+
+/**
+ * The 64-bit key hash shared by every component that places, finds or tags a
+ * key by hash.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b>. The value is
+ * stable across JVMs and releases: shard placement, packed-container indexes
+ * and decision-log records all depend on it, so changing it remaps keys.
+ */
+public final class KeyHashing {
+
+    private KeyHashing() {
+    }
+
+    /**
+     * @return a 64-bit FNV-1a hash of the key's UTF-16 code units, finished with
+     *         the MurmurHash3 mixer.
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
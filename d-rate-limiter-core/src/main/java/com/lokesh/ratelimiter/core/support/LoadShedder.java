@@ -0,0 +1,252 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.PriorityClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides how much of every bucket each {@link PriorityClass} must leave
+ * untouched, so that under overload low-priority traffic is denied first.
+ *
+ * <p>
+ * Architectural Role: <b>Policy Support</b> for {@code DefaultRateLimiter},
+ * which passes {@link #floor} to
+ * {@code RateLimiterRepository#tryAcquireAbove}.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Reserved Floors</b>: Each class may only take tokens above its floor,
+ * a fraction of the bucket's capacity; floors must not decrease from
+ * {@link PriorityClass#CRITICAL} down to {@link PriorityClass#ANONYMOUS}. With
+ * the defaults an anonymous request is denied once half the bucket is used,
+ * while interactive traffic can still take 90%.</li>
+ * <li><b>Pressure</b>: Every sample interval the shedder reads the host's CPU
+ * load and the average queue latency reported through
+ * {@link #recordQueueLatency}: {@code DefaultRateLimiter} reports how long each
+ * decision waited for the store, and applications may add the time requests
+ * spent in their own queues. Each signal maps to a pressure in
+ * {@code [0, 1]}: zero at its target, one at full CPU or twice the latency
+ * target. The pressure moves halfway towards the larger of the two per sample,
+ * so one spike does not shed traffic.</li>
+ * <li><b>Shedding</b>: Under pressure {@code p}, every class but
+ * {@link PriorityClass#CRITICAL} uses the floor
+ * {@code base + p × (1 − base)}; at full pressure only critical traffic is
+ * served.</li>
+ * </ul>
+ */
+public class LoadShedder implements AutoCloseable {
+
+    /** Deny reason of requests that had tokens, but only below their floor. */
+    public static final String DENY_REASON = "SHED";
+
+    /** Floors used for classes not configured otherwise. */
+    public static final Map<PriorityClass, Double> DEFAULT_FLOORS = Map.of(
+            PriorityClass.CRITICAL, 0.0,
+            PriorityClass.INTERACTIVE, 0.1,
+            PriorityClass.BATCH, 0.3,
+            PriorityClass.ANONYMOUS, 0.5);
+
+    /** Default time between two readings of the load signals. */
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofSeconds(1);
+
+    private static final Logger log = LoggerFactory.getLogger(LoadShedder.class);
+
+    /** Pressure below which shedding stops altogether. */
+    private static final double MIN_PRESSURE = 0.01;
+
+    private final EnumMap<PriorityClass, Double> floors = new EnumMap<>(PriorityClass.class);
+    private final double cpuTarget;
+    private final long latencyTargetNanos;
+    private final DoubleSupplier cpuLoad;
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+    private final EnumMap<PriorityClass, LongAdder> shed = new EnumMap<>(PriorityClass.class);
+    private final ScheduledExecutorService scheduler;
+    private volatile double pressure;
+
+    /**
+     * Creates a shedder with fixed floors and no load signals.
+     *
+     * @param floors the floor of each class; missing classes use
+     *               {@link #DEFAULT_FLOORS}.
+     * @throws IllegalArgumentException if a floor is outside {@code [0, 1]} or
+     *                                  a class has a lower floor than one above
+     *                                  it.
+     */
+    public LoadShedder(Map<PriorityClass, Double> floors) {
+        this(floors, 1.0, Duration.ZERO, DEFAULT_SAMPLE_INTERVAL, () -> -1, false);
+    }
+
+    /**
+     * Creates a shedder that raises the floors when the host's CPU load or the
+     * queue latency exceed their targets.
+     *
+     * @param floors         the floor of each class when the node is not
+     *                       overloaded; missing classes use
+     *                       {@link #DEFAULT_FLOORS}.
+     * @param cpuTarget      the CPU load, in {@code [0, 1]}, above which
+     *                       traffic is shed; {@code 1} ignores the CPU.
+     * @param latencyTarget  the average queue latency above which traffic is
+     *                       shed; {@link Duration#ZERO} ignores the latency.
+     * @param sampleInterval how often to read the signals.
+     * @throws IllegalArgumentException if a floor, the CPU target or the
+     *                                  latency target is out of range, or the
+     *                                  interval is shorter than 1ms.
+     */
+    public LoadShedder(Map<PriorityClass, Double> floors, double cpuTarget, Duration latencyTarget,
+            Duration sampleInterval) {
+        this(floors, cpuTarget, latencyTarget, sampleInterval, LoadShedder::systemCpuLoad, true);
+    }
+
+    /**
+     * @param cpuLoad    the CPU load in {@code [0, 1]}, or negative if unknown.
+     * @param background whether to sample on a background thread; tests call
+     *                   {@link #sample()} directly.
+     */
+    LoadShedder(Map<PriorityClass, Double> floors, double cpuTarget, Duration latencyTarget,
+            Duration sampleInterval, DoubleSupplier cpuLoad, boolean background) {
+        Objects.requireNonNull(floors, "Floors must not be null");
+        Objects.requireNonNull(latencyTarget, "Latency target must not be null");
+        Objects.requireNonNull(sampleInterval, "Sample interval must not be null");
+        this.cpuLoad = Objects.requireNonNull(cpuLoad, "CPU load must not be null");
+        if (cpuTarget < 0 || cpuTarget > 1) {
+            throw new IllegalArgumentException("CPU target must be between 0 and 1");
+        }
+        if (latencyTarget.isNegative()) {
+            throw new IllegalArgumentException("Latency target must not be negative");
+        }
+        long intervalMillis = sampleInterval.toMillis();
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1ms");
+        }
+        this.floors.putAll(DEFAULT_FLOORS);
+        this.floors.putAll(floors);
+        double above = 0;
+        for (PriorityClass priority : PriorityClass.values()) {
+            double floor = this.floors.get(priority);
+            if (!(floor >= 0 && floor <= 1)) {
+                throw new IllegalArgumentException("Floor of " + priority + " must be between 0 and 1");
+            }
+            if (floor < above) {
+                throw new IllegalArgumentException(
+                        "Floor of " + priority + " must not be lower than the floors of the classes above it");
+            }
+            above = floor;
+            shed.put(priority, new LongAdder());
+        }
+        this.cpuTarget = cpuTarget;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-load-shedder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (background) {
+            scheduler.scheduleAtFixedRate(this::sampleSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the fraction of each bucket's capacity a request of this class
+     *         must leave untouched now.
+     */
+    public double floor(PriorityClass priority) {
+        double base = floors.get(priority);
+        if (priority == PriorityClass.CRITICAL) {
+            return base;
+        }
+        return base + pressure * (1 - base);
+    }
+
+    /**
+     * Reports how long a request waited before it was served, e.g. for the
+     * store's reply or in the server's executor queue.
+     *
+     * @param nanos the wait in nanoseconds.
+     */
+    public void recordQueueLatency(long nanos) {
+        latencyNanos.add(nanos);
+        latencySamples.increment();
+    }
+
+    /**
+     * Counts a request of this class that was denied only because of its floor.
+     */
+    public void recordShed(PriorityClass priority) {
+        shed.get(priority).increment();
+    }
+
+    /**
+     * @return the number of requests of this class denied because of their
+     *         floor.
+     */
+    public long shed(PriorityClass priority) {
+        return shed.get(priority).sum();
+    }
+
+    /**
+     * @return the current overload, from {@code 0} (none) to {@code 1}.
+     */
+    public double pressure() {
+        return pressure;
+    }
+
+    /**
+     * Reads the load signals and updates the pressure. Runs on the background
+     * thread; call it directly to react at once.
+     */
+    public void sample() {
+        double cpu = cpuTarget < 1 ? cpuLoad.getAsDouble() : -1;
+        double cpuPressure = cpu < 0 ? 0 : clamp((cpu - cpuTarget) / (1 - cpuTarget));
+
+        long samples = latencySamples.sumThenReset();
+        long nanos = latencyNanos.sumThenReset();
+        double latencyPressure = samples == 0 || latencyTargetNanos == 0
+                ? 0
+                : clamp(((double) nanos / samples - latencyTargetNanos) / latencyTargetNanos);
+
+        double next = (pressure + Math.max(cpuPressure, latencyPressure)) / 2;
+        pressure = next < MIN_PRESSURE ? 0 : next;
+    }
+
+    /** Stops sampling; the last pressure stays in effect. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.warn("Failed to sample load signals; keeping the last pressure. Reason: {}", e.getMessage(), e);
+        }
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /** @return the host's CPU load in {@code [0, 1]}, or negative if unknown. */
+    private static double systemCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean platform) {
+            return platform.getCpuLoad();
+        }
+        double average = os.getSystemLoadAverage();
+        return average < 0 ? -1 : average / os.getAvailableProcessors();
+    }
+}
@@ -0,0 +1,52 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.port.Clock;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Clock} that only moves when told to.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for tests and
+ * simulations. Time is kept in microseconds, so sub-millisecond steps are
+ * visible to engines reading {@link #micros()}.
+ */
+public final class ManualClock implements Clock {
+
+    private final AtomicLong micros;
+
+    /**
+     * @param epochMillis the initial time in epoch milliseconds.
+     */
+    public ManualClock(long epochMillis) {
+        this.micros = new AtomicLong(epochMillis * 1_000);
+    }
+
+    @Override
+    public long millis() {
+        return Math.floorDiv(micros.get(), 1_000);
+    }
+
+    @Override
+    public long micros() {
+        return micros.get();
+    }
+
+    /**
+     * Moves the clock forward, or backward for a negative step.
+     *
+     * @param step how far to move; truncated to microseconds.
+     */
+    public void advance(Duration step) {
+        micros.addAndGet(step.toNanos() / 1_000);
+    }
+
+    /**
+     * @param epochMillis the new time in epoch milliseconds.
+     */
+    public void setMillis(long epochMillis) {
+        micros.set(epochMillis * 1_000);
+    }
+}
@@ -0,0 +1,437 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Off-heap, open-addressing hash table of token bucket states.
+ *
+ * <p>
+ * Architectural Role: <b>Storage Support</b> for
+ * {@link OffHeapRateLimiterRepository}. Keeps tens of millions of buckets out
+ * of the garbage-collected heap: GC-visible memory is a handful of objects per
+ * shard, independent of the number of keys.
+ *
+ * <p>
+ * <b>Slot Layout</b> (32 bytes, native order, 8-byte aligned):
+ *
+ * <pre>
+ * long keyHash          0 = empty, 1 = tombstone, otherwise a 64-bit key hash
+ * long tokens           Double.doubleToRawLongBits(tokens)
+ * long lastRefillMillis sign bit set while a writer holds the slot
+ * long fullAtMillis     when the bucket is full again if left alone
+ * </pre>
+ *
+ * <p>
+ * <b>Concurrency</b>:
+ * <ul>
+ * <li>Updates of an existing bucket are lock-free at table level: the writer
+ * claims the slot by setting the sign bit of {@code lastRefillMillis} with a
+ * {@link VarHandle} CAS, writes {@code tokens}, and publishes the new timestamp
+ * with release semantics.</li>
+ * <li>Readers use the timestamp as a sequence lock: they retry while it is
+ * locked or changed under them.</li>
+ * <li>Claiming and freeing slots (new keys, eviction) is serialized per shard
+ * by a {@link ReentrantLock}, so a key can never occupy two slots. Lookups
+ * never take that lock.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Idle Expiry</b>: Writers store the moment a bucket will be full again next
+ * to its state. {@link #sweep} walks the slots in place and frees those whose
+ * moment has passed, so expiry needs no per-key objects on the heap.
+ *
+ * <p>
+ * <b>Hash Collisions</b>: Keys are identified by their 64-bit hash only. With
+ * 10M keys the probability of any collision is about {@code 3 × 10⁻⁶}; two
+ * colliding keys would share a bucket.
+ *
+ * <p>
+ * The table does not grow. It is sized for {@code maxKeys} at 75% load; when a
+ * shard is full, {@link #findOrInsert} throws {@link IllegalStateException},
+ * which {@code DefaultRateLimiter} turns into a fail-open decision.
+ */
+public final class OffHeapBucketTable {
+
+    /** Result of {@link #find} when the key is absent. */
+    public static final long ABSENT = -1L;
+
+    /** Flag set on the reference returned by {@link #findOrInsert} for a new bucket. */
+    private static final long INSERTED = 1L << 31;
+
+    static final long EMPTY = 0L;
+    static final long TOMBSTONE = 1L;
+
+    private static final int SLOT_BYTES = 32;
+    private static final int TOKENS_OFFSET = 8;
+    private static final int TIMESTAMP_OFFSET = 16;
+    private static final int FULL_AT_OFFSET = 24;
+    private static final long LOCKED = Long.MIN_VALUE;
+    private static final int MAX_SHARD_SLOTS = Integer.MAX_VALUE / SLOT_BYTES;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final Shard[] shards;
+    private final int shardShift;
+    private final long capacity;
+
+    /**
+     * Allocates a table for up to {@code maxKeys} buckets.
+     *
+     * @param maxKeys the number of live buckets the table must hold.
+     * @throws IllegalArgumentException if {@code maxKeys} is not positive.
+     */
+    public OffHeapBucketTable(long maxKeys) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("Max keys must be greater than zero");
+        }
+        long slots = Long.highestOneBit(Math.max(16, (maxKeys * 4 + 2) / 3 - 1) << 1);
+        int shardCount = (int) Math.min(64, slots / 16);
+        while (slots / shardCount > MAX_SHARD_SLOTS) {
+            shardCount <<= 1;
+        }
+        this.shards = new Shard[shardCount];
+        this.shardShift = 64 - Integer.numberOfTrailingZeros(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard((int) (slots / shardCount));
+        }
+        this.capacity = slots;
+    }
+
+    /**
+     * Hashes a bucket key to the 64-bit identity used by the table
+     * ({@link KeyHashing#hash}). Never returns {@link #EMPTY} or
+     * {@link #TOMBSTONE}.
+     */
+    public static long hash(String key) {
+        long h = KeyHashing.hash(key);
+        return (h == EMPTY || h == TOMBSTONE) ? h + 2 : h;
+    }
+
+    /**
+     * Finds the slot of {@code hash}.
+     *
+     * @return an opaque slot reference, or {@link #ABSENT}.
+     */
+    public long find(long hash) {
+        int shardIndex = shardOf(hash);
+        Shard shard = shards[shardIndex];
+        int mask = shard.slots - 1;
+        for (int probe = 0, slot = (int) hash & mask; probe < shard.slots; probe++, slot = (slot + 1) & mask) {
+            long current = shard.hashAt(slot);
+            if (current == hash) {
+                return ref(shardIndex, slot);
+            }
+            if (current == EMPTY) {
+                return ABSENT;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Finds the slot of {@code hash}, inserting a full bucket with the given
+     * initial state when it is absent.
+     *
+     * @return an opaque slot reference; check {@link #wasInserted} and strip the
+     *         flag with {@link #slot} before using it.
+     * @throws IllegalStateException if the shard is full.
+     */
+    public long findOrInsert(long hash, double initialTokens, long initialMillis) {
+        return findOrInsert(hash, initialTokens, initialMillis, initialMillis);
+    }
+
+    /**
+     * Finds the slot of {@code hash}, inserting a bucket with the given initial
+     * state when it is absent.
+     *
+     * @param fullAtMillis when the inserted bucket is full again (see
+     *                     {@link #sweep}).
+     * @return an opaque slot reference; check {@link #wasInserted} and strip the
+     *         flag with {@link #slot} before using it.
+     * @throws IllegalStateException if the shard is full.
+     */
+    public long findOrInsert(long hash, double initialTokens, long initialMillis, long fullAtMillis) {
+        long existing = find(hash);
+        if (existing != ABSENT) {
+            return existing;
+        }
+        int shardIndex = shardOf(hash);
+        Shard shard = shards[shardIndex];
+        shard.structureLock.lock();
+        try {
+            int mask = shard.slots - 1;
+            int free = -1;
+            for (int probe = 0, slot = (int) hash & mask; probe < shard.slots; probe++, slot = (slot + 1) & mask) {
+                long current = shard.hashAt(slot);
+                if (current == hash) {
+                    return ref(shardIndex, slot);
+                }
+                if (current == TOMBSTONE && free < 0) {
+                    free = slot;
+                } else if (current == EMPTY) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                    break;
+                }
+            }
+            if (free < 0) {
+                throw new IllegalStateException("Off-heap bucket table is full (" + capacity + " slots)");
+            }
+            // A reused tombstone may still be locked by a writer that is about to
+            // notice its key is gone, so the slot is claimed like any update. State
+            // is written before the hash is published: lock-free readers never see
+            // the new key with stale state.
+            int base = offset(free);
+            long previous;
+            while ((previous = (long) LONGS.getVolatile(shard.memory, base + TIMESTAMP_OFFSET)) < 0
+                    || !LONGS.compareAndSet(shard.memory, base + TIMESTAMP_OFFSET, previous, previous | LOCKED)) {
+                Thread.onSpinWait();
+            }
+            LONGS.setRelease(shard.memory, base + TOKENS_OFFSET, Double.doubleToRawLongBits(initialTokens));
+            LONGS.setRelease(shard.memory, base + FULL_AT_OFFSET, fullAtMillis);
+            LONGS.setRelease(shard.memory, base, hash);
+            LONGS.setRelease(shard.memory, base + TIMESTAMP_OFFSET, initialMillis);
+            shard.live++;
+            return ref(shardIndex, free) | INSERTED;
+        } finally {
+            shard.structureLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether {@code ref} was returned for a newly inserted bucket.
+     */
+    public static boolean wasInserted(long ref) {
+        return (ref & INSERTED) != 0;
+    }
+
+    /**
+     * @return {@code ref} without the {@link #wasInserted} flag.
+     */
+    public static long slot(long ref) {
+        return ref & ~INSERTED;
+    }
+
+    /**
+     * Claims a slot for writing. Spins while another writer holds it.
+     *
+     * @param ref  a reference returned by {@link #find} or {@link #findOrInsert}.
+     * @param hash the key hash the caller expects in the slot.
+     * @return the stored {@code lastRefillMillis}, or {@link #ABSENT} if the slot
+     *         no longer holds {@code hash} (it was evicted); the slot is then not
+     *         locked.
+     */
+    public long lock(long ref, long hash) {
+        Shard shard = shards[shardOf(ref)];
+        int position = offset(slotOf(ref)) + TIMESTAMP_OFFSET;
+        while (true) {
+            long millis = (long) LONGS.getVolatile(shard.memory, position);
+            if (millis >= 0 && LONGS.compareAndSet(shard.memory, position, millis, millis | LOCKED)) {
+                if ((long) LONGS.getVolatile(shard.memory, offset(slotOf(ref))) != hash) {
+                    LONGS.setRelease(shard.memory, position, millis);
+                    return ABSENT;
+                }
+                return millis;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Reads the tokens of a slot locked by the caller.
+     */
+    public double lockedTokens(long ref) {
+        Shard shard = shards[shardOf(ref)];
+        return Double.longBitsToDouble((long) LONGS.get(shard.memory, offset(slotOf(ref)) + TOKENS_OFFSET));
+    }
+
+    /**
+     * Writes the new state of a slot locked by the caller and releases it,
+     * keeping its {@code fullAtMillis}.
+     */
+    public void unlock(long ref, double tokens, long lastRefillMillis) {
+        Shard shard = shards[shardOf(ref)];
+        int base = offset(slotOf(ref));
+        LONGS.setRelease(shard.memory, base + TOKENS_OFFSET, Double.doubleToRawLongBits(tokens));
+        LONGS.setRelease(shard.memory, base + TIMESTAMP_OFFSET, lastRefillMillis);
+    }
+
+    /**
+     * Writes the new state of a slot locked by the caller, including when it
+     * will be full again, and releases it.
+     */
+    public void unlock(long ref, double tokens, long lastRefillMillis, long fullAtMillis) {
+        Shard shard = shards[shardOf(ref)];
+        int base = offset(slotOf(ref));
+        LONGS.setRelease(shard.memory, base + TOKENS_OFFSET, Double.doubleToRawLongBits(tokens));
+        LONGS.setRelease(shard.memory, base + FULL_AT_OFFSET, fullAtMillis);
+        LONGS.setRelease(shard.memory, base + TIMESTAMP_OFFSET, lastRefillMillis);
+    }
+
+    /**
+     * Reads a bucket without locking.
+     *
+     * @return the state, or {@code null} if the key is absent.
+     */
+    public TokenBucket read(long hash) {
+        while (true) {
+            long ref = find(hash);
+            if (ref == ABSENT) {
+                return null;
+            }
+            Shard shard = shards[shardOf(ref)];
+            int base = offset(slotOf(ref));
+            long before = (long) LONGS.getAcquire(shard.memory, base + TIMESTAMP_OFFSET);
+            if (before < 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long tokens = (long) LONGS.getAcquire(shard.memory, base + TOKENS_OFFSET);
+            long owner = (long) LONGS.getAcquire(shard.memory, base);
+            long after = (long) LONGS.getAcquire(shard.memory, base + TIMESTAMP_OFFSET);
+            if (before == after && owner == hash) {
+                return new TokenBucket(Double.longBitsToDouble(tokens), before);
+            }
+        }
+    }
+
+    /**
+     * Visits every live bucket, each read consistently. Buckets inserted or
+     * removed during the pass may or may not be visited.
+     */
+    void forEach(SlotVisitor visitor) {
+        for (Shard shard : shards) {
+            for (int slot = 0; slot < shard.slots; slot++) {
+                int base = offset(slot);
+                while (true) {
+                    long before = (long) LONGS.getAcquire(shard.memory, base + TIMESTAMP_OFFSET);
+                    if (before < 0) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    long owner = (long) LONGS.getAcquire(shard.memory, base);
+                    long tokens = (long) LONGS.getAcquire(shard.memory, base + TOKENS_OFFSET);
+                    long fullAt = (long) LONGS.getAcquire(shard.memory, base + FULL_AT_OFFSET);
+                    long after = (long) LONGS.getAcquire(shard.memory, base + TIMESTAMP_OFFSET);
+                    if (before != after) {
+                        continue;
+                    }
+                    if (owner != EMPTY && owner != TOMBSTONE) {
+                        visitor.accept(owner, Double.longBitsToDouble(tokens), before, fullAt);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Frees every bucket whose {@code fullAtMillis} is not after
+     * {@code nowMillis}. Slots held by a writer are skipped and looked at again
+     * on the next sweep.
+     *
+     * @return the number of buckets freed.
+     */
+    public long sweep(long nowMillis) {
+        long freed = 0;
+        for (Shard shard : shards) {
+            for (int slot = 0; slot < shard.slots; slot++) {
+                int base = offset(slot);
+                long owner = shard.hashAt(slot);
+                if (owner == EMPTY || owner == TOMBSTONE
+                        || (long) LONGS.getAcquire(shard.memory, base + FULL_AT_OFFSET) > nowMillis) {
+                    continue;
+                }
+                shard.structureLock.lock();
+                try {
+                    long millis = (long) LONGS.getVolatile(shard.memory, base + TIMESTAMP_OFFSET);
+                    if (millis < 0 || (long) LONGS.getVolatile(shard.memory, base) != owner
+                            || !LONGS.compareAndSet(shard.memory, base + TIMESTAMP_OFFSET, millis, millis | LOCKED)) {
+                        continue;
+                    }
+                    // Holding the slot: a writer may have moved fullAt since it was read.
+                    if ((long) LONGS.get(shard.memory, base + FULL_AT_OFFSET) <= nowMillis) {
+                        LONGS.setRelease(shard.memory, base, TOMBSTONE);
+                        shard.live--;
+                        freed++;
+                    }
+                    LONGS.setRelease(shard.memory, base + TIMESTAMP_OFFSET, millis);
+                } finally {
+                    shard.structureLock.unlock();
+                }
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * @return the number of live buckets (approximate while writers are active).
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.live;
+        }
+        return size;
+    }
+
+    /**
+     * @return the total number of slots.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    private int shardOf(long hashOrRef) {
+        return shards.length == 1 ? 0 : (int) (hashOrRef >>> shardShift);
+    }
+
+    private long ref(int shardIndex, int slot) {
+        return shards.length == 1 ? slot : ((long) shardIndex << shardShift) | slot;
+    }
+
+    private static int slotOf(long ref) {
+        return (int) (ref & 0x7fffffffL);
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_BYTES;
+    }
+
+    /**
+     * Receives the buckets of {@link #forEach}.
+     */
+    @FunctionalInterface
+    interface SlotVisitor {
+
+        void accept(long hash, double tokens, long lastRefillMillis, long fullAtMillis);
+    }
+
+    /**
+     * One direct buffer of slots plus the lock serializing slot claims.
+     */
+    private static final class Shard {
+
+        private final ByteBuffer memory;
+        private final int slots;
+        private final ReentrantLock structureLock = new ReentrantLock();
+        private volatile long live;
+
+        Shard(int slots) {
+            this.slots = slots;
+            this.memory = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        long hashAt(int slot) {
+            return (long) LONGS.getAcquire(memory, offset(slot));
+        }
+    }
+}
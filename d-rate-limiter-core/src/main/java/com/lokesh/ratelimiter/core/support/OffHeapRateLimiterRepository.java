@@ -0,0 +1,322 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ClockPrecision;
+import com.lokesh.ratelimiter.core.model.ConsumptionResult;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process {@link RateLimiterRepository} whose buckets live off-heap.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> for key
+ * cardinalities (per-IP, per-API-key) where a map of {@code TokenBucket}
+ * records would cost over 100 bytes of heap per key. Each bucket here costs one
+ * 32-byte slot of an {@link OffHeapBucketTable}.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Domain Math (Fix 6)</b>: Every bucket is updated through
+ * {@link TokenBucket#tryConsume}.</li>
+ * <li><b>Atomic Chained Limits (ADR 005)</b>: The slots of all plans of a
+ * request are claimed in slot order (no deadlocks), evaluated, and written or
+ * released together.</li>
+ * <li><b>Capacity</b>: The table is sized up front; when it is full, requests
+ * for new keys throw {@link IllegalStateException} and fail open.
+ * {@link #startIdleEviction} frees the slots of buckets that are full again.
+ * Every write stores when its bucket will be full next to the state, and a
+ * background sweep reads that column in place, so eviction adds no per-key heap
+ * objects (unlike {@link IdleBucketEvictor}).</li>
+ * <li><b>Fast Restart</b>: {@link #snapshot(Path)} and {@link #restore(Path)}
+ * copy the live slots to and from a file of fixed-size records (see
+ * {@link BucketSnapshotFile}), so restoring needs no key strings or plan
+ * lookups.</li>
+ * </ul>
+ */
+public class OffHeapRateLimiterRepository implements RateLimiterRepository, PeriodicSnapshotter.Target {
+
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private final OffHeapBucketTable table;
+    private final Clock clock;
+    private final ClockPrecision precision;
+
+    /**
+     * Creates a repository using the system clock.
+     *
+     * @param maxKeys the number of live buckets to size the table for.
+     */
+    public OffHeapRateLimiterRepository(long maxKeys) {
+        this(new OffHeapBucketTable(maxKeys), SystemClock.INSTANCE);
+    }
+
+    /**
+     * Creates a repository with a custom time source.
+     *
+     * @param table the bucket table.
+     * @param clock supplies the current time in epoch milliseconds (ADR 007).
+     */
+    public OffHeapRateLimiterRepository(OffHeapBucketTable table, Clock clock) {
+        this(table, clock, ClockPrecision.MILLIS);
+    }
+
+    /**
+     * Creates a repository that reads the clock in the given precision.
+     *
+     * @param table     the bucket table.
+     * @param clock     the time source.
+     * @param precision {@link ClockPrecision#MICROS} for plans refilling more
+     *                  than one token per millisecond.
+     */
+    public OffHeapRateLimiterRepository(OffHeapBucketTable table, Clock clock, ClockPrecision precision) {
+        this.table = Objects.requireNonNull(table, "Table must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        this.precision = Objects.requireNonNull(precision, "Precision must not be null");
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return execute(key, configs, BucketOperation.consume(tokensToConsume));
+    }
+
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        return execute(key, configs, BucketOperation.consumeAbove(tokensToConsume, floor));
+    }
+
+    /**
+     * Reserves tokens; buckets may go negative (see {@link TokenBucket#tryReserve}).
+     */
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return execute(key, configs, BucketOperation.reserve(tokensToConsume, maxWaitMillis));
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        execute(key, configs, BucketOperation.refund(tokensToConsume));
+    }
+
+    /**
+     * Deducts tokens without a floor (see {@link TokenBucket#debit}).
+     */
+    @Override
+    public void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        execute(key, configs, BucketOperation.debit(tokens));
+    }
+
+    private RateLimitResult execute(String key, List<RateLimitConfig> configs, BucketOperation operation) {
+        int n = configs.size();
+        long[] hashes = new long[n];
+        for (int i = 0; i < n; i++) {
+            hashes[i] = OffHeapBucketTable.hash(InMemoryRateLimiterRepository.bucketKey(key, configs.get(i)));
+        }
+
+        long[] refs = new long[n];
+        long[] stored = new long[n];
+        int[] order = new int[n];
+        while (true) {
+            long now = clock.millis();
+            for (int i = 0; i < n; i++) {
+                refs[i] = OffHeapBucketTable.slot(table.findOrInsert(hashes[i], configs.get(i).capacity(), now));
+                order[i] = i;
+            }
+            sortByRef(order, refs);
+            if (lockAll(order, refs, hashes, stored)) {
+                break;
+            }
+            // A bucket was evicted between lookup and lock; look it up again.
+        }
+
+        // State written back on release: the stored state unless the request is allowed.
+        TokenBucket[] release = new TokenBucket[n];
+        for (int i = 0; i < n; i++) {
+            release[i] = new TokenBucket(table.lockedTokens(refs[i]), stored[i]);
+        }
+        try {
+            long now = clock.now(precision);
+            TokenBucket[] updated = new TokenBucket[n];
+            boolean allowed = true;
+            double minRemaining = Double.MAX_VALUE;
+            long maxWait = 0;
+            for (int i = 0; i < n; i++) {
+                ConsumptionResult result = operation.apply(release[i], now, precision, configs.get(i));
+                updated[i] = result.updatedBucket();
+                allowed &= result.allowed();
+                maxWait = Math.max(maxWait, result.waitMillis());
+                minRemaining = Math.min(minRemaining, result.updatedBucket().tokens());
+            }
+
+            if (!allowed) {
+                return RateLimitResult.deny(minRemaining, maxWait, DENY_REASON);
+            }
+            System.arraycopy(updated, 0, release, 0, n);
+            return maxWait > 0
+                    ? RateLimitResult.reserved(minRemaining, maxWait)
+                    : RateLimitResult.allow(minRemaining);
+        } finally {
+            for (int i = n - 1; i >= 0; i--) {
+                int index = order[i];
+                // Plans sharing a slot: the last one in request order wins, as in the Lua script.
+                if (i == n - 1 || refs[order[i + 1]] != refs[index]) {
+                    table.unlock(refs[index], release[index].tokens(), release[index].lastRefillMillis(),
+                            fullAt(release[index], configs.get(index)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a bucket without modifying it.
+     *
+     * @param key the full bucket key, as produced by
+     *            {@link InMemoryRateLimiterRepository#bucketKey}.
+     */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        return Optional.ofNullable(table.read(OffHeapBucketTable.hash(key)));
+    }
+
+    /**
+     * @return the underlying table.
+     */
+    public OffHeapBucketTable table() {
+        return table;
+    }
+
+    /**
+     * Writes every live bucket to {@code file}, replacing it atomically. As with
+     * {@link InMemoryRateLimiterRepository#snapshot}, each bucket is copied
+     * consistently but the table as a whole is not a point-in-time image.
+     *
+     * @param file the snapshot file.
+     * @return the number of buckets written.
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public long snapshot(Path file) throws IOException {
+        return BucketSnapshotFile.writeSlots(file, clock.millis(), table);
+    }
+
+    /**
+     * Loads buckets from a snapshot written by {@link #snapshot(Path)}.
+     *
+     * <p>
+     * Slots are restored as stored: the refill for the downtime happens on the
+     * next access, like for any bucket that was idle. Buckets that are full
+     * again are dropped, and buckets already present in this table are kept.
+     *
+     * @param file the snapshot file.
+     * @return the number of buckets restored.
+     * @throws IOException           if the file cannot be read or is not a slot
+     *                               snapshot.
+     * @throws IllegalStateException if the table fills up.
+     */
+    @Override
+    public long restore(Path file) throws IOException {
+        long now = clock.millis();
+        long[] restored = new long[1];
+        BucketSnapshotFile.readSlots(file, (hash, tokens, lastRefillMillis, fullAtMillis) -> {
+            if (fullAtMillis > now && OffHeapBucketTable.wasInserted(
+                    table.findOrInsert(hash, tokens, lastRefillMillis, fullAtMillis))) {
+                restored[0]++;
+            }
+        });
+        return restored[0];
+    }
+
+    /**
+     * Starts freeing the slots of buckets that are full again, sweeping the
+     * table every {@code interval} on a background daemon thread. Restored
+     * buckets and buckets created earlier are covered too.
+     *
+     * @param interval time between sweeps; a bucket is freed up to one interval
+     *                 after it is full.
+     * @return the running sweeper; close it on shutdown.
+     * @throws IllegalArgumentException if the interval is shorter than 1ms.
+     */
+    public AutoCloseable startIdleEviction(Duration interval) {
+        Objects.requireNonNull(interval, "Interval must not be null");
+        if (interval.toMillis() < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1ms");
+        }
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::evictIdle, millis, millis, TimeUnit.MILLISECONDS);
+        return sweeper::shutdownNow;
+    }
+
+    /**
+     * Frees the slots of buckets that are full at the current time.
+     *
+     * @return the number of buckets freed.
+     */
+    long evictIdle() {
+        return table.sweep(clock.millis());
+    }
+
+    /** @return when {@code bucket} is full again under {@code config}. */
+    private static long fullAt(TokenBucket bucket, RateLimitConfig config) {
+        double missing = Math.max(0, config.capacity() - bucket.tokens());
+        return bucket.lastRefillMillis() + (long) Math.ceil(missing * 1000.0 / config.tokensPerSecond());
+    }
+
+    /**
+     * Locks every distinct slot in {@code order}. On failure, releases what was
+     * taken and returns {@code false}.
+     */
+    private boolean lockAll(int[] order, long[] refs, long[] hashes, long[] stored) {
+        for (int i = 0; i < order.length; i++) {
+            int index = order[i];
+            if (i > 0 && refs[order[i - 1]] == refs[index]) {
+                stored[index] = stored[order[i - 1]];
+                continue;
+            }
+            long millis = table.lock(refs[index], hashes[index]);
+            if (millis == OffHeapBucketTable.ABSENT) {
+                for (int j = i - 1; j >= 0; j--) {
+                    int taken = order[j];
+                    if (j == 0 || refs[order[j - 1]] != refs[taken]) {
+                        table.unlock(refs[taken], table.lockedTokens(refs[taken]), stored[taken]);
+                    }
+                }
+                return false;
+            }
+            stored[index] = millis;
+        }
+        return true;
+    }
+
+    /** Insertion sort; chains hold a handful of plans. */
+    private static void sortByRef(int[] order, long[] refs) {
+        for (int i = 1; i < order.length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && refs[order[j]] > refs[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.lokesh.ratelimiter.core.support;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A Bloom filter split into time partitions that expire as a whole, so entries
+ * leave it without ever being removed.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Partitions</b>: Partition {@code p} holds the entries that expire
+ * within {@code [p × g, (p + 1) × g)} epoch millis and is dropped at its end.
+ * A ring of partitions covers the longest expiry; a slot is reused once its
+ * partition has ended.</li>
+ * <li><b>Blocked</b>: All bits of an entry lie in one 64-bit word, so checking
+ * a partition is a single read; a lookup reads one word per partition and
+ * never locks.</li>
+ * <li><b>Stable Hash</b>: {@link #hash} depends only on the key's characters,
+ * so nodes with the same sizing exchange hashes instead of keys.</li>
+ * </ul>
+ */
+final class PartitionedBloomFilter {
+
+    /** Bits set per entry, each taken from six bits of its hash. */
+    private static final int BITS_PER_ENTRY = 4;
+
+    private final long granularityMillis;
+    private final int wordMask;
+    private final AtomicReferenceArray<Partition> ring;
+
+    /**
+     * @param granularityMillis width of a partition.
+     * @param horizonMillis     longest time from now to an expiry.
+     * @param expectedEntries   entries expected per partition; each gets 16
+     *                          bits, for about 1% false positives.
+     */
+    PartitionedBloomFilter(long granularityMillis, long horizonMillis, int expectedEntries) {
+        this.granularityMillis = granularityMillis;
+        this.wordMask = Integer.highestOneBit(Math.max(1, expectedEntries / 4) * 2 - 1) - 1;
+        this.ring = new AtomicReferenceArray<>((int) ((horizonMillis + granularityMillis - 1) / granularityMillis) + 1);
+    }
+
+    /**
+     * @return the partition whose end is the first at or after
+     *         {@code expiresAt}.
+     */
+    long partitionOf(long expiresAt) {
+        return Math.floorDiv(expiresAt - 1, granularityMillis);
+    }
+
+    /**
+     * Adds an entry to a partition. Entries of ended partitions, or of
+     * partitions beyond the ring (e.g. from a skewed clock), are ignored.
+     *
+     * @return whether the entry was added.
+     */
+    boolean add(long partition, long hash, long now) {
+        long current = Math.floorDiv(now, granularityMillis);
+        if (partition < current || partition >= current + ring.length()) {
+            return false;
+        }
+        int slot = (int) Math.floorMod(partition, (long) ring.length());
+        while (true) {
+            Partition existing = ring.get(slot);
+            if (existing != null && existing.id == partition) {
+                existing.set(word(hash), mask(hash));
+                return true;
+            }
+            if (existing != null && existing.id > partition) {
+                return false;
+            }
+            ring.compareAndSet(slot, existing, new Partition(partition, wordMask + 1));
+        }
+    }
+
+    /**
+     * @return the end of the last live partition that may contain the entry,
+     *         or {@code 0} if none does.
+     */
+    long expiresAt(long hash, long now) {
+        int word = word(hash);
+        long mask = mask(hash);
+        long until = 0;
+        for (int slot = 0; slot < ring.length(); slot++) {
+            Partition partition = ring.get(slot);
+            if (partition != null && (partition.words.get(word) & mask) == mask) {
+                until = Math.max(until, (partition.id + 1) * granularityMillis);
+            }
+        }
+        return until > now ? until : 0;
+    }
+
+    /**
+     * @return the {@link KeyHashing#hash} of the key; the same on every JVM.
+     */
+    static long hash(String key) {
+        return KeyHashing.hash(key);
+    }
+
+    private int word(long hash) {
+        return (int) (hash >>> 32) & wordMask;
+    }
+
+    private static long mask(long hash) {
+        long mask = 0;
+        for (int i = 0; i < BITS_PER_ENTRY; i++) {
+            mask |= 1L << (hash >>> (i * 6));
+        }
+        return mask;
+    }
+
+    private static final class Partition {
+
+        private final long id;
+        private final AtomicLongArray words;
+
+        Partition(long id, int words) {
+            this.id = id;
+            this.words = new AtomicLongArray(words);
+        }
+
+        void set(int word, long mask) {
+            long current;
+            while (((current = words.get(word)) & mask) != mask) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.BanDelta;
+import com.lokesh.ratelimiter.core.model.PenaltyPolicy;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.PenaltyChannel;
+import com.lokesh.ratelimiter.core.port.RateLimitEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bans keys that keep being denied, so their requests are rejected before any
+ * plan is resolved or any store is called.
+ *
+ * <p>
+ * Architectural Role: <b>Event Listener</b> fed with deny events, and guard
+ * consulted by {@code DefaultRateLimiter} before each decision.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Escalation</b>: A key is banned after {@link PenaltyPolicy#strikes()}
+ * denials within the strike window; each further ban doubles, up to the
+ * maximum. A key that goes a whole maximum ban without being denied is
+ * forgiven.</li>
+ * <li><b>Filter</b>: Bans are recorded in a time-partitioned Bloom filter
+ * (one partition per {@link PenaltyPolicy#firstBan()}), so a ban ends at most
+ * one partition after it is due and {@link #check} costs one hash and one word
+ * read per partition, with no I/O and no lock.</li>
+ * <li><b>Sharing</b>: Every sync interval the bans added here are published
+ * through a {@link PenaltyChannel} as key hashes; bans received from other
+ * nodes are merged into the local filter.</li>
+ * <li><b>Observability</b>: Rejected requests are not reported to listeners,
+ * which is the fan-out the box exists to save; they are counted in
+ * {@link #rejected()}.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>False Positives</b>: A key that was never banned is rejected with about
+ * 1% probability while the filter holds {@link PenaltyPolicy#expectedBans()}
+ * bans per partition, and for no longer than the bans it collides with.
+ */
+public class PenaltyBox implements RateLimitEventListener, AutoCloseable {
+
+    /** Deny reason of requests rejected by the box. */
+    public static final String DENY_REASON = "BANNED";
+
+    /** Default time between two publishes of new bans. */
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    private static final Logger log = LoggerFactory.getLogger(PenaltyBox.class);
+
+    private static final PenaltyChannel LOCAL = new PenaltyChannel() {
+        @Override
+        public void publish(List<BanDelta> deltas) {
+        }
+
+        @Override
+        public void subscribe(Consumer<List<BanDelta>> receiver) {
+        }
+    };
+
+    private final PenaltyPolicy policy;
+    private final PenaltyChannel channel;
+    private final Clock clock;
+    private final PartitionedBloomFilter filter;
+    private final ConcurrentHashMap<String, Offender> offenders = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Ban> unpublished = new ConcurrentLinkedQueue<>();
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a box whose bans stay on this node.
+     *
+     * @param policy when to ban, and for how long.
+     */
+    public PenaltyBox(PenaltyPolicy policy) {
+        this(policy, LOCAL, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Creates a box sharing its bans every {@code syncInterval}.
+     *
+     * @param policy       when to ban, and for how long; the same on every node.
+     * @param channel      the link to the other nodes.
+     * @param syncInterval how often to publish new bans.
+     * @throws IllegalArgumentException if the interval is shorter than 1ms.
+     */
+    public PenaltyBox(PenaltyPolicy policy, PenaltyChannel channel, Duration syncInterval) {
+        this(policy, channel, syncInterval, SystemClock.INSTANCE, true);
+    }
+
+    /**
+     * @param background whether to sync on a background thread; tests call
+     *                   {@link #sync()} directly.
+     */
+    PenaltyBox(PenaltyPolicy policy, PenaltyChannel channel, Duration syncInterval, Clock clock,
+            boolean background) {
+        this.policy = Objects.requireNonNull(policy, "Policy must not be null");
+        this.channel = Objects.requireNonNull(channel, "Channel must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        Objects.requireNonNull(syncInterval, "Sync interval must not be null");
+        long intervalMillis = syncInterval.toMillis();
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Sync interval must be at least 1ms");
+        }
+        this.filter = new PartitionedBloomFilter(policy.firstBan().toMillis(), policy.maxBan().toMillis(),
+                policy.expectedBans());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-penalty-box");
+            thread.setDaemon(true);
+            return thread;
+        });
+        channel.subscribe(this::receive);
+        if (background) {
+            scheduler.scheduleWithFixedDelay(this::syncSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Checks whether a key is banned, here or on another node.
+     *
+     * @param key the identity being limited.
+     * @return a denial until the ban ends, or empty if the key is not banned.
+     */
+    public Optional<RateLimitResult> check(String key) {
+        long now = clock.millis();
+        long until = filter.expiresAt(PartitionedBloomFilter.hash(key), now);
+        if (until == 0) {
+            return Optional.empty();
+        }
+        rejected.increment();
+        return Optional.of(RateLimitResult.deny(0, until - now, DENY_REASON));
+    }
+
+    /**
+     * Counts the denial as a strike and bans the key on its last one. Requests
+     * shed by a {@link LoadShedder} are not the client's fault and do not count.
+     */
+    @Override
+    public void onDeny(String key, List<String> plans, RateLimitResult result) {
+        if (LoadShedder.DENY_REASON.equals(result.reason())) {
+            return;
+        }
+        long now = clock.millis();
+        long until = offenders.computeIfAbsent(key, k -> new Offender()).strike(now);
+        if (until == 0) {
+            return;
+        }
+        long hash = PartitionedBloomFilter.hash(key);
+        long partition = filter.partitionOf(until);
+        filter.add(partition, hash, now);
+        unpublished.add(new Ban(partition, hash));
+        log.info("Banned key [{}] for {}ms after repeated denials", key, until - now);
+    }
+
+    /**
+     * @return the number of requests rejected because their key was banned.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Publishes the bans added since the last sync and forgets forgiven
+     * offenders. Runs on the background thread; call it directly to publish on
+     * demand.
+     *
+     * @throws RuntimeException if the channel fails; the bans are kept for the
+     *                          next sync.
+     */
+    public void sync() {
+        long now = clock.millis();
+        long forgiveAfter = policy.maxBan().toMillis();
+        offenders.values().removeIf(offender -> offender.isForgiven(now, forgiveAfter));
+
+        List<Ban> bans = new ArrayList<>();
+        for (Ban ban; (ban = unpublished.poll()) != null;) {
+            bans.add(ban);
+        }
+        if (bans.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> byPartition = new LinkedHashMap<>();
+        bans.forEach(ban -> byPartition.computeIfAbsent(ban.partition, p -> new ArrayList<>()).add(ban.hash));
+        List<BanDelta> deltas = new ArrayList<>(byPartition.size());
+        byPartition.forEach((partition, hashes) -> deltas.add(new BanDelta(partition, hashes)));
+        try {
+            channel.publish(deltas);
+        } catch (RuntimeException e) {
+            unpublished.addAll(bans);
+            throw e;
+        }
+    }
+
+    /** Publishes what is left and stops syncing. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        syncSafely();
+    }
+
+    /** Merges bans published by another node into the local filter. */
+    void receive(List<BanDelta> deltas) {
+        long now = clock.millis();
+        for (BanDelta delta : deltas) {
+            for (long hash : delta.hashes()) {
+                filter.add(delta.partition(), hash, now);
+            }
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish bans; retrying next interval. Reason: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Ban(long partition, long hash) {
+    }
+
+    /** Strikes and bans of one key. */
+    private final class Offender {
+
+        private long windowStart;
+        private int strikes;
+        private int offences;
+        private long bannedUntil;
+        private long lastDenied;
+
+        /**
+         * @return the end of the ban this strike earned, or {@code 0} if none.
+         */
+        synchronized long strike(long now) {
+            lastDenied = now;
+            if (now < bannedUntil) {
+                return 0;
+            }
+            if (strikes == 0 || now - windowStart >= policy.strikeWindow().toMillis()) {
+                windowStart = now;
+                strikes = 0;
+            }
+            if (++strikes < policy.strikes()) {
+                return 0;
+            }
+            strikes = 0;
+            offences++;
+            bannedUntil = now + policy.banMillis(offences);
+            return bannedUntil;
+        }
+
+        synchronized boolean isForgiven(long now, long forgiveAfter) {
+            return now >= bannedUntil && now - lastDenied >= forgiveAfter;
+        }
+    }
+}
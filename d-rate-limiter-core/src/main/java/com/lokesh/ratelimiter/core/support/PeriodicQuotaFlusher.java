@@ -0,0 +1,85 @@
+package com.lokesh.ratelimiter.core.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flushes a {@link QuotaRateLimiterRepository} every {@code interval} on a
+ * background daemon thread, and once more on {@link #close()}, so the counts of
+ * a node that shuts down are not lost.
+ *
+ * <p>
+ * Flush failures are logged and retried at the next interval; the increments
+ * stay on the node until then.
+ */
+public final class PeriodicQuotaFlusher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PeriodicQuotaFlusher.class);
+
+    private final QuotaRateLimiterRepository repository;
+    private final ScheduledExecutorService scheduler;
+
+    private PeriodicQuotaFlusher(QuotaRateLimiterRepository repository) {
+        this.repository = repository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-quota-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts periodic flushes.
+     *
+     * @param repository the repository to flush.
+     * @param interval   time between flushes; also how stale the other nodes'
+     *                   totals may get.
+     * @return the running flusher; close it on shutdown.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public static PeriodicQuotaFlusher start(QuotaRateLimiterRepository repository, Duration interval) {
+        Objects.requireNonNull(repository, "Repository must not be null");
+        Objects.requireNonNull(interval, "Interval must not be null");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+
+        PeriodicQuotaFlusher flusher = new PeriodicQuotaFlusher(repository);
+        long millis = interval.toMillis();
+        flusher.scheduler.scheduleWithFixedDelay(flusher::flush, millis, millis, TimeUnit.MILLISECONDS);
+        return flusher;
+    }
+
+    /** @return the repository being flushed. */
+    public QuotaRateLimiterRepository repository() {
+        return repository;
+    }
+
+    /**
+     * Stops periodic flushes and flushes a final time.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flush() {
+        try {
+            repository.flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush quota counters; retrying next interval. Reason: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.lokesh.ratelimiter.core.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an in-process repository ({@link InMemoryRateLimiterRepository} or
+ * {@link OffHeapRateLimiterRepository}) alive across restarts.
+ *
+ * <p>
+ * On {@link #start} the previous snapshot (if any) is restored; afterwards the
+ * repository is snapshotted every {@code interval} on a background daemon thread,
+ * and once more on {@link #close()}. Abusive clients therefore keep their drained
+ * buckets across a rolling deploy instead of receiving a fresh quota.
+ *
+ * <p>
+ * Snapshot failures are logged and retried at the next interval; they never
+ * affect rate-limit decisions.
+ */
+public final class PeriodicSnapshotter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PeriodicSnapshotter.class);
+
+    /**
+     * A repository whose buckets can be written to and loaded from a file.
+     */
+    public interface Target {
+
+        /**
+         * Writes every bucket to {@code file}, replacing it atomically.
+         *
+         * @return the number of buckets written.
+         * @throws IOException if the file cannot be written.
+         */
+        long snapshot(Path file) throws IOException;
+
+        /**
+         * Loads the buckets of a file written by {@link #snapshot}.
+         *
+         * @return the number of buckets restored.
+         * @throws IOException if the file cannot be read or is not a snapshot.
+         */
+        long restore(Path file) throws IOException;
+    }
+
+    private final Target repository;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    private PeriodicSnapshotter(Target repository, Path file) {
+        this.repository = repository;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores {@code file} into {@code repository} and starts periodic snapshots.
+     *
+     * @param repository the repository to persist.
+     * @param file       the snapshot file.
+     * @param interval   time between snapshots.
+     * @return the running snapshotter; close it on shutdown.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public static PeriodicSnapshotter start(Target repository, Path file, Duration interval) {
+        Objects.requireNonNull(repository, "Repository must not be null");
+        Objects.requireNonNull(file, "File must not be null");
+        Objects.requireNonNull(interval, "Interval must not be null");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Interval must be greater than zero");
+        }
+
+        PeriodicSnapshotter snapshotter = new PeriodicSnapshotter(repository, file);
+        snapshotter.restore();
+        long millis = interval.toMillis();
+        snapshotter.scheduler.scheduleWithFixedDelay(snapshotter::snapshot, millis, millis, TimeUnit.MILLISECONDS);
+        return snapshotter;
+    }
+
+    /**
+     * Stops periodic snapshots and writes a final one.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    private void restore() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long restored = repository.restore(file);
+            log.info("Restored {} rate limit bucket(s) from [{}] in {}ms",
+                    restored, file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore rate limit snapshot [{}]; starting empty. Reason: {}", file, e.getMessage());
+        }
+    }
+
+    private void snapshot() {
+        try {
+            repository.snapshot(file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write rate limit snapshot [{}]. Reason: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A {@link RateLimiterRepository} that enforces {@link RateLimitConfig#isQuota()
+ * calendar quotas} from local counters, writing them behind to a shared
+ * {@link QuotaStore}.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b>. A quota such as 10M calls per month
+ * changes slowly; checking it in the store on every call would cost a write
+ * per call for a decision that is almost always "allowed".
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Local Counters</b>: Each (key, plan, window) counter holds the last
+ * total the store confirmed plus what this node admitted since. A request is
+ * allowed while their sum stays within the quota.</li>
+ * <li><b>Write-Behind</b>: {@link #flush()} sends, in one batch, this node's
+ * running total of every counter that changed since its last flush; its
+ * replies are the store's totals, which include the other nodes' flushed
+ * counts. Idle counters cost no store traffic and keep their last total. Run
+ * it periodically with {@link PeriodicQuotaFlusher}.</li>
+ * <li><b>Idempotent Flushes</b>: The store keeps each node's latest running
+ * total rather than adding increments, so a flush that timed out but was
+ * applied is not counted twice when its tokens are sent again. Each repository
+ * contributes under its own random ID, so a restarted node does not overwrite
+ * its predecessor's count.</li>
+ * <li><b>Slack</b>: A node admits at most {@code slack} tokens per counter
+ * between two confirmations; the request that would exceed it flushes the
+ * counter first. Below that rate, quota plans cause no store traffic on the
+ * request path.</li>
+ * <li><b>Windows</b> are calendar-aligned in UTC (see
+ * {@link com.lokesh.ratelimiter.core.model.QuotaPeriod}); a counter of a past
+ * window is dropped after its last flush.</li>
+ * <li><b>Mixed Plans</b>: Token-bucket plans of the same request are passed to
+ * the delegate after the quotas allowed it; if the delegate denies or fails,
+ * the quota tokens are given back. Refunds and debits are split the same way,
+ * so a debit reaches the delegate's own {@link #debit}, which may go into
+ * debt.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Error Bound</b>: Once the store's total has reached the quota, every node
+ * learns it at its next confirmation and admits at most {@code slack} tokens
+ * before that. With {@code N} nodes a quota is therefore exceeded by at most
+ * {@code N × slack} tokens; a slack of zero checks the store on every request.
+ */
+public class QuotaRateLimiterRepository implements RateLimiterRepository {
+
+    /** Default tokens a node may admit per counter between confirmations. */
+    public static final long DEFAULT_SLACK = 1_000;
+
+    /** How long the store keeps a counter after its window ended. */
+    private static final long RETENTION_MILLIS = Duration.ofDays(1).toMillis();
+
+    private static final String DENY_REASON = "QUOTA_EXCEEDED";
+
+    private final RateLimiterRepository delegate;
+    private final QuotaStore store;
+    private final long slack;
+    private final Clock clock;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the store for token-bucket plans.
+     * @param store    the shared quota totals.
+     * @param slack    tokens a node may admit per counter between
+     *                 confirmations; see the error bound.
+     * @throws IllegalArgumentException if the slack is negative.
+     */
+    public QuotaRateLimiterRepository(RateLimiterRepository delegate, QuotaStore store, long slack) {
+        this(delegate, store, slack, SystemClock.INSTANCE);
+    }
+
+    QuotaRateLimiterRepository(RateLimiterRepository delegate, QuotaStore store, long slack, Clock clock) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        this.store = Objects.requireNonNull(store, "Quota store must not be null");
+        if (slack < 0) {
+            throw new IllegalArgumentException("Slack must not be negative");
+        }
+        this.slack = slack;
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return acquire(key, configs, tokensToConsume,
+                buckets -> delegate.tryAcquire(key, buckets, tokensToConsume));
+    }
+
+    /**
+     * Quotas are not buckets and leave no headroom, so the floor only applies
+     * to the token-bucket plans.
+     */
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        return acquire(key, configs, tokensToConsume,
+                buckets -> delegate.tryAcquireAbove(key, buckets, tokensToConsume, floor));
+    }
+
+    /** Quotas do not refill, so only the token-bucket plans are reserved. */
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return acquire(key, configs, tokensToConsume,
+                buckets -> delegate.tryReserve(key, buckets, tokensToConsume, maxWaitMillis));
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        List<RateLimitConfig> buckets = new ArrayList<>(configs.size());
+        long now = clock.millis();
+        for (RateLimitConfig config : configs) {
+            if (config.isQuota()) {
+                counter(key, config, now).giveBack(tokensToConsume);
+            } else {
+                buckets.add(config);
+            }
+        }
+        if (!buckets.isEmpty()) {
+            delegate.refund(key, buckets, tokensToConsume);
+        }
+    }
+
+    /**
+     * The tokens were consumed elsewhere, so quota counters are charged even
+     * past the quota; the token-bucket plans are debited in the delegate.
+     */
+    @Override
+    public void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        List<RateLimitConfig> buckets = new ArrayList<>(configs.size());
+        long now = clock.millis();
+        for (RateLimitConfig config : configs) {
+            if (config.isQuota()) {
+                counter(key, config, now).charge(tokens);
+            } else {
+                buckets.add(config);
+            }
+        }
+        if (!buckets.isEmpty()) {
+            delegate.debit(key, buckets, tokens);
+        }
+    }
+
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        return delegate.getState(key);
+    }
+
+    /**
+     * Sends the running totals of all counters that changed to the store and
+     * takes its totals as confirmed. Counters whose window has ended are
+     * dropped once flushed.
+     *
+     * @throws RuntimeException if the store fails; the tokens are sent again
+     *                          by the next flush.
+     */
+    public void flush() {
+        List<Counter> batch = new ArrayList<>();
+        List<QuotaContribution> contributions = new ArrayList<>();
+        for (Counter counter : counters.values()) {
+            if (counter.flushLock.tryLock()) {
+                if (counter.isSettled()) {
+                    counter.flushLock.unlock();
+                    continue;
+                }
+                batch.add(counter);
+                contributions.add(counter.begin());
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch, contributions);
+        }
+
+        long now = clock.millis();
+        counters.values().removeIf(counter -> counter.windowEnd <= now && counter.isSettled());
+    }
+
+    private void send(List<Counter> batch, List<QuotaContribution> contributions) {
+        try {
+            List<Long> totals = store.contribute(contributions);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).confirm(totals.get(i));
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(Counter::abort);
+            throw e;
+        } finally {
+            batch.forEach(counter -> counter.flushLock.unlock());
+        }
+    }
+
+    /**
+     * @return the quota tokens still available to this node for a key, as far
+     *         as it knows; empty if the counter is not tracked.
+     */
+    public Optional<Long> remaining(String key, RateLimitConfig quota) {
+        Counter counter = counters.get(counterKey(key, quota, clock.millis()));
+        return counter != null ? Optional.of(counter.remaining()) : Optional.empty();
+    }
+
+    private RateLimitResult acquire(String key, List<RateLimitConfig> configs, int tokens,
+            Function<List<RateLimitConfig>, RateLimitResult> bucketCall) {
+        List<RateLimitConfig> buckets = new ArrayList<>(configs.size());
+        List<Counter> charged = new ArrayList<>();
+        long now = clock.millis();
+        long remaining = Long.MAX_VALUE;
+        for (RateLimitConfig config : configs) {
+            if (!config.isQuota()) {
+                buckets.add(config);
+                continue;
+            }
+            Counter counter = counter(key, config, now);
+            long left = counter.tryCharge(tokens);
+            if (left < 0) {
+                charged.forEach(c -> c.giveBack(tokens));
+                return RateLimitResult.deny(Math.max(0, counter.remaining()), counter.windowEnd - now, DENY_REASON);
+            }
+            charged.add(counter);
+            remaining = Math.min(remaining, left);
+        }
+        if (charged.isEmpty()) {
+            return bucketCall.apply(configs);
+        }
+        if (buckets.isEmpty()) {
+            return RateLimitResult.allow(remaining);
+        }
+
+        RateLimitResult result;
+        try {
+            result = bucketCall.apply(buckets);
+        } catch (RuntimeException e) {
+            charged.forEach(c -> c.giveBack(tokens));
+            throw e;
+        }
+        if (!result.allowed()) {
+            charged.forEach(c -> c.giveBack(tokens));
+        }
+        return result;
+    }
+
+    private Counter counter(String key, RateLimitConfig quota, long now) {
+        return counters.computeIfAbsent(counterKey(key, quota, now),
+                counterKey -> new Counter(counterKey, quota.capacity(), quota.quota().windowEnd(now)));
+    }
+
+    /**
+     * @return the store key of the counter of {@code key} under a quota plan in
+     *         the window containing {@code now}, e.g.
+     *         {@code ratelimiter:default:user_1:monthly:2026-10}.
+     */
+    public static String counterKey(String key, RateLimitConfig quota, long now) {
+        return RateLimitKey.builder().withUser(key).withPlan(quota.planName()).build()
+                + ":" + quota.quota().windowId(now);
+    }
+
+    /**
+     * One quota counter. {@code lock} guards the numbers; {@code flushLock}
+     * keeps a single flush in flight.
+     */
+    private final class Counter {
+
+        private final String key;
+        private final long limit;
+        private final long windowEnd;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock flushLock = new ReentrantLock();
+
+        /** Total the store last confirmed, including this node's flushes. */
+        private long confirmed;
+        /** This node's running total, as the store last confirmed it. */
+        private long flushed;
+        /** Admitted here and being flushed. */
+        private long inFlight;
+        /** Admitted here since the last flush began; negative after refunds. */
+        private long pending;
+
+        Counter(String key, long limit, long windowEnd) {
+            this.key = key;
+            this.limit = limit;
+            this.windowEnd = windowEnd;
+        }
+
+        /**
+         * @return the tokens left after charging, or {@code -1} if the quota is
+         *         used up.
+         */
+        long tryCharge(int tokens) {
+            boolean flushed = false;
+            while (true) {
+                lock.lock();
+                try {
+                    long used = confirmed + inFlight + pending;
+                    if (used + tokens > limit) {
+                        return -1;
+                    }
+                    if (flushed || inFlight + pending + tokens <= slack) {
+                        pending += tokens;
+                        return limit - used - tokens;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                flushNow();
+                flushed = true;
+            }
+        }
+
+        /** Charges tokens consumed elsewhere; the total may exceed the quota. */
+        void charge(long tokens) {
+            lock.lock();
+            try {
+                pending += tokens;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void giveBack(int tokens) {
+            lock.lock();
+            try {
+                pending -= tokens;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long remaining() {
+            lock.lock();
+            try {
+                return limit - confirmed - inFlight - pending;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Flushes this counter alone, on the request path; sent even without
+         * changes, to read the other nodes' counts.
+         */
+        private void flushNow() {
+            flushLock.lock();
+            try {
+                QuotaContribution contribution = begin();
+                try {
+                    confirm(store.contribute(List.of(contribution)).get(0));
+                } catch (RuntimeException e) {
+                    abort();
+                    throw e;
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        QuotaContribution begin() {
+            lock.lock();
+            try {
+                inFlight = pending;
+                pending = 0;
+                return new QuotaContribution(key, nodeId, flushed + inFlight, windowEnd + RETENTION_MILLIS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void confirm(long total) {
+            lock.lock();
+            try {
+                confirmed = total;
+                flushed += inFlight;
+                inFlight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void abort() {
+            lock.lock();
+            try {
+                pending += inFlight;
+                inFlight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isSettled() {
+            lock.lock();
+            try {
+                return inFlight == 0 && pending == 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -10,18 +10,31 @@ package com.lokesh.ratelimiter.core.support;
  * <p>
  * Standardization prevents key collisions in distributed environments and
  * simplifies monitoring and debugging.
+ *
+ * <p>
+ * <b>Redis Cluster</b>: {@link Builder#withHashTag()} wraps the user segment in
+ * a hash tag, {@code ratelimiter:{tenant}:{{user}}:{plan}}, so every plan of a
+ * user maps to the same cluster slot and chained limits can run in one script
+ * (ADR 005). Redis ignores an empty tag, so a user that is empty or starts with
+ * {@code TAG_ESCAPE} or <code>}</code> gets a leading {@code TAG_ESCAPE} inside
+ * the tag; the tag is then never empty and keys stay distinct.
  */
 public class RateLimitKey {
 
+    /** Prefixed to user segments that would otherwise form an empty hash tag. */
+    static final char TAG_ESCAPE = '~';
+
     private final String tenant;
     private final String user;
     private final String plan;
+    private final boolean hashTag;
 
     /** Private — use {@link #builder()} to construct instances. */
-    private RateLimitKey(String tenant, String user, String plan) {
+    private RateLimitKey(String tenant, String user, String plan, boolean hashTag) {
         this.tenant = tenant;
         this.user = user;
         this.plan = plan;
+        this.hashTag = hashTag;
     }
 
     /**
@@ -43,12 +56,22 @@ public class RateLimitKey {
      */
     @Override
     public String toString() {
-        return String.format("ratelimiter:%s:%s:%s",
+        String userSegment = user != null ? user : "anonymous";
+        return String.format(hashTag ? "ratelimiter:%s:{%s}:%s" : "ratelimiter:%s:%s:%s",
                 tenant != null ? tenant : "default",
-                user != null ? user : "anonymous",
+                hashTag ? escapeTag(userSegment) : userSegment,
                 plan != null ? plan : "global");
     }
 
+    /**
+     * @return {@code user}, with a leading {@link #TAG_ESCAPE} if it is empty or
+     *         starts with the escape or a closing brace.
+     */
+    private static String escapeTag(String user) {
+        boolean escape = user.isEmpty() || user.charAt(0) == '}' || user.charAt(0) == TAG_ESCAPE;
+        return escape ? TAG_ESCAPE + user : user;
+    }
+
     /**
      * Fluent builder for {@link RateLimitKey}.
      */
@@ -56,6 +79,7 @@ public class RateLimitKey {
         private String tenant;
         private String user;
         private String plan;
+        private boolean hashTag;
 
         /**
          * Sets the tenant segment.
@@ -93,6 +117,17 @@ public class RateLimitKey {
             return this;
         }
 
+        /**
+         * Wraps the user segment in a Redis Cluster hash tag, so all plans of a
+         * user share a slot.
+         *
+         * @return this builder for chaining.
+         */
+        public Builder withHashTag() {
+            this.hashTag = true;
+            return this;
+        }
+
         /**
          * Builds the final Redis key string.
          *
@@ -100,7 +135,7 @@ public class RateLimitKey {
          *         {@code ratelimiter:{tenant}:{user}:{plan}}.
          */
         public String build() {
-            return new RateLimitKey(tenant, user, plan).toString();
+            return new RateLimitKey(tenant, user, plan, hashTag).toString();
         }
     }
 }
\ No newline at end of file
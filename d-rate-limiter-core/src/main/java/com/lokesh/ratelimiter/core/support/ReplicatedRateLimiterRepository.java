@@ -0,0 +1,348 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ConsumptionCount;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.PeerChannel;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link RateLimiterRepository} that enforces limits approximately across
+ * independent sites, e.g. one Redis per data centre.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b> over a site-local repository. Every
+ * decision is made by the local store at local latency; sites never wait for
+ * each other.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>G-Counter Replication</b>: Each site counts the tokens it consumed per
+ * key and plan. Every sync interval the counters that changed are published
+ * through a {@link PeerChannel} as running totals
+ * ({@link ConsumptionCount}). Receivers keep the highest total seen per site,
+ * so merging is idempotent and commutative.</li>
+ * <li><b>Remote Debits</b>: When a peer's total grows, the difference is
+ * deducted from the local bucket with {@link RateLimiterRepository#debit}, so
+ * the bucket may go negative and local callers pay off the peer's consumption
+ * first.</li>
+ * <li><b>Incarnations</b>: Totals are published under a writer id made of the
+ * site id, an incarnation chosen at start-up and a sequence number per counter,
+ * e.g. {@code east#1718000000000.42}. A restarted site, or a counter created
+ * again after eviction, counts from zero under a new id instead of being
+ * ignored until it passes its old total.</li>
+ * <li><b>Eviction</b>: A counter whose totals are published and that saw no
+ * local or remote consumption for {@code retention} is dropped on the sync
+ * thread. Retention must exceed the channel's worst delivery delay: a total
+ * delivered after its counter was dropped is debited again.</li>
+ * <li><b>Refunds</b> stay local: peers keep counting refunded tokens, which
+ * only errs on the strict side.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Error Bound</b>: With {@code N} sites, a plan of capacity {@code C} and
+ * rate {@code r}, sync interval {@code T} and channel delay {@code d}, the
+ * tokens admitted globally in any window exceed the plan's allowance by at most
+ * {@code (N - 1) × (C + r × (T + d))}: each other site may spend its full burst
+ * plus what it refills before its consumption arrives. Shorter intervals
+ * tighten the bound at the cost of more messages.
+ */
+public class ReplicatedRateLimiterRepository implements RateLimiterRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicatedRateLimiterRepository.class);
+
+    /** Separates the site id from the incarnation in a writer id. */
+    static final char INCARNATION_SEPARATOR = '#';
+
+    private static final Duration DEFAULT_RETENTION = Duration.ofHours(1);
+
+    private final String siteId;
+    private final String incarnation;
+    private final RateLimiterRepository local;
+    private final PeerChannel channel;
+    private final Clock clock;
+    private final long retentionMillis;
+    private final ConcurrentHashMap<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong writerSequence = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a repository that publishes its counters every
+     * {@code syncInterval}.
+     *
+     * @param siteId       unique name of this site.
+     * @param local        the site-local store making the decisions.
+     * @param channel      the link to the peer sites.
+     * @param syncInterval how often to publish; see the error bound.
+     * @throws IllegalArgumentException if the interval is shorter than 1ms.
+     */
+    public ReplicatedRateLimiterRepository(String siteId, RateLimiterRepository local, PeerChannel channel,
+            Duration syncInterval) {
+        this(siteId, local, channel, syncInterval, DEFAULT_RETENTION);
+    }
+
+    /**
+     * Creates a repository that drops idle counters after {@code retention}.
+     *
+     * @param siteId       unique name of this site; must not contain
+     *                     {@code '#'}.
+     * @param local        the site-local store making the decisions.
+     * @param channel      the link to the peer sites.
+     * @param syncInterval how often to publish; see the error bound.
+     * @param retention    how long an idle counter is kept; longer than the
+     *                     channel's worst delivery delay.
+     * @throws IllegalArgumentException if the interval is shorter than 1ms, the
+     *                                  retention is not longer than the
+     *                                  interval, or the site id contains
+     *                                  {@code '#'}.
+     */
+    public ReplicatedRateLimiterRepository(String siteId, RateLimiterRepository local, PeerChannel channel,
+            Duration syncInterval, Duration retention) {
+        this(siteId, local, channel, syncInterval, retention, SystemClock.INSTANCE, true);
+    }
+
+    /**
+     * @param background whether to sync on a background thread; tests call
+     *                   {@link #sync()} directly.
+     */
+    ReplicatedRateLimiterRepository(String siteId, RateLimiterRepository local, PeerChannel channel,
+            Duration syncInterval, Duration retention, Clock clock, boolean background) {
+        this.siteId = Objects.requireNonNull(siteId, "Site id must not be null");
+        if (siteId.indexOf(INCARNATION_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Site id must not contain '" + INCARNATION_SEPARATOR + "'");
+        }
+        this.local = Objects.requireNonNull(local, "Local repository must not be null");
+        this.channel = Objects.requireNonNull(channel, "Channel must not be null");
+        this.clock = Objects.requireNonNull(clock, "Clock must not be null");
+        Objects.requireNonNull(syncInterval, "Sync interval must not be null");
+        Objects.requireNonNull(retention, "Retention must not be null");
+        long intervalMillis = syncInterval.toMillis();
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Sync interval must be at least 1ms");
+        }
+        if (retention.toMillis() <= intervalMillis) {
+            throw new IllegalArgumentException("Retention must be longer than the sync interval");
+        }
+        this.retentionMillis = retention.toMillis();
+        this.incarnation = siteId + INCARNATION_SEPARATOR + clock.millis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-sync-" + siteId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        channel.subscribe(this::receive);
+        if (background) {
+            scheduler.scheduleWithFixedDelay(this::syncSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        RateLimitResult result = local.tryAcquire(key, configs, tokensToConsume);
+        if (result.allowed()) {
+            count(key, configs, tokensToConsume);
+        }
+        return result;
+    }
+
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        RateLimitResult result = local.tryAcquireAbove(key, configs, tokensToConsume, floor);
+        if (result.allowed()) {
+            count(key, configs, tokensToConsume);
+        }
+        return result;
+    }
+
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        RateLimitResult result = local.tryReserve(key, configs, tokensToConsume, maxWaitMillis);
+        if (result.allowed()) {
+            count(key, configs, tokensToConsume);
+        }
+        return result;
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        local.refund(key, configs, tokensToConsume);
+    }
+
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        return local.getState(key);
+    }
+
+    /**
+     * Publishes the counters that changed since the last sync and drops those
+     * that stayed idle for the retention. Runs on the background thread; call it
+     * directly to flush on demand.
+     */
+    public void sync() {
+        List<ConsumptionCount> changed = new ArrayList<>();
+        Map<Counter, Long> totals = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            long total = counter.consumed.sum();
+            if (total > counter.published) {
+                changed.add(new ConsumptionCount(counter.writerId, key.key(), counter.plan, total));
+                totals.put(counter, total);
+            }
+        });
+        if (!changed.isEmpty()) {
+            channel.publish(changed);
+            totals.forEach((counter, total) -> counter.published = total);
+        }
+        evictIdle();
+    }
+
+    /** Publishes what is left and stops syncing. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        syncSafely();
+    }
+
+    /** @return the number of counters currently held. */
+    int size() {
+        return counters.size();
+    }
+
+    /**
+     * Merges counters published by a peer and debits the growth from the local
+     * buckets. A failed debit leaves the peer's total unmerged, so the next
+     * message retries it.
+     */
+    void receive(List<ConsumptionCount> counts) {
+        for (ConsumptionCount count : counts) {
+            if (siteId.equals(siteOf(count.siteId()))) {
+                continue;
+            }
+            CounterKey key = new CounterKey(count.key(), count.plan().planName());
+            while (!merge(key, count)) {
+                // The counter was evicted while we waited for it; merge into a new one.
+            }
+        }
+    }
+
+    /** @return {@code false} if the counter was evicted before it could be locked. */
+    private boolean merge(CounterKey key, ConsumptionCount count) {
+        Counter counter = counters.computeIfAbsent(key, k -> newCounter(count.plan()));
+        counter.mergeLock.lock();
+        try {
+            if (counter.evicted) {
+                return false;
+            }
+            long seen = counter.remote.getOrDefault(count.siteId(), 0L);
+            if (count.consumed() > seen) {
+                local.debit(count.key(), List.of(count.plan()), count.consumed() - seen);
+                counter.remote.put(count.siteId(), count.consumed());
+                counter.lastActiveMillis = clock.millis();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply consumption of site [{}] for key [{}]; retrying on its next sync. Reason: {}",
+                    count.siteId(), count.key(), e.getMessage());
+        } finally {
+            counter.mergeLock.unlock();
+        }
+        return true;
+    }
+
+    private void count(String key, List<RateLimitConfig> configs, int tokens) {
+        long now = clock.millis();
+        for (RateLimitConfig config : configs) {
+            // compute() serializes with eviction, so no increment lands in a dropped counter.
+            counters.compute(new CounterKey(key, config.planName()), (k, counter) -> {
+                Counter current = counter != null ? counter : newCounter(config);
+                current.consumed.add(tokens);
+                current.lastActiveMillis = now;
+                return current;
+            });
+        }
+    }
+
+    /** Drops counters that are fully published and idle for the retention. */
+    private void evictIdle() {
+        long cutoff = clock.millis() - retentionMillis;
+        for (CounterKey key : counters.keySet()) {
+            counters.computeIfPresent(key, (k, counter) -> {
+                if (counter.lastActiveMillis > cutoff || counter.consumed.sum() != counter.published
+                        || !counter.mergeLock.tryLock()) {
+                    return counter;
+                }
+                try {
+                    counter.evicted = true;
+                    return null;
+                } finally {
+                    counter.mergeLock.unlock();
+                }
+            });
+        }
+    }
+
+    private Counter newCounter(RateLimitConfig plan) {
+        return new Counter(plan, incarnation + "." + writerSequence.incrementAndGet(), clock.millis());
+    }
+
+    /** @return the site id of a writer id. */
+    private static String siteOf(String writerId) {
+        int separator = writerId.lastIndexOf(INCARNATION_SEPARATOR);
+        return separator < 0 ? writerId : writerId.substring(0, separator);
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish consumption counters of site [{}]; retrying next interval. Reason: {}",
+                    siteId, e.getMessage(), e);
+        }
+    }
+
+    private record CounterKey(String key, String planName) {
+    }
+
+    /** The G-Counter of one bucket: this site's entry and the peers' entries. */
+    private static final class Counter {
+
+        private final RateLimitConfig plan;
+        private final String writerId;
+        private final LongAdder consumed = new LongAdder();
+        private final Map<String, Long> remote = new HashMap<>();
+        private final ReentrantLock mergeLock = new ReentrantLock();
+
+        /** Last total handed to the channel; written by the sync thread only. */
+        private volatile long published;
+        private volatile long lastActiveMillis;
+
+        /** Set under {@code mergeLock} when the counter leaves the map. */
+        private boolean evicted;
+
+        Counter(RateLimitConfig plan, String writerId, long createdMillis) {
+            this.plan = plan;
+            this.writerId = writerId;
+            this.lastActiveMillis = createdMillis;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link RateLimiterRepository} that checks {@link RateLimitConfig#sampled()
+ * sampled} plans against the store for only one in {@code N} requests.
+ *
+ * <p>
+ * Architectural Role: <b>Decorator</b>. For limits such as a global cap on
+ * anonymous traffic, exactness does not matter, but every request would still
+ * pay a store round-trip.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Sampling</b>: Every {@code N}-th request of a key is sent to the store
+ * with the tokens of the requests admitted locally since the last sample added
+ * to its own, i.e. {@code N × cost} when all were admitted.</li>
+ * <li><b>Local Decisions</b>: The other requests are decided against the
+ * remaining tokens the last sample reported, minus what was admitted locally
+ * since. Refill is ignored until the next sample, which errs on the strict
+ * side.</li>
+ * <li><b>Adaptive N</b>: After each sample, {@code N} is set so that a key is
+ * sampled about once per {@code sampleInterval} at the observed request rate,
+ * bounded by {@code maxSampleSize} and by the number of requests the smallest
+ * plan can pay for at once. Quiet keys are therefore checked exactly.</li>
+ * <li><b>Idle Expiry</b>: The state of a key unused for {@code idleTimeout} is
+ * dropped by the next caller to pass a sweep deadline, after charging the
+ * tokens it admitted locally to the store. Memory therefore follows the keys
+ * active within the timeout, not every key ever seen.</li>
+ * <li>Requests with any non-sampled plan, requests with a floor (see
+ * {@link #tryAcquireAbove}), reservations and refunds are passed through
+ * unchanged.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Error Bound</b>: When a sample is denied, the tokens admitted locally
+ * before it are {@linkplain RateLimiterRepository#debit debited} on their own,
+ * taking the buckets negative if need be, so they are never forgiven by stores
+ * that support debt. A single instance therefore never admits more than the
+ * store holds: local decisions only spend tokens the last sample saw. With
+ * several instances, local decisions cannot see what the others spent since
+ * their last samples, so each may admit up to {@code N - 1} requests the
+ * buckets no longer hold; the debit makes later requests pay them back. With
+ * {@code I} instances, requests of
+ * weight {@code c} and sample size {@code N}, at most
+ * {@code (I - 1) × (N - 1) × c} tokens are admitted beyond the limit per
+ * sample interval; with {@code N = 1} the decisions are exact. Under-admission
+ * is bounded by the refill ignored between two samples, about
+ * {@code r × sampleInterval} per interval.
+ */
+public class SampledRateLimiterRepository implements RateLimiterRepository {
+
+    /** Default target time between two samples of one key. */
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofMillis(10);
+
+    /** Default upper bound of {@code N}. */
+    public static final int DEFAULT_MAX_SAMPLE_SIZE = 64;
+
+    /** Default time after which the state of an unused key is dropped. */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private final RateLimiterRepository delegate;
+    private final long sampleIntervalNanos;
+    private final int maxSampleSize;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<SampleKey, Sampler> samplers = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepNanos;
+
+    /**
+     * Creates a repository with the default interval and sample size.
+     *
+     * @param delegate the store making the sampled decisions.
+     */
+    public SampledRateLimiterRepository(RateLimiterRepository delegate) {
+        this(delegate, DEFAULT_SAMPLE_INTERVAL, DEFAULT_MAX_SAMPLE_SIZE);
+    }
+
+    /**
+     * @param delegate       the store making the sampled decisions.
+     * @param sampleInterval target time between two samples of one key.
+     * @param maxSampleSize  upper bound of {@code N}; see the error bound.
+     * @throws IllegalArgumentException if the interval is not positive or the
+     *                                  sample size is less than one.
+     */
+    public SampledRateLimiterRepository(RateLimiterRepository delegate, Duration sampleInterval, int maxSampleSize) {
+        this(delegate, sampleInterval, maxSampleSize, DEFAULT_IDLE_TIMEOUT, System::nanoTime);
+    }
+
+    SampledRateLimiterRepository(RateLimiterRepository delegate, Duration sampleInterval, int maxSampleSize,
+            LongSupplier nanoClock) {
+        this(delegate, sampleInterval, maxSampleSize, DEFAULT_IDLE_TIMEOUT, nanoClock);
+    }
+
+    SampledRateLimiterRepository(RateLimiterRepository delegate, Duration sampleInterval, int maxSampleSize,
+            Duration idleTimeout, LongSupplier nanoClock) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate must not be null");
+        Objects.requireNonNull(sampleInterval, "Sample interval must not be null");
+        if (sampleInterval.isZero() || sampleInterval.isNegative()) {
+            throw new IllegalArgumentException("Sample interval must be greater than zero");
+        }
+        if (maxSampleSize < 1) {
+            throw new IllegalArgumentException("Max sample size must be at least one");
+        }
+        this.sampleIntervalNanos = sampleInterval.toNanos();
+        this.maxSampleSize = maxSampleSize;
+        Objects.requireNonNull(idleTimeout, "Idle timeout must not be null");
+        if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Idle timeout must be greater than zero");
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoClock = Objects.requireNonNull(nanoClock, "Clock must not be null");
+        this.nextSweepNanos = new AtomicLong(nanoClock.getAsLong() + idleTimeoutNanos);
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        if (configs.isEmpty() || !configs.stream().allMatch(RateLimitConfig::sampled)) {
+            return delegate.tryAcquire(key, configs, tokensToConsume);
+        }
+        sweepIfDue();
+        SampleKey sampleKey = new SampleKey(key, List.copyOf(configs));
+        while (true) {
+            RateLimitResult result = samplers.computeIfAbsent(sampleKey, k -> new Sampler())
+                    .decide(key, configs, tokensToConsume);
+            if (result != null) {
+                return result;
+            }
+            // The sampler expired between lookup and lock; start a fresh one.
+        }
+    }
+
+    /**
+     * Local decisions cannot see the floor of a bucket, so requests with one
+     * are decided by the store; tokens admitted locally since the last sample
+     * are not counted against them yet.
+     */
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        if (floor <= 0) {
+            return tryAcquire(key, configs, tokensToConsume);
+        }
+        return delegate.tryAcquireAbove(key, configs, tokensToConsume, floor);
+    }
+
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return delegate.tryReserve(key, configs, tokensToConsume, maxWaitMillis);
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        delegate.refund(key, configs, tokensToConsume);
+    }
+
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        return delegate.getState(key);
+    }
+
+    /** @return the current {@code N} of a key; 1 for keys not seen yet. */
+    public int sampleSize(String key, List<RateLimitConfig> configs) {
+        Sampler sampler = samplers.get(new SampleKey(key, List.copyOf(configs)));
+        return sampler != null ? sampler.sampleSize : 1;
+    }
+
+    /** @return the number of keys with sampling state. */
+    int size() {
+        return samplers.size();
+    }
+
+    /** Lets the first caller past the deadline expire idle keys. */
+    private void sweepIfDue() {
+        long now = nanoClock.getAsLong();
+        long due = nextSweepNanos.get();
+        if (now - due >= 0 && nextSweepNanos.compareAndSet(due, now + idleTimeoutNanos)) {
+            evictIdle(now);
+        }
+    }
+
+    /**
+     * Drops the state of keys unused for the idle timeout; tokens they admitted
+     * locally since their last sample are charged to the store first.
+     */
+    private void evictIdle(long now) {
+        for (Map.Entry<SampleKey, Sampler> entry : samplers.entrySet()) {
+            Sampler sampler = entry.getValue();
+            long debt;
+            sampler.lock.lock();
+            try {
+                if (sampler.inFlight || now - sampler.lastUsedNanos < idleTimeoutNanos) {
+                    continue;
+                }
+                sampler.retired = true;
+                debt = sampler.admittedTokens;
+                sampler.admittedTokens = 0;
+            } finally {
+                sampler.lock.unlock();
+            }
+            samplers.remove(entry.getKey(), sampler);
+            if (debt > 0) {
+                try {
+                    delegate.debit(entry.getKey().key(), entry.getKey().configs(), debt);
+                } catch (RuntimeException e) {
+                    // Fail open (ADR 002): the debt is at most one sample's worth.
+                }
+            }
+        }
+    }
+
+    private record SampleKey(String key, List<RateLimitConfig> configs) {
+    }
+
+    /** Sampling state of one key; guarded by {@code lock}. */
+    private final class Sampler {
+        final ReentrantLock lock = new ReentrantLock();
+        int sampleSize = 1;
+        int requests;
+        long admittedTokens;
+        boolean observed;
+        boolean inFlight;
+        boolean retired;
+        double remaining;
+        long lastSampleNanos;
+        long lastUsedNanos = nanoClock.getAsLong();
+
+        /** @return the decision, or {@code null} if this sampler has expired. */
+        RateLimitResult decide(String key, List<RateLimitConfig> configs, int cost) {
+            boolean direct = false;
+            long debt = 0;
+            int sampledRequests = 0;
+            lock.lock();
+            try {
+                if (retired) {
+                    return null;
+                }
+                lastUsedNanos = nanoClock.getAsLong();
+                if (observed) {
+                    requests++;
+                    if (inFlight || requests < sampleSize) {
+                        return decideLocally(configs, cost);
+                    }
+                } else if (inFlight) {
+                    direct = true;
+                }
+                if (!direct) {
+                    inFlight = true;
+                    debt = admittedTokens;
+                    sampledRequests = requests;
+                    admittedTokens = 0;
+                    requests = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (direct) {
+                // Nothing to decide against before the first sample returns.
+                return delegate.tryAcquire(key, configs, cost);
+            }
+
+            RateLimitResult result;
+            try {
+                result = delegate.tryAcquire(key, configs, (int) Math.min(Integer.MAX_VALUE, debt + cost));
+                if (!result.allowed() && debt > 0) {
+                    // Pay for what was admitted locally, into debt if need be; this request stays denied.
+                    delegate.debit(key, configs, debt);
+                    double left = result.remainingTokens() - debt;
+                    result = RateLimitResult.deny(left, Math.max(result.waitMillis(), waitMillis(configs, cost - left)),
+                            result.reason());
+                }
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    admittedTokens += debt;
+                    inFlight = false;
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+
+            lock.lock();
+            try {
+                long now = nanoClock.getAsLong();
+                if (observed) {
+                    adapt(configs, cost, sampledRequests, now - lastSampleNanos);
+                }
+                observed = true;
+                remaining = result.remainingTokens();
+                lastSampleNanos = now;
+                inFlight = false;
+            } finally {
+                lock.unlock();
+            }
+            return result;
+        }
+
+        /** Decides against the last sample; the caller holds the lock. */
+        private RateLimitResult decideLocally(List<RateLimitConfig> configs, int cost) {
+            double left = remaining - admittedTokens;
+            if (left < cost) {
+                return RateLimitResult.deny(left, waitMillis(configs, cost - left), DENY_REASON);
+            }
+            admittedTokens += cost;
+            return RateLimitResult.allow(left - cost);
+        }
+
+        /** Time until the slowest plan refills {@code missing} tokens. */
+        private static long waitMillis(List<RateLimitConfig> configs, double missing) {
+            double slowest = Double.MAX_VALUE;
+            for (RateLimitConfig config : configs) {
+                slowest = Math.min(slowest, config.tokensPerSecond());
+            }
+            return (long) Math.ceil(missing / slowest * 1000.0);
+        }
+
+        /** Sizes the next sample to span about one sample interval of traffic. */
+        private void adapt(List<RateLimitConfig> configs, int cost, int sampledRequests, long elapsedNanos) {
+            double perInterval = elapsedNanos <= 0
+                    ? Double.MAX_VALUE
+                    : (double) sampledRequests * sampleIntervalNanos / elapsedNanos;
+            long affordable = Long.MAX_VALUE;
+            for (RateLimitConfig config : configs) {
+                affordable = Math.min(affordable, config.capacity() / Math.max(1, cost));
+            }
+            long target = Math.min((long) Math.ceil(perInterval), Math.min(maxSampleSize, affordable));
+            sampleSize = (int) Math.max(1, target);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.port.Clock;
+
+import java.time.Instant;
+
+/**
+ * The {@link Clock} reading the operating system's wall clock on every call.
+ *
+ * <p>
+ * Architectural Role: <b>Standard Support Implementation</b> and the default
+ * of every local engine. {@link #micros()} is as precise as the platform's
+ * {@link Instant#now()}, microseconds on Linux.
+ */
+public final class SystemClock implements Clock {
+
+    /** The shared instance; the class holds no state. */
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long micros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,79 @@
+package com.lokesh.ratelimiter.core.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathConsumptionTest {
+
+    private final FairShareLimit limit = new FairShareLimit("api", 100, 10.0, 2, 4);
+    private final List<RateLimitConfig> configs = limit.configs(FairSharePath.of("acme", "u1"));
+
+    @Test
+    @DisplayName("Should size each level as its weighted share of the level above")
+    void shouldDeriveShares() {
+        List<RateLimitConfig> weighted = limit.configs(new FairSharePath("acme", 2, "u1", 1));
+
+        assertThat(configs).extracting(RateLimitConfig::capacity).containsExactly(100L, 50L, 12L);
+        assertThat(configs).extracting(RateLimitConfig::tokensPerSecond).containsExactly(10.0, 5.0, 1.25);
+        assertThat(weighted).extracting(RateLimitConfig::capacity).containsExactly(100L, 100L, 25L);
+    }
+
+    @Test
+    @DisplayName("Should borrow from the lowest ancestor with tokens and charge every level")
+    void shouldBorrowFromLowestLender() {
+        // GIVEN: the user's own share is spent, the tenant still has 3 tokens
+        List<TokenBucket> path = List.of(new TokenBucket(40, 0), new TokenBucket(3, 0), new TokenBucket(0.5, 0));
+
+        // WHEN
+        PathConsumption result = PathConsumption.tryConsume(path, configs, 0, 2);
+
+        // THEN: the tenant lends; the user goes into debt
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.remaining()).isEqualTo(1.0);
+        assertThat(result.updated()).extracting(TokenBucket::tokens).containsExactly(38.0, 1.0, -1.5);
+    }
+
+    @Test
+    @DisplayName("Should let a user within its share pass a parent in debt")
+    void shouldServeOwnShareRegardlessOfParent() {
+        List<TokenBucket> path = List.of(new TokenBucket(-5, 0), new TokenBucket(-20, 0), new TokenBucket(4, 0));
+
+        PathConsumption result = PathConsumption.tryConsume(path, configs, 0, 1);
+
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.updated()).extracting(TokenBucket::tokens).containsExactly(-6.0, -21.0, 3.0);
+    }
+
+    @Test
+    @DisplayName("Should deny a user within its share once the parent owes its whole capacity")
+    void shouldCapParentDebt() {
+        List<TokenBucket> path = List.of(new TokenBucket(-5, 0), new TokenBucket(-49.5, 0), new TokenBucket(4, 0));
+
+        PathConsumption result = PathConsumption.tryConsume(path, configs, 0, 1);
+
+        // The tenant (capacity 50, 5 tokens/s) would owe 50.5: wait until it owes 49.
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.remaining()).isEqualTo(-49.5);
+        assertThat(result.waitMillis()).isEqualTo(100L);
+        assertThat(result.updated()).extracting(TokenBucket::tokens).containsExactly(-5.0, -49.5, 4.0);
+    }
+
+    @Test
+    @DisplayName("Should deny with the time until the first level can lend and start missing buckets full")
+    void shouldDenyWhenNoLevelCanLend() {
+        List<TokenBucket> path = Arrays.asList(new TokenBucket(0.5, 0), new TokenBucket(-10, 0), null);
+        List<RateLimitConfig> tiny = new FairShareLimit("api", 100, 10.0, 2, 100).configs(FairSharePath.of("a", "b"));
+
+        PathConsumption result = PathConsumption.tryConsume(path, tiny, 0, 2);
+
+        // The new user bucket holds 1 token (its share, rounded up to one); the global one refills first.
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.remaining()).isEqualTo(1.0);
+        assertThat(result.waitMillis()).isEqualTo(150L);
+    }
+}
@@ -0,0 +1,30 @@
+package com.lokesh.ratelimiter.core.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuotaPeriodTest {
+
+    private static final long LATE_ON_NEW_YEARS_EVE = Instant.parse("2026-12-31T23:59:59.999Z").toEpochMilli();
+
+    @Test
+    @DisplayName("Should align daily windows to midnight UTC")
+    void shouldAlignDailyWindows() {
+        assertEquals("2026-12-31", QuotaPeriod.DAILY.windowId(LATE_ON_NEW_YEARS_EVE));
+        assertEquals(LATE_ON_NEW_YEARS_EVE + 1, QuotaPeriod.DAILY.windowEnd(LATE_ON_NEW_YEARS_EVE));
+        assertEquals("2027-01-01", QuotaPeriod.DAILY.windowId(LATE_ON_NEW_YEARS_EVE + 1));
+    }
+
+    @Test
+    @DisplayName("Should align monthly windows to the first of the month UTC, across years")
+    void shouldAlignMonthlyWindows() {
+        assertEquals("2026-12", QuotaPeriod.MONTHLY.windowId(LATE_ON_NEW_YEARS_EVE));
+        assertEquals(LATE_ON_NEW_YEARS_EVE + 1, QuotaPeriod.MONTHLY.windowEnd(LATE_ON_NEW_YEARS_EVE));
+        assertEquals(Instant.parse("2026-03-01T00:00:00Z").toEpochMilli(),
+                QuotaPeriod.MONTHLY.windowEnd(Instant.parse("2026-02-14T12:00:00Z").toEpochMilli()));
+    }
+}
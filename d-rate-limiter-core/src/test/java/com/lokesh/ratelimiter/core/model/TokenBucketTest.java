@@ -37,6 +37,36 @@ class TokenBucketTest {
         assertEquals(10.0, refilled.tokens(), "Should not exceed capacity");
     }
 
+    @Test
+    void shouldReserveFutureTokensWithinMaxWait() {
+        // GIVEN: An empty bucket refilling 1 token/sec
+        TokenBucket bucket = new TokenBucket(0.0, 0L);
+        RateLimitConfig config = new RateLimitConfig("gold", 10, 1.0);
+
+        // WHEN: Two callers reserve 2 tokens each
+        ConsumptionResult first = bucket.tryReserve(0L, 2, config, 5_000);
+        ConsumptionResult second = first.updatedBucket().tryReserve(0L, 2, config, 5_000);
+        ConsumptionResult third = second.updatedBucket().tryReserve(0L, 2, config, 5_000);
+
+        // THEN: They wait in order, and the debt beyond max wait is refused
+        assertTrue(first.allowed());
+        assertEquals(2_000L, first.waitMillis());
+        assertEquals(4_000L, second.waitMillis());
+        assertEquals(-4.0, second.updatedBucket().tokens());
+        assertFalse(third.allowed());
+        assertEquals(6_000L, third.waitMillis());
+        assertEquals(second.updatedBucket(), third.updatedBucket());
+    }
+
+    @Test
+    void shouldRefundUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(-4.0, 0L);
+        RateLimitConfig config = new RateLimitConfig("gold", 10, 1.0);
+
+        assertEquals(new TokenBucket(-2.0, 0L), bucket.refund(0L, 2, config));
+        assertEquals(new TokenBucket(10.0, 20_000L), bucket.refund(20_000L, 2, config));
+    }
+
     @Test
     void shouldNotRefillIfTimeGoesBackwards() {
         // GIVEN: A bucket updated at time 100
@@ -49,4 +79,29 @@ class TokenBucketTest {
         // THEN: State should remain unchanged
         assertEquals(bucket, refilled);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRefillBetweenMillisecondsWithMicrosecondPrecision() {
+        // GIVEN: A full bucket of 10 refilling 1 token per microsecond
+        RateLimitConfig config = new RateLimitConfig("firehose", 10, 1_000_000.0);
+        TokenBucket micros = new TokenBucket(10.0, 0L);
+        TokenBucket millis = new TokenBucket(10.0, 0L);
+        int admittedMicros = 0;
+        int admittedMillis = 0;
+
+        // WHEN: One token is taken every microsecond for 2.5ms
+        for (long t = 0; t < 2_500; t++) {
+            ConsumptionResult fine = micros.tryConsume(t, 1, config, ClockPrecision.MICROS);
+            micros = fine.updatedBucket();
+            admittedMicros += fine.allowed() ? 1 : 0;
+            ConsumptionResult coarse = millis.tryConsume(t / 1_000, 1, config);
+            millis = coarse.updatedBucket();
+            admittedMillis += coarse.allowed() ? 1 : 0;
+        }
+
+        // THEN: The microsecond clock sees every refill; the millisecond clock refills in steps
+        assertEquals(2_500, admittedMicros);
+        assertEquals(30, admittedMillis);
+        assertEquals(2L, micros.lastRefillMillis(), "Buckets stay stamped in milliseconds");
+    }
+}
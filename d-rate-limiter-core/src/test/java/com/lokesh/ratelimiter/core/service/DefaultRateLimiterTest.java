@@ -1,24 +1,38 @@
 package com.lokesh.ratelimiter.core.service;
 
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PenaltyPolicy;
+import com.lokesh.ratelimiter.core.model.PriorityClass;
 import com.lokesh.ratelimiter.core.model.RateLimitConfig;
 import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
 import com.lokesh.ratelimiter.core.port.PlanRegistry;
+import com.lokesh.ratelimiter.core.port.RateLimiter;
 import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
 import com.lokesh.ratelimiter.core.port.RateLimitEventListener;
+import com.lokesh.ratelimiter.core.support.InMemoryRateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.LoadShedder;
 import com.lokesh.ratelimiter.core.support.MissingPlanPolicy;
+import com.lokesh.ratelimiter.core.support.PenaltyBox;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,13 +45,15 @@ class DefaultRateLimiterTest {
     @Mock
     private RateLimiterRepository repository;
 
+    @Mock
+    private FairShareRepository fairShareRepository;
+
     @Mock
     private PlanRegistry planRegistry;
 
     @Mock
     private RateLimitEventListener listener;
 
-    @InjectMocks
     private DefaultRateLimiter rateLimiter;
 
     private final RateLimitConfig config = new RateLimitConfig("gold", 10, 1.0);
@@ -89,4 +105,232 @@ class DefaultRateLimiterTest {
         assertThat(result.allowed()).isTrue();
         verify(listener).onFailOpen(eq(key), contains("Redis down"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should park the caller until its reserved tokens are refilled")
+    void shouldWaitForReservation() throws InterruptedException {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener),
+                MissingPlanPolicy.FAIL_FAST);
+        RateLimitResult reserved = RateLimitResult.reserved(-1.0, 50);
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryReserve(key, List.of(config), 2, 1_000)).thenReturn(reserved);
+
+        long start = System.nanoTime();
+        RateLimitResult result = rateLimiter.acquire(key, List.of("gold"), 2, Duration.ofSeconds(1));
+
+        assertThat(result).isEqualTo(reserved);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+        verify(listener).onAllow(key, List.of("gold"), reserved);
+    }
+
+    @Test
+    @DisplayName("Should deny without waiting when the permit is further away than max wait")
+    void shouldDenyReservationBeyondMaxWait() throws InterruptedException {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener),
+                MissingPlanPolicy.FAIL_FAST);
+        RateLimitResult denied = RateLimitResult.deny(0.0, 60_000, "RATE_LIMITED");
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryReserve(anyString(), anyList(), anyInt(), anyLong())).thenReturn(denied);
+
+        RateLimitResult result = rateLimiter.acquire(key, List.of("gold"), 1, Duration.ofSeconds(1));
+
+        assertThat(result.allowed()).isFalse();
+        verify(listener).onDeny(key, List.of("gold"), denied);
+        verify(repository, never()).refund(anyString(), anyList(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should retry after the reported wait when the store cannot reserve")
+    void shouldRetryWhenStoreCannotReserve() throws InterruptedException {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener),
+                MissingPlanPolicy.FAIL_FAST);
+        RateLimitResult denied = RateLimitResult.deny(0.0, 30, "RATE_LIMITED");
+        RateLimitResult allowed = RateLimitResult.allow(0.0);
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryReserve(anyString(), anyList(), anyInt(), anyLong())).thenReturn(denied, allowed);
+
+        long start = System.nanoTime();
+        RateLimitResult result = rateLimiter.acquire(key, List.of("gold"), 1, Duration.ofSeconds(1));
+
+        assertThat(result).isEqualTo(allowed);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(30).toNanos());
+        verify(repository, times(2)).tryReserve(anyString(), anyList(), anyInt(), anyLong());
+        verify(listener).onAllow(key, List.of("gold"), allowed);
+        verify(listener, never()).onDeny(anyString(), anyList(), any());
+    }
+
+    @Test
+    @DisplayName("Should let any RateLimiter wait by retrying allow after the reported wait")
+    void shouldAcquireThroughDefaultRetry() throws InterruptedException {
+        RateLimitResult denied = RateLimitResult.deny(0.0, 20, "RATE_LIMITED");
+        RateLimitResult beyond = RateLimitResult.deny(0.0, 5_000, "RATE_LIMITED");
+        AtomicReference<List<RateLimitResult>> replies =
+                new AtomicReference<>(List.of(denied, RateLimitResult.allow(0.0), beyond));
+        RateLimiter minimal = (k, plans, tokens) -> {
+            List<RateLimitResult> remaining = replies.get();
+            replies.set(remaining.subList(1, remaining.size()));
+            return remaining.get(0);
+        };
+
+        assertThat(minimal.acquire(key, List.of("gold"), 1, Duration.ofSeconds(1)).allowed()).isTrue();
+        assertThat(minimal.acquire(key, List.of("gold"), 1, Duration.ofSeconds(1))).isEqualTo(beyond);
+    }
+
+    @Test
+    @DisplayName("Should refund the reservation when the waiting caller is interrupted")
+    void shouldRefundOnInterrupt() throws Exception {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener),
+                MissingPlanPolicy.FAIL_FAST);
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryReserve(anyString(), anyList(), anyInt(), anyLong()))
+                .thenReturn(RateLimitResult.reserved(-5.0, 60_000));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                rateLimiter.acquire(key, List.of("gold"), 3, Duration.ofMinutes(5));
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        verify(repository, timeout(1_000)).tryReserve(anyString(), anyList(), anyInt(), anyLong());
+        waiter.interrupt();
+        waiter.join(1_000);
+
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+        verify(repository).refund(key, List.of(config), 3);
+        verify(listener, never()).onAllow(anyString(), anyList(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject a banned key before resolving plans, without repository or listener calls")
+    void shouldRejectBannedKey() {
+        RateLimitResult denied = RateLimitResult.deny(0.0, 100, "RATE_LIMITED");
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryAcquire(anyString(), anyList(), anyInt())).thenReturn(denied);
+        try (PenaltyBox penaltyBox = new PenaltyBox(new PenaltyPolicy(2, Duration.ofSeconds(10),
+                Duration.ofMinutes(1), Duration.ofMinutes(10), 100))) {
+            rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener, penaltyBox),
+                    MissingPlanPolicy.FAIL_FAST, penaltyBox);
+
+            // GIVEN: two denials earn a ban
+            rateLimiter.allow(key, List.of("gold"), 1);
+            rateLimiter.allow(key, List.of("gold"), 1);
+
+            // WHEN
+            RateLimitResult result = rateLimiter.allow(key, List.of("gold"), 1);
+
+            // THEN
+            assertThat(result.allowed()).isFalse();
+            assertThat(result.reason()).isEqualTo(PenaltyBox.DENY_REASON);
+            verify(planRegistry, times(2)).getPlan("gold");
+            verify(repository, times(2)).tryAcquire(anyString(), anyList(), anyInt());
+            verify(listener, times(2)).onDeny(key, List.of("gold"), denied);
+            assertThat(penaltyBox.rejected()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should shed a low class held back by its floor and serve critical traffic from the same bucket")
+    void shouldShedBelowFloor() {
+        LoadShedder loadShedder = new LoadShedder(LoadShedder.DEFAULT_FLOORS);
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener), MissingPlanPolicy.FAIL_FAST,
+                null, loadShedder);
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+        when(repository.tryAcquireAbove(key, List.of(config), 1, 0.5))
+                .thenReturn(RateLimitResult.deny(4.0, 1_000, "RATE_LIMITED"));
+        when(repository.tryAcquire(key, List.of(config), 1)).thenReturn(RateLimitResult.allow(3.0));
+
+        // WHEN
+        RateLimitResult anonymous = rateLimiter.allow(key, List.of("gold"), 1, PriorityClass.ANONYMOUS);
+        RateLimitResult critical = rateLimiter.allow(key, List.of("gold"), 1, PriorityClass.CRITICAL);
+
+        // THEN
+        assertThat(anonymous.allowed()).isFalse();
+        assertThat(anonymous.reason()).isEqualTo(LoadShedder.DENY_REASON);
+        assertThat(critical.allowed()).isTrue();
+        assertThat(loadShedder.shed(PriorityClass.ANONYMOUS)).isEqualTo(1);
+        verify(listener).onDeny(key, List.of("gold"), anonymous);
+    }
+
+    @Test
+    @DisplayName("Should serve every class alike from a store that cannot reserve headroom")
+    void shouldIgnoreFloorOfStoreWithoutHeadroom() {
+        InMemoryRateLimiterRepository store = new InMemoryRateLimiterRepository(() -> 0L);
+        RateLimiterRepository plain = new RateLimiterRepository() {
+            @Override
+            public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+                return store.tryAcquire(key, configs, tokensToConsume);
+            }
+
+            @Override
+            public Optional<TokenBucket> getState(String key) {
+                return store.getState(key);
+            }
+        };
+        rateLimiter = new DefaultRateLimiter(plain, planRegistry, List.of(listener), MissingPlanPolicy.FAIL_FAST,
+                null, new LoadShedder(LoadShedder.DEFAULT_FLOORS));
+        when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+
+        // WHEN: anonymous traffic takes more than half of the bucket
+        for (int i = 0; i < config.capacity(); i++) {
+            RateLimitResult result = rateLimiter.allow(key, List.of("gold"), 1, PriorityClass.ANONYMOUS);
+
+            // THEN: decided by the bucket, not failed open
+            assertThat(result.allowed()).isTrue();
+            assertThat(result.remainingTokens()).isEqualTo(config.capacity() - i - 1.0);
+        }
+        verify(listener, never()).onFailOpen(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should report the time each decision waited for the repository to the load shedder")
+    void shouldRecordRepositoryLatency() {
+        try (LoadShedder loadShedder = new LoadShedder(LoadShedder.DEFAULT_FLOORS, 1.0, Duration.ofMillis(1),
+                Duration.ofHours(1))) {
+            rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener),
+                    MissingPlanPolicy.FAIL_FAST, null, loadShedder);
+            when(planRegistry.getPlan("gold")).thenReturn(Optional.of(config));
+            when(repository.tryAcquire(key, List.of(config), 1)).thenAnswer(invocation -> {
+                Thread.sleep(5);
+                return RateLimitResult.allow(9.0);
+            });
+
+            rateLimiter.allow(key, List.of("gold"), 1);
+            loadShedder.sample();
+
+            // 5ms against a 1ms target is full latency pressure; the first sample moves halfway.
+            assertThat(loadShedder.pressure()).isEqualTo(0.5);
+        }
+    }
+
+    @Test
+    @DisplayName("Should evaluate a fair-share limit through the fair-share repository and notify listeners")
+    void shouldNotifyOnFairShare() {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener), MissingPlanPolicy.FAIL_FAST);
+        FairShareLimit limit = new FairShareLimit("api", 100, 10.0, 2, 4);
+        FairSharePath path = FairSharePath.of("acme", key);
+        RateLimitResult denied = RateLimitResult.deny(-50.0, 100, "RATE_LIMITED");
+        when(fairShareRepository.tryAcquireFairShare(limit, path, 1)).thenReturn(denied);
+
+        RateLimitResult result = rateLimiter.fairShare(fairShareRepository).allowFairShare(limit, path, 1);
+
+        assertThat(result).isEqualTo(denied);
+        verify(listener).onDeny(key, List.of("api"), denied);
+    }
+
+    @Test
+    @DisplayName("Should FAIL OPEN when the fair-share repository fails")
+    void shouldFailOpenOnFairShareFailure() {
+        rateLimiter = new DefaultRateLimiter(repository, planRegistry, List.of(listener), MissingPlanPolicy.FAIL_FAST);
+        FairShareLimit limit = new FairShareLimit("api", 100, 10.0, 2, 4);
+        when(fairShareRepository.tryAcquireFairShare(any(), any(), anyInt()))
+                .thenThrow(new RuntimeException("Redis timeout"));
+
+        RateLimitResult result = rateLimiter.fairShare(fairShareRepository)
+                .allowFairShare(limit, FairSharePath.of("acme", key), 1);
+
+        assertThat(result.allowed()).isTrue();
+        verify(listener).onFailOpen(eq(key), contains("Redis timeout"));
+    }
+}
@@ -0,0 +1,207 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.port.NodeRegistry;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ApportionedRateLimiterRepositoryTest {
+
+    private static final Duration INTERVAL = Duration.ofMillis(100);
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final InMemoryNodeRegistry registry = new InMemoryNodeRegistry(now::get);
+    private final RateLimiterRepository store = mock(RateLimiterRepository.class);
+    private final RateLimitConfig partner = new RateLimitConfig("partner", 100, 1_000.0);
+
+    @Test
+    @DisplayName("Should decide a lone node's plan locally against the whole plan")
+    void shouldGiveLoneNodeWholePlan() {
+        ApportionedRateLimiterRepository node = node("a");
+
+        // GIVEN: no share before the first round
+        assertThat(node.tryAcquire("global", List.of(partner), 1).allowed()).isFalse();
+
+        // WHEN
+        node.rebalance();
+
+        // THEN
+        assertThat(node.share("partner")).isEqualTo(1.0);
+        for (int i = 0; i < 100; i++) {
+            assertThat(node.tryAcquire("global", List.of(partner), 1).allowed()).isTrue();
+        }
+        assertThat(node.tryAcquire("global", List.of(partner), 1).allowed()).isFalse();
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    @DisplayName("Should pass requests with a plan that is not apportioned to the delegate")
+    void shouldPassThroughOtherPlans() {
+        ApportionedRateLimiterRepository node = node("a");
+        RateLimitConfig user = new RateLimitConfig("user", 10, 1.0);
+
+        node.tryAcquire("user_1", List.of(partner, user), 1);
+
+        verify(store).tryAcquire("user_1", List.of(partner, user), 1);
+    }
+
+    @Test
+    @DisplayName("Should apportion the plan in proportion to demand without exceeding it in any round")
+    void shouldFollowDemand() {
+        ApportionedRateLimiterRepository busy = node("busy");
+        ApportionedRateLimiterRepository quiet = node("quiet");
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 90; i++) {
+                busy.tryAcquire("global", List.of(partner), 1);
+            }
+            for (int i = 0; i < 10; i++) {
+                quiet.tryAcquire("global", List.of(partner), 1);
+            }
+            now.addAndGet(INTERVAL.toMillis() / 2);
+            busy.rebalance();
+            now.addAndGet(INTERVAL.toMillis() / 2);
+            quiet.rebalance();
+            assertThat(quiet.aggregateShare("partner")).isLessThanOrEqualTo(1.0 + 1e-9);
+        }
+
+        // 0.1 split evenly, 0.9 by demand
+        assertThat(busy.share("partner")).isCloseTo(0.86, offset(0.01));
+        assertThat(quiet.share("partner")).isCloseTo(0.14, offset(0.01));
+    }
+
+    @Test
+    @DisplayName("Should keep over-admission within H x r x T while nodes join and leave")
+    void shouldBoundOvershootOnMembershipChanges() {
+        List<ApportionedRateLimiterRepository> nodes = new ArrayList<>(List.of(node("a"), node("b")));
+        long start = now.get();
+        long admitted = 0;
+        double worstAggregate = 0;
+
+        for (int ms = 0; ms < 6_000; ms++) {
+            if (ms == 2_000) {
+                nodes.add(node("c"));
+            }
+            if (ms == 4_000) {
+                // "b" stops without a word; its heartbeat expires after three intervals.
+                nodes.remove(1);
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                if ((ms + i * 30) % INTERVAL.toMillis() == 0) {
+                    nodes.get(i).rebalance();
+                    worstAggregate = Math.max(worstAggregate, nodes.get(i).aggregateShare("partner"));
+                }
+                admitted += nodes.get(i).tryAcquire("global", List.of(partner), 1).allowed() ? 1 : 0;
+            }
+            now.incrementAndGet();
+        }
+
+        long allowance = partner.capacity() + (long) (partner.tokensPerSecond() * (now.get() - start) / 1000.0);
+        double departedShare = 1.0 / 3;
+        assertThat(worstAggregate).isLessThanOrEqualTo(1.0 + departedShare);
+        assertThat(admitted).isLessThanOrEqualTo(
+                allowance + (long) (departedShare * partner.tokensPerSecond() * INTERVAL.toMillis() / 1000.0));
+        assertThat(admitted).isGreaterThan((long) (allowance * 0.8));
+        assertThat(nodes).allSatisfy(node -> assertThat(node.aggregateShare("partner")).isLessThanOrEqualTo(1.0 + 1e-9));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the even part once the registry has been unreachable for the heartbeat TTL")
+    void shouldRetreatWhenPartitioned() {
+        FlakyRegistry flaky = new FlakyRegistry(registry);
+        ApportionedRateLimiterRepository alone = new ApportionedRateLimiterRepository("a", store, flaky,
+                Set.of("partner"), INTERVAL, now::get, false);
+        ApportionedRateLimiterRepository other = node("b");
+        alone.rebalance();
+        other.rebalance();
+        alone.rebalance();
+        double before = alone.share("partner");
+
+        flaky.down = true;
+        now.addAndGet(INTERVAL.toMillis());
+        assertThatThrownBy(alone::rebalance).isInstanceOf(IllegalStateException.class);
+        assertThat(alone.share("partner")).isEqualTo(before);
+
+        now.addAndGet(INTERVAL.toMillis() * 3);
+        assertThatThrownBy(alone::rebalance).isInstanceOf(IllegalStateException.class);
+        assertThat(alone.share("partner")).isEqualTo(ApportionedRateLimiterRepository.EVEN_FRACTION / 2);
+    }
+
+    @Test
+    @DisplayName("Should apply the floor to the node's share of the plan")
+    void shouldApplyFloorToShare() {
+        ApportionedRateLimiterRepository node = node("a");
+        node.rebalance();
+
+        int admitted = 0;
+        while (node.tryAcquireAbove("global", List.of(partner), 1, 0.5).allowed()) {
+            admitted++;
+        }
+
+        assertThat(admitted).isEqualTo(50);
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    @DisplayName("Should evict local buckets once they are full again")
+    void shouldEvictIdleLocalBuckets() {
+        ApportionedRateLimiterRepository node = node("a");
+        node.rebalance();
+        node.tryAcquire("global", List.of(partner), 10);
+        node.evictor().advance();
+        assertThat(node.localSize()).isEqualTo(1);
+
+        // 10 tokens at 1,000 per second are back after 10ms; the wheel ticks every interval.
+        now.addAndGet(INTERVAL.toMillis());
+        node.evictor().advance();
+
+        assertThat(node.localSize()).isZero();
+    }
+
+    private ApportionedRateLimiterRepository node(String nodeId) {
+        return new ApportionedRateLimiterRepository(nodeId, store, registry, Set.of("partner"), INTERVAL, now::get,
+                false);
+    }
+
+    /** Registry that fails every call while {@code down}. */
+    private static final class FlakyRegistry implements NodeRegistry {
+        private final NodeRegistry delegate;
+        volatile boolean down;
+
+        FlakyRegistry(NodeRegistry delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void publish(String nodeId, Map<String, NodeShare> plans, Duration ttl) {
+            if (down) {
+                throw new IllegalStateException("Registry unreachable");
+            }
+            delegate.publish(nodeId, plans, ttl);
+        }
+
+        @Override
+        public Map<String, Map<String, NodeShare>> liveNodes() {
+            if (down) {
+                throw new IllegalStateException("Registry unreachable");
+            }
+            return delegate.liveNodes();
+        }
+    }
+}
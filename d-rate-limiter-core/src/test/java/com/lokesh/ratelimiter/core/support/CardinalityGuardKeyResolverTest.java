@@ -0,0 +1,100 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.port.RequestSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardinalityGuardKeyResolverTest {
+
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    private final AtomicLong now = new AtomicLong(Duration.ofDays(20_000).toMillis());
+    private final InMemoryCardinalityStore store = new InMemoryCardinalityStore();
+
+    @Test
+    @DisplayName("Should collapse a rotating client's new keys into the overflow key once one node used the budget")
+    void shouldBoundKeysOfOneNode() {
+        CardinalityGuardKeyResolver guard = guard();
+
+        for (int i = 0; i < 100; i++) {
+            String key = guard.resolve(request("acme", "rotating_" + i));
+            assertThat(key).isEqualTo(i < 10 ? "rotating_" + i : CardinalityGuardKeyResolver.overflowKey("acme"));
+        }
+
+        // Keys admitted before keep their own bucket; other tenants are unaffected.
+        assertThat(guard.resolve(request("acme", "rotating_3"))).isEqualTo("rotating_3");
+        assertThat(guard.resolve(request("globex", "rotating_50"))).isEqualTo("rotating_50");
+    }
+
+    @Test
+    @DisplayName("Should learn from the store when nodes together used the budget")
+    void shouldShareEstimatesAcrossNodes() {
+        CardinalityGuardKeyResolver a = guard();
+        CardinalityGuardKeyResolver b = guard();
+        for (int i = 0; i < 6; i++) {
+            a.resolve(request("acme", "a_" + i));
+            b.resolve(request("acme", "b_" + i));
+        }
+
+        // GIVEN: each node is below the budget on its own
+        assertThat(a.resolve(request("acme", "a_new"))).isEqualTo("a_new");
+
+        // WHEN
+        a.flush();
+        b.flush();
+        a.flush();
+
+        // THEN
+        assertThat(a.estimate("acme")).hasValue(13);
+        assertThat(a.resolve(request("acme", "a_newer"))).isEqualTo(CardinalityGuardKeyResolver.overflowKey("acme"));
+        assertThat(b.resolve(request("acme", "b_new"))).isEqualTo(CardinalityGuardKeyResolver.overflowKey("acme"));
+        assertThat(b.resolve(request("acme", "b_0"))).isEqualTo("b_0");
+    }
+
+    @Test
+    @DisplayName("Should restart counting in a new window")
+    void shouldResetEveryWindow() {
+        CardinalityGuardKeyResolver guard = guard();
+        for (int i = 0; i < 20; i++) {
+            guard.resolve(request("acme", "old_" + i));
+        }
+        guard.flush();
+
+        now.addAndGet(WINDOW.toMillis());
+        guard.flush();
+
+        assertThat(guard.estimate("acme")).isEmpty();
+        assertThat(guard.resolve(request("acme", "fresh"))).isEqualTo("fresh");
+    }
+
+    private CardinalityGuardKeyResolver guard() {
+        return new CardinalityGuardKeyResolver(new HeaderKeyResolver("X-API-KEY"), new HeaderKeyResolver("X-TENANT"),
+                store, 10, WINDOW, Duration.ofSeconds(1), now::get, false);
+    }
+
+    private static RequestSource request(String tenant, String apiKey) {
+        Map<String, String> headers = Map.of("X-TENANT", tenant, "X-API-KEY", apiKey);
+        return new RequestSource() {
+            @Override
+            public String getRemoteAddress() {
+                return "10.0.0.1";
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return headers.get(name);
+            }
+
+            @Override
+            public String getPrincipalName() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingRateLimiterRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final RateLimitConfig perSecond = new RateLimitConfig("sec", 5, 1.0);
+
+    @Test
+    @DisplayName("Should send requests queued behind an in-flight call as one grant")
+    void shouldCoalesceQueuedRequests() throws Exception {
+        GatedRepository store = new GatedRepository(now);
+        CoalescingRateLimiterRepository repository = new CoalescingRateLimiterRepository(store);
+
+        // GIVEN: the first request is in flight
+        List<RateLimitResult> results = new CopyOnWriteArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        callers.add(start(() -> results.add(repository.tryAcquire("u1", List.of(perSecond), 1))));
+        assertThat(store.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // WHEN: nine more arrive and it returns
+        for (int i = 0; i < 9; i++) {
+            callers.add(start(() -> results.add(repository.tryAcquire("u1", List.of(perSecond), 1))));
+        }
+        awaitParked(callers);
+        store.gate.countDown();
+        for (Thread caller : callers) {
+            caller.join(5_000);
+        }
+
+        // THEN: the nine share one call and get what sequential requests would
+        assertThat(store.repeatedCalls).containsExactly(9);
+        assertThat(results).filteredOn(RateLimitResult::allowed)
+                .extracting(RateLimitResult::remainingTokens)
+                .containsExactlyInAnyOrder(4.0, 3.0, 2.0, 1.0, 0.0);
+        assertThat(results).filteredOn(result -> !result.allowed())
+                .hasSize(5)
+                .allSatisfy(result -> assertThat(result.waitMillis()).isEqualTo(1_000));
+    }
+
+    @Test
+    @DisplayName("Should call the store directly when nothing is in flight")
+    void shouldPassThroughSequentialRequests() {
+        GatedRepository store = new GatedRepository(now);
+        store.gate.countDown();
+        CoalescingRateLimiterRepository repository = new CoalescingRateLimiterRepository(store);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(repository.tryAcquire("u1", List.of(perSecond), 2).allowed()).isEqualTo(i < 2);
+        }
+        assertThat(store.repeatedCalls).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rethrow a store failure to every request of the failed call")
+    void shouldPropagateFailure() throws Exception {
+        GatedRepository store = new GatedRepository(now);
+        store.failure = new IllegalStateException("Redis down");
+        CoalescingRateLimiterRepository repository = new CoalescingRateLimiterRepository(store);
+
+        CompletableFuture<RateLimitResult> first =
+                CompletableFuture.supplyAsync(() -> repository.tryAcquire("u1", List.of(perSecond), 1));
+        assertThat(store.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        store.gate.countDown();
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> repository.tryAcquire("u1", List.of(perSecond), 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Redis down");
+    }
+
+    @Test
+    @DisplayName("Should hand an Error to its caller and still run the batch queued behind it")
+    void shouldNotStrandWaitersOnError() throws Exception {
+        GatedRepository store = new GatedRepository(now);
+        store.error = new StackOverflowError("deep");
+        CoalescingRateLimiterRepository repository = new CoalescingRateLimiterRepository(store);
+
+        CompletableFuture<RateLimitResult> first =
+                CompletableFuture.supplyAsync(() -> repository.tryAcquire("u1", List.of(perSecond), 1));
+        assertThat(store.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<RateLimitResult> results = new CopyOnWriteArrayList<>();
+        List<Thread> queued = new ArrayList<>();
+        queued.add(Thread.currentThread());
+        for (int i = 0; i < 3; i++) {
+            queued.add(start(() -> results.add(repository.tryAcquire("u1", List.of(perSecond), 1))));
+        }
+        awaitParked(queued);
+        store.gate.countDown();
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(StackOverflowError.class);
+        for (Thread caller : queued.subList(1, queued.size())) {
+            caller.join(5_000);
+            assertThat(caller.isAlive()).isFalse();
+        }
+        assertThat(results).hasSize(3).allMatch(RateLimitResult::allowed);
+    }
+
+    @Test
+    @DisplayName("Should coalesce requests with a floor and keep the floor for the whole grant")
+    void shouldCoalesceAboveFloor() {
+        GatedRepository store = new GatedRepository(now);
+        store.gate.countDown();
+        CoalescingRateLimiterRepository repository = new CoalescingRateLimiterRepository(store);
+
+        List<RateLimitResult> results = repository.tryAcquireRepeatedAbove("u1", List.of(perSecond), 1, 5, 0.4);
+
+        // 2 of the 5 tokens are reserved for higher priority classes.
+        assertThat(results).filteredOn(RateLimitResult::allowed).hasSize(3);
+        assertThat(repository.tryAcquireAbove("u1", List.of(perSecond), 1, 0.4).allowed()).isFalse();
+        assertThat(repository.tryAcquire("u1", List.of(perSecond), 1).allowed()).isTrue();
+    }
+
+    private static Thread start(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    /** Waits until every caller but the first is parked on its batch's result. */
+    private static void awaitParked(List<Thread> callers) throws InterruptedException {
+        for (Thread caller : callers.subList(1, callers.size())) {
+            while (!awaitsResult(caller)) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private static boolean awaitsResult(Thread caller) {
+        if (caller.getState() != Thread.State.WAITING) {
+            return false;
+        }
+        for (StackTraceElement frame : caller.getStackTrace()) {
+            if (frame.getClassName().equals(CompletableFuture.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** In-memory store whose single acquires block until the gate opens. */
+    private static final class GatedRepository extends InMemoryRateLimiterRepository {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<Integer> repeatedCalls = new CopyOnWriteArrayList<>();
+        volatile RuntimeException failure;
+        /** Thrown by the next single acquire only. */
+        volatile Error error;
+
+        GatedRepository(AtomicLong now) {
+            super(now::get);
+        }
+
+        @Override
+        public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            Error once = error;
+            if (once != null) {
+                error = null;
+                throw once;
+            }
+            return super.tryAcquire(key, configs, tokensToConsume);
+        }
+
+        @Override
+        public List<RateLimitResult> tryAcquireRepeated(String key, List<RateLimitConfig> configs,
+                int tokensPerRequest, int requests) {
+            repeatedCalls.add(requests);
+            return super.tryAcquireRepeated(key, configs, tokensPerRequest, requests);
+        }
+    }
+}
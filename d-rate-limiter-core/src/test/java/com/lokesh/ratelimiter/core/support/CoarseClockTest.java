@@ -0,0 +1,35 @@
+package com.lokesh.ratelimiter.core.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoarseClockTest {
+
+    @Test
+    @DisplayName("Should serve the cached time until the ticker refreshes it, and stop refreshing on close")
+    void shouldCacheSourceTime() throws InterruptedException {
+        ManualClock source = new ManualClock(1_000_000L);
+        CoarseClock clock = CoarseClock.start(source, Duration.ofMillis(1));
+        assertThat(clock.millis()).isEqualTo(1_000_000L);
+
+        // WHEN
+        source.advance(Duration.ofNanos(2_500_000));
+
+        // THEN
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (clock.micros() != 1_000_002_500L && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(clock.micros()).isEqualTo(1_000_002_500L);
+        assertThat(clock.millis()).isEqualTo(1_000_002L);
+
+        clock.close();
+        source.advance(Duration.ofSeconds(1));
+        Thread.sleep(20);
+        assertThat(clock.millis()).isEqualTo(1_000_002L);
+    }
+}
@@ -0,0 +1,101 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ConsumptionResult;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarBucketStoreTest {
+
+    private static final List<RateLimitConfig> PLANS = List.of(
+            new RateLimitConfig("free", 5, 0.5),
+            new RateLimitConfig("gold", 100, 33.3),
+            new RateLimitConfig("burst", 1_000, 7_919.0));
+
+    @ParameterizedTest(name = "vectorized={0}")
+    @MethodSource("paths")
+    @DisplayName("Should decide every batch exactly as TokenBucket does, including clock steps backwards")
+    void shouldMatchTokenBucket(boolean vectorized) {
+        // GIVEN
+        Random random = new Random(46);
+        ColumnarBucketStore store = new ColumnarBucketStore(64, vectorized);
+        long now = 1_000_000L;
+        int[] slots = new int[64];
+        TokenBucket[] expected = new TokenBucket[64];
+        for (int i = 0; i < 64; i++) {
+            slots[i] = store.slot("user_" + i, plan(i), now);
+            expected[slots[i]] = new TokenBucket(plan(i).capacity(), now);
+        }
+
+        for (int round = 0; round < 500; round++) {
+            // WHEN: a batch of random keys, repeated ones in every fifth round
+            now += random.nextInt(400) - 50;
+            int count = 1 + random.nextInt(40);
+            int[] batch = new int[count];
+            int[] costs = new int[count];
+            for (int i = 0; i < count; i++) {
+                batch[i] = slots[round % 5 == 0 ? random.nextInt(64) : (round * 7 + i) % 64];
+                costs[i] = 1 + random.nextInt(8);
+            }
+            boolean[] allowed = new boolean[count];
+            int admitted = store.tryConsume(batch, costs, count, now, allowed);
+
+            // THEN
+            int expectedAdmitted = 0;
+            for (int i = 0; i < count; i++) {
+                ConsumptionResult result = expected[batch[i]].tryConsume(now, costs[i], plan(batch[i]));
+                expected[batch[i]] = result.updatedBucket();
+                expectedAdmitted += result.allowed() ? 1 : 0;
+                assertThat(allowed[i]).as("round %d request %d", round, i).isEqualTo(result.allowed());
+            }
+            assertThat(admitted).isEqualTo(expectedAdmitted);
+        }
+        for (int slot = 0; slot < 64; slot++) {
+            assertThat(store.get(slot)).isEqualTo(expected[slot]);
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply requests for the same bucket in order within one batch")
+    void shouldApplyRepeatedSlotsInOrder() {
+        ColumnarBucketStore store = new ColumnarBucketStore(8);
+        int slot = store.slot("user_1", PLANS.get(0), 0L);
+
+        boolean[] allowed = new boolean[8];
+        int admitted = store.tryConsume(new int[] { slot, slot, slot, slot, slot, slot, slot, slot },
+                new int[] { 1, 1, 1, 1, 1, 1, 1, 1 }, 8, 0L, allowed);
+
+        assertThat(admitted).isEqualTo(5);
+        assertThat(allowed).containsExactly(true, true, true, true, true, false, false, false);
+    }
+
+    @Test
+    @DisplayName("Should refuse new keys when full and slots that were never assigned")
+    void shouldRejectWhenFull() {
+        ColumnarBucketStore store = new ColumnarBucketStore(1);
+        store.slot("user_1", PLANS.get(0), 0L);
+
+        assertThat(store.slot("user_1", PLANS.get(0), 0L)).isZero();
+        assertThatThrownBy(() -> store.slot("user_2", PLANS.get(0), 0L)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> store.tryConsume(new int[] { 1 }, new int[] { 1 }, 1, 0L, new boolean[1]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** The vectorized path is only built with {@code -Pvector}. */
+    static List<Boolean> paths() {
+        return ColumnarBucketStore.vectorAvailable() ? List.of(false, true) : List.of(false);
+    }
+
+    private static RateLimitConfig plan(int slot) {
+        return PLANS.get(slot % PLANS.size());
+    }
+}
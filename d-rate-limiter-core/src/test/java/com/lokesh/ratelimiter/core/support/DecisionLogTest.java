@@ -0,0 +1,201 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.support.DecisionLog.Outcome;
+import com.lokesh.ratelimiter.core.support.DecisionLogReader.Decision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DecisionLogTest {
+
+    /** One chunk per segment: 2048 records. */
+    private static final long SMALL_SEGMENT = DecisionLog.HEADER_BYTES + DecisionLog.CHUNK_BYTES;
+    private static final int RECORDS_PER_SEGMENT = DecisionLog.CHUNK_BYTES / DecisionLog.RECORD_BYTES;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    @DisplayName("Should read back every decision with its outcome, plans and metadata")
+    void shouldRoundTripDecisions(@TempDir Path dir) throws Exception {
+        // GIVEN
+        try (DecisionLog log = DecisionLog.open(dir, DecisionLog.DEFAULT_SEGMENT_BYTES, 4, now::get)) {
+            // WHEN
+            log.onAllow("alice", List.of("gold"), RateLimitResult.allow(9));
+            now.incrementAndGet();
+            log.onAllow("alice", List.of("gold"), RateLimitResult.reserved(-2, 150));
+            log.onDeny("bob", List.of("gold", "per-ip", "global", "tenant"), RateLimitResult.deny(0, 250, "LIMIT"));
+            log.onDeny("carol", List.of("gold"), RateLimitResult.deny(3, 0, LoadShedder.DENY_REASON));
+            log.onDeny("dave", List.of("gold"), RateLimitResult.deny(0, 10_000, PenaltyBox.DENY_REASON));
+            log.onFailOpen("erin", "Redis timeout");
+        }
+
+        // THEN
+        List<Decision> decisions = readAll(dir);
+        assertThat(decisions).extracting(Decision::outcome).containsExactly(Outcome.ALLOWED, Outcome.RESERVED,
+                Outcome.DENIED, Outcome.SHED, Outcome.BANNED, Outcome.FAIL_OPEN);
+
+        Decision first = decisions.get(0);
+        assertThat(first.timestampMillis()).isEqualTo(1_000_000L);
+        assertThat(first.keyHash()).isEqualTo(DecisionLog.keyHash("alice"));
+        assertThat(first.plans()).containsExactly("gold");
+        assertThat(first.remainingTokens()).isEqualTo(9f);
+
+        Decision chained = decisions.get(2);
+        assertThat(chained.timestampMillis()).isEqualTo(1_000_001L);
+        assertThat(chained.plans()).containsExactly("gold", "per-ip", "global");
+        assertThat(chained.planCount()).isEqualTo(4);
+        assertThat(chained.waitMillis()).isEqualTo(250);
+
+        assertThat(decisions.get(5).plans()).isEmpty();
+        assertThat(decisions.get(5).remainingTokens()).isEqualTo(-1f);
+    }
+
+    @Test
+    @DisplayName("Should rotate full segments and delete the oldest beyond the retention")
+    void shouldRotateAndRetainSegments(@TempDir Path dir) throws Exception {
+        DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 2, now::get);
+
+        // WHEN: three full segments and ten records in a fourth
+        for (int i = 0; i < RECORDS_PER_SEGMENT * 3 + 10; i++) {
+            log.onAllow("key-" + i, List.of("gold"), RateLimitResult.allow(i));
+        }
+        log.close();
+
+        // THEN: only the last two segments are kept, and no unused pre-allocated one
+        DecisionLogReader reader = DecisionLogReader.open(dir);
+        assertThat(reader.segments()).extracting(DecisionLog::sequenceOf).containsExactly(3L, 4L);
+        List<Decision> decisions = readAll(dir);
+        assertThat(decisions).hasSize(RECORDS_PER_SEGMENT + 10);
+        assertThat(decisions.get(0).keyHash()).isEqualTo(DecisionLog.keyHash("key-" + RECORDS_PER_SEGMENT * 2));
+        assertThat(log.dropped()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should pre-allocate the next segment in the background and swap it in on rotation")
+    void shouldPreallocateNextSegment(@TempDir Path dir) throws Exception {
+        try (DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 4, now::get)) {
+            // GIVEN: the housekeeping thread has created segment 2 ahead of time
+            awaitSegments(dir, 1L, 2L);
+
+            // WHEN: segment 1 fills up
+            for (int i = 0; i < RECORDS_PER_SEGMENT + 1; i++) {
+                log.onAllow("key-" + i, List.of("gold"), RateLimitResult.allow(i));
+            }
+
+            // THEN: the last record went to segment 2, and segment 3 is prepared in turn
+            awaitSegments(dir, 1L, 2L, 3L);
+            assertThat(readAll(dir)).hasSize(RECORDS_PER_SEGMENT + 1);
+        }
+        assertThat(DecisionLogReader.open(dir).segments()).extracting(DecisionLog::sequenceOf)
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should continue the segment sequence and plan ids of an existing directory")
+    void shouldResumeExistingLog(@TempDir Path dir) throws Exception {
+        // GIVEN
+        try (DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 4, now::get)) {
+            log.onAllow("alice", List.of("gold"), RateLimitResult.allow(1));
+        }
+
+        // WHEN
+        try (DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 4, now::get)) {
+            log.onAllow("alice", List.of("silver", "gold"), RateLimitResult.allow(1));
+        }
+
+        // THEN
+        assertThat(DecisionLogReader.open(dir).segments()).extracting(DecisionLog::sequenceOf)
+                .containsExactly(1L, 2L);
+        assertThat(DecisionLogReader.readPlans(dir)).containsOnlyKeys(1, 2);
+        assertThat(readAll(dir)).extracting(Decision::plans)
+                .containsExactly(List.of("gold"), List.of("silver", "gold"));
+    }
+
+    @Test
+    @DisplayName("Should assign new plan ids above the highest one in a dictionary with gaps")
+    void shouldSkipPastGapsInPlanIds(@TempDir Path dir) throws Exception {
+        // GIVEN: id 2 was taken but never written
+        Files.writeString(dir.resolve(DecisionLog.PLANS_FILE), "1\tgold\n3\tsilver\n");
+
+        // WHEN
+        try (DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 4, now::get)) {
+            log.onAllow("alice", List.of("bronze", "silver"), RateLimitResult.allow(1));
+        }
+
+        // THEN
+        assertThat(DecisionLogReader.readPlans(dir)).containsOnly(
+                Map.entry(1, "gold"), Map.entry(3, "silver"), Map.entry(4, "bronze"));
+        assertThat(readAll(dir)).extracting(Decision::plans).containsExactly(List.of("bronze", "silver"));
+    }
+
+    @Test
+    @DisplayName("Should keep every decision written concurrently from many threads")
+    void shouldRecordConcurrentDecisions(@TempDir Path dir) throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        try (DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT * 4, 64, now::get)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        log.onAllow("key", List.of("gold"), RateLimitResult.allow(1));
+                    }
+                });
+            }
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(DecisionLogReader.open(dir).read(decision -> {
+        })).isEqualTo((long) threads * perThread);
+    }
+
+    @Test
+    @DisplayName("Should count decisions after close as dropped")
+    void shouldDropAfterClose(@TempDir Path dir) throws Exception {
+        DecisionLog log = DecisionLog.open(dir, SMALL_SEGMENT, 2, now::get);
+        log.close();
+
+        log.onAllow("alice", List.of("gold"), RateLimitResult.allow(1));
+
+        assertThat(log.dropped()).isEqualTo(1);
+        assertThat(readAll(dir)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject segments too small for one chunk")
+    void shouldValidateSegmentSize(@TempDir Path dir) {
+        assertThatThrownBy(() -> DecisionLog.open(dir, DecisionLog.CHUNK_BYTES, 2, now::get))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Segment size");
+    }
+
+    private static void awaitSegments(Path dir, Long... sequences) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!DecisionLog.segments(dir).stream().map(DecisionLog::sequenceOf).toList().equals(List.of(sequences))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(DecisionLog.segments(dir)).extracting(DecisionLog::sequenceOf).containsExactly(sequences);
+    }
+
+    private static List<Decision> readAll(Path dir) throws Exception {
+        List<Decision> decisions = new ArrayList<>();
+        DecisionLogReader.open(dir).read(decisions::add);
+        return decisions;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdleBucketEvictorTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final RateLimitConfig perSecond = new RateLimitConfig("sec", 10, 1.0);
+
+    @Test
+    @DisplayName("Should evict a bucket once it has refilled to capacity")
+    void shouldEvictFullBucket() {
+        InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+        IdleBucketEvictor<String> evictor = evictor(repository);
+
+        // GIVEN a bucket missing 4 tokens, i.e. full again in 4s
+        repository.tryAcquire("u1", List.of(perSecond), 4);
+        evictor.advance();
+
+        // WHEN the clock passes its refill time
+        now.addAndGet(3_900);
+        evictor.advance();
+        assertThat(repository.size()).isEqualTo(1);
+        now.addAndGet(200);
+        evictor.advance();
+
+        // THEN it is gone and no timer remains
+        assertThat(repository.size()).isZero();
+        assertThat(evictor.tracked()).isZero();
+        assertThat(evictor.evicted()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should re-arm the timer of a bucket touched since it was scheduled")
+    void shouldRescheduleTouchedBucket() {
+        InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+        IdleBucketEvictor<String> evictor = evictor(repository);
+
+        repository.tryAcquire("u1", List.of(perSecond), 1);
+        evictor.advance();
+        now.addAndGet(900);
+        repository.tryAcquire("u1", List.of(perSecond), 5);
+
+        now.addAndGet(200);
+        evictor.advance();
+        assertThat(repository.size()).isEqualTo(1);
+        assertThat(evictor.tracked()).isEqualTo(1);
+
+        now.addAndGet(5_000);
+        evictor.advance();
+        assertThat(repository.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should cascade timers far beyond the first wheel level")
+    void shouldEvictAfterCascade() {
+        InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+        IdleBucketEvictor<String> evictor = evictor(repository);
+        RateLimitConfig perDay = new RateLimitConfig("day", 100, 100 / 86_400.0);
+
+        repository.tryAcquire("u1", List.of(perDay), 1);
+        evictor.advance();
+
+        now.addAndGet(800_000);
+        evictor.advance();
+        assertThat(repository.size()).isEqualTo(1);
+
+        now.addAndGet(100_000);
+        evictor.advance();
+        assertThat(repository.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep a bucket whose capacity grew until it is full under the new capacity")
+    void shouldKeepBucketUntilFullUnderCurrentConfig() {
+        InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+        IdleBucketEvictor<String> evictor = evictor(repository);
+        RateLimitConfig grown = new RateLimitConfig("sec", 20, 1.0);
+
+        // GIVEN: tracked at capacity 10, then drained under capacity 20
+        repository.tryAcquire("u1", List.of(perSecond), 1);
+        evictor.advance();
+        repository.tryAcquire("u1", List.of(grown), 9);
+
+        // WHEN: full under the old capacity only
+        now.addAndGet(10_000);
+        evictor.advance();
+        assertThat(repository.size()).isEqualTo(1);
+
+        // THEN: dropped once it holds 20 tokens
+        now.addAndGet(10_000);
+        evictor.advance();
+        assertThat(repository.size()).isZero();
+    }
+
+    private IdleBucketEvictor<String> evictor(InMemoryRateLimiterRepository repository) {
+        IdleBucketEvictor<String> evictor =
+                new IdleBucketEvictor<>(repository.idleAccess(), now::get, Duration.ofMillis(100), false);
+        repository.useEvictor(evictor);
+        return evictor;
+    }
+}
@@ -0,0 +1,167 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ClockPrecision;
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Offset.offset;
+
+class InMemoryRateLimiterRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+
+    private final RateLimitConfig perSecond = new RateLimitConfig("sec", 10, 1.0);
+    private final RateLimitConfig perHour = new RateLimitConfig("hour", 2, 0.001);
+
+    @Test
+    @DisplayName("Should deduct from every chained bucket, or from none when one denies")
+    void shouldApplyChainedLimitsAtomically() {
+        // GIVEN: two allowed requests drain the hourly bucket
+        assertThat(repository.tryAcquire("u1", List.of(perSecond, perHour), 1).allowed()).isTrue();
+        RateLimitResult second = repository.tryAcquire("u1", List.of(perSecond, perHour), 1);
+        assertThat(second.allowed()).isTrue();
+        assertThat(second.remainingTokens()).isZero();
+
+        // WHEN
+        RateLimitResult denied = repository.tryAcquire("u1", List.of(perSecond, perHour), 1);
+
+        // THEN: the per-second bucket did not pay for the denied request
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.waitMillis()).isEqualTo(1_000_000L);
+        assertThat(repository.getState(InMemoryRateLimiterRepository.bucketKey("u1", perSecond)))
+                .contains(new TokenBucket(8.0, now.get()));
+    }
+
+    @Test
+    @DisplayName("Should queue reservations behind each other and refund a cancelled one")
+    void shouldReserveInOrderAndRefund() {
+        repository.tryAcquire("u1", List.of(perSecond), 10);
+
+        RateLimitResult first = repository.tryReserve("u1", List.of(perSecond), 2, 5_000);
+        RateLimitResult second = repository.tryReserve("u1", List.of(perSecond), 2, 5_000);
+        RateLimitResult third = repository.tryReserve("u1", List.of(perSecond), 2, 5_000);
+
+        assertThat(first.reason()).isEqualTo("RESERVED");
+        assertThat(first.waitMillis()).isEqualTo(2_000L);
+        assertThat(second.waitMillis()).isEqualTo(4_000L);
+        assertThat(third.allowed()).isFalse();
+        assertThat(repository.tryAcquire("u1", List.of(perSecond), 1).allowed()).isFalse();
+
+        repository.refund("u1", List.of(perSecond), 2);
+        assertThat(repository.getState(InMemoryRateLimiterRepository.bucketKey("u1", perSecond)))
+                .contains(new TokenBucket(-2.0, now.get()));
+    }
+
+    @Test
+    @DisplayName("Should restore drained buckets after a restart, refilled for the downtime")
+    void shouldRestoreSnapshotWithDowntimeRefill(@TempDir Path dir) throws Exception {
+        // GIVEN: one drained bucket and one bucket that will be full again after the downtime
+        repository.tryAcquire("abuser", List.of(perHour), 2);
+        repository.tryAcquire("casual", List.of(perSecond), 1);
+        Path file = dir.resolve("buckets.snapshot");
+        assertThat(repository.snapshot(file)).isEqualTo(2);
+
+        // WHEN: the new instance starts 10 seconds later
+        now.addAndGet(10_000L);
+        InMemoryRateLimiterRepository restarted = new InMemoryRateLimiterRepository(now::get);
+        long restored = restarted.restore(file);
+
+        // THEN: the abuser's bucket is back (refilled by 10s * 0.001/s), the full one is dropped
+        assertThat(restored).isEqualTo(1);
+        assertThat(restarted.getState(InMemoryRateLimiterRepository.bucketKey("abuser", perHour)))
+                .hasValueSatisfying(bucket -> {
+                    assertThat(bucket.tokens()).isCloseTo(0.01, offset(1e-9));
+                    assertThat(bucket.lastRefillMillis()).isEqualTo(now.get());
+                });
+        assertThat(restarted.tryAcquire("abuser", List.of(perHour), 1).allowed()).isFalse();
+        assertThat(restarted.getState(InMemoryRateLimiterRepository.bucketKey("casual", perSecond))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should let a noisy user borrow idle capacity up to its tenant's ceiling")
+    void shouldApplyFairShareAlongPath() {
+        FairShareLimit limit = new FairShareLimit("api", 100, 10.0, 2, 4);
+        FairSharePath noisy = FairSharePath.of("acme", "noisy");
+
+        // GIVEN: the noisy user spends its share, its tenant's and the idle global capacity
+        int admitted = 0;
+        while (repository.tryAcquireFairShare(limit, noisy, 1).allowed()) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(100);
+        assertThat(repository.getState("ratelimiter:acme:noisy:api"))
+                .contains(new TokenBucket(-88.0, now.get()));
+        assertThat(repository.getState("ratelimiter:acme:*:api"))
+                .contains(new TokenBucket(-50.0, now.get()));
+
+        // THEN: its tenant owes its whole capacity, so the tenant's other users wait; other tenants are served
+        RateLimitResult sibling = repository.tryAcquireFairShare(limit, FairSharePath.of("acme", "polite"), 1);
+        assertThat(sibling.allowed()).isFalse();
+        assertThat(sibling.waitMillis()).isEqualTo(200L);
+        assertThat(repository.tryAcquireFairShare(limit, FairSharePath.of("beta", "polite"), 1).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not refill a token early when reading the clock in microseconds")
+    void shouldRefillWithMicrosecondPrecision() {
+        // GIVEN: 1,000 tokens per second with a burst of 1, drained late in a millisecond
+        ManualClock clock = new ManualClock(now.get());
+        InMemoryRateLimiterRepository micros = new InMemoryRateLimiterRepository(clock, ClockPrecision.MICROS);
+        InMemoryRateLimiterRepository millis = new InMemoryRateLimiterRepository(clock);
+        List<RateLimitConfig> plan = List.of(new RateLimitConfig("api", 1, 1_000.0));
+        clock.advance(Duration.ofNanos(900_000));
+        assertThat(micros.tryAcquire("user_1", plan, 1).allowed()).isTrue();
+        assertThat(millis.tryAcquire("user_1", plan, 1).allowed()).isTrue();
+
+        // WHEN: 100µs later the millisecond turns
+        clock.advance(Duration.ofNanos(100_000));
+
+        // THEN: only the millisecond clock sees a whole token
+        assertThat(micros.tryAcquire("user_1", plan, 1).allowed()).isFalse();
+        assertThat(millis.tryAcquire("user_1", plan, 1).allowed()).isTrue();
+        clock.advance(Duration.ofNanos(950_000));
+        assertThat(micros.tryAcquire("user_1", plan, 1).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should round-trip many buckets across mapped windows")
+    void shouldRoundTripManyBuckets(@TempDir Path dir) throws Exception {
+        for (int i = 0; i < 50_000; i++) {
+            repository.tryAcquire("user_" + i, List.of(perHour), 1);
+        }
+        Path file = dir.resolve("buckets.snapshot");
+        repository.snapshot(file);
+
+        InMemoryRateLimiterRepository restarted = new InMemoryRateLimiterRepository(now::get);
+
+        assertThat(restarted.restore(file)).isEqualTo(50_000);
+        assertThat(restarted.size()).isEqualTo(50_000);
+        assertThat(Files.exists(dir.resolve("buckets.snapshot.tmp"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not snapshots")
+    void shouldRejectForeignFiles(@TempDir Path dir) throws Exception {
+        Path file = Files.write(dir.resolve("garbage"), new byte[64]);
+
+        assertThatThrownBy(() -> repository.restore(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a rate limiter snapshot");
+    }
+}
@@ -0,0 +1,85 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.PriorityClass;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Offset.offset;
+
+class LoadShedderTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final InMemoryRateLimiterRepository repository = new InMemoryRateLimiterRepository(now::get);
+    private final List<RateLimitConfig> plan = List.of(new RateLimitConfig("api", 100, 0.001));
+
+    @Test
+    @DisplayName("Should leave each class's floor of the bucket to the classes above it")
+    void shouldReserveHeadroomPerClass() {
+        LoadShedder shedder = new LoadShedder(LoadShedder.DEFAULT_FLOORS);
+
+        // WHEN: every class drains the same bucket in turn, lowest first
+        assertThat(drain(shedder, PriorityClass.ANONYMOUS)).isEqualTo(50);
+        assertThat(drain(shedder, PriorityClass.BATCH)).isEqualTo(20);
+        assertThat(drain(shedder, PriorityClass.INTERACTIVE)).isEqualTo(20);
+
+        // THEN: critical traffic still finds the last 10%
+        assertThat(drain(shedder, PriorityClass.CRITICAL)).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should raise the floors of all but critical traffic as CPU and queue latency exceed their targets")
+    void shouldShedMoreUnderPressure() {
+        double[] cpu = { 0.5 };
+        LoadShedder shedder = new LoadShedder(LoadShedder.DEFAULT_FLOORS, 0.8, Duration.ofMillis(50),
+                Duration.ofSeconds(1), () -> cpu[0], false);
+        shedder.sample();
+        assertThat(shedder.pressure()).isZero();
+        assertThat(shedder.floor(PriorityClass.BATCH)).isEqualTo(0.3);
+
+        // WHEN: the queue latency reaches twice its target
+        for (int i = 0; i < 10; i++) {
+            shedder.recordQueueLatency(Duration.ofMillis(100).toNanos());
+        }
+        shedder.sample();
+
+        // THEN: halfway towards full pressure
+        assertThat(shedder.pressure()).isEqualTo(0.5);
+        assertThat(shedder.floor(PriorityClass.BATCH)).isCloseTo(0.65, offset(1e-9));
+        assertThat(shedder.floor(PriorityClass.CRITICAL)).isZero();
+
+        // The CPU saturates, then everything recovers
+        cpu[0] = 1.0;
+        shedder.sample();
+        assertThat(shedder.pressure()).isEqualTo(0.75);
+        cpu[0] = 0.2;
+        for (int i = 0; i < 10; i++) {
+            shedder.sample();
+        }
+        assertThat(shedder.pressure()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject floors out of range or lower than those of higher classes")
+    void shouldValidateFloors() {
+        assertThatThrownBy(() -> new LoadShedder(Map.of(PriorityClass.BATCH, 1.5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LoadShedder(Map.of(PriorityClass.ANONYMOUS, 0.2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int drain(LoadShedder shedder, PriorityClass priority) {
+        int allowed = 0;
+        while (repository.tryAcquireAbove("user_1", plan, 1, shedder.floor(priority)).allowed()) {
+            allowed++;
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,130 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapRateLimiterRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final OffHeapRateLimiterRepository repository =
+            new OffHeapRateLimiterRepository(new OffHeapBucketTable(1_000), now::get);
+
+    private final RateLimitConfig perSecond = new RateLimitConfig("sec", 10, 1.0);
+    private final RateLimitConfig perHour = new RateLimitConfig("hour", 2, 0.001);
+
+    @Test
+    @DisplayName("Should deduct from every chained bucket, or from none when one denies")
+    void shouldApplyChainedLimitsAtomically() {
+        assertThat(repository.tryAcquire("u1", List.of(perSecond, perHour), 1).allowed()).isTrue();
+        assertThat(repository.tryAcquire("u1", List.of(perSecond, perHour), 1).allowed()).isTrue();
+
+        RateLimitResult denied = repository.tryAcquire("u1", List.of(perSecond, perHour), 1);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.waitMillis()).isEqualTo(1_000_000L);
+        assertThat(repository.getState(InMemoryRateLimiterRepository.bucketKey("u1", perSecond)))
+                .contains(new TokenBucket(8.0, now.get()));
+    }
+
+    @Test
+    @DisplayName("Should never over-admit under concurrent updates of the same bucket")
+    void shouldNotOverAdmitConcurrently() throws Exception {
+        RateLimitConfig strict = new RateLimitConfig("strict", 1_000, 0.001);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        if (repository.tryAcquire("hot", List.of(strict, perHour), 1).allowed()) {
+                            admitted.incrementAndGet();
+                        }
+                        if (repository.tryAcquire("hot2", List.of(strict), 1).allowed()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // 2 from the chained "hot" key, 1000 from "hot2".
+        assertThat(admitted.get()).isEqualTo(1_002);
+    }
+
+    @Test
+    @DisplayName("Should reuse freed slots and fail once the table is full")
+    void shouldFailWhenFull() {
+        OffHeapRateLimiterRepository small = new OffHeapRateLimiterRepository(new OffHeapBucketTable(1), now::get);
+        long slots = small.table().capacity();
+        for (int i = 0; i < slots; i++) {
+            assertThat(small.tryAcquire("user_" + i, List.of(perSecond), 1).allowed()).isTrue();
+        }
+
+        assertThatThrownBy(() -> small.tryAcquire("one-too-many", List.of(perSecond), 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("full");
+
+        now.addAndGet(1_000);
+        assertThat(small.evictIdle()).isEqualTo(slots);
+        assertThat(small.tryAcquire("one-too-many", List.of(perSecond), 1).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should restore drained buckets from a slot snapshot, refilling on next access")
+    void shouldRestoreSnapshot(@TempDir Path dir) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            repository.tryAcquire("user_" + i, List.of(perHour), 2);
+        }
+        Path file = dir.resolve("slots.snapshot");
+        assertThat(repository.snapshot(file)).isEqualTo(500);
+
+        now.addAndGet(10_000L);
+        OffHeapRateLimiterRepository restarted =
+                new OffHeapRateLimiterRepository(new OffHeapBucketTable(1_000), now::get);
+        restarted.tryAcquire("user_0", List.of(perSecond), 1);
+
+        assertThat(restarted.restore(file)).isEqualTo(500);
+        assertThat(restarted.table().size()).isEqualTo(501);
+        assertThat(restarted.getState(InMemoryRateLimiterRepository.bucketKey("user_7", perHour)))
+                .contains(new TokenBucket(0.0, now.get() - 10_000L));
+        assertThat(restarted.tryAcquire("user_7", List.of(perHour), 1).allowed()).isFalse();
+        assertThatThrownBy(() -> new InMemoryRateLimiterRepository(now::get).restore(file))
+                .hasMessageContaining("Not a rate limiter snapshot");
+    }
+
+    @Test
+    @DisplayName("Should free slots in place once their buckets are full again")
+    void shouldSweepIdleBuckets() {
+        repository.tryAcquire("u1", List.of(perSecond), 2);
+        repository.tryAcquire("u1", List.of(perSecond), 2);
+        repository.tryAcquire("u2", List.of(perHour), 1);
+
+        now.addAndGet(3_999);
+        assertThat(repository.evictIdle()).isZero();
+
+        now.addAndGet(1);
+        assertThat(repository.evictIdle()).isEqualTo(1);
+        assertThat(repository.getState(InMemoryRateLimiterRepository.bucketKey("u1", perSecond))).isEmpty();
+        assertThat(repository.getState(InMemoryRateLimiterRepository.bucketKey("u2", perHour))).isPresent();
+        assertThat(repository.table().size()).isEqualTo(1);
+    }
+}
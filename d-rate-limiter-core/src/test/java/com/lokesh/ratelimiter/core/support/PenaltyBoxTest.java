@@ -0,0 +1,146 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.BanDelta;
+import com.lokesh.ratelimiter.core.model.PenaltyPolicy;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.PenaltyChannel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PenaltyBoxTest {
+
+    private static final Duration SYNC = Duration.ofMillis(100);
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final PenaltyPolicy policy = new PenaltyPolicy(3, Duration.ofSeconds(1), Duration.ofSeconds(10),
+            Duration.ofSeconds(40), 1_000);
+    private final RateLimitResult denied = RateLimitResult.deny(0, 100, "LIMIT_EXCEEDED");
+
+    @Test
+    @DisplayName("Should ban a key after repeated denials and double each further ban up to the maximum")
+    void shouldEscalateBans() {
+        PenaltyBox box = box(new TestChannel());
+
+        // GIVEN: two strikes are not enough
+        strike(box, "scraper", 2);
+        assertThat(box.check("scraper")).isEmpty();
+
+        // WHEN
+        strike(box, "scraper", 1);
+
+        // THEN: banned for 10s, ending with its partition
+        RateLimitResult result = box.check("scraper").orElseThrow();
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.reason()).isEqualTo(PenaltyBox.DENY_REASON);
+        assertThat(result.waitMillis()).isEqualTo(10_000);
+        assertThat(box.check("polite")).isEmpty();
+        assertThat(box.rejected()).isEqualTo(1);
+
+        assertThat(nextBan(box, "scraper")).isEqualTo(20_000);
+        assertThat(nextBan(box, "scraper")).isEqualTo(40_000);
+        assertThat(nextBan(box, "scraper")).isEqualTo(40_000);
+    }
+
+    @Test
+    @DisplayName("Should not ban for denials spread wider than the strike window")
+    void shouldForgetOldStrikes() {
+        PenaltyBox box = box(new TestChannel());
+
+        for (int i = 0; i < 10; i++) {
+            strike(box, "bursty", 1);
+            now.addAndGet(600);
+        }
+
+        assertThat(box.check("bursty")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should share bans with other nodes and keep unpublished bans when the channel fails")
+    void shouldShareBans() {
+        TestChannel channelA = new TestChannel();
+        TestChannel channelB = new TestChannel();
+        channelA.peer = channelB;
+        PenaltyBox a = box(channelA);
+        PenaltyBox b = box(channelB);
+        strike(a, "stuffer", 3);
+
+        // GIVEN: the first publish fails
+        channelA.down = true;
+        assertThatThrownBy(a::sync).isInstanceOf(IllegalStateException.class);
+        assertThat(b.check("stuffer")).isEmpty();
+
+        // WHEN
+        channelA.down = false;
+        a.sync();
+
+        // THEN
+        assertThat(b.check("stuffer")).isPresent();
+        assertThat(b.check("other")).isEmpty();
+        now.addAndGet(10_000);
+        assertThat(b.check("stuffer")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject few keys that were never banned at the expected load (statistical)")
+    void shouldKeepFalsePositivesLow() {
+        PenaltyBox box = box(new TestChannel());
+        for (int i = 0; i < policy.expectedBans(); i++) {
+            strike(box, "offender_" + i, 3);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            falsePositives += box.check("user_" + i).isPresent() ? 1 : 0;
+        }
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    /** Waits out the key's current ban, earns the next one and returns its length. */
+    private long nextBan(PenaltyBox box, String key) {
+        now.addAndGet(box.check(key).map(RateLimitResult::waitMillis).orElse(0L));
+        strike(box, key, 3);
+        return box.check(key).orElseThrow().waitMillis();
+    }
+
+    private void strike(PenaltyBox box, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            box.onDeny(key, List.of("user"), denied);
+        }
+    }
+
+    private PenaltyBox box(PenaltyChannel channel) {
+        return new PenaltyBox(policy, channel, SYNC, now::get, false);
+    }
+
+    /** Channel delivering synchronously to one peer, or failing while {@code down}. */
+    private static final class TestChannel implements PenaltyChannel {
+        private final List<Consumer<List<BanDelta>>> receivers = new ArrayList<>();
+        TestChannel peer;
+        boolean down;
+
+        @Override
+        public void publish(List<BanDelta> deltas) {
+            if (down) {
+                throw new IllegalStateException("Channel unreachable");
+            }
+            if (peer != null) {
+                peer.receivers.forEach(receiver -> receiver.accept(deltas));
+            }
+        }
+
+        @Override
+        public void subscribe(Consumer<List<BanDelta>> receiver) {
+            receivers.add(receiver);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+import com.lokesh.ratelimiter.core.model.QuotaPeriod;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuotaRateLimiterRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong(Instant.parse("2026-10-19T10:00:00Z").toEpochMilli());
+    private final RateLimitConfig monthly = RateLimitConfig.quota("monthly", 1_000, QuotaPeriod.MONTHLY);
+    private final CountingStore store = new CountingStore();
+    private final InMemoryRateLimiterRepository buckets = new InMemoryRateLimiterRepository(now::get);
+
+    @Test
+    @DisplayName("Should decide quota plans locally and write the increments behind in one batch")
+    void shouldWriteBehind() {
+        QuotaRateLimiterRepository repository = node(100);
+
+        // GIVEN
+        for (int i = 0; i < 50; i++) {
+            assertThat(repository.tryAcquire("user_1", List.of(monthly), 1).allowed()).isTrue();
+        }
+        assertThat(store.calls).isEmpty();
+
+        // WHEN
+        repository.flush();
+
+        // THEN
+        assertThat(store.calls).hasSize(1);
+        assertThat(store.total("ratelimiter:default:user_1:monthly:2026-10")).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Should charge a debit to the quota even past it and debit token-bucket plans in the delegate")
+    void shouldDebitQuotaAndBuckets() {
+        QuotaRateLimiterRepository repository = node(100);
+        RateLimitConfig perSecond = new RateLimitConfig("per_second", 10, 1.0);
+
+        // WHEN: tokens consumed elsewhere exceed both limits
+        repository.debit("user_1", List.of(monthly, perSecond), 1_200);
+
+        // THEN
+        assertThat(repository.remaining("user_1", monthly)).contains(-200L);
+        assertThat(buckets.getState(InMemoryRateLimiterRepository.bucketKey("user_1", perSecond)))
+                .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isEqualTo(-1_190.0));
+        assertThat(repository.tryAcquire("user_1", List.of(monthly), 1).allowed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should deny until the end of the window once the totals of all nodes reach the quota")
+    void shouldEnforceSharedTotal() {
+        QuotaRateLimiterRepository first = node(1_000);
+        QuotaRateLimiterRepository second = node(1_000);
+        for (int i = 0; i < 900; i++) {
+            first.tryAcquire("user_1", List.of(monthly), 1);
+        }
+        first.flush();
+        second.tryAcquire("user_1", List.of(monthly), 1);
+        second.flush();
+
+        // The second node now knows the first node's 900 calls
+        for (int i = 0; i < 99; i++) {
+            assertThat(second.tryAcquire("user_1", List.of(monthly), 1).allowed()).isTrue();
+        }
+        RateLimitResult denied = second.tryAcquire("user_1", List.of(monthly), 1);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.reason()).isEqualTo("QUOTA_EXCEEDED");
+        assertThat(denied.waitMillis())
+                .isEqualTo(Instant.parse("2026-11-01T00:00:00Z").toEpochMilli() - now.get());
+    }
+
+    @Test
+    @DisplayName("Should exceed the quota by at most N x slack tokens however the nodes interleave")
+    void shouldStayWithinSlack() {
+        int slack = 40;
+        List<QuotaRateLimiterRepository> nodes = List.of(node(slack), node(slack), node(slack));
+        long admitted = 0;
+
+        for (int i = 0; i < 5_000; i++) {
+            QuotaRateLimiterRepository node = nodes.get(i % 3);
+            admitted += node.tryAcquire("user_1", List.of(monthly), 1).allowed() ? 1 : 0;
+            if (i % 500 == 0) {
+                nodes.forEach(QuotaRateLimiterRepository::flush);
+            }
+        }
+        nodes.forEach(QuotaRateLimiterRepository::flush);
+
+        assertThat(admitted).isGreaterThanOrEqualTo(monthly.capacity());
+        assertThat(admitted).isLessThanOrEqualTo(monthly.capacity() + 3L * slack);
+        assertThat(store.total("ratelimiter:default:user_1:monthly:2026-10")).isEqualTo(admitted);
+        // Requests beyond the slack flushed on the request path; far fewer calls than requests.
+        assertThat((long) store.calls.size()).isLessThan(admitted / 10);
+    }
+
+    @Test
+    @DisplayName("Should start a fresh counter in the next window and drop the old one once flushed")
+    void shouldRollOverWindows() {
+        QuotaRateLimiterRepository repository = node(10_000);
+        for (int i = 0; i < 1_000; i++) {
+            repository.tryAcquire("user_1", List.of(monthly), 1);
+        }
+        assertThat(repository.tryAcquire("user_1", List.of(monthly), 1).allowed()).isFalse();
+
+        now.set(Instant.parse("2026-11-01T00:00:00Z").toEpochMilli());
+
+        assertThat(repository.tryAcquire("user_1", List.of(monthly), 1).allowed()).isTrue();
+        repository.flush();
+        assertThat(store.total("ratelimiter:default:user_1:monthly:2026-10")).isEqualTo(1_000);
+        assertThat(store.total("ratelimiter:default:user_1:monthly:2026-11")).isEqualTo(1);
+        int calls = store.calls.size();
+        repository.flush();
+        assertThat(store.calls).hasSize(calls);
+    }
+
+    @Test
+    @DisplayName("Should count a flush that timed out after it was applied only once")
+    void shouldRetryFlushIdempotently() {
+        QuotaRateLimiterRepository repository = node(100);
+        for (int i = 0; i < 30; i++) {
+            repository.tryAcquire("user_1", List.of(monthly), 1);
+        }
+        store.timeOut = true;
+        assertThatThrownBy(repository::flush).isInstanceOf(IllegalStateException.class);
+
+        repository.tryAcquire("user_1", List.of(monthly), 1);
+        repository.flush();
+
+        assertThat(store.total("ratelimiter:default:user_1:monthly:2026-10")).isEqualTo(31);
+        assertThat(repository.remaining("user_1", monthly)).contains(969L);
+    }
+
+    @Test
+    @DisplayName("Should not send counters that did not change since the last flush")
+    void shouldSkipIdleCounters() {
+        QuotaRateLimiterRepository repository = node(100);
+        repository.tryAcquire("user_1", List.of(monthly), 1);
+        repository.tryAcquire("user_2", List.of(monthly), 1);
+        repository.flush();
+
+        repository.tryAcquire("user_2", List.of(monthly), 1);
+        repository.flush();
+        repository.flush();
+
+        assertThat(store.calls).hasSize(2);
+        assertThat(store.calls.get(1)).extracting(QuotaContribution::key)
+                .containsExactly("ratelimiter:default:user_2:monthly:2026-10");
+    }
+
+    @Test
+    @DisplayName("Should give quota tokens back when a token-bucket plan of the same request denies")
+    void shouldGiveBackWhenBucketDenies() {
+        QuotaRateLimiterRepository repository = node(100);
+        RateLimitConfig perSecond = new RateLimitConfig("sec", 2, 1.0);
+
+        for (int i = 0; i < 5; i++) {
+            repository.tryAcquire("user_1", List.of(monthly, perSecond), 1);
+        }
+
+        assertThat(repository.remaining("user_1", monthly)).contains(998L);
+    }
+
+    private QuotaRateLimiterRepository node(long slack) {
+        return new QuotaRateLimiterRepository(buckets, store, slack, now::get);
+    }
+
+    /** In-memory store recording every batch it receives. */
+    private static final class CountingStore implements QuotaStore {
+        final InMemoryQuotaStore totals = new InMemoryQuotaStore();
+        final List<List<QuotaContribution>> calls = new ArrayList<>();
+        /** Applies the next batch, then fails as if its reply timed out. */
+        boolean timeOut;
+
+        @Override
+        public List<Long> contribute(List<QuotaContribution> contributions) {
+            calls.add(List.copyOf(contributions));
+            List<Long> results = totals.contribute(contributions);
+            if (timeOut) {
+                timeOut = false;
+                throw new IllegalStateException("Command timed out");
+            }
+            return results;
+        }
+
+        long total(String key) {
+            return totals.total(key);
+        }
+    }
+}
@@ -23,6 +23,29 @@ class RateLimitKeyTest {
         assertThat(actual).isEqualTo(expected);
     }
 
+    @Test
+    @DisplayName("Should wrap the user in a hash tag so chained plans share a cluster slot")
+    void shouldBuildHashTaggedKey() {
+        String gold = RateLimitKey.builder().withUser("user-1").withPlan("gold").withHashTag().build();
+        String daily = RateLimitKey.builder().withUser("user-1").withPlan("daily").withHashTag().build();
+
+        assertThat(gold).isEqualTo("ratelimiter:default:{user-1}:gold");
+        assertThat(daily).isEqualTo("ratelimiter:default:{user-1}:daily");
+    }
+
+    @Test
+    @DisplayName("Should never form an empty hash tag, which Redis Cluster would ignore")
+    void shouldEscapeEmptyHashTag() {
+        assertThat(RateLimitKey.builder().withUser("").withPlan("gold").withHashTag().build())
+                .isEqualTo("ratelimiter:default:{~}:gold");
+        assertThat(RateLimitKey.builder().withUser("}x").withPlan("gold").withHashTag().build())
+                .isEqualTo("ratelimiter:default:{~}x}:gold");
+        assertThat(RateLimitKey.builder().withUser("~").withPlan("gold").withHashTag().build())
+                .isEqualTo("ratelimiter:default:{~~}:gold");
+        assertThat(RateLimitKey.builder().withUser("").withPlan("gold").build())
+                .isEqualTo("ratelimiter:default::gold");
+    }
+
     @Test
     @DisplayName("[Fix 8] Should use defaults for missing fields")
     void shouldUseCaseDefaults() {
@@ -0,0 +1,164 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.ConsumptionCount;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+class ReplicatedRateLimiterRepositoryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final InMemoryPeerNetwork network = new InMemoryPeerNetwork();
+    private final InMemoryRateLimiterRepository eastStore = new InMemoryRateLimiterRepository(now::get);
+    private final InMemoryRateLimiterRepository westStore = new InMemoryRateLimiterRepository(now::get);
+    private final ReplicatedRateLimiterRepository east = site("east", eastStore);
+    private final ReplicatedRateLimiterRepository west = site("west", westStore);
+
+    private final RateLimitConfig perHour = new RateLimitConfig("hour", 10, 0.001);
+
+    @Test
+    @DisplayName("Should debit consumption of a peer site from the local bucket after a sync")
+    void shouldShareConsumptionAcrossSites() {
+        // GIVEN: east spends 6 of 10 tokens
+        for (int i = 0; i < 6; i++) {
+            assertThat(east.tryAcquire("u1", List.of(perHour), 1).allowed()).isTrue();
+        }
+
+        // WHEN
+        east.sync();
+
+        // THEN: west admits only the remaining 4
+        int admitted = 0;
+        while (west.tryAcquire("u1", List.of(perHour), 1).allowed()) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(4);
+
+        west.sync();
+        assertThat(east.tryAcquire("u1", List.of(perHour), 1).allowed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should leave the floor to the local store and replicate what it admitted")
+    void shouldReplicateAcquiresAboveFloor() {
+        int admitted = 0;
+        while (east.tryAcquireAbove("u1", List.of(perHour), 1, 0.5).allowed()) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(5);
+
+        east.sync();
+
+        assertThat(westStore.getState(InMemoryRateLimiterRepository.bucketKey("u1", perHour)))
+                .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isEqualTo(5.0));
+    }
+
+    @Test
+    @DisplayName("Should merge running totals idempotently under duplicate and stale delivery")
+    void shouldMergeIdempotently() {
+        String bucketKey = InMemoryRateLimiterRepository.bucketKey("u1", perHour);
+
+        west.receive(List.of(new ConsumptionCount("east", "u1", perHour, 3)));
+        west.receive(List.of(new ConsumptionCount("east", "u1", perHour, 3)));
+        west.receive(List.of(new ConsumptionCount("east", "u1", perHour, 2)));
+        assertThat(westStore.getState(bucketKey)).contains(new TokenBucket(7.0, now.get()));
+
+        west.receive(List.of(new ConsumptionCount("east", "u1", perHour, 5),
+                new ConsumptionCount("west", "u1", perHour, 100)));
+        assertThat(westStore.getState(bucketKey)).contains(new TokenBucket(5.0, now.get()));
+    }
+
+    @Test
+    @DisplayName("Should stay within the documented bound when sites burst before syncing")
+    void shouldBoundOverAdmission() {
+        int admitted = 0;
+        for (int i = 0; i < 20; i++) {
+            admitted += east.tryAcquire("u1", List.of(perHour), 1).allowed() ? 1 : 0;
+            admitted += west.tryAcquire("u1", List.of(perHour), 1).allowed() ? 1 : 0;
+        }
+        east.sync();
+        west.sync();
+
+        // (N - 1) × C = 10 extra tokens at most; afterwards both sites owe the overshoot.
+        assertThat(admitted).isEqualTo(20);
+        assertThat(eastStore.getState(InMemoryRateLimiterRepository.bucketKey("u1", perHour)).orElseThrow()
+                .tokens()).isEqualTo(-10.0);
+        assertThat(west.tryAcquire("u1", List.of(perHour), 1).allowed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should count a restarted site from zero instead of ignoring it until it passes its old total")
+    void shouldAcceptRestartedSite() {
+        for (int i = 0; i < 4; i++) {
+            east.tryAcquire("u1", List.of(perHour), 1);
+        }
+        east.sync();
+        east.close();
+
+        now.addAndGet(1);
+        ReplicatedRateLimiterRepository restarted = site("east", new InMemoryRateLimiterRepository(now::get));
+        restarted.tryAcquire("u1", List.of(perHour), 1);
+        restarted.sync();
+
+        assertThat(westStore.getState(InMemoryRateLimiterRepository.bucketKey("u1", perHour)).orElseThrow()
+                .tokens()).isCloseTo(5.0, offset(0.01));
+    }
+
+    @Test
+    @DisplayName("Should drop idle counters after the retention and keep counting under a new writer")
+    void shouldEvictIdleCounters() {
+        east.tryAcquire("u1", List.of(perHour), 2);
+        east.sync();
+        assertThat(east.size()).isEqualTo(1);
+        assertThat(west.size()).isEqualTo(1);
+
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+        east.sync();
+        west.sync();
+        assertThat(east.size()).isZero();
+        assertThat(west.size()).isZero();
+
+        east.tryAcquire("u1", List.of(perHour), 3);
+        east.sync();
+        assertThat(westStore.getState(InMemoryRateLimiterRepository.bucketKey("u1", perHour)).orElseThrow()
+                .tokens()).isCloseTo(5.0, offset(0.1));
+    }
+
+    @Test
+    @DisplayName("Should debit peers through a store without reservations instead of failing every sync")
+    void shouldDebitThroughStoreWithoutReservations() {
+        RateLimiterRepository plain = new RateLimiterRepository() {
+            @Override
+            public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+                return westStore.tryAcquire(key, configs, tokensToConsume);
+            }
+
+            @Override
+            public Optional<TokenBucket> getState(String key) {
+                return westStore.getState(key);
+            }
+        };
+        ReplicatedRateLimiterRepository site = site("north", plain);
+
+        site.receive(List.of(new ConsumptionCount("east#1.1", "u1", perHour, 4)));
+
+        assertThat(westStore.getState(InMemoryRateLimiterRepository.bucketKey("u1", perHour)).orElseThrow()
+                .tokens()).isEqualTo(6.0);
+    }
+
+    private ReplicatedRateLimiterRepository site(String name, RateLimiterRepository store) {
+        return new ReplicatedRateLimiterRepository(name, store, network.join(), Duration.ofSeconds(1),
+                Duration.ofMinutes(1), now::get, false);
+    }
+}
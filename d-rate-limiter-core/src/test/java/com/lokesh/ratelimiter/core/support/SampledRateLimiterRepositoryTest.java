@@ -0,0 +1,245 @@
+package com.lokesh.ratelimiter.core.support;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.Clock;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledRateLimiterRepositoryTest {
+
+    private static final Duration INTERVAL = Duration.ofMillis(10);
+    private static final int MAX_SAMPLE = 64;
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000_000L);
+    private final RateLimitConfig anonymous = new RateLimitConfig("anon", 100, 1_000.0, true);
+
+    @Test
+    @DisplayName("Should check every request of a quiet key against the store")
+    void shouldCheckQuietKeysExactly() {
+        CountingRepository store = new CountingRepository(storeClock());
+        SampledRateLimiterRepository repository = sampled(store);
+
+        for (int i = 0; i < 50; i++) {
+            repository.tryAcquire("global", List.of(anonymous), 1);
+            nanos.addAndGet(INTERVAL.toNanos() * 2);
+        }
+
+        assertThat(store.calls.get()).isEqualTo(50);
+        assertThat(repository.sampleSize("global", List.of(anonymous))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should consult the store for one in N requests of a busy key and charge N times the cost")
+    void shouldSampleBusyKeys() {
+        CountingRepository store = new CountingRepository(storeClock());
+        SampledRateLimiterRepository repository = sampled(store);
+
+        // 100k requests per second: 1000 per interval, capped at the plan's 100 tokens and the max sample size
+        for (int i = 0; i < 10_000; i++) {
+            repository.tryAcquire("global", List.of(anonymous), 1);
+            nanos.addAndGet(10_000);
+        }
+
+        assertThat(repository.sampleSize("global", List.of(anonymous))).isEqualTo(MAX_SAMPLE);
+        assertThat(store.calls.get()).isLessThan(10_000 / MAX_SAMPLE * 3);
+        assertThat(store.maxCost.get()).isEqualTo(MAX_SAMPLE);
+    }
+
+    @Test
+    @DisplayName("Should pass requests with an exact plan straight to the store")
+    void shouldNotSampleExactPlans() {
+        CountingRepository store = new CountingRepository(storeClock());
+        SampledRateLimiterRepository repository = sampled(store);
+        RateLimitConfig exact = new RateLimitConfig("user", 10, 1.0);
+
+        for (int i = 0; i < 20; i++) {
+            repository.tryAcquire("global", List.of(anonymous, exact), 1);
+        }
+
+        assertThat(store.calls.get()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Should never admit more than the limit with a single instance (statistical)")
+    void shouldStayWithinLimitOnSingleInstance() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 20; trial++) {
+            InMemoryRateLimiterRepository store = new InMemoryRateLimiterRepository(storeClock());
+            SampledRateLimiterRepository[] instances = { sampled(store) };
+
+            Simulation run = simulate(instances, random, 20_000.0, Duration.ofSeconds(2));
+
+            // Never more than the bucket allows; refill skipped between samples costs at most a few percent.
+            assertThat(run.admitted).isLessThanOrEqualTo(run.allowance);
+            assertThat(run.admitted).isGreaterThan((long) (run.allowance * 0.95));
+        }
+    }
+
+    @Test
+    @DisplayName("Should over-admit by at most (I - 1) x (N - 1) x c per interval across instances (statistical)")
+    void shouldStayWithinBoundAcrossInstances() {
+        Random random = new Random(7);
+        int instanceCount = 4;
+        double worstPerInterval = 0;
+        double totalExcess = 0;
+        for (int trial = 0; trial < 20; trial++) {
+            InMemoryRateLimiterRepository store = new InMemoryRateLimiterRepository(storeClock());
+            SampledRateLimiterRepository[] instances = new SampledRateLimiterRepository[instanceCount];
+            for (int i = 0; i < instanceCount; i++) {
+                instances[i] = sampled(store);
+            }
+
+            Duration duration = Duration.ofSeconds(2);
+            Simulation run = simulate(instances, random, 40_000.0, duration);
+
+            double intervals = (double) duration.toNanos() / INTERVAL.toNanos();
+            double excessPerInterval = Math.max(0, run.admitted - run.allowance) / intervals;
+            worstPerInterval = Math.max(worstPerInterval, excessPerInterval);
+            totalExcess += excessPerInterval;
+        }
+
+        int bound = (instanceCount - 1) * (MAX_SAMPLE - 1);
+        assertThat(worstPerInterval).isLessThanOrEqualTo(bound);
+        // On average the error is far below the worst case.
+        assertThat(totalExcess / 20).isLessThan(bound / 10.0);
+    }
+
+    /**
+     * Sends Poisson arrivals at {@code requestsPerSecond} to randomly chosen
+     * instances sharing one store.
+     */
+    private Simulation simulate(SampledRateLimiterRepository[] instances, Random random, double requestsPerSecond,
+            Duration duration) {
+        long end = nanos.get() + duration.toNanos();
+        long admitted = 0;
+        while (true) {
+            nanos.addAndGet((long) (-Math.log(1 - random.nextDouble()) / requestsPerSecond * 1e9));
+            if (nanos.get() >= end) {
+                break;
+            }
+            RateLimitResult result = instances[random.nextInt(instances.length)]
+                    .tryAcquire("global", List.of(anonymous), 1);
+            admitted += result.allowed() ? 1 : 0;
+        }
+        long allowance = anonymous.capacity() + (long) (anonymous.tokensPerSecond() * duration.toMillis() / 1000.0);
+        return new Simulation(admitted, allowance);
+    }
+
+    @Test
+    @DisplayName("Should drop idle keys after charging what they admitted locally")
+    void shouldExpireIdleKeys() {
+        RateLimitConfig large = new RateLimitConfig("large", 1_000, 1.0, true);
+        InMemoryRateLimiterRepository store = new InMemoryRateLimiterRepository(() -> 0L);
+        SampledRateLimiterRepository repository = new SampledRateLimiterRepository(store, INTERVAL, MAX_SAMPLE,
+                Duration.ofMinutes(1), nanos::get);
+        for (int i = 0; i < 500; i++) {
+            assertThat(repository.tryAcquire("global", List.of(large), 1).allowed()).isTrue();
+            nanos.addAndGet(10_000);
+        }
+        assertThat(repository.sampleSize("global", List.of(large))).isGreaterThan(1);
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        repository.tryAcquire("other", List.of(large), 1);
+
+        assertThat(repository.size()).isEqualTo(1);
+        assertThat(repository.sampleSize("global", List.of(large))).isEqualTo(1);
+        assertThat(store.getState(InMemoryRateLimiterRepository.bucketKey("global", large)))
+                .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isEqualTo(500.0));
+    }
+
+    @Test
+    @DisplayName("Should debit what was admitted locally when a sample is denied, into debt if need be")
+    void shouldDebitLocalAdmissionsOnDeniedSample() {
+        assertDebitsLocalAdmissions(store -> store);
+    }
+
+    @Test
+    @DisplayName("Should debit through the quota decorator, as the starter chains them")
+    void shouldDebitThroughQuotaDecorator() {
+        assertDebitsLocalAdmissions(store -> new QuotaRateLimiterRepository(store, new InMemoryQuotaStore(),
+                QuotaRateLimiterRepository.DEFAULT_SLACK));
+    }
+
+    private void assertDebitsLocalAdmissions(UnaryOperator<RateLimiterRepository> chain) {
+        RateLimitConfig large = new RateLimitConfig("large", 1_000, 1.0, true);
+        InMemoryRateLimiterRepository store = new InMemoryRateLimiterRepository(() -> 0L);
+        SampledRateLimiterRepository repository = sampled(chain.apply(store));
+        String bucketKey = InMemoryRateLimiterRepository.bucketKey("global", large);
+        long admitted = 0;
+        for (int i = 0; i < 200; i++) {
+            admitted += repository.tryAcquire("global", List.of(large), 1).allowed() ? 1 : 0;
+            nanos.addAndGet(10_000);
+        }
+        assertThat(repository.sampleSize("global", List.of(large))).isGreaterThan(1);
+
+        // GIVEN: another instance spends everything the store still holds
+        int drained = (int) store.getState(bucketKey).orElseThrow().tokens();
+        assertThat(store.tryAcquire("global", List.of(large), drained).allowed()).isTrue();
+
+        // WHEN: this instance keeps admitting locally until its next sample is denied
+        for (int i = 0; i < 200; i++) {
+            admitted += repository.tryAcquire("global", List.of(large), 1).allowed() ? 1 : 0;
+            nanos.addAndGet(10_000);
+        }
+
+        // THEN: every locally admitted token was charged, none forgiven
+        double expected = 1_000.0 - drained - admitted;
+        assertThat(expected).isNegative();
+        assertThat(store.getState(bucketKey))
+                .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isEqualTo(expected));
+    }
+
+    @Test
+    @DisplayName("Should let the store enforce the floor of requests with one")
+    void shouldPassFloorToStore() {
+        CountingRepository store = new CountingRepository(storeClock());
+        SampledRateLimiterRepository repository = sampled(store);
+
+        int admitted = 0;
+        while (repository.tryAcquireAbove("global", List.of(anonymous), 1, 0.5).allowed()) {
+            admitted++;
+        }
+
+        assertThat(admitted).isEqualTo(50);
+        assertThat(repository.tryAcquire("global", List.of(anonymous), 1).allowed()).isTrue();
+    }
+
+    private SampledRateLimiterRepository sampled(RateLimiterRepository store) {
+        return new SampledRateLimiterRepository(store, INTERVAL, MAX_SAMPLE, nanos::get);
+    }
+
+    private Clock storeClock() {
+        return () -> nanos.get() / 1_000_000L;
+    }
+
+    private record Simulation(long admitted, long allowance) {
+    }
+
+    /** In-memory store recording how often and how heavily it is called. */
+    private static final class CountingRepository extends InMemoryRateLimiterRepository {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger maxCost = new AtomicInteger();
+
+        CountingRepository(Clock clock) {
+            super(clock);
+        }
+
+        @Override
+        public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+            calls.incrementAndGet();
+            maxCost.accumulateAndGet(tokensToConsume, Math::max);
+            return super.tryAcquire(key, configs, tokensToConsume);
+        }
+    }
+}
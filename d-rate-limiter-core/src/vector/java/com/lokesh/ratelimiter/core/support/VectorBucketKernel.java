@@ -0,0 +1,70 @@
+package com.lokesh.ratelimiter.core.support;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API path of {@link ColumnarBucketStore#tryConsume}.
+ *
+ * <p>
+ * Only this class references {@code jdk.incubator.vector}. It is compiled by
+ * the {@code vector} profile alone and looked up by name when the store decides
+ * to use it, so the default build and the rest of the core run without the
+ * incubator module. Each lane computes, for one slot:
+ *
+ * <pre>
+ * elapsed   = now - lastRefill
+ * available = elapsed &gt; 0 ? min(capacity, tokens + (elapsed / 1000.0) * rate) : tokens
+ * allowed   = available &gt;= cost
+ * tokens    = allowed ? available - cost : available
+ * lastRefill = allowed || elapsed &gt; 0 ? now : lastRefill
+ * </pre>
+ */
+final class VectorBucketKernel implements BatchKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED
+            .withShape(VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    VectorBucketKernel() {
+    }
+
+    @Override
+    public int lanes() {
+        return DOUBLES.length();
+    }
+
+    @Override
+    public int tryConsume(double[] tokens, long[] lastRefillMillis, double[] capacity, double[] tokensPerSecond,
+            int[] slots, int[] costs, int count, long now, boolean[] allowed) {
+        int bound = DOUBLES.loopBound(count);
+        LongVector nowLanes = LongVector.broadcast(LONGS, now);
+        for (int i = 0; i < bound; i += DOUBLES.length()) {
+            DoubleVector held = DoubleVector.fromArray(DOUBLES, tokens, 0, slots, i);
+            LongVector lastRefill = LongVector.fromArray(LONGS, lastRefillMillis, 0, slots, i);
+            DoubleVector cap = DoubleVector.fromArray(DOUBLES, capacity, 0, slots, i);
+            DoubleVector rate = DoubleVector.fromArray(DOUBLES, tokensPerSecond, 0, slots, i);
+            DoubleVector cost = (DoubleVector) IntVector.fromArray(INTS, costs, i)
+                    .convertShape(VectorOperators.I2D, DOUBLES, 0);
+
+            LongVector elapsed = nowLanes.sub(lastRefill);
+            VectorMask<Long> refills = elapsed.compare(VectorOperators.GT, 0);
+            DoubleVector refilled = held
+                    .add(((DoubleVector) elapsed.convertShape(VectorOperators.L2D, DOUBLES, 0)).div(1000.0).mul(rate))
+                    .min(cap);
+            DoubleVector available = held.blend(refilled, refills.cast(DOUBLES));
+            VectorMask<Double> admitted = available.compare(VectorOperators.GE, cost);
+
+            available.blend(available.sub(cost), admitted).intoArray(tokens, 0, slots, i);
+            lastRefill.blend(nowLanes, refills.or(admitted.cast(LONGS))).intoArray(lastRefillMillis, 0, slots, i);
+            admitted.intoArray(allowed, i);
+        }
+        return bound;
+    }
+}
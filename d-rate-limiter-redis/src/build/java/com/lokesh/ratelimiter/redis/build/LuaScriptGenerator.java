@@ -0,0 +1,298 @@
+package com.lokesh.ratelimiter.redis.build;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Build step of the Redis adapter: turns the bundled Lua scripts into the
+ * {@code LuaScript} registry class.
+ *
+ * <p>
+ * Runs in the {@code generate-sources} phase as a single-file program
+ * ({@code java LuaScriptGenerator.java ...}), so the build needs no plugin of
+ * its own. For every {@code *.lua} file it:
+ * <ol>
+ * <li>replaces {@value #PROTOCOL_PLACEHOLDER} with the protocol version;</li>
+ * <li>strips comments and redundant whitespace, leaving string literals
+ * untouched;</li>
+ * <li>hashes the minified body with SHA-1, exactly as {@code SCRIPT LOAD}
+ * does;</li>
+ * <li>emits an enum constant holding the classpath path, SHA and body.</li>
+ * </ol>
+ *
+ * <p>
+ * The output file is only rewritten when its content changes, so an unchanged
+ * script does not trigger a recompile.
+ *
+ * <p>
+ * Usage: {@code LuaScriptGenerator <script dir> <output dir> <package> <protocol version>}
+ */
+public final class LuaScriptGenerator {
+
+    static final String PROTOCOL_PLACEHOLDER = "__PROTOCOL_VERSION__";
+
+    private static final String CLASS_NAME = "LuaScript";
+
+    private LuaScriptGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            throw new IllegalArgumentException(
+                    "Usage: LuaScriptGenerator <script dir> <output dir> <package> <protocol version>");
+        }
+        Path scriptDir = Path.of(args[0]);
+        Path outputDir = Path.of(args[1]);
+        String packageName = args[2];
+        int protocolVersion = Integer.parseInt(args[3]);
+
+        List<Path> scripts;
+        try (Stream<Path> files = Files.list(scriptDir)) {
+            scripts = files.filter(file -> file.getFileName().toString().endsWith(".lua")).sorted().toList();
+        }
+        if (scripts.isEmpty()) {
+            throw new IllegalStateException("No Lua scripts found in " + scriptDir);
+        }
+
+        String source = generate(scriptDir, scripts, packageName, protocolVersion);
+        Path target = outputDir.resolve(packageName.replace('.', '/')).resolve(CLASS_NAME + ".java");
+        if (Files.exists(target) && Files.readString(target).equals(source)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, source);
+        System.out.println("Generated " + target + " from " + scripts.size() + " script(s)");
+    }
+
+    private static String generate(Path scriptDir, List<Path> scripts, String packageName, int protocolVersion)
+            throws IOException {
+        String resourceDir = scriptDir.getFileName().toString();
+        StringBuilder constants = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        StringBuilder bundle = new StringBuilder();
+        long rawBytes = 0;
+        long minifiedBytes = 0;
+
+        for (int i = 0; i < scripts.size(); i++) {
+            Path script = scripts.get(i);
+            String fileName = script.getFileName().toString();
+            String raw = Files.readString(script);
+            String body = minify(raw.replace(PROTOCOL_PLACEHOLDER, Integer.toString(protocolVersion)));
+            String sha = sha1Hex(body);
+            String constant = fileName.substring(0, fileName.length() - 4).toUpperCase(Locale.ROOT);
+            String path = resourceDir + "/" + fileName;
+            rawBytes += raw.getBytes(StandardCharsets.UTF_8).length;
+            minifiedBytes += body.getBytes(StandardCharsets.UTF_8).length;
+            bundle.append(sha);
+
+            constants.append("    /** {@code ").append(path).append("}. */\n")
+                    .append("    ").append(constant).append("(\"").append(path).append("\", \"").append(sha)
+                    .append("\",\n").append(javaLiteral(body, "            "))
+                    .append(')').append(i < scripts.size() - 1 ? ",\n\n" : ";\n");
+            cases.append("            case \"").append(path).append("\" -> ").append(constant).append(";\n");
+        }
+
+        return """
+                package %1$s;
+
+                /**
+                 * The Lua scripts bundled with the Redis adapter, minified at build time.
+                 *
+                 * <p>
+                 * Generated by {@code LuaScriptGenerator} from {@code src/main/resources/%2$s};
+                 * do not edit. %3$d bytes of source minify to %4$d bytes.
+                 */
+                public enum %5$s {
+
+                %6$s
+                    /** Version of the reply format; {@link #PROTOCOL} returns it from Redis. */
+                    public static final int PROTOCOL_VERSION = %7$d;
+
+                    /** SHA-1 over the SHAs of every script; changes when any script does. */
+                    public static final String BUNDLE_SHA = "%8$s";
+
+                    private final String path;
+                    private final String sha;
+                    private final String body;
+
+                    %5$s(String path, String sha, String body) {
+                        this.path = path;
+                        this.sha = sha;
+                        this.body = body;
+                    }
+
+                    /** @return the classpath path of the source script. */
+                    public String path() {
+                        return path;
+                    }
+
+                    /** @return the SHA-1 of {@link #body()}, as {@code SCRIPT LOAD} reports it. */
+                    public String sha() {
+                        return sha;
+                    }
+
+                    /** @return the minified script sent with {@code EVAL} and {@code SCRIPT LOAD}. */
+                    public String body() {
+                        return body;
+                    }
+
+                    /**
+                     * @param path the classpath path of a bundled script.
+                     * @return the script.
+                     * @throws IllegalArgumentException if no bundled script has this path.
+                     */
+                    public static %5$s forPath(String path) {
+                        return switch (path) {
+                %9$s            default -> throw new IllegalArgumentException("Lua script is not bundled: " + path);
+                        };
+                    }
+                }
+                """.formatted(packageName, resourceDir, rawBytes, minifiedBytes, CLASS_NAME, constants,
+                protocolVersion, sha1Hex(bundle.toString()), cases);
+    }
+
+    /**
+     * Removes comments, indentation, blank lines and repeated spaces. String
+     * literals, including long brackets, are copied verbatim.
+     */
+    static String minify(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '-' && source.startsWith("--", i)) {
+                int level = longBracketLevel(source, i + 2);
+                if (level >= 0) {
+                    // A long comment separates tokens like whitespace: a--[[x]]b is a b, not ab.
+                    int end = closeLongBracket(source, i + 2, level);
+                    appendSeparator(out, source.substring(i, end).indexOf('\n') >= 0);
+                    i = end;
+                } else {
+                    i = lineEnd(source, i);
+                }
+            } else if (c == '\'' || c == '"') {
+                int end = i + 1;
+                while (end < length && source.charAt(end) != c) {
+                    if (source.charAt(end) == '\\') {
+                        end++;
+                    } else if (source.charAt(end) == '\n') {
+                        throw new IllegalArgumentException("Unterminated string at offset " + i);
+                    }
+                    end++;
+                }
+                if (end >= length) {
+                    throw new IllegalArgumentException("Unterminated string at offset " + i);
+                }
+                out.append(source, i, end + 1);
+                i = end + 1;
+            } else if (c == '[' && longBracketLevel(source, i) >= 0) {
+                int end = closeLongBracket(source, i, longBracketLevel(source, i));
+                out.append(source, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                boolean newline = false;
+                while (i < length && Character.isWhitespace(source.charAt(i))) {
+                    newline |= source.charAt(i) == '\n';
+                    i++;
+                }
+                appendSeparator(out, newline);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        trimTrailing(out);
+        if (!out.isEmpty() && out.charAt(out.length() - 1) == '\n') {
+            out.setLength(out.length() - 1);
+        }
+        return out.toString();
+    }
+
+    /** Keeps line breaks between statements so the body reads back line by line. */
+    private static void appendSeparator(StringBuilder out, boolean newline) {
+        trimTrailing(out);
+        if (out.isEmpty() || out.charAt(out.length() - 1) == '\n') {
+            return;
+        }
+        out.append(newline ? '\n' : ' ');
+    }
+
+    private static void trimTrailing(StringBuilder out) {
+        while (!out.isEmpty() && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+    }
+
+    /** @return the level of the long bracket {@code [==[} at {@code start}, or -1. */
+    private static int longBracketLevel(String source, int start) {
+        if (start >= source.length() || source.charAt(start) != '[') {
+            return -1;
+        }
+        int level = 0;
+        int i = start + 1;
+        while (i < source.length() && source.charAt(i) == '=') {
+            level++;
+            i++;
+        }
+        return i < source.length() && source.charAt(i) == '[' ? level : -1;
+    }
+
+    /** @return the offset after the long bracket opened at {@code start}. */
+    private static int closeLongBracket(String source, int start, int level) {
+        String close = "]" + "=".repeat(level) + "]";
+        int end = source.indexOf(close, start + level + 2);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated long bracket at offset " + start);
+        }
+        return end + close.length();
+    }
+
+    private static int lineEnd(String source, int start) {
+        int end = source.indexOf('\n', start);
+        return end < 0 ? source.length() : end;
+    }
+
+    /** Renders the body as concatenated literals, one per script line. */
+    private static String javaLiteral(String body, String indent) {
+        StringBuilder literal = new StringBuilder();
+        String[] lines = body.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            literal.append(indent).append(i == 0 ? "\"" : "+ \"");
+            lines[i].chars().forEach(c -> {
+                switch (c) {
+                    case '"' -> literal.append("\\\"");
+                    case '\\' -> literal.append("\\\\");
+                    case '\t' -> literal.append("\\t");
+                    case '\r' -> literal.append("\\r");
+                    default -> {
+                        if (c < 0x20 || c > 0x7e) {
+                            literal.append(String.format("\\u%04x", c));
+                        } else {
+                            literal.append((char) c);
+                        }
+                    }
+                }
+            });
+            literal.append(i < lines.length - 1 ? "\\n\"\n" : "\"");
+        }
+        return literal.toString();
+    }
+
+    private static String sha1Hex(String input) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(input.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 algorithm not found", e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.BucketStateExporter;
+import io.lettuce.core.RedisCommandInterruptedException;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Driven Adapter: {@link BucketStateExporter} for the buckets of a
+ * {@link PackedRedisRateLimiterRepository}.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Container Walk</b>: Packed buckets are hash fields, invisible to a key
+ * {@code SCAN}. The exporter reads the repository's fixed set of containers in
+ * index order, one {@code export_packed.lua} call each, pipelined per
+ * page.</li>
+ * <li><b>Key Filter</b>: Each field is mapped back to the bucket key
+ * {@link RedisRateLimiterRepository} would have used, e.g.
+ * {@code ratelimiter:default:user_1:gold}, and matched against the pattern
+ * with Redis glob rules on the client.</li>
+ * <li><b>Bounded Memory</b>: Only the current page of containers is
+ * buffered.</li>
+ * <li><b>Rate Cap</b>: Pages are paced so the export never reads more than
+ * {@code maxKeysPerSecond} containers per second on average; each container is
+ * one Redis key, so the settings of {@link RedisBucketStateExporter} carry
+ * over.</li>
+ * </ul>
+ *
+ * <p>
+ * Buckets that are full again but not yet swept are skipped.
+ */
+public class PackedRedisBucketStateExporter implements BucketStateExporter {
+
+
+    private final PackedRedisRateLimiterRepository repository;
+    private final int batchSize;
+    private final double maxKeysPerSecond;
+
+    /**
+     * Creates an exporter with the default batch size and rate cap.
+     *
+     * @param repository the packed store to export.
+     */
+    public PackedRedisBucketStateExporter(PackedRedisRateLimiterRepository repository) {
+        this(repository, RedisBucketStateExporter.DEFAULT_BATCH_SIZE,
+                RedisBucketStateExporter.DEFAULT_MAX_KEYS_PER_SECOND);
+    }
+
+    /**
+     * Full constructor.
+     *
+     * @param repository       the packed store to export.
+     * @param batchSize        number of pipelined container reads per page.
+     * @param maxKeysPerSecond average read-rate cap, in containers.
+     * @throws IllegalArgumentException if a numeric argument is not positive.
+     */
+    public PackedRedisBucketStateExporter(PackedRedisRateLimiterRepository repository,
+            int batchSize,
+            double maxKeysPerSecond) {
+        this.repository = Objects.requireNonNull(repository, "Repository must not be null");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (!(maxKeysPerSecond > 0)) {
+            throw new IllegalArgumentException("Max keys per second must be greater than zero");
+        }
+        this.batchSize = batchSize;
+        this.maxKeysPerSecond = maxKeysPerSecond;
+    }
+
+    @Override
+    public Stream<BucketSnapshot> export(String keyPattern) {
+        Objects.requireNonNull(keyPattern, "Key pattern must not be null");
+        Iterator<BucketSnapshot> iterator = new ContainerIterator(globToRegex(keyPattern));
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Translates a Redis glob ({@code *}, {@code ?}, {@code [...]},
+     * {@code [^...]}, backslash escapes) into an equivalent regular expression.
+     */
+    static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                }
+                case '[' -> {
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    String set = glob.substring(i + 1, end);
+                    boolean negated = set.startsWith("^");
+                    regex.append(negated ? "[^" : "[");
+                    for (char member : (negated ? set.substring(1) : set).toCharArray()) {
+                        if ("\\[]^&".indexOf(member) >= 0) {
+                            regex.append('\\');
+                        }
+                        regex.append(member);
+                    }
+                    regex.append(']');
+                    i = end;
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Reads one page of containers at a time, refilling its buffer only when
+     * the consumer has drained it.
+     */
+    private final class ContainerIterator implements Iterator<BucketSnapshot> {
+
+        private final Pattern keyPattern;
+        private final ArrayDeque<BucketSnapshot> buffer = new ArrayDeque<>();
+        private final long startNanos = System.nanoTime();
+        private int nextContainer;
+
+        ContainerIterator(Pattern keyPattern) {
+            this.keyPattern = keyPattern;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (buffer.isEmpty() && nextContainer < repository.containers()) {
+                fetchPage();
+            }
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public BucketSnapshot next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.poll();
+        }
+
+        private void fetchPage() {
+            int count = Math.min(batchSize, repository.containers() - nextContainer);
+            pace();
+            List<List<Object>> containers = repository.listContainers(nextContainer, count);
+            nextContainer += count;
+            for (List<Object> entries : containers) {
+                for (int i = 0; i + 2 < entries.size(); i += 3) {
+                    String key = PackedRedisRateLimiterRepository.bucketKeyOf(String.valueOf(entries.get(i)));
+                    if (keyPattern.matcher(key).matches()) {
+                        buffer.add(new BucketSnapshot(key, new TokenBucket(
+                                Double.parseDouble(String.valueOf(entries.get(i + 1))),
+                                ((Number) entries.get(i + 2)).longValue())));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Parks until reading the next page keeps the average rate under the
+         * cap.
+         */
+        private void pace() {
+            long dueNanos = startNanos + (long) (nextContainer / maxKeysPerSecond * 1_000_000_000L);
+            long delay;
+            while ((delay = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new RedisCommandInterruptedException(new InterruptedException());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.KeyHashing;
+import com.lokesh.ratelimiter.core.support.RateLimitKey;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Driven Adapter: Redis storage that packs many small buckets into shared
+ * container hashes.
+ *
+ * <p>
+ * Architectural Role: <b>Infrastructure Adapter</b> (ADR 001) for deployments
+ * with hundreds of millions of mostly idle keys, where the 70-100 bytes Redis
+ * spends on every top-level key outweigh the bucket itself. Decisions run in
+ * {@code acquire_packed.lua}, which applies the same math as
+ * {@code acquire_tokens.lua}.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Containers</b>: Every key maps to one of a fixed, power-of-two number
+ * of hashes, {@code ratelimiter:packed:<hash prefix>}, chosen by the leading
+ * bits of the hash of its {@link RedisRateLimiterRepository#bucketKey} without
+ * the plan segment. All plans of a key share a container, so a chained
+ * decision touches one key and stays atomic (ADR 005), on a cluster too.</li>
+ * <li><b>Listpack Encoding</b>: A bucket is the field {@code <key>:<plan>}
+ * holding its state as 16 packed bytes (two doubles). While a container has
+ * no more than {@code hash-max-listpack-entries} fields (128 by default),
+ * Redis stores it as one contiguous listpack; size {@code containers} to about
+ * {@code buckets / 64} to keep that headroom.</li>
+ * <li><b>Field Expiry</b>: On Redis 7.4+ each field expires with
+ * {@code HPEXPIRE} once a drained bucket would be full again, as the
+ * {@code PEXPIRE} of the one-key layout does. Older servers store that time as
+ * a third double instead, and a sweeper running {@code sweep_packed.lua} over
+ * {@value #SWEEP_BATCH} containers per interval deletes the fields that are
+ * due.</li>
+ * <li><b>Self-Healing (ADR 004)</b>: Scripts run via {@code EVALSHA}; on
+ * {@code NOSCRIPT} the body is sent once with {@code EVAL}.</li>
+ * <li><b>Export</b>: Buckets are fields rather than keys, so a key
+ * {@code SCAN} finds none of them; {@link PackedRedisBucketStateExporter}
+ * walks the containers instead.</li>
+ * </ul>
+ *
+ * <p>
+ * Batches, repeated grants, reservations and hierarchical limits use the
+ * port's defaults or are not supported.
+ */
+public class PackedRedisRateLimiterRepository implements RateLimiterRepository, AutoCloseable {
+
+    /** Classpath location of the packed chained acquire script. */
+    public static final String ACQUIRE_SCRIPT = "lua/acquire_packed.lua";
+
+    /** Classpath location of the packed state lookup. */
+    public static final String STATE_SCRIPT = "lua/get_packed.lua";
+
+    /** Classpath location of the expiry sweep for servers without {@code HPEXPIRE}. */
+    public static final String SWEEP_SCRIPT = "lua/sweep_packed.lua";
+
+    /** Classpath location of the container listing used by the bucket export. */
+    public static final String EXPORT_SCRIPT = "lua/export_packed.lua";
+
+    /** Every script this adapter may execute; pre-loaded by {@link RedisWarmUp}. */
+    public static final List<String> BUNDLED_SCRIPTS = List.of(ACQUIRE_SCRIPT, STATE_SCRIPT, SWEEP_SCRIPT,
+            EXPORT_SCRIPT);
+
+    /** Prefix of every container key. */
+    public static final String CONTAINER_PREFIX = "ratelimiter:packed:";
+
+    /** Containers swept per sweeper run. */
+    public static final int SWEEP_BATCH = 64;
+
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private static final int MAX_CONTAINER_BITS = 30;
+
+    private static final Logger log = LoggerFactory.getLogger(PackedRedisRateLimiterRepository.class);
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final LuaScriptLoader scriptLoader;
+    private final long timeoutNanos;
+    private final int containerBits;
+    private final int containers;
+    private final AtomicLong sweepCursor = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a repository with the default command timeout and no sweeper.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     * @param containers         the number of container hashes; a power of
+     *                           two.
+     */
+    public PackedRedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader, int containers) {
+        this(connectionProvider, scriptLoader, RedisRateLimiterRepository.DEFAULT_TIMEOUT, containers, Duration.ZERO);
+    }
+
+    /**
+     * Full constructor.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @param containers         the number of container hashes; a power of
+     *                           two.
+     * @param sweepInterval      time between two sweeper runs;
+     *                           {@link Duration#ZERO} disables the sweeper.
+     *                           The sweeper stops by itself on servers with
+     *                           {@code HPEXPIRE}.
+     * @throws NullPointerException     if any argument is {@code null}.
+     * @throws IllegalArgumentException if the timeout is not positive, the
+     *                                  container count is not a power of two up
+     *                                  to 2^30, or the interval is negative.
+     */
+    public PackedRedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader, Duration timeout, int containers, Duration sweepInterval) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        this.scriptLoader = Objects.requireNonNull(scriptLoader, "ScriptLoader must not be null");
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        Objects.requireNonNull(sweepInterval, "Sweep interval must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        if (containers < 1 || Integer.bitCount(containers) != 1 || containers > 1 << MAX_CONTAINER_BITS) {
+            throw new IllegalArgumentException("Containers must be a power of two between 1 and 2^30");
+        }
+        if (sweepInterval.isNegative()) {
+            throw new IllegalArgumentException("Sweep interval must not be negative");
+        }
+        this.timeoutNanos = timeout.toNanos();
+        this.containers = containers;
+        this.containerBits = Integer.numberOfTrailingZeros(containers);
+        if (sweepInterval.isZero()) {
+            this.sweeper = null;
+        } else {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ratelimiter-packed-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = Math.max(1, sweepInterval.toMillis());
+            sweeper.scheduleWithFixedDelay(this::sweepSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return tryAcquireAbove(key, configs, tokensToConsume, 0);
+    }
+
+    /**
+     * Passes the floor to {@code acquire_packed.lua}, which mirrors
+     * {@link TokenBucket#tryConsumeAbove}.
+     */
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        String[] args = new String[2 + configs.size() * 3];
+        args[0] = String.valueOf(tokensToConsume);
+        args[1] = String.valueOf(floor);
+        for (int i = 0; i < configs.size(); i++) {
+            RateLimitConfig config = configs.get(i);
+            args[2 + i * 3] = field(key, config);
+            args[3 + i * 3] = String.valueOf(config.capacity());
+            args[4 + i * 3] = String.valueOf(config.tokensPerSecond());
+        }
+        String container = containerKey(ShardedRedisRateLimiterRepository.routingKey(
+                RedisRateLimiterRepository.bucketKey(key, configs.get(0))));
+        List<Object> reply = eval(ACQUIRE_SCRIPT, container, args);
+        boolean allowed = ((Number) reply.get(0)).longValue() == 1L;
+        double remaining = Double.parseDouble(String.valueOf(reply.get(1)));
+        long waitMillis = ((Number) reply.get(2)).longValue();
+        return allowed ? RateLimitResult.allow(remaining) : RateLimitResult.deny(remaining, waitMillis, DENY_REASON);
+    }
+
+    /**
+     * Reads a bucket without modifying it.
+     *
+     * @param key the full bucket key, as produced by
+     *            {@link RedisRateLimiterRepository#bucketKey}; it is mapped to
+     *            its container and field.
+     */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        String routingKey = ShardedRedisRateLimiterRepository.routingKey(key);
+        List<Object> reply = eval(STATE_SCRIPT, containerKey(routingKey), fieldOf(key));
+        if (reply.size() < 2) {
+            return Optional.empty();
+        }
+        return Optional.of(new TokenBucket(
+                Double.parseDouble(String.valueOf(reply.get(0))),
+                ((Number) reply.get(1)).longValue()));
+    }
+
+    /**
+     * Sweeps the next containers in turn, deleting fields whose bucket is full
+     * again. Only needed on servers without {@code HPEXPIRE}.
+     *
+     * @param count the number of containers to sweep; all are issued before
+     *              any reply is awaited.
+     * @return the number of deleted fields.
+     */
+    public long sweep(int count) {
+        int batch = Math.min(count, containers);
+        long start = sweepCursor.getAndAdd(batch);
+        List<RedisFuture<Long>> replies = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            String container = containerKey((int) ((start + i) & (containers - 1)));
+            replies.add(commands().evalsha(scriptLoader.getSha(SWEEP_SCRIPT), ScriptOutputType.INTEGER, container));
+        }
+        long deleted = 0;
+        for (int i = 0; i < batch; i++) {
+            try {
+                deleted += await(replies.get(i));
+            } catch (RedisNoScriptException e) {
+                String container = containerKey((int) ((start + i) & (containers - 1)));
+                deleted += await(commands().<Long>eval(scriptLoader.getScript(SWEEP_SCRIPT),
+                        ScriptOutputType.INTEGER, container));
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Lists the buckets of consecutive containers; all are issued before any
+     * reply is awaited.
+     *
+     * @param first the index of the first container.
+     * @param count the number of containers.
+     * @return per container, the flat reply of {@code export_packed.lua}.
+     */
+    List<List<Object>> listContainers(int first, int count) {
+        String sha = scriptLoader.getSha(EXPORT_SCRIPT);
+        List<RedisFuture<List<Object>>> replies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            replies.add(commands().evalsha(sha, ScriptOutputType.MULTI, containerKey(first + i)));
+        }
+        List<List<Object>> containerBuckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            try {
+                containerBuckets.add(await(replies.get(i)));
+            } catch (RedisNoScriptException e) {
+                containerBuckets.add(await(commands().<List<Object>>eval(scriptLoader.getScript(EXPORT_SCRIPT),
+                        ScriptOutputType.MULTI, containerKey(first + i))));
+            }
+        }
+        return containerBuckets;
+    }
+
+    /** @return the number of container hashes. */
+    int containers() {
+        return containers;
+    }
+
+    /**
+     * @return the bucket key of a field, as {@link RedisRateLimiterRepository#bucketKey}
+     *         derives it, e.g. {@code ratelimiter:default:user_1:gold}.
+     */
+    static String bucketKeyOf(String field) {
+        int planStart = field.lastIndexOf(':');
+        return RateLimitKey.builder().withUser(field.substring(0, planStart)).withPlan(field.substring(planStart + 1))
+                .build();
+    }
+
+    /**
+     * @return the container holding the buckets of {@code key}.
+     */
+    public String containerKey(String key, RateLimitConfig config) {
+        return containerKey(ShardedRedisRateLimiterRepository.routingKey(
+                RedisRateLimiterRepository.bucketKey(key, config)));
+    }
+
+    /**
+     * @return the field of the bucket guarding {@code key} under
+     *         {@code config}, e.g. {@code user_1:gold}.
+     */
+    public static String field(String key, RateLimitConfig config) {
+        return key + ":" + config.planName();
+    }
+
+    /** Stops the sweeper. */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /** The leading bits of the key's hash, in hex. */
+    private String containerKey(String routingKey) {
+        int index = containerBits == 0 ? 0 : (int) (KeyHashing.hash(routingKey) >>> (64 - containerBits));
+        return containerKey(index);
+    }
+
+    private String containerKey(int index) {
+        String hex = Integer.toHexString(index);
+        int width = Math.max(1, (containerBits + 3) / 4);
+        return CONTAINER_PREFIX + "0".repeat(width - hex.length()) + hex;
+    }
+
+    /** Drops the {@code ratelimiter:<tenant>:} segments of a bucket key. */
+    private static String fieldOf(String bucketKey) {
+        int tenantEnd = bucketKey.indexOf(':', "ratelimiter:".length());
+        return tenantEnd > 0 ? bucketKey.substring(tenantEnd + 1) : bucketKey;
+    }
+
+    private void sweepSafely() {
+        try {
+            if (fieldExpirySupported()) {
+                log.info("Redis supports HPEXPIRE; packed buckets expire on their own, stopping the sweeper");
+                sweeper.shutdown();
+                return;
+            }
+            long deleted = sweep(SWEEP_BATCH);
+            if (deleted > 0) {
+                log.debug("Swept {} expired packed bucket(s)", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to sweep packed buckets; retrying next interval. Reason: {}", e.getMessage());
+        }
+    }
+
+    private boolean fieldExpirySupported() {
+        List<Object> info = await(commands().commandInfo("HPEXPIRE"));
+        return !info.isEmpty() && info.get(0) != null;
+    }
+
+    /**
+     * Runs a bundled script via {@code EVALSHA}, falling back to {@code EVAL}
+     * when the server has lost its script cache.
+     */
+    private List<Object> eval(String scriptPath, String container, String... args) {
+        String[] keys = { container };
+        try {
+            return await(commands().<List<Object>>evalsha(scriptLoader.getSha(scriptPath), ScriptOutputType.MULTI,
+                    keys, args));
+        } catch (RedisNoScriptException e) {
+            return await(commands().<List<Object>>eval(scriptLoader.getScript(scriptPath), ScriptOutputType.MULTI,
+                    keys, args));
+        }
+    }
+
+    private RedisClusterAsyncCommands<String, String> commands() {
+        return connectionProvider.async();
+    }
+
+    private <T> T await(RedisFuture<T> future) {
+        return RedisCommandAwaiter.await(future, timeoutNanos);
+    }
+}
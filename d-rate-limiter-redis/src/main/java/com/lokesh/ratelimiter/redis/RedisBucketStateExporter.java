@@ -0,0 +1,233 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.BucketStateExporter;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Driven Adapter: Redis implementation of the {@link BucketStateExporter} port.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Non-Blocking Walk</b>: Keys are enumerated with cursor-based
+ * {@code SCAN}, never {@code KEYS}, so Redis keeps serving traffic between
+ * pages. On a cluster connection Lettuce walks every node in turn; given
+ * several connections (e.g. the shards of a
+ * {@link ShardedRedisRateLimiterRepository}), the exporter walks each one in
+ * turn.</li>
+ * <li><b>Pipelined Reads</b>: The {@code HMGET}s of one page are all written
+ * before the first reply is awaited, costing one round-trip per page instead of
+ * one per key.</li>
+ * <li><b>Bounded Memory</b>: Only the current page is buffered; the next one is
+ * fetched when the consumer drains it.</li>
+ * <li><b>Rate Cap</b>: Pages are paced so the export never reads more than
+ * {@code maxKeysPerSecond} keys per second on average.</li>
+ * </ul>
+ *
+ * <p>
+ * Keys that expire between {@code SCAN} and {@code HMGET}, and keys that are not
+ * bucket hashes, are skipped.
+ */
+public class RedisBucketStateExporter implements BucketStateExporter {
+
+    /** Default {@code SCAN COUNT} hint and pipeline depth. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** Default read-rate cap. */
+    public static final double DEFAULT_MAX_KEYS_PER_SECOND = 1_000.0;
+
+    private final List<LettuceConnectionProvider<?>> connectionProviders;
+    private final int batchSize;
+    private final double maxKeysPerSecond;
+    private final long timeoutNanos;
+
+    /**
+     * Creates an exporter with the default batch size, rate cap and timeout.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     */
+    public RedisBucketStateExporter(LettuceConnectionProvider<?> connectionProvider) {
+        this(connectionProvider, DEFAULT_BATCH_SIZE, DEFAULT_MAX_KEYS_PER_SECOND,
+                RedisRateLimiterRepository.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Full constructor.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param batchSize          {@code SCAN COUNT} hint and number of pipelined
+     *                           reads per page.
+     * @param maxKeysPerSecond   average read-rate cap.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if a numeric argument is not positive.
+     */
+    public RedisBucketStateExporter(LettuceConnectionProvider<?> connectionProvider,
+            int batchSize,
+            double maxKeysPerSecond,
+            Duration timeout) {
+        this(List.of(Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null")), batchSize,
+                maxKeysPerSecond, timeout);
+    }
+
+    /**
+     * Creates an exporter walking several independent Redis deployments in
+     * order. The rate cap applies to the export as a whole.
+     *
+     * @param connectionProviders one connection per deployment, e.g. per shard.
+     * @param batchSize           {@code SCAN COUNT} hint and number of pipelined
+     *                            reads per page.
+     * @param maxKeysPerSecond    average read-rate cap.
+     * @param timeout             upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if there is no connection or a numeric
+     *                                  argument is not positive.
+     */
+    public RedisBucketStateExporter(Collection<? extends LettuceConnectionProvider<?>> connectionProviders,
+            int batchSize,
+            double maxKeysPerSecond,
+            Duration timeout) {
+        this.connectionProviders = List.copyOf(
+                Objects.requireNonNull(connectionProviders, "ConnectionProviders must not be null"));
+        if (this.connectionProviders.isEmpty()) {
+            throw new IllegalArgumentException("At least one connection is required");
+        }
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (!(maxKeysPerSecond > 0)) {
+            throw new IllegalArgumentException("Max keys per second must be greater than zero");
+        }
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.batchSize = batchSize;
+        this.maxKeysPerSecond = maxKeysPerSecond;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public Stream<BucketSnapshot> export(String keyPattern) {
+        Objects.requireNonNull(keyPattern, "Key pattern must not be null");
+        Iterator<BucketSnapshot> iterator = new ScanIterator(keyPattern);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Walks one {@code SCAN} page at a time, refilling its buffer only when the
+     * consumer has drained it.
+     */
+    private final class ScanIterator implements Iterator<BucketSnapshot> {
+
+        private final ScanArgs scanArgs;
+        private final ArrayDeque<BucketSnapshot> buffer = new ArrayDeque<>();
+        private final long startNanos = System.nanoTime();
+        private ScanCursor cursor = ScanCursor.INITIAL;
+        private int connection;
+        private long keysRead;
+
+        ScanIterator(String keyPattern) {
+            this.scanArgs = ScanArgs.Builder.matches(keyPattern).limit(batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (buffer.isEmpty()) {
+                if (cursor.isFinished()) {
+                    if (connection + 1 >= connectionProviders.size()) {
+                        break;
+                    }
+                    connection++;
+                    cursor = ScanCursor.INITIAL;
+                }
+                fetchPage();
+            }
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public BucketSnapshot next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.poll();
+        }
+
+        private void fetchPage() {
+            RedisClusterAsyncCommands<String, String> commands = connectionProviders.get(connection).async();
+            KeyScanCursor<String> page = await(commands.scan(cursor, scanArgs));
+            cursor = page;
+            List<String> keys = page.getKeys();
+            if (keys.isEmpty()) {
+                return;
+            }
+
+            pace(keys.size());
+
+            List<RedisFuture<List<KeyValue<String, String>>>> replies = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                replies.add(commands.hmget(key, "t", "ts"));
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                List<KeyValue<String, String>> fields;
+                try {
+                    fields = await(replies.get(i));
+                } catch (RedisCommandExecutionException e) {
+                    // WRONGTYPE: a non-bucket key matched the pattern.
+                    continue;
+                }
+                if (fields.size() == 2 && fields.get(0).hasValue() && fields.get(1).hasValue()) {
+                    buffer.add(new BucketSnapshot(keys.get(i), new TokenBucket(
+                            Double.parseDouble(fields.get(0).getValue()),
+                            Long.parseLong(fields.get(1).getValue()))));
+                }
+            }
+        }
+
+        /**
+         * Parks until reading {@code pageSize} more keys keeps the average rate
+         * under the cap.
+         */
+        private void pace(int pageSize) {
+            keysRead += pageSize;
+            long dueNanos = startNanos + (long) ((keysRead - pageSize) / maxKeysPerSecond * 1_000_000_000L);
+            long delay;
+            while ((delay = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new RedisCommandInterruptedException(new InterruptedException());
+                }
+            }
+        }
+    }
+
+    private <T> T await(RedisFuture<T> future) {
+        return RedisCommandAwaiter.await(future, timeoutNanos);
+    }
+}
@@ -0,0 +1,80 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.DistinctKeys;
+import com.lokesh.ratelimiter.core.port.CardinalityStore;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Driven Adapter: Redis implementation of the {@link CardinalityStore} port.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>HyperLogLog</b>: Each set is a HyperLogLog updated with
+ * {@code PFADD} and read with {@code PFCOUNT}: at most 12 KB per tenant and
+ * window however many keys it sees, with a standard error of 0.81%.</li>
+ * <li><b>Pipelined</b>: The {@code PFADD}, {@code PEXPIREAT} and
+ * {@code PFCOUNT} of every set in a batch are written before the first reply
+ * is awaited, so a flush costs one round-trip. A batch without keys only
+ * counts.</li>
+ * <li><b>Retention</b>: Sets expire at the time the batch names, one window
+ * after theirs ended.</li>
+ * </ul>
+ */
+public class RedisCardinalityStore implements CardinalityStore {
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final long timeoutNanos;
+
+    /**
+     * Creates a store with the default timeout.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     */
+    public RedisCardinalityStore(LettuceConnectionProvider<?> connectionProvider) {
+        this(connectionProvider, RedisRateLimiterRepository.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param connectionProvider the shared Lettuce connection.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public RedisCardinalityStore(LettuceConnectionProvider<?> connectionProvider, Duration timeout) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public List<Long> addAndCount(List<DistinctKeys> batches) {
+        RedisClusterAsyncCommands<String, String> commands = connectionProvider.async();
+        List<RedisFuture<?>> writes = new ArrayList<>(batches.size() * 2);
+        List<RedisFuture<Long>> counts = new ArrayList<>(batches.size());
+        for (DistinctKeys batch : batches) {
+            if (!batch.keys().isEmpty()) {
+                writes.add(commands.pfadd(batch.set(), batch.keys().toArray(new String[0])));
+                writes.add(commands.pexpireat(batch.set(), batch.expiresAt()));
+            }
+            counts.add(commands.pfcount(batch.set()));
+        }
+
+        writes.forEach(write -> RedisCommandAwaiter.await(write, timeoutNanos));
+        List<Long> results = new ArrayList<>(batches.size());
+        for (RedisFuture<Long> count : counts) {
+            results.add(RedisCommandAwaiter.await(count, timeoutNanos));
+        }
+        return results;
+    }
+}
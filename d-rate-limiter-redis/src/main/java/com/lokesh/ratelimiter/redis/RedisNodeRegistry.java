@@ -0,0 +1,133 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+import com.lokesh.ratelimiter.core.port.NodeRegistry;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Driven Adapter: Redis implementation of the {@link NodeRegistry} port.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Key Layout</b>: Each node owns a hash
+ * {@code ratelimiter:node:{nodeId}} with one field per plan,
+ * {@code "demand,share"}. Its TTL is the heartbeat TTL, so a node that stops
+ * publishing disappears on its own. The set {@code ratelimiter:nodes} lists
+ * the nodes that ever published.</li>
+ * <li><b>Pipelined</b>: A heartbeat ({@code HSET}, {@code PEXPIRE},
+ * {@code SADD}) and the reads of all nodes' hashes each cost one round-trip.
+ * Hashes are overwritten field by field, never deleted, so a reader never sees
+ * a live node without its entry.</li>
+ * <li><b>Cleanup</b>: Members whose hash has expired are removed from the set
+ * by the next reader.</li>
+ * </ul>
+ */
+public class RedisNodeRegistry implements NodeRegistry {
+
+    /** Set of the ids of all nodes that published. */
+    public static final String NODES_KEY = "ratelimiter:nodes";
+
+    private static final String NODE_KEY_PREFIX = "ratelimiter:node:";
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final long timeoutNanos;
+
+    /**
+     * Creates a registry with the default timeout.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     */
+    public RedisNodeRegistry(LettuceConnectionProvider<?> connectionProvider) {
+        this(connectionProvider, RedisRateLimiterRepository.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param connectionProvider the shared Lettuce connection.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public RedisNodeRegistry(LettuceConnectionProvider<?> connectionProvider, Duration timeout) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public void publish(String nodeId, Map<String, NodeShare> plans, Duration ttl) {
+        if (plans.isEmpty()) {
+            return;
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        plans.forEach((plan, entry) -> fields.put(plan, entry.demand() + "," + entry.share()));
+
+        RedisClusterAsyncCommands<String, String> commands = connectionProvider.async();
+        String nodeKey = nodeKey(nodeId);
+        RedisFuture<Long> written = commands.hset(nodeKey, fields);
+        RedisFuture<Boolean> expiring = commands.pexpire(nodeKey, ttl.toMillis());
+        RedisFuture<Long> listed = commands.sadd(NODES_KEY, nodeId);
+        await(written);
+        await(expiring);
+        await(listed);
+    }
+
+    @Override
+    public Map<String, Map<String, NodeShare>> liveNodes() {
+        RedisClusterAsyncCommands<String, String> commands = connectionProvider.async();
+        List<String> nodeIds = new ArrayList<>(await(commands.smembers(NODES_KEY)));
+
+        List<RedisFuture<Map<String, String>>> replies = new ArrayList<>(nodeIds.size());
+        for (String nodeId : nodeIds) {
+            replies.add(commands.hgetall(nodeKey(nodeId)));
+        }
+        Map<String, Map<String, NodeShare>> live = new HashMap<>();
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i < nodeIds.size(); i++) {
+            Map<String, String> fields = await(replies.get(i));
+            if (fields.isEmpty()) {
+                expired.add(nodeIds.get(i));
+                continue;
+            }
+            Map<String, NodeShare> entries = new HashMap<>();
+            fields.forEach((plan, value) -> entries.put(plan, parse(value)));
+            live.put(nodeIds.get(i), entries);
+        }
+        if (!expired.isEmpty()) {
+            await(commands.srem(NODES_KEY, expired.toArray(new String[0])));
+        }
+        return live;
+    }
+
+    /**
+     * @return the hash holding a node's heartbeat, e.g.
+     *         {@code ratelimiter:node:api-7f9c}.
+     */
+    public static String nodeKey(String nodeId) {
+        return NODE_KEY_PREFIX + nodeId;
+    }
+
+    private static NodeShare parse(String value) {
+        int comma = value.indexOf(',');
+        return new NodeShare(Double.parseDouble(value.substring(0, comma)),
+                Double.parseDouble(value.substring(comma + 1)));
+    }
+
+    private <T> T await(RedisFuture<T> future) {
+        return RedisCommandAwaiter.await(future, timeoutNanos);
+    }
+}
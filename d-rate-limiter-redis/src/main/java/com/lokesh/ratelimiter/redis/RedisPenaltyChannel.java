@@ -0,0 +1,123 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BanDelta;
+import com.lokesh.ratelimiter.core.port.PenaltyChannel;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Driven Adapter: Redis Pub/Sub implementation of the {@link PenaltyChannel}
+ * port.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Messages</b>: Each delta is one message on {@link #CHANNEL},
+ * {@code "nodeId partition hash,hash,..."} with the hashes in hex. Messages
+ * whose node id is this node's are ignored, as the port requires.</li>
+ * <li><b>Publishing</b> goes over the shared command connection, one
+ * pipelined round-trip per batch.</li>
+ * <li><b>Subscribing</b> needs a dedicated connection, which this channel owns
+ * and closes. Messages sent while it is disconnected are lost; the bans they
+ * carried stay local.</li>
+ * </ul>
+ */
+public class RedisPenaltyChannel implements PenaltyChannel, AutoCloseable {
+
+    /** The Pub/Sub channel carrying bans. */
+    public static final String CHANNEL = "ratelimiter:bans";
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPenaltyChannel.class);
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final StatefulRedisPubSubConnection<String, String> subscriber;
+    private final String nodeId;
+    private final long timeoutNanos;
+
+    /**
+     * @param connectionProvider the shared Lettuce connection, for publishing.
+     * @param subscriber         a Pub/Sub connection owned by this channel.
+     * @param nodeId             unique name of this node.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if the node id contains a space or the
+     *                                  timeout is not positive.
+     */
+    public RedisPenaltyChannel(LettuceConnectionProvider<?> connectionProvider,
+            StatefulRedisPubSubConnection<String, String> subscriber, String nodeId, Duration timeout) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        this.subscriber = Objects.requireNonNull(subscriber, "Subscriber must not be null");
+        this.nodeId = Objects.requireNonNull(nodeId, "Node id must not be null");
+        if (nodeId.isEmpty() || nodeId.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Node id must be non-empty and contain no spaces");
+        }
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public void publish(List<BanDelta> deltas) {
+        RedisClusterAsyncCommands<String, String> commands = connectionProvider.async();
+        List<RedisFuture<Long>> replies = new ArrayList<>(deltas.size());
+        for (BanDelta delta : deltas) {
+            replies.add(commands.publish(CHANNEL, encode(delta)));
+        }
+        replies.forEach(reply -> RedisCommandAwaiter.await(reply, timeoutNanos));
+    }
+
+    @Override
+    public void subscribe(Consumer<List<BanDelta>> receiver) {
+        subscriber.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                if (!CHANNEL.equals(channel) || message.startsWith(nodeId + " ")) {
+                    return;
+                }
+                try {
+                    receiver.accept(List.of(decode(message)));
+                } catch (RuntimeException e) {
+                    log.warn("Dropped malformed ban message [{}]. Reason: {}", message, e.getMessage());
+                }
+            }
+        });
+        RedisCommandAwaiter.await(subscriber.async().subscribe(CHANNEL), timeoutNanos);
+    }
+
+    /** Closes the Pub/Sub connection. */
+    @Override
+    public void close() {
+        subscriber.close();
+    }
+
+    private String encode(BanDelta delta) {
+        StringBuilder message = new StringBuilder(nodeId).append(' ').append(delta.partition()).append(' ');
+        for (int i = 0; i < delta.hashes().size(); i++) {
+            message.append(i == 0 ? "" : ",").append(Long.toHexString(delta.hashes().get(i)));
+        }
+        return message.toString();
+    }
+
+    private static BanDelta decode(String message) {
+        String[] parts = message.split(" ");
+        String[] encoded = parts[2].split(",");
+        List<Long> hashes = new ArrayList<>(encoded.length);
+        for (String hash : encoded) {
+            hashes.add(Long.parseUnsignedLong(hash, 16));
+        }
+        return new BanDelta(Long.parseLong(parts[1]), hashes);
+    }
+}
@@ -0,0 +1,87 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Driven Adapter: Redis implementation of the {@link QuotaStore} port.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Per-Node Fields</b>: Each quota counter is a hash with one field per
+ * node holding that node's running total. {@code HSET} replaces the field, so
+ * a flush retried after a timeout is not counted twice; the following
+ * {@code HVALS} reads every node's total, summed here.</li>
+ * <li><b>Pipelined</b>: The {@code HSET}, {@code HVALS} and {@code PEXPIREAT}
+ * of every contribution in a batch are written before the first reply is
+ * awaited, so a flush costs one round-trip. Commands on one connection run in
+ * order, so {@code HVALS} sees the field just written. On a cluster connection
+ * Lettuce routes each command to the node owning its key.</li>
+ * <li><b>Retention</b>: Counters expire at the time the increment names,
+ * shortly after their window ended.</li>
+ * </ul>
+ */
+public class RedisQuotaStore implements QuotaStore {
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final long timeoutNanos;
+
+    /**
+     * Creates a store with the default timeout.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     */
+    public RedisQuotaStore(LettuceConnectionProvider<?> connectionProvider) {
+        this(connectionProvider, RedisRateLimiterRepository.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param connectionProvider the shared Lettuce connection.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public RedisQuotaStore(LettuceConnectionProvider<?> connectionProvider, Duration timeout) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public List<Long> contribute(List<QuotaContribution> contributions) {
+        RedisClusterAsyncCommands<String, String> commands = connectionProvider.async();
+        int size = contributions.size();
+        List<RedisFuture<Boolean>> writes = new ArrayList<>(size);
+        List<RedisFuture<List<String>>> totals = new ArrayList<>(size);
+        List<RedisFuture<Boolean>> expiries = new ArrayList<>(size);
+        for (QuotaContribution contribution : contributions) {
+            writes.add(commands.hset(contribution.key(), contribution.node(), Long.toString(contribution.total())));
+            totals.add(commands.hvals(contribution.key()));
+            expiries.add(commands.pexpireat(contribution.key(), contribution.expiresAt()));
+        }
+
+        List<Long> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RedisCommandAwaiter.await(writes.get(i), timeoutNanos);
+            long total = 0;
+            for (String nodeTotal : RedisCommandAwaiter.await(totals.get(i), timeoutNanos)) {
+                total += Long.parseLong(nodeTotal);
+            }
+            results.add(total);
+            RedisCommandAwaiter.await(expiries.get(i), timeoutNanos);
+        }
+        return results;
+    }
+}
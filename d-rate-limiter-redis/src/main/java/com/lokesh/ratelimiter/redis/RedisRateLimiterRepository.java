@@ -0,0 +1,641 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.AcquireRequest;
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PathConsumption;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.RateLimitKey;
+import com.lokesh.ratelimiter.redis.support.AutoBatchingWriter;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import com.lokesh.ratelimiter.redis.support.RedisCommandAwaiter;
+import com.lokesh.ratelimiter.redis.support.RedisFunctionLibrary;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Driven Adapter: Redis implementation of the {@link RateLimiterRepository}
+ * port.
+ *
+ * <p>
+ * Architectural Role: <b>Infrastructure Adapter</b> (ADR 001). All token math
+ * runs inside {@code acquire_tokens.lua}, which mirrors
+ * {@link TokenBucket#tryConsume} step by step (ADR 006).
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Atomic Chained Limits (ADR 005)</b>: Every plan of a request is
+ * evaluated in one script call; tokens are deducted from all buckets or from
+ * none.</li>
+ * <li><b>Coalesced Requests</b>: {@link #tryAcquireRepeated} and
+ * {@link #tryAcquireRepeatedAbove} run {@code acquire_repeated.lua}, which
+ * grants as many identical requests as the buckets can pay for, above an
+ * optional floor, in one call.</li>
+ * <li><b>Hierarchical Limits</b>: {@link #fairShare} returns a
+ * {@link FairShareRepository} that runs {@code acquire_hierarchical.lua}, which
+ * mirrors {@link PathConsumption} on the global, tenant and user buckets in one
+ * call. Refused on a cluster, where the shared global bucket lives in another
+ * slot than the tenants' buckets.</li>
+ * <li><b>Reservations</b>: {@link #tryReserve} and {@link #refund} run
+ * {@code reserve_tokens.lua}, which lets buckets go negative by what refills
+ * within the caller's wait limit.</li>
+ * <li><b>Function Library</b>: On Redis 7+ the scripts are called as functions
+ * ({@code FCALL}) of a {@link RedisFunctionLibrary}, which persists across
+ * restarts and replicates. {@link #getState} uses {@code FCALL_RO}, so it can be
+ * served by replicas when the connection reads from them. A missing library is
+ * loaded on demand; servers without {@code FCALL} switch the adapter to
+ * {@code EVALSHA} for good.</li>
+ * <li><b>Self-Healing (ADR 004)</b>: In {@code EVALSHA} mode, on
+ * {@code NOSCRIPT} the full body is sent once with {@code EVAL}, which also
+ * re-populates the server's script cache.</li>
+ * <li><b>Timeout Contract [Fix 5]</b>: Every command is bounded by the
+ * configured timeout (100ms by default). Failures surface as Lettuce runtime
+ * exceptions so {@code DefaultRateLimiter} can fail open.</li>
+ * <li><b>Redis Cluster</b>: On cluster connections bucket keys carry a hash
+ * tag (see {@link RateLimitKey}), so all plans of a key share a slot.
+ * {@link #tryAcquireBatch} issues every command on a dedicated connection with
+ * auto-flush switched off and flushes once: Lettuce routes each command to the
+ * node owning its slot, so each node receives its share as one pipelined write
+ * and nodes work in parallel. {@code MOVED}/{@code ASK} are followed per
+ * command; an entry whose command still fails is retried on its own, and the
+ * rest of the batch is kept.</li>
+ * <li><b>Auto-Batching</b>: With an {@link AutoBatchingWriter}, decision
+ * commands are coalesced into pipelined writes on its dedicated connection;
+ * reads and administration stay on the shared connection.</li>
+ * <li><b>Virtual-Thread Friendly</b>: Commands are issued through the async API
+ * and the caller parks on the reply future. No monitor is held while waiting,
+ * so a virtual thread unmounts from its carrier instead of pinning it.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Key Layout</b>: Each plan gets its own bucket,
+ * {@code ratelimiter:default:{key}:{plan}} (see {@link RateLimitKey}), or
+ * {@code ratelimiter:default:{{key}}:{plan}} on a cluster.
+ */
+public class RedisRateLimiterRepository implements RateLimiterRepository, AutoCloseable {
+
+    /** Classpath location of the chained acquire script. */
+    public static final String ACQUIRE_SCRIPT = "lua/acquire_tokens.lua";
+
+    /** Classpath location of the all-or-partial grant for coalesced requests. */
+    public static final String REPEATED_SCRIPT = "lua/acquire_repeated.lua";
+
+    /** Classpath location of the global → tenant → user fair-share script. */
+    public static final String HIERARCHY_SCRIPT = "lua/acquire_hierarchical.lua";
+
+    /** Classpath location of the chained reservation and refund script. */
+    public static final String RESERVE_SCRIPT = "lua/reserve_tokens.lua";
+
+    /** Classpath location of the read-only state script. */
+    public static final String STATE_SCRIPT = "lua/get_state.lua";
+
+    /**
+     * Classpath location of the protocol probe. Registered as a read-only
+     * function only: {@link RedisWarmUp} calls it to learn which reply format the
+     * deployed library speaks.
+     */
+    public static final String PROTOCOL_SCRIPT = "lua/protocol.lua";
+
+    /** Every script this adapter may execute; pre-loaded by {@link RedisWarmUp}. */
+    public static final List<String> BUNDLED_SCRIPTS = List.of(ACQUIRE_SCRIPT, REPEATED_SCRIPT,
+            HIERARCHY_SCRIPT, RESERVE_SCRIPT, STATE_SCRIPT);
+
+    /** Default command timeout, matching the port's 100ms SLA [Fix 5]. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(100);
+
+    private static final String DENY_REASON = "RATE_LIMITED";
+
+    private static final String[] NO_ARGS = new String[0];
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRateLimiterRepository.class);
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final LettuceConnectionProvider<?> batchConnection;
+    private final LuaScriptLoader scriptLoader;
+    private final RedisFunctionLibrary library;
+    private final long timeoutNanos;
+    private final boolean hashTags;
+    private final AutoBatchingWriter writer;
+
+    /** Cleared once the server rejects {@code FCALL}; never set again. */
+    private volatile boolean functionsEnabled;
+
+    /**
+     * Creates a repository with the default 100ms command timeout.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     */
+    public RedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider, LuaScriptLoader scriptLoader) {
+        this(connectionProvider, scriptLoader, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates a repository that prefers Redis functions.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     * @param timeout            upper bound for every Redis round-trip.
+     */
+    public RedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader,
+            Duration timeout) {
+        this(connectionProvider, scriptLoader, timeout, true);
+    }
+
+    /**
+     * Creates a repository without auto-batching.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @param useFunctions       whether to call the function library
+     *                           ({@code FCALL}); {@code false} forces
+     *                           {@code EVALSHA}.
+     * @throws NullPointerException     if any argument is {@code null}.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public RedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader,
+            Duration timeout,
+            boolean useFunctions) {
+        this(connectionProvider, scriptLoader, timeout, useFunctions, null);
+    }
+
+    /**
+     * Full constructor.
+     *
+     * @param connectionProvider the shared Lettuce connection.
+     * @param scriptLoader       the cache of bundled Lua scripts.
+     * @param timeout            upper bound for every Redis round-trip.
+     * @param useFunctions       whether to call the function library
+     *                           ({@code FCALL}); {@code false} forces
+     *                           {@code EVALSHA}.
+     * @param writer             coalesces decision commands, or {@code null} to
+     *                           issue them on the shared connection.
+     * @throws NullPointerException     if a required argument is {@code null}.
+     * @throws IllegalArgumentException if the timeout is not positive.
+     */
+    public RedisRateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader,
+            Duration timeout,
+            boolean useFunctions,
+            AutoBatchingWriter writer) {
+        this.writer = writer;
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        this.batchConnection = connectionProvider.pipelined();
+        this.scriptLoader = Objects.requireNonNull(scriptLoader, "ScriptLoader must not be null");
+        Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must be greater than zero");
+        }
+        this.timeoutNanos = timeout.toNanos();
+        this.library = RedisFunctionLibrary.of(scriptLoader,
+                List.of(ACQUIRE_SCRIPT, REPEATED_SCRIPT, HIERARCHY_SCRIPT, RESERVE_SCRIPT),
+                List.of(STATE_SCRIPT, PROTOCOL_SCRIPT));
+        this.functionsEnabled = useFunctions;
+        this.hashTags = connectionProvider.isCluster();
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        return run(ACQUIRE_SCRIPT, keysOf(key, configs), acquireArgs(configs, tokensToConsume));
+    }
+
+    /**
+     * Passes the floor to {@code acquire_tokens.lua} as a trailing argument,
+     * which mirrors {@link TokenBucket#tryConsumeAbove}.
+     */
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        String[] args = Arrays.copyOf(acquireArgs(configs, tokensToConsume), 2 + configs.size() * 2);
+        args[args.length - 1] = String.valueOf(floor);
+        return run(ACQUIRE_SCRIPT, keysOf(key, configs), args);
+    }
+
+    @Override
+    public List<RateLimitResult> tryAcquireBatch(List<AcquireRequest> requests) {
+        int n = requests.size();
+        String[][] keys = new String[n][];
+        String[][] args = new String[n][];
+        for (int i = 0; i < n; i++) {
+            AcquireRequest request = requests.get(i);
+            keys[i] = keysOf(request.key(), request.configs());
+            args[i] = acquireArgs(request.configs(), request.tokensToConsume());
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisFuture<List<Object>>[] futures = new RedisFuture[n];
+        boolean functions = functionsEnabled;
+        String function = library.functionName(ACQUIRE_SCRIPT);
+        String sha = scriptLoader.getSha(ACQUIRE_SCRIPT);
+        RedisClusterAsyncCommands<String, String> batch = batchConnection.async();
+        for (int i = 0; i < n; i++) {
+            futures[i] = functions
+                    ? batch.fcall(function, ScriptOutputType.MULTI, keys[i], args[i])
+                    : batch.evalsha(sha, ScriptOutputType.MULTI, keys[i], args[i]);
+        }
+        batchConnection.connect().flushCommands();
+
+        List<RateLimitResult> results = new ArrayList<>(n);
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int i = 0; i < n; i++) {
+            results.add(batchResult(futures[i], keys[i], args[i], deadline));
+        }
+        return results;
+    }
+
+    /**
+     * Awaits one batch entry within the batch's deadline. A command error
+     * ({@code NOSCRIPT}, missing library, a redirect Lettuce gave up on) is
+     * retried for this entry alone.
+     */
+    private RateLimitResult batchResult(RedisFuture<List<Object>> future, String[] keys, String[] args,
+            long deadline) {
+        try {
+            try {
+                return toResult(RedisCommandAwaiter.await(future, Math.max(0, deadline - System.nanoTime())));
+            } catch (RedisCommandExecutionException e) {
+                return run(ACQUIRE_SCRIPT, keys, args);
+            }
+        } catch (RuntimeException e) {
+            return RateLimitResult.failOpen(e.getMessage());
+        }
+    }
+
+    /**
+     * Decides all requests in one {@code acquire_repeated.lua} call, which
+     * returns how many were granted; the results are the ones
+     * {@code acquire_tokens.lua} would have returned for each request in turn.
+     */
+    @Override
+    public List<RateLimitResult> tryAcquireRepeated(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests) {
+        return tryAcquireRepeatedAbove(key, configs, tokensPerRequest, requests, 0);
+    }
+
+    /**
+     * Passes a positive floor to {@code acquire_repeated.lua} as a trailing
+     * argument, as {@link #tryAcquireAbove} does for single requests.
+     */
+    @Override
+    public List<RateLimitResult> tryAcquireRepeatedAbove(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests, double floor) {
+        String[] args = new String[(floor > 0 ? 3 : 2) + configs.size() * 2];
+        if (floor > 0) {
+            args[args.length - 1] = String.valueOf(floor);
+        }
+        args[0] = String.valueOf(tokensPerRequest);
+        args[1] = String.valueOf(requests);
+        for (int i = 0; i < configs.size(); i++) {
+            RateLimitConfig config = configs.get(i);
+            args[2 + i * 2] = String.valueOf(config.capacity());
+            args[3 + i * 2] = String.valueOf(config.tokensPerSecond());
+        }
+        return run(REPEATED_SCRIPT, keysOf(key, configs), args,
+                reply -> toResults(reply, tokensPerRequest, requests));
+    }
+
+    /**
+     * Returns the hierarchical limits of this store. Each call consumes tokens
+     * along the path in {@code acquire_hierarchical.lua}, which mirrors
+     * {@link PathConsumption#tryConsume}.
+     *
+     * @return the fair-share view of this store.
+     * @throws IllegalStateException on a cluster connection, where the buckets
+     *                               of a path live in different slots.
+     */
+    public FairShareRepository fairShare() {
+        if (hashTags) {
+            throw new IllegalStateException("Hierarchical limits are not supported on Redis Cluster");
+        }
+        return this::tryAcquireFairShare;
+    }
+
+    private RateLimitResult tryAcquireFairShare(FairShareLimit limit, FairSharePath path, int tokensToConsume) {
+        List<RateLimitConfig> configs = limit.configs(path);
+        return run(HIERARCHY_SCRIPT, fairShareKeys(limit, path).toArray(new String[0]),
+                acquireArgs(configs, tokensToConsume));
+    }
+
+    /**
+     * Reserves tokens in {@code reserve_tokens.lua}, which mirrors
+     * {@link TokenBucket#tryReserve}: buckets may go negative by what refills
+     * within {@code maxWaitMillis}.
+     */
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        return reserve(key, configs, tokensToConsume, maxWaitMillis);
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        reserve(key, configs, -tokensToConsume, 0);
+    }
+
+    /**
+     * Deducts tokens in {@code reserve_tokens.lua} with an unbounded wait, which
+     * always succeeds and leaves the debt in the bucket (see
+     * {@link TokenBucket#debit}).
+     */
+    @Override
+    public void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        reserve(key, configs, tokens, Long.MAX_VALUE);
+    }
+
+    private RateLimitResult reserve(String key, List<RateLimitConfig> configs, long tokens, long maxWaitMillis) {
+        String[] args = new String[2 + configs.size() * 2];
+        args[0] = String.valueOf(tokens);
+        args[1] = String.valueOf(maxWaitMillis);
+        for (int i = 0; i < configs.size(); i++) {
+            RateLimitConfig config = configs.get(i);
+            args[2 + i * 2] = String.valueOf(config.capacity());
+            args[3 + i * 2] = String.valueOf(config.tokensPerSecond());
+        }
+        return run(RESERVE_SCRIPT, keysOf(key, configs), args);
+    }
+
+    private String[] keysOf(String key, List<RateLimitConfig> configs) {
+        String[] keys = new String[configs.size()];
+        for (int i = 0; i < configs.size(); i++) {
+            keys[i] = bucketKey(key, configs.get(i), hashTags);
+        }
+        return keys;
+    }
+
+    private static String[] acquireArgs(List<RateLimitConfig> configs, int tokensToConsume) {
+        String[] args = new String[1 + configs.size() * 2];
+        args[0] = String.valueOf(tokensToConsume);
+        for (int i = 0; i < configs.size(); i++) {
+            RateLimitConfig config = configs.get(i);
+            args[1 + i * 2] = String.valueOf(config.capacity());
+            args[2 + i * 2] = String.valueOf(config.tokensPerSecond());
+        }
+        return args;
+    }
+
+    private RateLimitResult run(String scriptPath, String[] keys, String[] args) {
+        return run(scriptPath, keys, args, RedisRateLimiterRepository::toResult);
+    }
+
+    private <T> T run(String scriptPath, String[] keys, String[] args, Function<List<Object>, T> mapper) {
+        if (!functionsEnabled) {
+            return mapper.apply(evalScript(scriptPath, keys, args));
+        }
+        return callFunction(scriptPath, keys, args, mapper, () -> mapper.apply(evalScript(scriptPath, keys, args)));
+    }
+
+    /**
+     * Reads a bucket without modifying it.
+     *
+     * @param key the full bucket key, as produced by {@link #bucketKey}.
+     */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        if (!functionsEnabled) {
+            return readState(key);
+        }
+        return callFunction(STATE_SCRIPT, new String[] { key }, NO_ARGS,
+                RedisRateLimiterRepository::toBucket, () -> readState(key));
+    }
+
+    /**
+     * Derives the Redis key of the bucket guarding {@code key} under
+     * {@code config}.
+     *
+     * @param key    the identity being limited.
+     * @param config the plan applied to it.
+     * @return the bucket key, e.g. {@code ratelimiter:default:user_1:gold}.
+     */
+    public static String bucketKey(String key, RateLimitConfig config) {
+        return bucketKey(key, config, false);
+    }
+
+    /**
+     * Derives the Redis key of the bucket guarding {@code key} under
+     * {@code config}.
+     *
+     * @param hashTag whether to hash-tag the key for Redis Cluster.
+     * @return the bucket key, e.g. {@code ratelimiter:default:{user_1}:gold}.
+     */
+    public static String bucketKey(String key, RateLimitConfig config, boolean hashTag) {
+        RateLimitKey.Builder builder = RateLimitKey.builder().withUser(key).withPlan(config.planName());
+        return (hashTag ? builder.withHashTag() : builder).build();
+    }
+
+    /**
+     * Derives the keys of the buckets along a hierarchical path; {@code *} stands
+     * for a whole level.
+     *
+     * @return the global, tenant and user bucket keys, e.g.
+     *         {@code ratelimiter:*:*:api}, {@code ratelimiter:acme:*:api} and
+     *         {@code ratelimiter:acme:user_1:api}.
+     */
+    public static List<String> fairShareKeys(FairShareLimit limit, FairSharePath path) {
+        return List.of(
+                RateLimitKey.builder().withTenant("*").withUser("*").withPlan(limit.planName()).build(),
+                RateLimitKey.builder().withTenant(path.tenant()).withUser("*").withPlan(limit.planName()).build(),
+                RateLimitKey.builder().withTenant(path.tenant()).withUser(path.user()).withPlan(limit.planName())
+                        .build());
+    }
+
+    /**
+     * Registers the function library on every node. The library name is
+     * versioned, so {@code FUNCTION LOAD REPLACE} is idempotent. Replicas reject
+     * the write and receive the library through replication instead.
+     *
+     * @return {@code false} if the server does not support functions.
+     */
+    public boolean loadFunctions() {
+        if (!functionsEnabled) {
+            return false;
+        }
+        for (RedisClusterAsyncCommands<String, String> node : connectionProvider.nodes()) {
+            try {
+                await(node.functionLoad(library.code(), true));
+            } catch (RedisCommandExecutionException e) {
+                if (isUnknownCommand(e)) {
+                    disableFunctions(e);
+                    return false;
+                }
+                if (!isReadOnlyReplica(e)) {
+                    throw e;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** @return the registered name of the library's protocol probe. */
+    String protocolFunction() {
+        return library.functionName(PROTOCOL_SCRIPT);
+    }
+
+    /**
+     * Calls a library function, loading the library when the server does not
+     * know it yet (first use, {@code FUNCTION FLUSH}). Uses {@code fallback} on
+     * servers without {@code FCALL}.
+     */
+    private <T> T callFunction(String scriptPath, String[] keys, String[] args,
+            Function<List<Object>, T> mapper, Supplier<T> fallback) {
+        try {
+            return mapper.apply(await(fcall(scriptPath, keys, args)));
+        } catch (RedisCommandExecutionException e) {
+            if (isFunctionMissing(e)) {
+                if (loadFunctions()) {
+                    return mapper.apply(await(fcall(scriptPath, keys, args)));
+                }
+            } else if (isUnknownCommand(e)) {
+                disableFunctions(e);
+            } else {
+                throw e;
+            }
+        }
+        return fallback.get();
+    }
+
+    private RedisFuture<List<Object>> fcall(String scriptPath, String[] keys, String[] args) {
+        String function = library.functionName(scriptPath);
+        return STATE_SCRIPT.equals(scriptPath)
+                ? commands().fcallReadOnly(function, ScriptOutputType.MULTI, keys, args)
+                : dispatch(commands -> commands.fcall(function, ScriptOutputType.MULTI, keys, args));
+    }
+
+    private void disableFunctions(RedisCommandExecutionException cause) {
+        if (functionsEnabled) {
+            functionsEnabled = false;
+            log.warn("Redis server does not support functions ({}); falling back to EVALSHA", cause.getMessage());
+        }
+    }
+
+    private static boolean isFunctionMissing(RedisCommandExecutionException e) {
+        return messageOf(e).contains("function not found");
+    }
+
+    private static boolean isUnknownCommand(RedisCommandExecutionException e) {
+        return messageOf(e).contains("unknown command");
+    }
+
+    private static boolean isReadOnlyReplica(RedisCommandExecutionException e) {
+        return messageOf(e).startsWith("readonly");
+    }
+
+    private static String messageOf(Exception e) {
+        return e.getMessage() == null ? "" : e.getMessage().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Runs a bundled script via {@code EVALSHA}, falling back to {@code EVAL} when
+     * the server has lost its script cache (restart, failover, SCRIPT FLUSH).
+     */
+    private List<Object> evalScript(String scriptPath, String[] keys, String[] args) {
+        try {
+            return await(dispatch(commands -> commands.<List<Object>>evalsha(
+                    scriptLoader.getSha(scriptPath), ScriptOutputType.MULTI, keys, args)));
+        } catch (RedisNoScriptException e) {
+            return await(dispatch(commands -> commands.<List<Object>>eval(
+                    scriptLoader.getScript(scriptPath), ScriptOutputType.MULTI, keys, args)));
+        }
+    }
+
+    /** Reads a bucket with {@code HMGET}, used when functions are unavailable. */
+    private Optional<TokenBucket> readState(String key) {
+        List<KeyValue<String, String>> fields = await(commands().hmget(key, "t", "ts"));
+        if (fields.size() < 2 || !fields.get(0).hasValue() || !fields.get(1).hasValue()) {
+            return Optional.empty();
+        }
+        return Optional.of(new TokenBucket(
+                Double.parseDouble(fields.get(0).getValue()),
+                Long.parseLong(fields.get(1).getValue())));
+    }
+
+    /** Maps the state function reply {@code [tokens, lastRefillMillis]}. */
+    private static Optional<TokenBucket> toBucket(List<Object> reply) {
+        if (reply.size() < 2 || reply.get(0) == null || reply.get(1) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new TokenBucket(
+                Double.parseDouble(String.valueOf(reply.get(0))),
+                Long.parseLong(String.valueOf(reply.get(1)))));
+    }
+
+    /**
+     * Maps the script reply {@code [allowed, remaining, waitMillis]}. An allowed
+     * reply with a wait is a reservation.
+     */
+    private static RateLimitResult toResult(List<Object> reply) {
+        boolean allowed = ((Number) reply.get(0)).longValue() == 1L;
+        double remaining = Double.parseDouble(String.valueOf(reply.get(1)));
+        long waitMillis = ((Number) reply.get(2)).longValue();
+        if (!allowed) {
+            return RateLimitResult.deny(remaining, waitMillis, DENY_REASON);
+        }
+        return waitMillis > 0
+                ? RateLimitResult.reserved(remaining, waitMillis)
+                : RateLimitResult.allow(remaining);
+    }
+
+    /**
+     * Expands the grant reply {@code [granted, remaining, waitMillis]}: request
+     * {@code i} of the granted ones left {@code granted - i} requests' worth of
+     * tokens more than the final remainder; the others are denied against it.
+     */
+    private static List<RateLimitResult> toResults(List<Object> reply, int tokensPerRequest, int requests) {
+        int granted = (int) ((Number) reply.get(0)).longValue();
+        double remaining = Double.parseDouble(String.valueOf(reply.get(1)));
+        long waitMillis = ((Number) reply.get(2)).longValue();
+        List<RateLimitResult> results = new ArrayList<>(requests);
+        for (int i = 1; i <= requests; i++) {
+            results.add(i <= granted
+                    ? RateLimitResult.allow(remaining + (double) (granted - i) * tokensPerRequest)
+                    : RateLimitResult.deny(remaining, waitMillis, DENY_REASON));
+        }
+        return results;
+    }
+
+    /**
+     * Closes the dedicated batch connection, if one was opened. The shared
+     * connection belongs to the caller.
+     */
+    @Override
+    public void close() {
+        batchConnection.close();
+    }
+
+    private RedisClusterAsyncCommands<String, String> commands() {
+        return connectionProvider.async();
+    }
+
+    /** Issues a decision command, through the auto-batching writer if enabled. */
+    private <T> RedisFuture<T> dispatch(Function<RedisClusterAsyncCommands<String, String>, RedisFuture<T>> command) {
+        return writer != null ? writer.write(command) : command.apply(commands());
+    }
+
+    private <T> T await(RedisFuture<T> future) {
+        return RedisCommandAwaiter.await(future, timeoutNanos);
+    }
+}
@@ -0,0 +1,193 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScript;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Startup warm-up for the Redis adapter.
+ *
+ * <p>
+ * Without a warm-up, the first requests after a deploy pay for Lettuce
+ * connection set-up, {@code NOSCRIPT} recovery and cold JIT paths. This class
+ * moves all three to startup:
+ * <ol>
+ * <li><b>Connection priming</b>: opens the shared connection and one connection
+ * per server node.</li>
+ * <li><b>Script loading</b>: runs {@code SCRIPT LOAD} for every bundled script on
+ * every node, including cluster replicas (the script cache is node-local and a
+ * promoted replica would otherwise answer {@code NOSCRIPT}), then registers the
+ * function library on Redis 7+.</li>
+ * <li><b>Protocol check</b>: calls the protocol function of the deployed
+ * library ({@code FCALL_RO}) on every node and compares its reply with
+ * {@link LuaScript#PROTOCOL_VERSION}, so a node serving a library built for
+ * another reply format is caught before any decision. Replicas that have not
+ * received the library yet are polled until the timeout. In {@code EVALSHA}
+ * mode the per-node SHA check already pins the exact script bodies, and with
+ * them the protocol.</li>
+ * <li><b>JIT warm-up</b>: runs synthetic decisions through the repository
+ * against the reserved {@value #RESERVED_KEY_PREFIX} key namespace.</li>
+ * </ol>
+ *
+ * <p>
+ * {@link #run()} either completes every step or throws; callers report
+ * readiness only after it returns.
+ */
+public class RedisWarmUp {
+
+    /** Key namespace reserved for synthetic warm-up decisions. */
+    public static final String RESERVED_KEY_PREFIX = "__warmup__";
+
+    /**
+     * Plan used for synthetic decisions. A 1-token bucket refilling at 1000/s
+     * expires 1ms after each write, so warm-up leaves nothing behind.
+     */
+    static final RateLimitConfig WARM_UP_PLAN = new RateLimitConfig(RESERVED_KEY_PREFIX, 1, 1000.0);
+
+    private static final long REPLICATION_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Logger log = LoggerFactory.getLogger(RedisWarmUp.class);
+
+    private final LettuceConnectionProvider<?> connectionProvider;
+    private final LuaScriptLoader scriptLoader;
+    private final RateLimiterRepository repository;
+    private final List<String> scripts;
+    private final int syntheticDecisions;
+    private final Duration timeout;
+
+    /**
+     * @param connectionProvider the connection to prime.
+     * @param scriptLoader       the loader whose SHAs the adapter will use.
+     * @param repository         the repository to exercise with synthetic
+     *                           decisions.
+     * @param scripts            classpath paths of the scripts to load.
+     * @param syntheticDecisions number of synthetic decisions; {@code 0} disables
+     *                           JIT warm-up.
+     * @param timeout            upper bound for each administrative command.
+     */
+    public RedisWarmUp(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader,
+            RateLimiterRepository repository,
+            List<String> scripts,
+            int syntheticDecisions,
+            Duration timeout) {
+        this.connectionProvider = Objects.requireNonNull(connectionProvider, "ConnectionProvider must not be null");
+        this.scriptLoader = Objects.requireNonNull(scriptLoader, "ScriptLoader must not be null");
+        this.repository = Objects.requireNonNull(repository, "Repository must not be null");
+        this.scripts = List.copyOf(Objects.requireNonNull(scripts, "Scripts must not be null"));
+        this.timeout = Objects.requireNonNull(timeout, "Timeout must not be null");
+        if (syntheticDecisions < 0) {
+            throw new IllegalArgumentException("Synthetic decisions must not be negative");
+        }
+        this.syntheticDecisions = syntheticDecisions;
+    }
+
+    /**
+     * Runs every warm-up step.
+     *
+     * @return a summary of the work done.
+     * @throws RedisException        if a node cannot be reached or a decision
+     *                               fails.
+     * @throws IllegalStateException if a node reports a SHA that differs from the
+     *                               one the adapter will send, or its library
+     *                               speaks another protocol version.
+     */
+    public Report run() {
+        long start = System.nanoTime();
+
+        List<RedisClusterAsyncCommands<String, String>> nodes = connectionProvider.nodes();
+        for (RedisClusterAsyncCommands<String, String> node : nodes) {
+            for (String script : scripts) {
+                String loadedSha = await(node.scriptLoad(scriptLoader.getScript(script)));
+                if (!scriptLoader.getSha(script).equals(loadedSha)) {
+                    throw new IllegalStateException(
+                            "Redis reported SHA [" + loadedSha + "] for script [" + script + "], expected ["
+                                    + scriptLoader.getSha(script) + "]");
+                }
+            }
+        }
+
+        if (repository instanceof RedisRateLimiterRepository redisRepository && redisRepository.loadFunctions()) {
+            String probe = redisRepository.protocolFunction();
+            for (RedisClusterAsyncCommands<String, String> node : nodes) {
+                checkProtocol(node, probe);
+            }
+        }
+
+        List<RateLimitConfig> plans = List.of(WARM_UP_PLAN);
+        for (int i = 0; i < syntheticDecisions; i++) {
+            repository.tryAcquire(RESERVED_KEY_PREFIX + i, plans, 1);
+        }
+
+        Report report = new Report(nodes.size(), scripts.size(), syntheticDecisions,
+                Duration.ofNanos(System.nanoTime() - start));
+        log.info("Rate limiter warm-up complete: {} node(s), {} script(s), {} synthetic decision(s) in {}ms",
+                report.nodes(), report.scripts(), report.decisions(), report.elapsed().toMillis());
+        return report;
+    }
+
+    private void checkProtocol(RedisClusterAsyncCommands<String, String> node, String probe) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Long version;
+        while (true) {
+            try {
+                version = await(node.<Long>fcallReadOnly(probe, ScriptOutputType.INTEGER));
+                break;
+            } catch (RedisException e) {
+                // A replica receives the library through replication, possibly a moment later.
+                if (!isFunctionMissing(e) || System.nanoTime() - deadline >= 0) {
+                    throw e;
+                }
+                LockSupport.parkNanos(REPLICATION_POLL_NANOS);
+            }
+        }
+        if (version == null || version != LuaScript.PROTOCOL_VERSION) {
+            throw new IllegalStateException("Redis library speaks protocol version [" + version + "], expected ["
+                    + LuaScript.PROTOCOL_VERSION + "]");
+        }
+    }
+
+    private static boolean isFunctionMissing(RedisException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains("function not found");
+    }
+
+    private <T> T await(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisException("Interrupted during warm-up", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RedisException("Warm-up command failed", e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Summary of a completed warm-up.
+     *
+     * @param nodes     number of server nodes primed.
+     * @param scripts   number of scripts loaded on each node.
+     * @param decisions number of synthetic decisions executed.
+     * @param elapsed   wall time spent.
+     */
+    public record Report(int nodes, int scripts, int decisions, Duration elapsed) {
+    }
+}
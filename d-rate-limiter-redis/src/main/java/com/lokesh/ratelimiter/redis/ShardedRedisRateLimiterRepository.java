@@ -0,0 +1,315 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.redis.support.AutoBatchingWriter;
+import com.lokesh.ratelimiter.redis.support.ConsistentHashRing;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Driven Adapter: spreads buckets over independent standalone Redis instances.
+ *
+ * <p>
+ * Architectural Role: <b>Infrastructure Adapter</b> (ADR 001) for deployments
+ * that outgrow one Redis primary but do not want Redis Cluster. Each shard is a
+ * regular {@link RedisRateLimiterRepository}.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Consistent Hashing</b>: Buckets are placed on a
+ * {@link ConsistentHashRing} by their {@code ratelimiter:{tenant}:{user}} key
+ * prefix, i.e. the {@link RedisRateLimiterRepository#bucketKey} without the plan
+ * segment. All plans of a key land on the same shard, so chained limits stay
+ * atomic (ADR 005). Adding one of {@code N} shards remaps about {@code 1/N} of
+ * the keys, which then start from a full bucket.</li>
+ * <li><b>Health Isolation</b>: After {@code failureThreshold} consecutive
+ * failures a shard is skipped for a backoff period (1s, doubling up to 30s).
+ * Calls to it fail immediately instead of waiting for the timeout, so
+ * {@code DefaultRateLimiter} fails open for that shard's keys only. After the
+ * backoff calls go through again; the next failure re-opens it.</li>
+ * <li><b>Per-Shard Resources</b>: When created by {@link #connect}, each shard
+ * has its own client, connection and optional {@link AutoBatchingWriter};
+ * {@link #connectionProviders()} exposes the connections so warm-up and export
+ * can visit every shard.</li>
+ * <li>Hierarchical limits are not supported: their global bucket would be
+ * split across shards.</li>
+ * </ul>
+ */
+public class ShardedRedisRateLimiterRepository implements RateLimiterRepository, AutoCloseable {
+
+    /** Consecutive failures after which a shard is skipped. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    private static final long INITIAL_BACKOFF_NANOS = Duration.ofSeconds(1).toNanos();
+    private static final long MAX_BACKOFF_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedRedisRateLimiterRepository.class);
+
+    private final ConsistentHashRing<Shard> ring;
+    private final List<Shard> shards;
+    private final int failureThreshold;
+    private final LongSupplier nanoClock;
+    private final List<AutoCloseable> resources;
+    private final Map<String, LettuceConnectionProvider<?>> connectionProviders;
+
+    /**
+     * Creates a repository over existing shard repositories.
+     *
+     * @param shards the shard repositories keyed by a stable, unique name (e.g.
+     *               their URI); names determine placement on the ring.
+     */
+    public ShardedRedisRateLimiterRepository(Map<String, ? extends RateLimiterRepository> shards) {
+        this(shards, DEFAULT_FAILURE_THRESHOLD, System::nanoTime, List.of(), Map.of());
+    }
+
+    ShardedRedisRateLimiterRepository(Map<String, ? extends RateLimiterRepository> shards, int failureThreshold,
+            LongSupplier nanoClock, List<AutoCloseable> resources,
+            Map<String, LettuceConnectionProvider<?>> connectionProviders) {
+        Objects.requireNonNull(shards, "Shards must not be null");
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be greater than zero");
+        }
+        Map<String, Shard> named = new LinkedHashMap<>();
+        shards.forEach((name, repository) -> named.put(name, new Shard(name, repository)));
+        this.ring = new ConsistentHashRing<>(named, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        this.shards = List.copyOf(named.values());
+        this.failureThreshold = failureThreshold;
+        this.nanoClock = Objects.requireNonNull(nanoClock, "Clock must not be null");
+        this.resources = List.copyOf(resources);
+        this.connectionProviders = Collections.unmodifiableMap(new LinkedHashMap<>(connectionProviders));
+    }
+
+    /**
+     * Connects to every Redis URI and owns the connections; {@link #close()}
+     * releases them.
+     *
+     * @param uris         one standalone Redis per entry, e.g.
+     *                     {@code redis://10.0.0.1:6379}.
+     * @param scriptLoader the cache of bundled Lua scripts.
+     * @param timeout      upper bound for every Redis round-trip.
+     * @param useFunctions whether to call the function library.
+     */
+    public static ShardedRedisRateLimiterRepository connect(List<String> uris, LuaScriptLoader scriptLoader,
+            Duration timeout, boolean useFunctions) {
+        return connect(uris, scriptLoader, timeout, useFunctions, null);
+    }
+
+    /**
+     * Connects to every Redis URI and owns the connections; {@link #close()}
+     * releases them.
+     *
+     * @param uris         one standalone Redis per entry, e.g.
+     *                     {@code redis://10.0.0.1:6379}.
+     * @param scriptLoader the cache of bundled Lua scripts.
+     * @param timeout      upper bound for every Redis round-trip.
+     * @param useFunctions whether to call the function library.
+     * @param writers      opens an {@link AutoBatchingWriter} on a shard's
+     *                     client, or {@code null} to issue decisions on each
+     *                     shard's shared connection.
+     */
+    public static ShardedRedisRateLimiterRepository connect(List<String> uris, LuaScriptLoader scriptLoader,
+            Duration timeout, boolean useFunctions, Function<RedisClient, AutoBatchingWriter> writers) {
+        Map<String, RedisRateLimiterRepository> shards = new LinkedHashMap<>();
+        Map<String, LettuceConnectionProvider<?>> providers = new LinkedHashMap<>();
+        List<AutoCloseable> resources = new ArrayList<>();
+        for (String uri : uris) {
+            RedisClient client = RedisClient.create(uri);
+            var provider = LettuceConnectionProvider.standalone(client);
+            AutoBatchingWriter writer = writers != null ? writers.apply(client) : null;
+            var repository = new RedisRateLimiterRepository(provider, scriptLoader, timeout, useFunctions, writer);
+            resources.add(repository);
+            if (writer != null) {
+                resources.add(writer);
+            }
+            resources.add(provider);
+            resources.add(client::shutdown);
+            providers.put(uri, provider);
+            shards.put(uri, repository);
+        }
+        return new ShardedRedisRateLimiterRepository(shards, DEFAULT_FAILURE_THRESHOLD, System::nanoTime,
+                resources, providers);
+    }
+
+    /**
+     * @return every shard repository keyed by its name, in configuration order.
+     */
+    public Map<String, RateLimiterRepository> shards() {
+        Map<String, RateLimiterRepository> byName = new LinkedHashMap<>();
+        shards.forEach(shard -> byName.put(shard.name, shard.repository));
+        return Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * @return the connection of every shard keyed by its name, in configuration
+     *         order; empty unless the repository was created by
+     *         {@link #connect}.
+     */
+    public Map<String, LettuceConnectionProvider<?>> connectionProviders() {
+        return connectionProviders;
+    }
+
+    @Override
+    public RateLimitResult tryAcquire(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        Shard shard = shardFor(key, configs);
+        return shard.call(() -> shard.repository.tryAcquire(key, configs, tokensToConsume));
+    }
+
+    @Override
+    public RateLimitResult tryAcquireAbove(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            double floor) {
+        Shard shard = shardFor(key, configs);
+        return shard.call(() -> shard.repository.tryAcquireAbove(key, configs, tokensToConsume, floor));
+    }
+
+    @Override
+    public List<RateLimitResult> tryAcquireRepeated(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests) {
+        Shard shard = shardFor(key, configs);
+        return shard.call(() -> shard.repository.tryAcquireRepeated(key, configs, tokensPerRequest, requests));
+    }
+
+    @Override
+    public List<RateLimitResult> tryAcquireRepeatedAbove(String key, List<RateLimitConfig> configs,
+            int tokensPerRequest, int requests, double floor) {
+        Shard shard = shardFor(key, configs);
+        return shard.call(() -> shard.repository.tryAcquireRepeatedAbove(key, configs, tokensPerRequest, requests,
+                floor));
+    }
+
+    @Override
+    public RateLimitResult tryReserve(String key, List<RateLimitConfig> configs, int tokensToConsume,
+            long maxWaitMillis) {
+        Shard shard = shardFor(key, configs);
+        return shard.call(() -> shard.repository.tryReserve(key, configs, tokensToConsume, maxWaitMillis));
+    }
+
+    @Override
+    public void refund(String key, List<RateLimitConfig> configs, int tokensToConsume) {
+        Shard shard = shardFor(key, configs);
+        shard.call(() -> {
+            shard.repository.refund(key, configs, tokensToConsume);
+            return null;
+        });
+    }
+
+    @Override
+    public void debit(String key, List<RateLimitConfig> configs, long tokens) {
+        Shard shard = shardFor(key, configs);
+        shard.call(() -> {
+            shard.repository.debit(key, configs, tokens);
+            return null;
+        });
+    }
+
+    /**
+     * Reads a bucket from the shard owning it.
+     *
+     * @param key the full bucket key, as produced by
+     *            {@link RedisRateLimiterRepository#bucketKey}.
+     */
+    @Override
+    public Optional<TokenBucket> getState(String key) {
+        Shard shard = ring.nodeFor(routingKey(key));
+        return shard.call(() -> shard.repository.getState(key));
+    }
+
+    /**
+     * @return the name of the shard owning the buckets of {@code key}.
+     */
+    public String shardName(String key, RateLimitConfig config) {
+        return ring.nodeFor(routingKey(RedisRateLimiterRepository.bucketKey(key, config))).name;
+    }
+
+    /**
+     * @return whether the named shard is currently skipped after failures.
+     */
+    public boolean isUnavailable(String shardName) {
+        long now = nanoClock.getAsLong();
+        return shards.stream().anyMatch(shard -> shard.name.equals(shardName) && shard.isOpen(now));
+    }
+
+    @Override
+    public void close() {
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("Failed to close Redis shard resource. Reason: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Shard shardFor(String key, List<RateLimitConfig> configs) {
+        return ring.nodeFor(routingKey(RedisRateLimiterRepository.bucketKey(key, configs.get(0))));
+    }
+
+    /** Drops the plan segment, so every plan of a key routes alike. */
+    static String routingKey(String bucketKey) {
+        int plan = bucketKey.lastIndexOf(':');
+        return plan > 0 ? bucketKey.substring(0, plan) : bucketKey;
+    }
+
+    /** A shard with its failure state. */
+    private final class Shard {
+
+        private final String name;
+        private final RateLimiterRepository repository;
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile long backoffNanos;
+        private volatile long openUntilNanos;
+
+        Shard(String name, RateLimiterRepository repository) {
+            this.name = name;
+            this.repository = Objects.requireNonNull(repository, "Shard repository must not be null");
+        }
+
+        <T> T call(Supplier<T> operation) {
+            long now = nanoClock.getAsLong();
+            if (isOpen(now)) {
+                throw new IllegalStateException("Redis shard [" + name + "] is unavailable after repeated failures");
+            }
+            try {
+                T result = operation.get();
+                if (failures.get() != 0) {
+                    failures.set(0);
+                    backoffNanos = 0;
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (failures.incrementAndGet() >= failureThreshold) {
+                    long backoff = backoffNanos == 0 ? INITIAL_BACKOFF_NANOS
+                            : Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+                    backoffNanos = backoff;
+                    openUntilNanos = now + backoff;
+                    log.warn("Redis shard [{}] failed {} times in a row; skipping it for {}ms. Reason: {}",
+                            name, failures.get(), backoff / 1_000_000, e.getMessage());
+                }
+                throw e;
+            }
+        }
+
+        boolean isOpen(long now) {
+            return failures.get() >= failureThreshold && now - openUntilNanos < 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.lokesh.ratelimiter.redis.support;
+
+import com.lokesh.ratelimiter.core.support.KeyHashing;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent-hash ring mapping keys to named nodes.
+ *
+ * <p>
+ * Each node is placed on the ring at {@code virtualNodes} points derived from
+ * its name, so load is spread evenly and adding or removing one of {@code N}
+ * nodes only remaps about {@code 1/N} of the keys. Node names, not their
+ * order, determine placement.
+ *
+ * @param <T> the node type.
+ */
+public final class ConsistentHashRing<T> {
+
+    /** Points per node; keeps the load of 2-16 nodes within a few percent. */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param nodes        the nodes keyed by a stable, unique name (e.g. their URI).
+     * @param virtualNodes points per node.
+     * @throws IllegalArgumentException if there are no nodes.
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        Objects.requireNonNull(nodes, "Nodes must not be null");
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be greater than zero");
+        }
+        nodes.forEach((name, node) -> {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(KeyHashing.hash(name + "#" + i), node);
+            }
+        });
+    }
+
+    /**
+     * @return the node owning {@code key}: the first point at or after its hash.
+     */
+    public T nodeFor(String key) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(KeyHashing.hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+}
@@ -0,0 +1,200 @@
+package com.lokesh.ratelimiter.redis.support;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lazily opens and shares a single thread-safe Lettuce connection.
+ *
+ * <p>
+ * Architectural Role: <b>Connection Management</b> for the Redis adapter.
+ * Lettuce connections are multiplexed, so one connection serves every
+ * concurrent caller; this class only guards its creation.
+ *
+ * <p>
+ * Implementation Details:
+ * <ul>
+ * <li><b>Virtual-Thread Safety</b>: Connection acquisition is guarded by a
+ * {@link ReentrantLock} instead of {@code synchronized}. A virtual thread that
+ * waits for another thread to finish connecting parks and releases its carrier
+ * rather than pinning it.</li>
+ * <li><b>Fast Path</b>: Once connected, callers read a {@code volatile} field and
+ * never touch the lock.</li>
+ * <li><b>Reconnects</b>: Left to Lettuce's auto-reconnect; a connection that is
+ * temporarily disconnected is not replaced, which would leak the old one.</li>
+ * </ul>
+ *
+ * @param <C> the Lettuce connection type (standalone or cluster).
+ */
+public class LettuceConnectionProvider<C extends StatefulConnection<String, String>> implements AutoCloseable {
+
+    private final Supplier<C> connector;
+    private final Function<C, RedisClusterAsyncCommands<String, String>> asyncCommands;
+    private final Function<C, List<RedisClusterAsyncCommands<String, String>>> nodeCommands;
+    private final boolean cluster;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile C connection;
+
+    /**
+     * Creates a provider for a single-node topology.
+     *
+     * @param connector     opens a new connection; invoked outside of any monitor.
+     * @param asyncCommands extracts the async command API from a connection.
+     */
+    public LettuceConnectionProvider(Supplier<C> connector,
+            Function<C, RedisClusterAsyncCommands<String, String>> asyncCommands) {
+        this(connector, asyncCommands, connection -> List.of(asyncCommands.apply(connection)));
+    }
+
+    /**
+     * Full constructor.
+     *
+     * @param connector     opens a new connection; invoked outside of any monitor.
+     * @param asyncCommands extracts the async command API from a connection.
+     * @param nodeCommands  lists one command API per server node (primaries and
+     *                      replicas) reachable through a connection.
+     */
+    public LettuceConnectionProvider(Supplier<C> connector,
+            Function<C, RedisClusterAsyncCommands<String, String>> asyncCommands,
+            Function<C, List<RedisClusterAsyncCommands<String, String>>> nodeCommands) {
+        this(connector, asyncCommands, nodeCommands, false);
+    }
+
+    private LettuceConnectionProvider(Supplier<C> connector,
+            Function<C, RedisClusterAsyncCommands<String, String>> asyncCommands,
+            Function<C, List<RedisClusterAsyncCommands<String, String>>> nodeCommands,
+            boolean cluster) {
+        this.cluster = cluster;
+        this.connector = Objects.requireNonNull(connector, "connector must not be null");
+        this.asyncCommands = Objects.requireNonNull(asyncCommands, "asyncCommands must not be null");
+        this.nodeCommands = Objects.requireNonNull(nodeCommands, "nodeCommands must not be null");
+    }
+
+    /**
+     * Creates a provider for a standalone (or Sentinel-managed) Redis.
+     *
+     * @param client the Lettuce client to connect with.
+     */
+    public static LettuceConnectionProvider<StatefulRedisConnection<String, String>> standalone(RedisClient client) {
+        Objects.requireNonNull(client, "client must not be null");
+        return new LettuceConnectionProvider<>(client::connect, StatefulRedisConnection::async);
+    }
+
+    /**
+     * Creates a provider for a Redis Cluster.
+     *
+     * @param client the Lettuce cluster client to connect with.
+     */
+    public static LettuceConnectionProvider<StatefulRedisClusterConnection<String, String>> cluster(
+            RedisClusterClient client) {
+        Objects.requireNonNull(client, "client must not be null");
+        return new LettuceConnectionProvider<>(client::connect, StatefulRedisClusterConnection::async,
+                connection -> connection.getPartitions().stream()
+                        .map(node -> (RedisClusterAsyncCommands<String, String>) connection
+                                .getConnection(node.getNodeId()).async())
+                        .toList(),
+                true);
+    }
+
+    /**
+     * Creates a provider of a second connection to the same server(s), opened
+     * lazily with auto-flush switched off.
+     *
+     * <p>
+     * Commands issued through it are buffered until
+     * {@link StatefulConnection#flushCommands()} on {@link #connect()}; on a
+     * cluster each node connection then receives its share as one write. The
+     * connection must not be shared with callers that expect auto-flush.
+     *
+     * @return a new, unopened provider; the caller closes it.
+     */
+    public LettuceConnectionProvider<C> pipelined() {
+        return new LettuceConnectionProvider<>(() -> {
+            C opened = connector.get();
+            opened.setAutoFlushCommands(false);
+            return opened;
+        }, asyncCommands, nodeCommands, cluster);
+    }
+
+    /**
+     * @return whether the connection is to a Redis Cluster, whose multi-key
+     *         commands need all keys in one slot.
+     */
+    public boolean isCluster() {
+        return cluster;
+    }
+
+    /**
+     * @return the async command API of the shared connection, connecting first if
+     *         necessary.
+     */
+    public RedisClusterAsyncCommands<String, String> async() {
+        return asyncCommands.apply(connect());
+    }
+
+    /**
+     * Lists the command API of every server node, including cluster replicas.
+     *
+     * <p>
+     * Used for node-local administration such as {@code SCRIPT LOAD}, whose
+     * effect is not replicated. Regular commands should use {@link #async()}.
+     *
+     * @return one command API per node; a single entry for standalone Redis.
+     */
+    public List<RedisClusterAsyncCommands<String, String>> nodes() {
+        return nodeCommands.apply(connect());
+    }
+
+    /**
+     * Returns the shared connection, opening it on first use.
+     *
+     * <p>
+     * Call this eagerly at startup to keep connection set-up off the request path.
+     *
+     * @return an open connection.
+     */
+    public C connect() {
+        C current = connection;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            current = connection;
+            if (current == null) {
+                current = connector.get();
+                connection = current;
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the shared connection, if one was opened.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.lokesh.ratelimiter.redis.support;
+
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for Lettuce replies within the adapter's timeout contract [Fix 5].
+ *
+ * <p>
+ * {@code CompletableFuture.get} parks via {@code LockSupport}, so a waiting
+ * virtual thread releases its carrier. Every failure surfaces as a Lettuce
+ * runtime exception so {@code DefaultRateLimiter} can fail open.
+ */
+public final class RedisCommandAwaiter {
+
+    private RedisCommandAwaiter() {
+    }
+
+    /**
+     * Parks the calling thread until the reply arrives or the timeout elapses.
+     *
+     * @param future       the pending reply.
+     * @param timeoutNanos the upper bound to wait.
+     * @return the reply.
+     * @throws RedisCommandTimeoutException     if no reply arrived in time; the
+     *                                          command is cancelled.
+     * @throws RedisCommandInterruptedException if the caller was interrupted.
+     * @throws RedisException                   if the command failed.
+     */
+    public static <T> T await(RedisFuture<T> future, long timeoutNanos) {
+        try {
+            return future.toCompletableFuture().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RedisCommandTimeoutException(
+                    "Redis command timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisCommandInterruptedException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RedisException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.lokesh.ratelimiter.redis.support;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Packages bundled Lua scripts as a Redis 7 function library.
+ *
+ * <p>
+ * Unlike the {@code EVAL} script cache, a function library is persisted in RDB/AOF
+ * and replicated, so it survives restarts and failovers without a
+ * {@code NOSCRIPT} round-trip.
+ *
+ * <p>
+ * The library is generated from the same files that {@code EVALSHA} runs: each
+ * script body becomes the body of a {@code function(KEYS, ARGV)}, so both
+ * execution paths share one implementation of the bucket math (ADR 006).
+ *
+ * <p>
+ * <b>Versioning</b>: Library and function names carry a short hash of the
+ * bundled scripts, computed at build time (see {@link LuaScript#BUNDLE_SHA},
+ * e.g. {@code ratelimiter_1a2b3c4d}). During a rolling deploy,
+ * old and new application versions each call their own functions instead of
+ * replacing each other's library back and forth.
+ */
+public final class RedisFunctionLibrary {
+
+    /** Prefix of every library this adapter registers. */
+    public static final String LIBRARY_PREFIX = "ratelimiter_";
+
+    private static final int VERSION_LENGTH = 8;
+
+    private final String name;
+    private final String code;
+    private final Map<String, String> functionNames;
+
+    private RedisFunctionLibrary(String name, String code, Map<String, String> functionNames) {
+        this.name = name;
+        this.code = code;
+        this.functionNames = functionNames;
+    }
+
+    /**
+     * Builds the library from bundled scripts.
+     *
+     * @param scriptLoader    the loader providing script bodies.
+     * @param writeScripts    classpath paths of scripts that modify data.
+     * @param readOnlyScripts classpath paths of scripts registered with the
+     *                        {@code no-writes} flag, callable via
+     *                        {@code FCALL_RO}.
+     * @return the library.
+     */
+    public static RedisFunctionLibrary of(LuaScriptLoader scriptLoader, List<String> writeScripts,
+            List<String> readOnlyScripts) {
+        Objects.requireNonNull(scriptLoader, "ScriptLoader must not be null");
+
+        String version = LuaScript.BUNDLE_SHA.substring(0, VERSION_LENGTH);
+
+        String libraryName = LIBRARY_PREFIX + version;
+        Map<String, String> functionNames = new LinkedHashMap<>();
+        StringBuilder code = new StringBuilder("#!lua name=").append(libraryName).append('\n');
+        StringBuilder registrations = new StringBuilder();
+
+        for (String path : writeScripts) {
+            String local = baseName(path);
+            String function = local + "_" + version;
+            functionNames.put(path, function);
+            appendFunction(code, local, scriptLoader.getScript(path));
+            registrations.append("redis.register_function('").append(function).append("', ")
+                    .append(local).append(")\n");
+        }
+        for (String path : readOnlyScripts) {
+            String local = baseName(path);
+            String function = local + "_" + version;
+            functionNames.put(path, function);
+            appendFunction(code, local, scriptLoader.getScript(path));
+            registrations.append("redis.register_function{function_name='").append(function)
+                    .append("', callback=").append(local).append(", flags={'no-writes'}}\n");
+        }
+
+        code.append(registrations);
+        return new RedisFunctionLibrary(libraryName, code.toString(), Map.copyOf(functionNames));
+    }
+
+    /** @return the versioned library name, e.g. {@code ratelimiter_1a2b3c4d}. */
+    public String name() {
+        return name;
+    }
+
+    /** @return the source passed to {@code FUNCTION LOAD}. */
+    public String code() {
+        return code;
+    }
+
+    /**
+     * Returns the registered function name of a bundled script.
+     *
+     * @param scriptPath the classpath path the library was built from.
+     * @return the versioned function name.
+     * @throws IllegalArgumentException if the script is not part of the library.
+     */
+    public String functionName(String scriptPath) {
+        String function = functionNames.get(scriptPath);
+        if (function == null) {
+            throw new IllegalArgumentException("Script is not part of the function library: " + scriptPath);
+        }
+        return function;
+    }
+
+    private static void appendFunction(StringBuilder code, String local, String body) {
+        code.append("\nlocal function ").append(local).append("(KEYS, ARGV)\n")
+                .append(body)
+                .append("\nend\n");
+    }
+
+    /** {@code lua/acquire_tokens.lua} becomes {@code acquire_tokens}. */
+    private static String baseName(String path) {
+        String file = path.substring(path.lastIndexOf('/') + 1);
+        return file.endsWith(".lua") ? file.substring(0, file.length() - 4) : file;
+    }
+}
@@ -0,0 +1,103 @@
+--- acquire_hierarchical.lua
+--- Atomic Fair-Share Acquire Along a Global -> Tenant -> User Path
+---
+--- Purpose: Pays a request from the lowest bucket on the path holding enough
+--- tokens (the lender) and charges the cost to every bucket on the path, so
+--- children borrowing beyond their share go into debt and parents only lend
+--- capacity their other children leave unused. A parent may owe at most its
+--- own capacity.
+--- Adheres to: ADR-004 (Redis Strategy), ADR-006 (Java Parity with PathConsumption), ADR-007 (Time Consistency)
+---
+--- KEYS[i]      : bucket_key  - Buckets from the global one down to the user's
+---                              (e.g., ratelimiter:*:*:api, ratelimiter:acme:*:api, ratelimiter:acme:u1:api)
+--- ARGV[1]      : requested   - Tokens to consume
+--- ARGV[2i]     : capacity    - Capacity of KEYS[i]
+--- ARGV[2i + 1] : refill_rate - Tokens per second of KEYS[i]
+
+local requested = tonumber(ARGV[1])
+
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+-------------------------------------------------------------------------------
+-- 1. REFILL EVERY BUCKET ON THE PATH
+-- Buckets in debt refill the same way; a missing bucket starts full.
+-------------------------------------------------------------------------------
+local refilled = {}
+
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i])
+    local refill_rate = tonumber(ARGV[2 * i + 1])
+
+    local state = redis.call('HMGET', bucket_key, 't', 'ts')
+    local current_tokens = tonumber(state[1]) or capacity
+    local last_refill = tonumber(state[2]) or now_ms
+
+    local delta_ms = math.max(0, now_ms - last_refill)
+    refilled[i] = math.min(capacity, current_tokens + delta_ms * (refill_rate / 1000.0))
+end
+
+-------------------------------------------------------------------------------
+-- 2. FIND THE LENDER, FROM THE USER UPWARDS
+-------------------------------------------------------------------------------
+local lender = #KEYS
+while lender >= 1 and refilled[lender] < requested do
+    lender = lender - 1
+end
+
+if lender < 1 then
+    local most = nil
+    local min_wait = nil
+    for i = 1, #KEYS do
+        local refill_rate = tonumber(ARGV[2 * i + 1])
+        local wait = math.ceil(((requested - refilled[i]) / refill_rate) * 1000.0)
+        if most == nil or refilled[i] > most then
+            most = refilled[i]
+        end
+        if min_wait == nil or wait < min_wait then
+            min_wait = wait
+        end
+    end
+    return {0, tostring(most), min_wait}
+end
+
+-------------------------------------------------------------------------------
+-- 3. ENFORCE THE PARENT CEILING
+-- Every bucket above the lender may owe at most its own capacity.
+-------------------------------------------------------------------------------
+local ceiling_remaining = nil
+local ceiling_wait = 0
+for i = 1, lender - 1 do
+    local capacity = tonumber(ARGV[2 * i])
+    local refill_rate = tonumber(ARGV[2 * i + 1])
+    local shortfall = requested - capacity - refilled[i]
+    if shortfall > 0 then
+        if ceiling_remaining == nil or refilled[i] < ceiling_remaining then
+            ceiling_remaining = refilled[i]
+        end
+        ceiling_wait = math.max(ceiling_wait, math.ceil((shortfall / refill_rate) * 1000.0))
+    end
+end
+
+if ceiling_wait > 0 then
+    return {0, tostring(ceiling_remaining), ceiling_wait}
+end
+
+-------------------------------------------------------------------------------
+-- 4. CHARGE EVERY BUCKET ON THE PATH
+-- The TTL is the time the bucket needs to become full again, debt included.
+-------------------------------------------------------------------------------
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i])
+    local refill_rate = tonumber(ARGV[2 * i + 1])
+    local remaining = refilled[i] - requested
+
+    redis.call('HSET', bucket_key, 't', remaining, 'ts', now_ms)
+    redis.call('PEXPIRE', bucket_key, math.max(1, math.ceil((capacity - remaining) * 1000.0 / refill_rate)))
+end
+
+-------------------------------------------------------------------------------
+-- 5. RETURN RESULT
+-- Format: [allowed (long), lender's remaining tokens (string), waitMillis (long)]
+-------------------------------------------------------------------------------
+return {1, tostring(refilled[lender] - requested), 0}
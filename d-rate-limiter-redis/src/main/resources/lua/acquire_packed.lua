@@ -0,0 +1,99 @@
+--- acquire_packed.lua
+--- Chained Token Buckets Packed into a Shared Container Hash
+---
+--- Purpose: acquire_tokens.lua for the packed layout. The buckets of a key live
+--- as fields of one of a fixed number of container hashes instead of one Redis
+--- key each, so small containers keep Redis's compact listpack encoding.
+--- Adheres to: ADR-004 (Redis Strategy), ADR-005 (Chained Limits), ADR-007 (Time Consistency)
+---
+--- KEYS[1]      : container   - The hash holding the buckets (e.g., ratelimiter:packed:{00af})
+--- ARGV[1]      : requested   - The number of tokens to consume for this request
+--- ARGV[2]      : floor       - Fraction of each capacity that must remain after the request
+--- ARGV[3i]     : field       - Field of the bucket of plan i (e.g., user_1:gold)
+--- ARGV[3i + 1] : capacity    - Capacity of plan i
+--- ARGV[3i + 2] : refill_rate - Tokens per second of plan i
+---
+--- Field value: struct '<dd' (tokens, lastRefillMillis). Without HPEXPIRE
+--- (before Redis 7.4) a third double holds the time the bucket is full again,
+--- and sweep_packed.lua deletes the field after it.
+
+local container = KEYS[1]
+local requested = tonumber(ARGV[1])
+local floor = tonumber(ARGV[2])
+local plans = (#ARGV - 2) / 3
+
+-------------------------------------------------------------------------------
+-- 1. DISTRIBUTED TIME SYNCHRONIZATION
+-------------------------------------------------------------------------------
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+-------------------------------------------------------------------------------
+-- 2. REFILL EVERY BUCKET (no writes yet)
+-------------------------------------------------------------------------------
+local refilled = {}
+local allowed = 1
+local min_remaining = nil
+local max_wait = 0
+
+for i = 1, plans do
+    local capacity = tonumber(ARGV[3 * i + 1])
+    local refill_rate = tonumber(ARGV[3 * i + 2])
+
+    local current_tokens = capacity
+    local last_refill = now_ms
+    local packed = redis.call('HGET', container, ARGV[3 * i])
+    if packed then
+        current_tokens, last_refill = struct.unpack('<dd', packed)
+    end
+
+    local delta_ms = math.max(0, now_ms - last_refill)
+    local updated_tokens = math.min(capacity, current_tokens + delta_ms * (refill_rate / 1000.0))
+    refilled[i] = updated_tokens
+
+    local spendable = updated_tokens - floor * capacity
+    if spendable < requested then
+        allowed = 0
+        local wait_ms = math.ceil((requested - spendable) * (1000.0 / refill_rate))
+        max_wait = math.max(max_wait, wait_ms)
+    end
+
+    if min_remaining == nil or updated_tokens < min_remaining then
+        min_remaining = updated_tokens
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 3. PERSIST (only when every bucket can pay)
+-- Each field expires once a drained bucket would be full again. HSET clears a
+-- field's TTL, so it is set again on every write.
+-------------------------------------------------------------------------------
+if allowed == 1 then
+    min_remaining = nil
+    local field_ttl = true
+    for i = 1, plans do
+        local field = ARGV[3 * i]
+        local capacity = tonumber(ARGV[3 * i + 1])
+        local refill_rate = tonumber(ARGV[3 * i + 2])
+        local remaining = refilled[i] - requested
+        local ttl = math.ceil(capacity * 1000.0 / refill_rate)
+
+        if field_ttl then
+            redis.call('HSET', container, field, struct.pack('<dd', remaining, now_ms))
+            field_ttl = not redis.pcall('HPEXPIRE', container, ttl, 'FIELDS', 1, field).err
+        end
+        if not field_ttl then
+            redis.call('HSET', container, field, struct.pack('<ddd', remaining, now_ms, now_ms + ttl))
+        end
+
+        if min_remaining == nil or remaining < min_remaining then
+            min_remaining = remaining
+        end
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 4. RETURN RESULT
+-- Format: [allowed (long), minRemaining (string), maxWaitMillis (long)]
+-------------------------------------------------------------------------------
+return {allowed, tostring(min_remaining), max_wait}
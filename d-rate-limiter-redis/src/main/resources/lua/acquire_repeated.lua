@@ -0,0 +1,80 @@
+--- acquire_repeated.lua
+--- Atomic All-or-Partial Grant for Coalesced Requests
+---
+--- Purpose: Decides COUNT identical chained requests on one key in one call,
+--- granting as many as every bucket can pay for. The outcome equals running
+--- acquire_tokens.lua COUNT times in a row: the first GRANTED requests are
+--- allowed and the rest are denied against the drained buckets.
+--- Adheres to: ADR-004 (Redis Strategy), ADR-005 (Chained Limits), ADR-007 (Time Consistency)
+---
+--- KEYS[i]      : bucket_key  - One Redis key per plan (e.g., ratelimiter:default:user_1:gold)
+--- ARGV[1]      : requested   - Tokens consumed by each request
+--- ARGV[2]      : count       - Number of requests
+--- ARGV[2i + 1] : capacity    - Capacity of the plan guarding KEYS[i]
+--- ARGV[2i + 2] : refill_rate - Tokens per second of the plan guarding KEYS[i]
+--- ARGV[2n + 3] : floor       - Optional fraction of each capacity that must remain
+---                              after every granted request (see acquire_tokens.lua)
+
+local requested = tonumber(ARGV[1])
+local count = tonumber(ARGV[2])
+local floor = tonumber(ARGV[2 * #KEYS + 3]) or 0
+
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+-------------------------------------------------------------------------------
+-- 1. REFILL EVERY BUCKET AND FIND HOW MANY REQUESTS ALL OF THEM CAN PAY FOR
+-------------------------------------------------------------------------------
+local refilled = {}
+local granted = count
+
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i + 1])
+    local refill_rate = tonumber(ARGV[2 * i + 2])
+
+    local state = redis.call('HMGET', bucket_key, 't', 'ts')
+    local current_tokens = tonumber(state[1]) or capacity
+    local last_refill = tonumber(state[2]) or now_ms
+
+    local delta_ms = math.max(0, now_ms - last_refill)
+    local updated_tokens = math.min(capacity, current_tokens + delta_ms * (refill_rate / 1000.0))
+    refilled[i] = updated_tokens
+
+    if requested > 0 then
+        local spendable = updated_tokens - floor * capacity
+        granted = math.min(granted, math.max(0, math.floor(spendable / requested)))
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 2. DEDUCT THE GRANT AND PREPARE THE DENIAL SEEN BY THE REMAINING REQUESTS
+-------------------------------------------------------------------------------
+local min_remaining = nil
+local max_wait = 0
+
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i + 1])
+    local refill_rate = tonumber(ARGV[2 * i + 2])
+    local remaining = refilled[i] - granted * requested
+
+    if granted > 0 then
+        redis.call('HSET', bucket_key, 't', remaining, 'ts', now_ms)
+        redis.call('PEXPIRE', bucket_key, math.ceil(capacity * 1000.0 / refill_rate))
+    end
+
+    local spendable = remaining - floor * capacity
+    if spendable < requested then
+        max_wait = math.max(max_wait, math.ceil((requested - spendable) * (1000.0 / refill_rate)))
+    end
+
+    if min_remaining == nil or remaining < min_remaining then
+        min_remaining = remaining
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 3. RETURN RESULT
+-- Format: [granted (long), minRemaining after the grant (string),
+--          waitMillis of the denied requests (long)]
+-------------------------------------------------------------------------------
+return {granted, tostring(min_remaining), max_wait}
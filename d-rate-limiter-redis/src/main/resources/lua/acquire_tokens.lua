@@ -0,0 +1,87 @@
+--- acquire_tokens.lua
+--- Atomic Chained Token Bucket Implementation for Distributed Rate Limiting
+---
+--- Purpose: Checks ALL buckets of a chained request and deducts tokens from every
+--- bucket only if every bucket can pay (all-or-nothing).
+--- Adheres to: ADR-004 (Redis Strategy), ADR-005 (Chained Limits), ADR-007 (Time Consistency)
+---
+--- KEYS[i]      : bucket_key  - One Redis key per plan (e.g., ratelimiter:default:user_1:gold)
+--- ARGV[1]      : requested   - The number of tokens to consume for this request
+--- ARGV[2i]     : capacity    - Capacity of the plan guarding KEYS[i]
+--- ARGV[2i + 1] : refill_rate - Tokens per second of the plan guarding KEYS[i]
+--- ARGV[2n + 2] : floor       - Optional fraction of each capacity that must remain
+---                              after the request (reserved for higher priority classes)
+---
+--- The plan configuration travels with the request (ADR-004, Fix 11) so limits
+--- can be hot-reloaded from the application side without touching Redis.
+
+local requested = tonumber(ARGV[1])
+local floor = tonumber(ARGV[2 * #KEYS + 2]) or 0
+
+-------------------------------------------------------------------------------
+-- 1. DISTRIBUTED TIME SYNCHRONIZATION
+-- A single TIME call keeps every bucket of the chain on the same coordinate.
+-------------------------------------------------------------------------------
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+-------------------------------------------------------------------------------
+-- 2. REFILL EVERY BUCKET (no writes yet)
+-------------------------------------------------------------------------------
+local refilled = {}
+local allowed = 1
+local min_remaining = nil
+local max_wait = 0
+
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i])
+    local refill_rate = tonumber(ARGV[2 * i + 1])
+
+    local state = redis.call('HMGET', bucket_key, 't', 'ts')
+    local current_tokens = tonumber(state[1]) or capacity
+    local last_refill = tonumber(state[2]) or now_ms
+
+    local delta_ms = math.max(0, now_ms - last_refill)
+    local updated_tokens = math.min(capacity, current_tokens + delta_ms * (refill_rate / 1000.0))
+    refilled[i] = updated_tokens
+
+    local spendable = updated_tokens - floor * capacity
+    if spendable < requested then
+        allowed = 0
+        local wait_ms = math.ceil((requested - spendable) * (1000.0 / refill_rate))
+        max_wait = math.max(max_wait, wait_ms)
+    end
+
+    if min_remaining == nil or updated_tokens < min_remaining then
+        min_remaining = updated_tokens
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 3. PERSIST (only when every bucket can pay)
+-- The TTL equals the time a drained bucket needs to become full again; an
+-- expired bucket is indistinguishable from a full one.
+-------------------------------------------------------------------------------
+if allowed == 1 then
+    min_remaining = nil
+    for i, bucket_key in ipairs(KEYS) do
+        local capacity = tonumber(ARGV[2 * i])
+        local refill_rate = tonumber(ARGV[2 * i + 1])
+        local remaining = refilled[i] - requested
+
+        redis.call('HSET', bucket_key, 't', remaining, 'ts', now_ms)
+        redis.call('PEXPIRE', bucket_key, math.ceil(capacity * 1000.0 / refill_rate))
+
+        if min_remaining == nil or remaining < min_remaining then
+            min_remaining = remaining
+        end
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 4. RETURN RESULT
+-- Format: [allowed (long), minRemaining (string), maxWaitMillis (long)]
+-- The remaining count is returned as a string because Redis truncates Lua
+-- numbers to integers in replies.
+-------------------------------------------------------------------------------
+return {allowed, tostring(min_remaining), max_wait}
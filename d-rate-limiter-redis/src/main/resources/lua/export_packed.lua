@@ -0,0 +1,31 @@
+--- export_packed.lua
+--- Read-Only Listing of one Packed Container
+---
+--- Purpose: Returns every bucket of one container for the bucket export.
+--- Fields whose bucket is full again but that the sweeper has not deleted yet
+--- are skipped, as their expired one-key counterparts would be.
+---
+--- KEYS[1] : container - The hash to list (e.g., ratelimiter:packed:00af)
+---
+--- Format: [field, tokens (string), lastRefillMillis (long), ...]
+
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+local entries = redis.call('HGETALL', KEYS[1])
+local buckets = {}
+for i = 1, #entries, 2 do
+    local packed = entries[i + 1]
+    local tokens, last_refill = struct.unpack('<dd', packed)
+    local live = true
+    if #packed >= 24 then
+        local _, _, full_at = struct.unpack('<ddd', packed)
+        live = full_at > now_ms
+    end
+    if live then
+        buckets[#buckets + 1] = entries[i]
+        buckets[#buckets + 1] = tostring(tokens)
+        buckets[#buckets + 1] = last_refill
+    end
+end
+return buckets
@@ -0,0 +1,14 @@
+--- get_packed.lua
+--- Read-Only Lookup of a Packed Bucket
+---
+--- KEYS[1] : container - The hash holding the bucket (e.g., ratelimiter:packed:{00af})
+--- ARGV[1] : field     - The bucket's field (e.g., user_1:gold)
+---
+--- Format: [tokens (string), lastRefillMillis (long)], or [] if absent
+
+local packed = redis.call('HGET', KEYS[1], ARGV[1])
+if not packed then
+    return {}
+end
+local tokens, last_refill = struct.unpack('<dd', packed)
+return {tostring(tokens), last_refill}
@@ -0,0 +1,12 @@
+--- get_state.lua
+--- Read-Only Bucket Lookup
+---
+--- Purpose: Returns the raw state of a single bucket without modifying it.
+--- Registered with the 'no-writes' flag in the function library, so it may be
+--- served by replicas via FCALL_RO.
+---
+--- KEYS[1] : bucket_key - The bucket to read (e.g., ratelimiter:default:user_1:gold)
+---
+--- Format: [tokens (string|nil), lastRefillMillis (string|nil)]
+
+return redis.call('HMGET', KEYS[1], 't', 'ts')
@@ -0,0 +1,11 @@
+--- protocol.lua
+--- Protocol Version Probe
+---
+--- Purpose: Returns the version of the reply formats the bundled scripts were
+--- built with. The build replaces the placeholder below; RedisWarmUp calls it
+--- as a read-only function of the deployed library on every node and compares
+--- the reply with LuaScript.PROTOCOL_VERSION.
+---
+--- Format: version (integer)
+
+return __PROTOCOL_VERSION__
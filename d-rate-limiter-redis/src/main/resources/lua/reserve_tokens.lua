@@ -0,0 +1,77 @@
+--- reserve_tokens.lua
+--- Atomic Chained Token Reservation for Waiting Acquires
+---
+--- Purpose: Reserves tokens that will be refilled within a wait limit. Buckets
+--- may go negative; the debt makes later reservations wait longer, so callers
+--- are served in the order they reserved (FIFO) at exactly the plan rate.
+--- A negative request refunds a cancelled reservation, capped at capacity.
+--- Mirrors TokenBucket#tryReserve and TokenBucket#refund (ADR-006).
+---
+--- KEYS[i]      : bucket_key  - One Redis key per plan (e.g., ratelimiter:default:user_1:gold)
+--- ARGV[1]      : requested   - Tokens to reserve; negative to refund
+--- ARGV[2]      : max_wait    - Longest wait in milliseconds the caller accepts
+--- ARGV[2i + 1] : capacity    - Capacity of the plan guarding KEYS[i]
+--- ARGV[2i + 2] : refill_rate - Tokens per second of the plan guarding KEYS[i]
+
+local requested = tonumber(ARGV[1])
+local max_wait_limit = tonumber(ARGV[2])
+
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+-------------------------------------------------------------------------------
+-- 1. REFILL EVERY BUCKET AND COMPUTE THE WAIT (no writes yet)
+-------------------------------------------------------------------------------
+local refilled = {}
+local min_remaining = nil
+local max_wait = 0
+
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i + 1])
+    local refill_rate = tonumber(ARGV[2 * i + 2])
+
+    local state = redis.call('HMGET', bucket_key, 't', 'ts')
+    local current_tokens = tonumber(state[1]) or capacity
+    local last_refill = tonumber(state[2]) or now_ms
+
+    local delta_ms = math.max(0, now_ms - last_refill)
+    local updated_tokens = math.min(capacity, current_tokens + delta_ms * (refill_rate / 1000.0))
+    refilled[i] = updated_tokens
+
+    if updated_tokens < requested then
+        max_wait = math.max(max_wait, math.ceil((requested - updated_tokens) * (1000.0 / refill_rate)))
+    end
+
+    if min_remaining == nil or updated_tokens < min_remaining then
+        min_remaining = updated_tokens
+    end
+end
+
+if max_wait > max_wait_limit then
+    return {0, tostring(min_remaining), max_wait}
+end
+
+-------------------------------------------------------------------------------
+-- 2. PERSIST
+-- The TTL is the time the bucket needs to become full again, which grows with
+-- the debt of outstanding reservations.
+-------------------------------------------------------------------------------
+min_remaining = nil
+for i, bucket_key in ipairs(KEYS) do
+    local capacity = tonumber(ARGV[2 * i + 1])
+    local refill_rate = tonumber(ARGV[2 * i + 2])
+    local remaining = math.min(capacity, refilled[i] - requested)
+
+    redis.call('HSET', bucket_key, 't', remaining, 'ts', now_ms)
+    redis.call('PEXPIRE', bucket_key, math.max(1, math.ceil((capacity - remaining) * 1000.0 / refill_rate)))
+
+    if min_remaining == nil or remaining < min_remaining then
+        min_remaining = remaining
+    end
+end
+
+-------------------------------------------------------------------------------
+-- 3. RETURN RESULT
+-- Format: [allowed (long), minRemaining (string), waitMillis (long)]
+-------------------------------------------------------------------------------
+return {1, tostring(min_remaining), max_wait}
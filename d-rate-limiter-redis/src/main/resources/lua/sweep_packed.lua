@@ -0,0 +1,30 @@
+--- sweep_packed.lua
+--- Expiry Sweep for Packed Buckets without HPEXPIRE
+---
+--- Purpose: Deletes the fields of one container whose bucket is full again.
+--- Only fields written without field expiry carry the third double; the others
+--- expire on their own and are left alone.
+---
+--- KEYS[1] : container - The hash to sweep (e.g., ratelimiter:packed:{00af})
+---
+--- Format: number of deleted fields (integer)
+
+local time_res = redis.call('TIME')
+local now_ms = (tonumber(time_res[1]) * 1000) + math.floor(tonumber(time_res[2]) / 1000)
+
+local entries = redis.call('HGETALL', KEYS[1])
+local expired = {}
+for i = 1, #entries, 2 do
+    local packed = entries[i + 1]
+    if #packed >= 24 then
+        local _, _, full_at = struct.unpack('<ddd', packed)
+        if full_at <= now_ms then
+            expired[#expired + 1] = entries[i]
+        end
+    end
+end
+
+if #expired > 0 then
+    redis.call('HDEL', KEYS[1], unpack(expired))
+end
+return #expired
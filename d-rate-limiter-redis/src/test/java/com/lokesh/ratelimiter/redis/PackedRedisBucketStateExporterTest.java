@@ -0,0 +1,118 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PackedRedisBucketStateExporter against a mocked Lettuce API.
+ */
+@ExtendWith(MockitoExtension.class)
+class PackedRedisBucketStateExporterTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private final LuaScriptLoader scriptLoader = new LuaScriptLoader();
+
+    private PackedRedisRateLimiterRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(connection.async()).thenReturn(commands);
+        repository = new PackedRedisRateLimiterRepository(
+                new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async),
+                scriptLoader, Duration.ofSeconds(1), 4, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should list every container as bucket keys, re-sending the script after NOSCRIPT")
+    void shouldExportEveryContainer() {
+        // GIVEN: container 0 lost its script, 1 and 3 hold buckets, 2 is empty
+        String sha = scriptLoader.getSha(PackedRedisRateLimiterRepository.EXPORT_SCRIPT);
+        when(commands.<List<Object>>evalsha(sha, ScriptOutputType.MULTI, "ratelimiter:packed:0"))
+                .thenReturn(RedisFutures.failed(new RedisNoScriptException("NOSCRIPT")));
+        when(commands.<List<Object>>eval(scriptLoader.getScript(PackedRedisRateLimiterRepository.EXPORT_SCRIPT),
+                ScriptOutputType.MULTI, "ratelimiter:packed:0"))
+                .thenReturn(RedisFutures.completed(List.of("user_0:gold", "4.5", 1_000L)));
+        when(commands.<List<Object>>evalsha(sha, ScriptOutputType.MULTI, "ratelimiter:packed:1"))
+                .thenReturn(RedisFutures.completed(List.of("user_1:gold", "1.0", 2_000L, "user_1:daily", "900.0", 3_000L)));
+        when(commands.<List<Object>>evalsha(sha, ScriptOutputType.MULTI, "ratelimiter:packed:2"))
+                .thenReturn(RedisFutures.completed(List.of()));
+        when(commands.<List<Object>>evalsha(sha, ScriptOutputType.MULTI, "ratelimiter:packed:3"))
+                .thenReturn(RedisFutures.completed(List.of("user:3:gold", "0.0", 4_000L)));
+
+        // WHEN
+        List<BucketSnapshot> snapshots = new PackedRedisBucketStateExporter(repository, 3, 1_000.0)
+                .export("ratelimiter:*").toList();
+
+        // THEN: keys are rebuilt as the one-key-per-bucket layout names them
+        assertThat(snapshots).extracting(BucketSnapshot::key).containsExactly(
+                "ratelimiter:default:user_0:gold",
+                "ratelimiter:default:user_1:gold",
+                "ratelimiter:default:user_1:daily",
+                "ratelimiter:default:user:3:gold");
+        assertThat(snapshots.get(2).bucket().tokens()).isEqualTo(900.0);
+        assertThat(snapshots.get(2).bucket().lastRefillMillis()).isEqualTo(3_000L);
+    }
+
+    @Test
+    @DisplayName("Should keep only buckets whose key matches the glob")
+    void shouldFilterByPattern() {
+        when(commands.<List<Object>>evalsha(anyString(), any(ScriptOutputType.class), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of("user_1:gold", "1.0", 2_000L, "user_1:daily", "900.0", 3_000L)))
+                .thenReturn(RedisFutures.completed(List.of()));
+
+        List<BucketSnapshot> snapshots = new PackedRedisBucketStateExporter(repository)
+                .export("ratelimiter:*:user_[0-9]:g?ld").toList();
+
+        assertThat(snapshots).extracting(BucketSnapshot::key).containsExactly("ratelimiter:default:user_1:gold");
+    }
+
+    @Test
+    @DisplayName("Should be lazy: no container is read before the stream is consumed")
+    void shouldReadContainersLazily() {
+        Stream<BucketSnapshot> stream = new PackedRedisBucketStateExporter(repository).export("*");
+
+        verify(commands, never()).evalsha(anyString(), any(ScriptOutputType.class), any(String[].class));
+        stream.close();
+    }
+
+    @Test
+    @DisplayName("Should translate Redis globs, escapes and character classes")
+    void shouldTranslateGlobs() {
+        assertThat(PackedRedisBucketStateExporter.globToRegex("ratelimiter:acme:*").matcher("ratelimiter:acme:u:gold")
+                .matches()).isTrue();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("a.b").matcher("axb").matches()).isFalse();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("a\\*").matcher("a*").matches()).isTrue();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("a\\*").matcher("ab").matches()).isFalse();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("[^x]y").matcher("ay").matches()).isTrue();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("[^x]y").matcher("xy").matches()).isFalse();
+        assertThat(PackedRedisBucketStateExporter.globToRegex("[a").matcher("[a").matches()).isTrue();
+    }
+}
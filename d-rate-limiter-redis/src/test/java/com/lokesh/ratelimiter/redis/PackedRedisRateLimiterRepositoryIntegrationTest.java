@@ -0,0 +1,113 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+/**
+ * Integration test for the packed layout against a real Redis with field
+ * expiry. Skipped when no Docker environment is available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PackedRedisRateLimiterRepositoryIntegrationTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+        new GenericContainer<>(DockerImageName.parse("redis:7.4-alpine"))
+            .withExposedPorts(6379);
+
+    private static RedisClient redisClient;
+    private static LettuceConnectionProvider<StatefulRedisConnection<String, String>> connectionProvider;
+    private static PackedRedisRateLimiterRepository packed;
+    private static RedisRateLimiterRepository unpacked;
+
+    @BeforeAll
+    static void setup() {
+        redisClient = RedisClient.create(String.format("redis://%s:%d", REDIS.getHost(), REDIS.getFirstMappedPort()));
+        connectionProvider = LettuceConnectionProvider.standalone(redisClient);
+        LuaScriptLoader scriptLoader = new LuaScriptLoader();
+        packed = new PackedRedisRateLimiterRepository(connectionProvider, scriptLoader, Duration.ofSeconds(2), 256,
+                Duration.ZERO);
+        unpacked = new RedisRateLimiterRepository(connectionProvider, scriptLoader, Duration.ofSeconds(2));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (connectionProvider != null) connectionProvider.close();
+        if (redisClient != null) redisClient.shutdown();
+    }
+
+    @Test
+    void shouldDecideChainedPlansLikeTheOneKeyLayout() {
+        RateLimitConfig perSecond = new RateLimitConfig("packed-sec", 10, 1.0);
+        RateLimitConfig perHour = new RateLimitConfig("packed-hour", 3, 0.001);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(packed.tryAcquire("user_packed", List.of(perSecond, perHour), 1).allowed()).isTrue();
+        }
+        RateLimitResult denied = packed.tryAcquire("user_packed", List.of(perSecond, perHour), 1);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.waitMillis()).isGreaterThan(900_000L);
+        assertThat(packed.getState(RedisRateLimiterRepository.bucketKey("user_packed", perSecond)))
+            .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isCloseTo(7.0, offset(0.1)));
+    }
+
+    @Test
+    void shouldExportPackedBucketsUnderTheirOneKeyNames() {
+        RateLimitConfig plan = new RateLimitConfig("packed-export", 10, 1.0);
+        packed.tryAcquire("user_export", List.of(plan), 4);
+
+        List<BucketSnapshot> snapshots = new PackedRedisBucketStateExporter(packed)
+            .export("ratelimiter:*:user_export:*").toList();
+
+        assertThat(snapshots).singleElement().satisfies(snapshot -> {
+            assertThat(snapshot.key()).isEqualTo(RedisRateLimiterRepository.bucketKey("user_export", plan));
+            assertThat(snapshot.bucket().tokens()).isCloseTo(6.0, offset(0.1));
+        });
+    }
+
+    @Test
+    void shouldKeepContainersListpackEncodedWithFieldExpiry() {
+        RedisCommands<String, String> redis = redisClient.connect().sync();
+        RateLimitConfig plan = new RateLimitConfig("packed-memory", 100, 1.0);
+        for (int i = 0; i < 10_000; i++) {
+            packed.tryAcquire("user_" + i, List.of(plan), 1);
+            unpacked.tryAcquire("user_" + i, List.of(plan), 1);
+        }
+
+        String container = packed.containerKey("user_1", plan);
+        assertThat(redis.objectEncoding(container)).startsWith("listpack");
+        assertThat(redis.hpttl(container, PackedRedisRateLimiterRepository.field("user_1", plan)))
+            .singleElement().satisfies(ttl -> assertThat(ttl).isPositive());
+
+        long packedBytes = 0;
+        for (int i = 0; i < 256; i++) {
+            packedBytes += redis.memoryUsage(String.format("ratelimiter:packed:%02x", i));
+        }
+        long unpackedBytes = 0;
+        for (int i = 0; i < 1_000; i++) {
+            unpackedBytes += redis.memoryUsage(RedisRateLimiterRepository.bucketKey("user_" + i, plan));
+        }
+        // Per bucket: 10,000 packed buckets against 1,000 one-key buckets
+        assertThat(packedBytes / 10_000.0).isLessThan(unpackedBytes / 1_000.0 / 2);
+    }
+}
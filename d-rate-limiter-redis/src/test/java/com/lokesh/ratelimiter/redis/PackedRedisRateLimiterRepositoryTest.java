@@ -0,0 +1,135 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PackedRedisRateLimiterRepository against a mocked Lettuce API.
+ * Script semantics are covered by the Testcontainers integration test.
+ */
+@ExtendWith(MockitoExtension.class)
+class PackedRedisRateLimiterRepositoryTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private final LuaScriptLoader scriptLoader = new LuaScriptLoader();
+    private final RateLimitConfig gold = new RateLimitConfig("gold", 10, 1.0);
+    private final RateLimitConfig daily = new RateLimitConfig("daily", 1000, 0.5);
+
+    private PackedRedisRateLimiterRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(connection.async()).thenReturn(commands);
+        repository = new PackedRedisRateLimiterRepository(provider(),
+                scriptLoader, Duration.ofSeconds(1), 4096, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should decide every plan of a key in its one container, passing fields, floor and plans")
+    void shouldEvaluateChainInOneContainer() {
+        String container = repository.containerKey("user_1", gold);
+        String sha = scriptLoader.getSha(PackedRedisRateLimiterRepository.ACQUIRE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI), aryEq(new String[] { container }),
+                aryEq(new String[] { "2", "0.25", "user_1:gold", "10", "1.0", "user_1:daily", "1000", "0.5" })))
+                .thenReturn(RedisFutures.completed(List.of(0L, "1.5", 500L)));
+
+        RateLimitResult result = repository.tryAcquireAbove("user_1", List.of(gold, daily), 2, 0.25);
+
+        assertThat(container).isEqualTo(repository.containerKey("user_1", daily)).matches("ratelimiter:packed:[0-9a-f]{3}");
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.remainingTokens()).isEqualTo(1.5);
+        assertThat(result.waitMillis()).isEqualTo(500L);
+        assertThat(result.reason()).isEqualTo("RATE_LIMITED");
+    }
+
+    @Test
+    @DisplayName("Should spread keys over the containers")
+    void shouldSpreadKeysOverContainers() {
+        Set<String> containers = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            containers.add(repository.containerKey("user_" + i, gold));
+        }
+
+        assertThat(containers).hasSizeGreaterThan(3_500);
+    }
+
+    @Test
+    @DisplayName("Should read a bucket from its container by full bucket key, re-sending the script after NOSCRIPT")
+    void shouldReadStateByBucketKey() {
+        String container = repository.containerKey("user_1", gold);
+        String[] keys = { container };
+        String[] args = { "user_1:gold" };
+        when(commands.evalsha(eq(scriptLoader.getSha(PackedRedisRateLimiterRepository.STATE_SCRIPT)),
+                eq(ScriptOutputType.MULTI), aryEq(keys), aryEq(args)))
+                .thenReturn(RedisFutures.failed(new RedisNoScriptException("NOSCRIPT")));
+        when(commands.eval(eq(scriptLoader.getScript(PackedRedisRateLimiterRepository.STATE_SCRIPT)),
+                eq(ScriptOutputType.MULTI), aryEq(keys), aryEq(args)))
+                .thenReturn(RedisFutures.completed(List.of("7.25", 1_700_000_000_000L)));
+
+        assertThat(repository.getState(RedisRateLimiterRepository.bucketKey("user_1", gold)))
+                .hasValueSatisfying(bucket -> {
+                    assertThat(bucket.tokens()).isEqualTo(7.25);
+                    assertThat(bucket.lastRefillMillis()).isEqualTo(1_700_000_000_000L);
+                });
+    }
+
+    @Test
+    @DisplayName("Should sweep the next containers in turn and sum the deleted fields")
+    void shouldSweepContainersInTurn() {
+        repository = new PackedRedisRateLimiterRepository(provider(),
+                scriptLoader, Duration.ofSeconds(1), 4, Duration.ZERO);
+        String sha = scriptLoader.getSha(PackedRedisRateLimiterRepository.SWEEP_SCRIPT);
+        for (int container = 0; container < 4; container++) {
+            when(commands.<Long>evalsha(sha, ScriptOutputType.INTEGER, "ratelimiter:packed:" + container))
+                    .thenReturn(RedisFutures.completed(1L << container));
+        }
+
+        // Containers 0-2, then 3 and around to 0-1
+        assertThat(repository.sweep(3)).isEqualTo(1 + 2 + 4);
+        assertThat(repository.sweep(3)).isEqualTo(8 + 1 + 2);
+    }
+
+    @Test
+    @DisplayName("Should reject container counts that are not a power of two")
+    void shouldRejectContainerCount() {
+        LettuceConnectionProvider<StatefulRedisConnection<String, String>> provider = provider();
+
+        assertThatThrownBy(() -> new PackedRedisRateLimiterRepository(provider, scriptLoader, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new PackedRedisRateLimiterRepository(provider, scriptLoader, 1).containerKey("any", gold))
+                .isEqualTo("ratelimiter:packed:0");
+    }
+
+    private LettuceConnectionProvider<StatefulRedisConnection<String, String>> provider() {
+        return new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async);
+    }
+}
@@ -0,0 +1,138 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BucketSnapshot;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisBucketStateExporterTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private LettuceConnectionProvider<StatefulRedisConnection<String, String>> provider;
+
+    @BeforeEach
+    void setUp() {
+        when(connection.async()).thenReturn(commands);
+        provider = new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async);
+    }
+
+    @Test
+    @DisplayName("Should walk every SCAN page and skip expired and non-bucket keys")
+    void shouldStreamAllPages() {
+        when(commands.scan(any(ScanCursor.class), any(ScanArgs.class)))
+                .thenReturn(RedisFutures.completed(page("17", false, "ratelimiter:acme:u1:gold", "ratelimiter:acme:u2:gold")))
+                .thenReturn(RedisFutures.completed(page("0", true, "ratelimiter:acme:u3:gold", "ratelimiter:acme:odd")));
+        when(commands.hmget("ratelimiter:acme:u1:gold", "t", "ts")).thenReturn(RedisFutures.completed(state("0.5", "100")));
+        when(commands.hmget("ratelimiter:acme:u2:gold", "t", "ts")).thenReturn(RedisFutures.completed(expired()));
+        when(commands.hmget("ratelimiter:acme:u3:gold", "t", "ts")).thenReturn(RedisFutures.completed(state("7", "200")));
+        when(commands.hmget("ratelimiter:acme:odd", "t", "ts"))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("WRONGTYPE")));
+
+        List<BucketSnapshot> snapshots = new RedisBucketStateExporter(provider).export("ratelimiter:acme:*").toList();
+
+        assertThat(snapshots).containsExactly(
+                new BucketSnapshot("ratelimiter:acme:u1:gold", new TokenBucket(0.5, 100L)),
+                new BucketSnapshot("ratelimiter:acme:u3:gold", new TokenBucket(7.0, 200L)));
+    }
+
+    @Test
+    @DisplayName("Should be lazy: no SCAN before the stream is consumed, no second page before the first is drained")
+    void shouldFetchPagesLazily() {
+        when(commands.scan(any(ScanCursor.class), any(ScanArgs.class)))
+                .thenReturn(RedisFutures.completed(page("17", false, "k1")));
+        when(commands.hmget("k1", "t", "ts")).thenReturn(RedisFutures.completed(state("1", "1")));
+
+        Stream<BucketSnapshot> stream = new RedisBucketStateExporter(provider).export("*");
+        verify(commands, never()).scan(any(ScanCursor.class), any(ScanArgs.class));
+
+        assertThat(stream.findFirst()).isPresent();
+        verify(commands, times(1)).scan(any(ScanCursor.class), any(ScanArgs.class));
+    }
+
+    @Test
+    @DisplayName("Should pace pages to stay under the keys-per-second cap")
+    void shouldRespectRateCap() {
+        when(commands.scan(any(ScanCursor.class), any(ScanArgs.class)))
+                .thenReturn(RedisFutures.completed(page("1", false, "k1", "k2", "k3", "k4", "k5")))
+                .thenReturn(RedisFutures.completed(page("0", true, "k6", "k7", "k8", "k9", "k10")));
+        when(commands.hmget(anyString(), any(String[].class))).thenReturn(RedisFutures.completed(state("1", "1")));
+
+        long start = System.nanoTime();
+        long count = new RedisBucketStateExporter(provider, 5, 50.0, Duration.ofSeconds(1)).export("*").count();
+
+        // The second page of 5 keys may only start 5 / 50 = 100ms after the first.
+        assertThat(count).isEqualTo(10);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    @Test
+    @DisplayName("Should walk every connection in turn, e.g. every shard")
+    @SuppressWarnings("unchecked")
+    void shouldWalkEveryConnection() {
+        StatefulRedisConnection<String, String> otherConnection = mock(StatefulRedisConnection.class);
+        RedisAsyncCommands<String, String> otherCommands = mock(RedisAsyncCommands.class);
+        when(otherConnection.async()).thenReturn(otherCommands);
+        var other = new LettuceConnectionProvider<>(() -> otherConnection, StatefulRedisConnection::async);
+        when(commands.scan(any(ScanCursor.class), any(ScanArgs.class)))
+                .thenReturn(RedisFutures.completed(page("0", true, "k1")));
+        when(commands.hmget("k1", "t", "ts")).thenReturn(RedisFutures.completed(state("1", "10")));
+        when(otherCommands.scan(any(ScanCursor.class), any(ScanArgs.class)))
+                .thenReturn(RedisFutures.completed(page("0", true, "k2")));
+        when(otherCommands.hmget("k2", "t", "ts")).thenReturn(RedisFutures.completed(state("2", "20")));
+
+        List<BucketSnapshot> snapshots = new RedisBucketStateExporter(List.of(provider, other),
+                RedisBucketStateExporter.DEFAULT_BATCH_SIZE, RedisBucketStateExporter.DEFAULT_MAX_KEYS_PER_SECOND,
+                Duration.ofSeconds(1)).export("*").toList();
+
+        assertThat(snapshots).containsExactly(
+                new BucketSnapshot("k1", new TokenBucket(1.0, 10L)),
+                new BucketSnapshot("k2", new TokenBucket(2.0, 20L)));
+    }
+
+    private static KeyScanCursor<String> page(String cursor, boolean finished, String... keys) {
+        KeyScanCursor<String> page = new KeyScanCursor<>();
+        page.setCursor(cursor);
+        page.setFinished(finished);
+        page.getKeys().addAll(List.of(keys));
+        return page;
+    }
+
+    private static List<KeyValue<String, String>> state(String tokens, String lastRefill) {
+        return List.of(KeyValue.just("t", tokens), KeyValue.just("ts", lastRefill));
+    }
+
+    private static List<KeyValue<String, String>> expired() {
+        return List.of(KeyValue.empty("t"), KeyValue.empty("ts"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.DistinctKeys;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisCardinalityStoreTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    @Test
+    @DisplayName("Should add new keys to expiring HyperLogLogs and count every set in one pipeline")
+    void shouldAddAndCount() {
+        when(connection.async()).thenReturn(commands);
+        when(commands.pfadd("hll:acme", "k1", "k2")).thenReturn(RedisFutures.completed(1L));
+        when(commands.pexpireat("hll:acme", 7_200_000L)).thenReturn(RedisFutures.completed(true));
+        when(commands.pfcount("hll:acme")).thenReturn(RedisFutures.completed(2L));
+        when(commands.pfcount("hll:globex")).thenReturn(RedisFutures.completed(40L));
+        RedisCardinalityStore store = new RedisCardinalityStore(
+                new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async));
+
+        List<Long> estimates = store.addAndCount(List.of(
+                new DistinctKeys("hll:acme", List.of("k1", "k2"), 7_200_000L),
+                new DistinctKeys("hll:globex", List.of(), 7_200_000L)));
+
+        assertThat(estimates).containsExactly(2L, 40L);
+        verify(commands, never()).pexpireat(eq("hll:globex"), anyLong());
+    }
+}
@@ -0,0 +1,34 @@
+package com.lokesh.ratelimiter.redis;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandType;
+
+/**
+ * Test helper producing Lettuce futures without a live connection.
+ */
+final class RedisFutures {
+
+    private RedisFutures() {
+    }
+
+    /** @return a future that is not yet completed. */
+    static <T> AsyncCommand<String, String, T> pending() {
+        return new AsyncCommand<>(new Command<>(CommandType.EVALSHA, null));
+    }
+
+    /** @return a future already completed with {@code value}. */
+    static <T> RedisFuture<T> completed(T value) {
+        AsyncCommand<String, String, T> future = pending();
+        future.complete(value);
+        return future;
+    }
+
+    /** @return a future already completed with {@code error}. */
+    static <T> RedisFuture<T> failed(Throwable error) {
+        AsyncCommand<String, String, T> future = pending();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
@@ -0,0 +1,64 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.NodeShare;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisNodeRegistryTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private RedisNodeRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(connection.async()).thenReturn(commands);
+        registry = new RedisNodeRegistry(new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async));
+    }
+
+    @Test
+    @DisplayName("Should write a heartbeat as one expiring hash and list the node")
+    void shouldPublishHeartbeat() {
+        when(commands.hset("ratelimiter:node:a", Map.of("partner", "40.0,0.25"))).thenReturn(RedisFutures.completed(1L));
+        when(commands.pexpire("ratelimiter:node:a", 300L)).thenReturn(RedisFutures.completed(true));
+        when(commands.sadd(RedisNodeRegistry.NODES_KEY, "a")).thenReturn(RedisFutures.completed(0L));
+
+        registry.publish("a", Map.of("partner", new NodeShare(40.0, 0.25)), Duration.ofMillis(300));
+
+        verify(commands).pexpire("ratelimiter:node:a", 300L);
+    }
+
+    @Test
+    @DisplayName("Should read every live node and drop the ones whose heartbeat expired")
+    void shouldReadLiveNodes() {
+        when(commands.smembers(RedisNodeRegistry.NODES_KEY)).thenReturn(RedisFutures.completed(Set.of("a", "gone")));
+        when(commands.hgetall("ratelimiter:node:a")).thenReturn(RedisFutures.completed(Map.of("partner", "40.0,0.25")));
+        when(commands.hgetall("ratelimiter:node:gone")).thenReturn(RedisFutures.completed(Map.of()));
+        when(commands.srem(RedisNodeRegistry.NODES_KEY, "gone")).thenReturn(RedisFutures.completed(1L));
+
+        Map<String, Map<String, NodeShare>> live = registry.liveNodes();
+
+        assertThat(live).containsExactly(Map.entry("a", Map.of("partner", new NodeShare(40.0, 0.25))));
+        verify(commands).srem(RedisNodeRegistry.NODES_KEY, "gone");
+    }
+}
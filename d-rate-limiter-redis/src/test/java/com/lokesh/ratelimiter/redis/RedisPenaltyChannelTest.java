@@ -0,0 +1,78 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.BanDelta;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.pubsub.RedisPubSubListener;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.pubsub.api.async.RedisPubSubAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisPenaltyChannelTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    @Mock
+    private StatefulRedisPubSubConnection<String, String> subscriber;
+
+    @Mock
+    private RedisPubSubAsyncCommands<String, String> subscriberCommands;
+
+    private RedisPenaltyChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = new RedisPenaltyChannel(new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async),
+                subscriber, "a", Duration.ofMillis(100));
+    }
+
+    @Test
+    @DisplayName("Should publish each delta as one message tagged with the node id")
+    void shouldPublishDeltas() {
+        when(connection.async()).thenReturn(commands);
+        when(commands.publish(RedisPenaltyChannel.CHANNEL, "a 42 ff,ffffffffffffffff"))
+                .thenReturn(RedisFutures.completed(2L));
+
+        channel.publish(List.of(new BanDelta(42, List.of(255L, -1L))));
+
+        verify(commands).publish(RedisPenaltyChannel.CHANNEL, "a 42 ff,ffffffffffffffff");
+    }
+
+    @Test
+    @DisplayName("Should deliver other nodes' deltas and ignore its own and malformed messages")
+    void shouldReceiveDeltas() {
+        when(subscriber.async()).thenReturn(subscriberCommands);
+        when(subscriberCommands.subscribe(RedisPenaltyChannel.CHANNEL)).thenReturn(RedisFutures.completed(null));
+        List<BanDelta> received = new ArrayList<>();
+        channel.subscribe(received::addAll);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<RedisPubSubListener<String, String>> listener = ArgumentCaptor.forClass(RedisPubSubListener.class);
+        verify(subscriber).addListener(listener.capture());
+
+        listener.getValue().message(RedisPenaltyChannel.CHANNEL, "a 42 ff");
+        listener.getValue().message(RedisPenaltyChannel.CHANNEL, "b 42 garbage");
+        listener.getValue().message(RedisPenaltyChannel.CHANNEL, "b 43 ff,ffffffffffffffff");
+
+        assertThat(received).containsExactly(new BanDelta(43, List.of(255L, -1L)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.QuotaContribution;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisQuotaStoreTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private RedisQuotaStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(connection.async()).thenReturn(commands);
+        store = new RedisQuotaStore(new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async));
+    }
+
+    @Test
+    @DisplayName("Should pipeline HSET, HVALS and PEXPIREAT for every contribution and return the summed totals in order")
+    void shouldRecordAndSumTotals() {
+        String first = "ratelimiter:default:user_1:monthly:2026-08";
+        String other = "ratelimiter:default:user_2:monthly:2026-08";
+        when(commands.hset(first, "node-a", "40")).thenReturn(RedisFutures.completed(false));
+        when(commands.hvals(first)).thenReturn(RedisFutures.completed(List.of("40", "900")));
+        when(commands.pexpireat(first, 1_000L)).thenReturn(RedisFutures.completed(true));
+        when(commands.hset(other, "node-a", "12")).thenReturn(RedisFutures.completed(true));
+        when(commands.hvals(other)).thenReturn(RedisFutures.completed(List.of("12")));
+        when(commands.pexpireat(other, 1_000L)).thenReturn(RedisFutures.completed(true));
+
+        List<Long> totals = store.contribute(List.of(
+                new QuotaContribution(first, "node-a", 40, 1_000L),
+                new QuotaContribution(other, "node-a", 12, 1_000L)));
+
+        assertThat(totals).containsExactly(940L, 12L);
+        InOrder order = inOrder(commands);
+        order.verify(commands).hset(first, "node-a", "40");
+        order.verify(commands).hvals(first);
+        order.verify(commands).pexpireat(first, 1_000L);
+        order.verify(commands).hset(other, "node-a", "12");
+    }
+}
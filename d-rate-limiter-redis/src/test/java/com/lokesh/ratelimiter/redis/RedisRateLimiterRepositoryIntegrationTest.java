@@ -0,0 +1,144 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PathConsumption;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+/**
+ * Integration test for the chained acquire script against a real Redis.
+ * Skipped when no Docker environment is available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisRateLimiterRepositoryIntegrationTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+        new GenericContainer<>(DockerImageName.parse("redis:7.2-alpine"))
+            .withExposedPorts(6379);
+
+    private static RedisClient redisClient;
+    private static LettuceConnectionProvider<StatefulRedisConnection<String, String>> connectionProvider;
+    private static RedisRateLimiterRepository repository;
+
+    @BeforeAll
+    static void setup() {
+        redisClient = RedisClient.create(String.format("redis://%s:%d", REDIS.getHost(), REDIS.getFirstMappedPort()));
+        connectionProvider = LettuceConnectionProvider.standalone(redisClient);
+        repository = new RedisRateLimiterRepository(connectionProvider, new LuaScriptLoader(), Duration.ofSeconds(2));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (connectionProvider != null) connectionProvider.close();
+        if (redisClient != null) redisClient.shutdown();
+    }
+
+    @Test
+    void shouldDeductFromEveryChainedBucket() {
+        RateLimitConfig perSecond = new RateLimitConfig("chain-sec", 10, 1.0);
+        RateLimitConfig perHour = new RateLimitConfig("chain-hour", 5, 0.001);
+
+        RateLimitResult result = repository.tryAcquire("user_chain", List.of(perSecond, perHour), 2);
+
+        assertThat(result.allowed()).isTrue();
+        // Minimum across the chain: the 5-token bucket now holds 3.
+        assertThat(result.remainingTokens()).isCloseTo(3.0, offset(0.01));
+        assertThat(repository.getState(RedisRateLimiterRepository.bucketKey("user_chain", perSecond)))
+            .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isCloseTo(8.0, offset(0.01)));
+    }
+
+    @Test
+    void shouldNotDeductAnythingWhenOneChainedBucketDenies() {
+        RateLimitConfig generous = new RateLimitConfig("atomic-generous", 100, 1.0);
+        RateLimitConfig strict = new RateLimitConfig("atomic-strict", 1, 0.001);
+
+        assertThat(repository.tryAcquire("user_atomic", List.of(generous, strict), 1).allowed()).isTrue();
+        RateLimitResult denied = repository.tryAcquire("user_atomic", List.of(generous, strict), 1);
+
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.waitMillis()).isGreaterThan(0L);
+        // The generous bucket paid only for the first (allowed) request.
+        assertThat(repository.getState(RedisRateLimiterRepository.bucketKey("user_atomic", generous)))
+            .hasValueSatisfying(bucket -> assertThat(bucket.tokens()).isCloseTo(99.0, offset(0.01)));
+    }
+
+    @Test
+    void shouldKeepFloorForHigherClasses() {
+        RateLimitConfig plan = new RateLimitConfig("floor-plan", 10, 0.001);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(repository.tryAcquireAbove("user_floor", List.of(plan), 1, 0.5).allowed()).isTrue();
+        }
+        RateLimitResult held = repository.tryAcquireAbove("user_floor", List.of(plan), 1, 0.5);
+
+        assertThat(held.allowed()).isFalse();
+        assertThat(held.remainingTokens()).isCloseTo(5.0, offset(0.01));
+        assertThat(repository.tryAcquire("user_floor", List.of(plan), 1).allowed()).isTrue();
+    }
+
+    @Test
+    void shouldKeepFloorForCoalescedRequests() {
+        RateLimitConfig plan = new RateLimitConfig("floor-plan", 10, 0.001);
+
+        List<RateLimitResult> results = repository.tryAcquireRepeatedAbove("user_floor_repeated", List.of(plan), 1,
+                8, 0.5);
+
+        assertThat(results).filteredOn(RateLimitResult::allowed).hasSize(5);
+        assertThat(repository.tryAcquire("user_floor_repeated", List.of(plan), 1).allowed()).isTrue();
+    }
+
+    @Test
+    void shouldMatchPathConsumptionOnRandomFairShareTraffic() {
+        // Refill is negligible for the duration of the test, so both sides decide at a fixed time.
+        FairShareLimit limit = new FairShareLimit("parity", 40, 0.001, 2, 3);
+        Map<String, TokenBucket> reference = new HashMap<>();
+        Random random = new Random(11);
+        FairShareRepository fairShare = repository.fairShare();
+
+        for (int i = 0; i < 300; i++) {
+            FairSharePath path = new FairSharePath("t" + random.nextInt(3), 1 + random.nextInt(2),
+                "u" + random.nextInt(4), 1 + random.nextInt(2));
+            int cost = 1 + random.nextInt(3);
+
+            List<String> keys = RedisRateLimiterRepository.fairShareKeys(limit, path);
+            List<TokenBucket> stored = new ArrayList<>();
+            keys.forEach(key -> stored.add(reference.get(key)));
+            PathConsumption expected = PathConsumption.tryConsume(stored, limit.configs(path), 0, cost);
+            if (expected.allowed()) {
+                for (int level = 0; level < keys.size(); level++) {
+                    reference.put(keys.get(level), expected.updated().get(level));
+                }
+            }
+
+            RateLimitResult actual = fairShare.tryAcquireFairShare(limit, path, cost);
+
+            assertThat(actual.allowed()).as("request %d on %s", i, path).isEqualTo(expected.allowed());
+            assertThat(actual.remainingTokens()).isCloseTo(expected.remaining(), offset(0.01));
+        }
+    }
+}
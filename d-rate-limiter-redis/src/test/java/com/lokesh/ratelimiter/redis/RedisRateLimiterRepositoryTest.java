@@ -0,0 +1,404 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.AcquireRequest;
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.model.TokenBucket;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RedisRateLimiterRepository against a mocked Lettuce API.
+ * Script semantics are covered by the Testcontainers integration tests.
+ *
+ * <p>
+ * Most tests run in EVALSHA mode; the function-library path is covered by the
+ * {@code FCALL} tests at the end.
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisRateLimiterRepositoryTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    private final LuaScriptLoader scriptLoader = new LuaScriptLoader();
+    private final RateLimitConfig gold = new RateLimitConfig("gold", 10, 1.0);
+    private final RateLimitConfig daily = new RateLimitConfig("daily", 1000, 0.5);
+
+    private RedisRateLimiterRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(connection.async()).thenReturn(commands);
+        repository = repository(false);
+    }
+
+    @Test
+    @DisplayName("Should pass one bucket key and one capacity/rate pair per chained plan")
+    void shouldEvaluateChainedPlansInOneCall() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.ACQUIRE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold", "ratelimiter:default:user_1:daily" }),
+                aryEq(new String[] { "2", "10", "1.0", "1000", "0.5" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "7.5", 0L)));
+
+        RateLimitResult result = repository.tryAcquire("user_1", List.of(gold, daily), 2);
+
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.remainingTokens()).isEqualTo(7.5);
+    }
+
+    @Test
+    @DisplayName("Should pass the reserved floor after the capacity/rate pairs")
+    void shouldPassFloor() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.ACQUIRE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold", "ratelimiter:default:user_1:daily" }),
+                aryEq(new String[] { "1", "10", "1.0", "1000", "0.5", "0.3" })))
+                .thenReturn(RedisFutures.completed(List.of(0L, "3.5", 500L)));
+
+        RateLimitResult result = repository.tryAcquireAbove("user_1", List.of(gold, daily), 1, 0.3);
+
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.waitMillis()).isEqualTo(500L);
+    }
+
+    @Test
+    @DisplayName("Should map a denied reply to a RATE_LIMITED result with wait time")
+    void shouldMapDeniedReply() {
+        when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(0L, "0.25", 750L)));
+
+        RateLimitResult result = repository.tryAcquire("user_1", List.of(gold), 1);
+
+        assertThat(result.allowed()).isFalse();
+        assertThat(result.remainingTokens()).isEqualTo(0.25);
+        assertThat(result.waitMillis()).isEqualTo(750L);
+        assertThat(result.reason()).isEqualTo("RATE_LIMITED");
+    }
+
+    @Test
+    @DisplayName("Should expand an all-or-partial grant into the results of sequential requests")
+    void shouldExpandRepeatedGrant() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.REPEATED_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }),
+                aryEq(new String[] { "2", "4", "10", "1.0" })))
+                .thenReturn(RedisFutures.completed(List.of(2L, "1.5", 500L)));
+
+        List<RateLimitResult> results = repository.tryAcquireRepeated("user_1", List.of(gold), 2, 4);
+
+        assertThat(results).containsExactly(
+                RateLimitResult.allow(3.5),
+                RateLimitResult.allow(1.5),
+                RateLimitResult.deny(1.5, 500L, "RATE_LIMITED"),
+                RateLimitResult.deny(1.5, 500L, "RATE_LIMITED"));
+    }
+
+    @Test
+    @DisplayName("Should pass the floor of coalesced requests as a trailing argument")
+    void shouldPassFloorToRepeatedGrant() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.REPEATED_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }),
+                aryEq(new String[] { "1", "3", "10", "1.0", "0.5" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "5.0", 1000L)));
+
+        List<RateLimitResult> results = repository.tryAcquireRepeatedAbove("user_1", List.of(gold), 1, 3, 0.5);
+
+        assertThat(results).filteredOn(RateLimitResult::allowed).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should send the global, tenant and user buckets of a fair-share path to one script call")
+    void shouldAcquireAlongFairSharePath() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.HIERARCHY_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:*:*:api", "ratelimiter:acme:*:api", "ratelimiter:acme:u1:api" }),
+                aryEq(new String[] { "1", "100", "10.0", "50", "5.0", "12", "1.25" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "37", 0L)));
+
+        RateLimitResult result = repository.fairShare().tryAcquireFairShare(new FairShareLimit("api", 100, 10.0, 2, 4),
+                FairSharePath.of("acme", "u1"), 1);
+
+        assertThat(result).isEqualTo(RateLimitResult.allow(37.0));
+    }
+
+    @Test
+    @DisplayName("Should reserve with the wait limit and map an allowed reply with a wait to RESERVED")
+    void shouldReserveTokens() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.RESERVE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }),
+                aryEq(new String[] { "3", "5000", "10", "1.0" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "-2", 2000L)));
+
+        RateLimitResult result = repository.tryReserve("user_1", List.of(gold), 3, 5000);
+
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.remainingTokens()).isEqualTo(-2.0);
+        assertThat(result.waitMillis()).isEqualTo(2000L);
+        assertThat(result.reason()).isEqualTo("RESERVED");
+    }
+
+    @Test
+    @DisplayName("Should refund a reservation as a negative request without wait")
+    void shouldRefundWithNegativeRequest() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.RESERVE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }),
+                aryEq(new String[] { "-3", "0", "10", "1.0" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "1", 0L)));
+
+        repository.refund("user_1", List.of(gold), 3);
+
+        verify(commands).evalsha(eq(sha), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should debit a peer's consumption as a reservation without wait limit")
+    void shouldDebitWithoutWaitLimit() {
+        String sha = scriptLoader.getSha(RedisRateLimiterRepository.RESERVE_SCRIPT);
+        when(commands.evalsha(eq(sha), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }),
+                aryEq(new String[] { "40", String.valueOf(Long.MAX_VALUE), "10", "1.0" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "-30", 30000L)));
+
+        repository.debit("user_1", List.of(gold), 40);
+
+        verify(commands).evalsha(eq(sha), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should self-heal on NOSCRIPT by sending the full script body")
+    void shouldFallBackToEvalOnNoScript() {
+        when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.failed(new RedisNoScriptException("NOSCRIPT No matching script")));
+        when(commands.eval(eq(scriptLoader.getScript(RedisRateLimiterRepository.ACQUIRE_SCRIPT)),
+                eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+
+        RateLimitResult result = repository.tryAcquire("user_1", List.of(gold), 1);
+
+        assertThat(result.allowed()).isTrue();
+        assertThat(result.remainingTokens()).isEqualTo(9.0);
+    }
+
+    @Test
+    @DisplayName("[Fix 5] Should throw a runtime timeout when Redis does not answer in time")
+    void shouldTimeOutSlowCommands() {
+        repository = new RedisRateLimiterRepository(
+                new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async),
+                scriptLoader, Duration.ofMillis(20), false);
+        when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.pending());
+
+        assertThatThrownBy(() -> repository.tryAcquire("user_1", List.of(gold), 1))
+                .isInstanceOf(RedisCommandTimeoutException.class);
+    }
+
+    @Test
+    @DisplayName("Should retry a redirected batch entry on its own and keep the rest of the batch")
+    void shouldRetryFailedBatchEntryAlone() {
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_2:gold" }), any(String[].class)))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("MOVED 4998 10.0.0.2:6379")))
+                .thenReturn(RedisFutures.completed(List.of(0L, "0", 500L)));
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_3:gold" }), any(String[].class)))
+                .thenReturn(RedisFutures.failed(new RedisCommandTimeoutException("Command timed out")));
+
+        List<RateLimitResult> results = repository.tryAcquireBatch(List.of(
+                new AcquireRequest("user_1", List.of(gold), 1),
+                new AcquireRequest("user_2", List.of(gold), 1),
+                new AcquireRequest("user_3", List.of(gold), 1)));
+
+        assertThat(results).extracting(RateLimitResult::reason).containsExactly("OK", "RATE_LIMITED",
+                "FAIL_OPEN: Command timed out");
+        verify(commands, times(4)).evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should pipeline a batch on a connection without auto-flush and flush it once")
+    void shouldPipelineBatch() {
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+
+        List<RateLimitResult> results = repository.tryAcquireBatch(List.of(
+                new AcquireRequest("user_1", List.of(gold), 1),
+                new AcquireRequest("user_2", List.of(gold), 1)));
+
+        assertThat(results).allMatch(RateLimitResult::allowed);
+        verify(connection).setAutoFlushCommands(false);
+        verify(connection, times(1)).flushCommands();
+    }
+
+    @Test
+    @DisplayName("Should hash-tag chained bucket keys on a cluster so they share a slot")
+    @SuppressWarnings("unchecked")
+    void shouldHashTagKeysOnCluster() {
+        RedisClusterClient client = mock(RedisClusterClient.class);
+        StatefulRedisClusterConnection<String, String> clusterConnection = mock(StatefulRedisClusterConnection.class);
+        RedisAdvancedClusterAsyncCommands<String, String> clusterCommands =
+                mock(RedisAdvancedClusterAsyncCommands.class);
+        when(client.connect()).thenReturn(clusterConnection);
+        when(clusterConnection.async()).thenReturn(clusterCommands);
+        when(clusterCommands.evalsha(anyString(), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:{user_1}:gold", "ratelimiter:default:{user_1}:daily" }),
+                any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+        repository = new RedisRateLimiterRepository(LettuceConnectionProvider.cluster(client), scriptLoader,
+                RedisRateLimiterRepository.DEFAULT_TIMEOUT, false);
+
+        assertThat(repository.tryAcquire("user_1", List.of(gold, daily), 1).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should refuse hierarchical limits on a cluster when they are requested, not per call")
+    void shouldRefuseFairShareOnCluster() {
+        repository = new RedisRateLimiterRepository(LettuceConnectionProvider.cluster(mock(RedisClusterClient.class)),
+                scriptLoader, RedisRateLimiterRepository.DEFAULT_TIMEOUT, false);
+
+        assertThatThrownBy(repository::fairShare)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Redis Cluster");
+    }
+
+    @Test
+    @DisplayName("Should read bucket state from the t/ts hash fields")
+    void shouldReadState() {
+        when(commands.hmget("ratelimiter:default:user_1:gold", "t", "ts"))
+                .thenReturn(RedisFutures.completed(List.of(KeyValue.just("t", "4.5"), KeyValue.just("ts", "1000"))));
+
+        Optional<TokenBucket> state = repository.getState("ratelimiter:default:user_1:gold");
+
+        assertThat(state).contains(new TokenBucket(4.5, 1000L));
+    }
+
+    @Test
+    @DisplayName("Should return empty state for a bucket that does not exist")
+    void shouldReturnEmptyStateForMissingBucket() {
+        when(commands.hmget("missing", "t", "ts"))
+                .thenReturn(RedisFutures.completed(List.of(KeyValue.empty("t"), KeyValue.empty("ts"))));
+
+        assertThat(repository.getState("missing")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should call the versioned library function with FCALL")
+    void shouldCallFunction() {
+        repository = repository(true);
+        when(commands.fcall(anyString(), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }), aryEq(new String[] { "1", "10", "1.0" })))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+
+        RateLimitResult result = repository.tryAcquire("user_1", List.of(gold), 1);
+
+        assertThat(result.allowed()).isTrue();
+        verify(commands).fcall(startsWith("acquire_tokens_"),
+                eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+        verify(commands, never()).evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should load the function library when the server does not know the function yet")
+    void shouldLoadLibraryOnMissingFunction() {
+        repository = repository(true);
+        when(commands.fcall(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("ERR Function not found")))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+        when(commands.functionLoad(startsWith("#!lua name=ratelimiter_"), eq(true)))
+                .thenReturn(RedisFutures.completed("ratelimiter_x"));
+
+        RateLimitResult result = repository.tryAcquire("user_1", List.of(gold), 1);
+
+        assertThat(result.allowed()).isTrue();
+        verify(commands, times(2)).fcall(anyString(), any(ScriptOutputType.class), any(String[].class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should fall back to EVALSHA for good on servers without FCALL")
+    void shouldFallBackToEvalShaOnOldServers() {
+        repository = repository(true);
+        when(commands.fcall(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("ERR unknown command 'FCALL'")));
+        when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class), any(String[].class)))
+                .thenReturn(RedisFutures.completed(List.of(1L, "9", 0L)));
+
+        assertThat(repository.tryAcquire("user_1", List.of(gold), 1).allowed()).isTrue();
+        assertThat(repository.tryAcquire("user_1", List.of(gold), 1).allowed()).isTrue();
+
+        verify(commands, times(1)).fcall(anyString(), any(ScriptOutputType.class), any(String[].class),
+                any(String[].class));
+        verify(commands, times(2)).evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+                any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should read state through the read-only function with FCALL_RO")
+    void shouldReadStateWithFcallReadOnly() {
+        repository = repository(true);
+        when(commands.fcallReadOnly(startsWith("get_state_"), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "ratelimiter:default:user_1:gold" }), aryEq(new String[0])))
+                .thenReturn(RedisFutures.completed(Arrays.asList("4.5", "1000")));
+        when(commands.fcallReadOnly(startsWith("get_state_"), eq(ScriptOutputType.MULTI),
+                aryEq(new String[] { "missing" }), aryEq(new String[0])))
+                .thenReturn(RedisFutures.completed(Arrays.asList(null, null)));
+
+        assertThat(repository.getState("ratelimiter:default:user_1:gold")).contains(new TokenBucket(4.5, 1000L));
+        assertThat(repository.getState("missing")).isEmpty();
+        verify(commands, never()).hmget(anyString(), any(String[].class));
+    }
+
+    private RedisRateLimiterRepository repository(boolean useFunctions) {
+        return new RedisRateLimiterRepository(
+                new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async),
+                scriptLoader, RedisRateLimiterRepository.DEFAULT_TIMEOUT, useFunctions);
+    }
+}
@@ -0,0 +1,166 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScript;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedisWarmUpTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> primary;
+
+    @Mock
+    private RedisAsyncCommands<String, String> replica;
+
+    @Mock
+    private RateLimiterRepository repository;
+
+    private final LuaScriptLoader scriptLoader = new LuaScriptLoader();
+    private final String script = RedisRateLimiterRepository.ACQUIRE_SCRIPT;
+
+    @Test
+    @DisplayName("Should load every script on every node, then run synthetic decisions in the reserved namespace")
+    void shouldLoadScriptsOnAllNodesAndWarmUpDecisions() {
+        when(primary.scriptLoad(scriptLoader.getScript(script)))
+                .thenReturn(RedisFutures.completed(scriptLoader.getSha(script)));
+        when(replica.scriptLoad(scriptLoader.getScript(script)))
+                .thenReturn(RedisFutures.completed(scriptLoader.getSha(script)));
+
+        RedisWarmUp.Report report = warmUp(List.of(primary, replica), 25).run();
+
+        assertThat(report.nodes()).isEqualTo(2);
+        assertThat(report.scripts()).isEqualTo(1);
+        assertThat(report.decisions()).isEqualTo(25);
+        verify(repository).tryAcquire(eq("__warmup__0"), eq(List.of(RedisWarmUp.WARM_UP_PLAN)), eq(1));
+        verify(repository, times(25)).tryAcquire(anyString(), anyList(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should fail when a node reports an unexpected script SHA")
+    void shouldFailOnShaMismatch() {
+        when(primary.scriptLoad(anyString())).thenReturn(RedisFutures.completed("deadbeef"));
+
+        assertThatThrownBy(() -> warmUp(List.of(primary), 10).run())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("deadbeef");
+        verify(repository, never()).tryAcquire(anyString(), anyList(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should check the protocol of the deployed library on every node, waiting for replication")
+    void shouldCheckProtocolOfDeployedLibrary() {
+        RedisRateLimiterRepository redisRepository = stubLibrary(List.of(primary, replica));
+        String probe = redisRepository.protocolFunction();
+        when(primary.<Long>fcallReadOnly(probe, ScriptOutputType.INTEGER))
+                .thenReturn(RedisFutures.completed((long) LuaScript.PROTOCOL_VERSION));
+        when(replica.<Long>fcallReadOnly(probe, ScriptOutputType.INTEGER))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("ERR Function not found")))
+                .thenReturn(RedisFutures.completed((long) LuaScript.PROTOCOL_VERSION));
+
+        RedisWarmUp.Report report = warmUp(List.of(primary, replica), redisRepository, 0).run();
+
+        assertThat(report.nodes()).isEqualTo(2);
+        verify(replica, times(2)).fcallReadOnly(probe, ScriptOutputType.INTEGER);
+    }
+
+    @Test
+    @DisplayName("Should fail when the deployed library speaks another protocol version")
+    void shouldFailOnProtocolMismatch() {
+        RedisRateLimiterRepository redisRepository = stubLibrary(List.of(primary));
+        // e.g. a replica still serving a library of this name loaded by an older build
+        when(primary.<Long>fcallReadOnly(redisRepository.protocolFunction(), ScriptOutputType.INTEGER))
+                .thenReturn(RedisFutures.completed(LuaScript.PROTOCOL_VERSION + 1L));
+
+        assertThatThrownBy(() -> warmUp(List.of(primary), redisRepository, 0).run())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("protocol version [" + (LuaScript.PROTOCOL_VERSION + 1) + "]");
+    }
+
+    @Test
+    @DisplayName("Should give up on a library that never reaches a replica")
+    void shouldFailWhenLibraryNeverReplicates() {
+        RedisRateLimiterRepository redisRepository = stubLibrary(List.of(replica));
+        when(replica.<Long>fcallReadOnly(redisRepository.protocolFunction(), ScriptOutputType.INTEGER))
+                .thenReturn(RedisFutures.failed(new RedisCommandExecutionException("ERR Function not found")));
+
+        assertThatThrownBy(() -> warmUp(List.of(replica), redisRepository, 0).run())
+                .isInstanceOf(RedisException.class)
+                .hasRootCauseMessage("ERR Function not found");
+    }
+
+    @Test
+    @DisplayName("Should fail, and not report readiness, when a node is unreachable")
+    void shouldFailWhenNodeUnreachable() {
+        when(primary.scriptLoad(anyString()))
+                .thenReturn(RedisFutures.failed(new RedisConnectionException("Connection refused")));
+
+        assertThatThrownBy(() -> warmUp(List.of(primary), 10).run())
+                .isInstanceOf(RedisException.class)
+                .hasRootCauseMessage("Connection refused");
+    }
+
+    /**
+     * Stubs script and library loading: the primary accepts the library, a
+     * replica rejects the write and receives it through replication.
+     */
+    private RedisRateLimiterRepository stubLibrary(List<RedisClusterAsyncCommands<String, String>> nodes) {
+        if (nodes.contains(primary)) {
+            when(primary.scriptLoad(scriptLoader.getScript(script)))
+                    .thenReturn(RedisFutures.completed(scriptLoader.getSha(script)));
+            when(primary.functionLoad(anyString(), eq(true))).thenReturn(RedisFutures.completed("ratelimiter"));
+        }
+        if (nodes.contains(replica)) {
+            when(replica.scriptLoad(scriptLoader.getScript(script)))
+                    .thenReturn(RedisFutures.completed(scriptLoader.getSha(script)));
+            when(replica.functionLoad(anyString(), eq(true))).thenReturn(RedisFutures.failed(
+                    new RedisCommandExecutionException("READONLY You can't write against a read only replica.")));
+        }
+        return new RedisRateLimiterRepository(provider(nodes), scriptLoader, Duration.ofSeconds(1));
+    }
+
+    private RedisWarmUp warmUp(List<RedisClusterAsyncCommands<String, String>> nodes, int decisions) {
+        return warmUp(nodes, repository, decisions);
+    }
+
+    private RedisWarmUp warmUp(List<RedisClusterAsyncCommands<String, String>> nodes,
+            RateLimiterRepository target, int decisions) {
+        return new RedisWarmUp(provider(nodes), scriptLoader, target, List.of(script), decisions,
+                Duration.ofMillis(200));
+    }
+
+    private LettuceConnectionProvider<StatefulRedisConnection<String, String>> provider(
+            List<RedisClusterAsyncCommands<String, String>> nodes) {
+        return new LettuceConnectionProvider<>(() -> connection, StatefulRedisConnection::async, c -> nodes);
+    }
+}
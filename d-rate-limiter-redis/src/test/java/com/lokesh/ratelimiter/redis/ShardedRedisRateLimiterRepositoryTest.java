@@ -0,0 +1,122 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.InMemoryRateLimiterRepository;
+import io.lettuce.core.RedisCommandTimeoutException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ShardedRedisRateLimiterRepository with in-memory stand-ins
+ * for the Redis shards.
+ */
+class ShardedRedisRateLimiterRepositoryTest {
+
+    private final RateLimitConfig perSecond = new RateLimitConfig("sec", 10, 1.0);
+    private final RateLimitConfig perHour = new RateLimitConfig("hour", 2, 0.001);
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    @DisplayName("Should keep every plan of a key on one shard, so chained limits stay atomic")
+    void shouldCoLocateChainedPlans() {
+        Map<String, InMemoryRateLimiterRepository> stores = stores(4);
+        ShardedRedisRateLimiterRepository repository = new ShardedRedisRateLimiterRepository(stores);
+
+        for (int i = 0; i < 200; i++) {
+            String key = "user_" + i;
+            assertThat(repository.tryAcquire(key, List.of(perSecond, perHour), 1).allowed()).isTrue();
+            String shard = repository.shardName(key, perSecond);
+            assertThat(repository.shardName(key, perHour)).isEqualTo(shard);
+            assertThat(stores.get(shard).getState(RedisRateLimiterRepository.bucketKey(key, perHour))).isPresent();
+            assertThat(repository.getState(RedisRateLimiterRepository.bucketKey(key, perSecond))).isPresent();
+        }
+        assertThat(stores.values()).allSatisfy(store -> assertThat(store.size()).isGreaterThan(40));
+    }
+
+    @Test
+    @DisplayName("Should remap only the keys taken over by an added shard")
+    void shouldRemapMinimallyWhenAddingShard() {
+        ShardedRedisRateLimiterRepository four = new ShardedRedisRateLimiterRepository(stores(4));
+        ShardedRedisRateLimiterRepository five = new ShardedRedisRateLimiterRepository(stores(5));
+
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String before = four.shardName("user_" + i, perSecond);
+            String after = five.shardName("user_" + i, perSecond);
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("redis://shard-4");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(1_400, 2_600);
+    }
+
+    @Test
+    @DisplayName("Should skip a failing shard for a backoff period without affecting the others")
+    void shouldIsolateFailingShard() {
+        RateLimiterRepository broken = mock(RateLimiterRepository.class);
+        when(broken.tryAcquire(anyString(), anyList(), anyInt()))
+                .thenThrow(new RedisCommandTimeoutException("Command timed out"));
+        Map<String, RateLimiterRepository> shards = new LinkedHashMap<>(stores(2));
+        shards.put("redis://broken", broken);
+        ShardedRedisRateLimiterRepository repository =
+                new ShardedRedisRateLimiterRepository(shards, 3, nanos::get, List.of(), Map.of());
+        String brokenKey = keyOn(repository, "redis://broken");
+        String healthyKey = keyOn(repository, "redis://shard-0");
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> repository.tryAcquire(brokenKey, List.of(perSecond), 1))
+                    .isInstanceOf(RedisCommandTimeoutException.class);
+        }
+        assertThatThrownBy(() -> repository.tryAcquire(brokenKey, List.of(perSecond), 1))
+                .isInstanceOf(IllegalStateException.class);
+        verify(broken, times(3)).tryAcquire(anyString(), anyList(), anyInt());
+        assertThat(repository.isUnavailable("redis://broken")).isTrue();
+        assertThat(repository.tryAcquire(healthyKey, List.of(perSecond), 1).allowed()).isTrue();
+
+        // WHEN: the backoff has passed and the shard recovered
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        reset(broken);
+        when(broken.tryAcquire(anyString(), anyList(), anyInt())).thenReturn(RateLimitResult.allow(9));
+
+        assertThat(repository.tryAcquire(brokenKey, List.of(perSecond), 1).allowed()).isTrue();
+        assertThat(repository.isUnavailable("redis://broken")).isFalse();
+        verify(broken).tryAcquire(anyString(), any(), anyInt());
+    }
+
+    private static Map<String, InMemoryRateLimiterRepository> stores(int count) {
+        Map<String, InMemoryRateLimiterRepository> stores = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            stores.put("redis://shard-" + i, new InMemoryRateLimiterRepository());
+        }
+        return stores;
+    }
+
+    private String keyOn(ShardedRedisRateLimiterRepository repository, String shard) {
+        for (int i = 0;; i++) {
+            if (repository.shardName("user_" + i, perSecond).equals(shard)) {
+                return "user_" + i;
+            }
+        }
+    }
+}
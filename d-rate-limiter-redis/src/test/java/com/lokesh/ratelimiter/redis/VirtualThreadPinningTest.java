@@ -0,0 +1,145 @@
+package com.lokesh.ratelimiter.redis;
+
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.protocol.AsyncCommand;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the blocking path of the Redis adapter never pins a carrier
+ * thread when driven from virtual threads.
+ *
+ * <p>
+ * Replies are completed from a separate platform thread after a short delay, so
+ * every caller genuinely parks. The first callers also race through lazy
+ * connection set-up, which exercises the {@code ReentrantLock} path.
+ *
+ * <p>
+ * A pinned virtual thread that blocks makes the scheduler compensate with an
+ * extra carrier, so the test also checks that no more carriers than the
+ * scheduler's parallelism ever ran a request.
+ */
+class VirtualThreadPinningTest {
+
+    private static final int CONCURRENT_REQUESTS = 100_000;
+
+    @Test
+    @DisplayName("Should not emit jdk.VirtualThreadPinned events or grow the carrier pool under 100k requests")
+    void shouldNotPinCarrierThreads() throws Exception {
+        ScheduledExecutorService redisReplies = Executors.newSingleThreadScheduledExecutor();
+        RedisRateLimiterRepository repository = new RedisRateLimiterRepository(
+                slowConnectionProvider(redisReplies), new LuaScriptLoader(), Duration.ofSeconds(10));
+        List<RateLimitConfig> plans = List.of(new RateLimitConfig("gold", 10, 1.0));
+        // Class loading reads jars, a blocking file operation the scheduler compensates for with an extra
+        // carrier. Load the request path's classes on this platform thread, on a repository of its own so the
+        // measured one still races through lazy connection set-up.
+        new RedisRateLimiterRepository(slowConnectionProvider(redisReplies), new LuaScriptLoader(),
+                Duration.ofSeconds(10)).tryAcquire("warm-up", plans, 1);
+        carrierOf(Thread.currentThread());
+
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        Set<String> carriers = ConcurrentHashMap.newKeySet();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            List<Future<RateLimitResult>> results = new ArrayList<>(CONCURRENT_REQUESTS);
+            try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                    String key = "user_" + (i % 100);
+                    results.add(virtualThreads.submit(() -> {
+                        carriers.add(carrierOf(Thread.currentThread()));
+                        RateLimitResult result = repository.tryAcquire(key, plans, 1);
+                        carriers.add(carrierOf(Thread.currentThread()));
+                        return result;
+                    }));
+                }
+            }
+            for (Future<RateLimitResult> result : results) {
+                assertThat(result.get().allowed()).isTrue();
+            }
+            recording.stop();
+        } finally {
+            redisReplies.shutdownNow();
+        }
+
+        assertThat(pinned).as("pinned virtual thread events").isEmpty();
+        int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        assertThat(carriers).as("carrier threads").hasSizeLessThanOrEqualTo(parallelism);
+    }
+
+    /** @return the carrier name from a mounted virtual thread's {@code toString}, e.g. {@code ForkJoinPool-1-worker-3}. */
+    private static String carrierOf(Thread thread) {
+        String description = thread.toString();
+        return description.substring(description.indexOf('@') + 1);
+    }
+
+    /**
+     * Connection whose set-up takes 50ms and whose replies arrive 1ms after the
+     * command is issued.
+     *
+     * <p>
+     * Plain JDK proxies rather than Mockito mocks: Mockito looks up its
+     * configuration class once per thread, and that class-path probe is a
+     * blocking file operation on each of the 100k virtual threads.
+     */
+    private static LettuceConnectionProvider<StatefulRedisConnection<String, String>> slowConnectionProvider(
+            ScheduledExecutorService redisReplies) {
+        RedisAsyncCommands<String, String> commands = stub(RedisAsyncCommands.class, "fcall", () -> {
+            AsyncCommand<String, String, List<Object>> reply = RedisFutures.pending();
+            redisReplies.schedule(() -> reply.complete(List.of(1L, "9", 0L)), 1, TimeUnit.MILLISECONDS);
+            return reply;
+        });
+        StatefulRedisConnection<String, String> connection = stub(StatefulRedisConnection.class, "async",
+                () -> commands);
+
+        return new LettuceConnectionProvider<>(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return connection;
+        }, StatefulRedisConnection::async);
+    }
+
+    /** @return a proxy answering {@code method} from {@code answer} and rejecting every other call. */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<?> type, String method, Supplier<Object> answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, called, args) -> {
+            if (called.getName().equals(method)) {
+                return answer.get();
+            }
+            if (called.getDeclaringClass() == Object.class) {
+                return called.getName().equals("equals") ? proxy == args[0]
+                        : called.getName().equals("hashCode") ? System.identityHashCode(proxy) : type.getName();
+            }
+            throw new UnsupportedOperationException(called.getName());
+        });
+    }
+}
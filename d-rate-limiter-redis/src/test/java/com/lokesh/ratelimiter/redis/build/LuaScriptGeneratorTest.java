@@ -0,0 +1,52 @@
+package com.lokesh.ratelimiter.redis.build;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the build-time minifier of LuaScriptGenerator.
+ * Every case is a place where dropping or joining characters changes what Redis runs.
+ */
+class LuaScriptGeneratorTest {
+
+    @Test
+    @DisplayName("Should drop line comments, indentation and blank lines")
+    void shouldDropCommentsAndIndentation() {
+        String source = "--- header\n\nlocal a = 1 -- trailing\n    return   a\n";
+
+        assertThat(LuaScriptGenerator.minify(source)).isEqualTo("local a = 1\nreturn a");
+    }
+
+    @Test
+    @DisplayName("Should keep tokens apart around an inline long comment")
+    void shouldSeparateTokensAroundLongComment() {
+        assertThat(LuaScriptGenerator.minify("a--[[x]]b")).isEqualTo("a b");
+        assertThat(LuaScriptGenerator.minify("local a--[==[\nx\n]==]return a")).isEqualTo("local a\nreturn a");
+    }
+
+    @Test
+    @DisplayName("Should copy long bracket strings verbatim, comment markers and spacing included")
+    void shouldKeepLongBracketStrings() {
+        String source = "local s = [==[ -- not a comment\n  ]] still  inside ]==]";
+
+        assertThat(LuaScriptGenerator.minify(source)).isEqualTo(source);
+    }
+
+    @Test
+    @DisplayName("Should copy quoted strings with escapes verbatim")
+    void shouldKeepEscapedStrings() {
+        assertThat(LuaScriptGenerator.minify("local s = 'a\\'b -- c'  -- gone")).isEqualTo("local s = 'a\\'b -- c'");
+        assertThat(LuaScriptGenerator.minify("local s = \"\\\\\"  return s")).isEqualTo("local s = \"\\\\\" return s");
+    }
+
+    @Test
+    @DisplayName("Should reject a string left open at the end of its line")
+    void shouldRejectUnterminatedString() {
+        assertThatThrownBy(() -> LuaScriptGenerator.minify("local s = 'abc\nreturn s"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unterminated string");
+    }
+}
@@ -0,0 +1,160 @@
+package com.lokesh.ratelimiter.redis.support;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for AutoBatchingWriter. A write issued from inside another write's
+ * command stands in for a caller arriving concurrently.
+ */
+@ExtendWith(MockitoExtension.class)
+class AutoBatchingWriterTest {
+
+    @Mock
+    private StatefulRedisConnection<String, String> connection;
+
+    @Mock
+    private RedisAsyncCommands<String, String> commands;
+
+    @BeforeEach
+    void setUp() {
+        when(connection.async()).thenReturn(commands);
+    }
+
+    @Test
+    @DisplayName("Should flush a lone command immediately")
+    void shouldFlushLoneCommand() {
+        AutoBatchingWriter writer = writer(64);
+        RedisFuture<String> reply = mockFuture();
+
+        assertThat((Object) writer.write(api -> reply)).isSameAs(reply);
+
+        InOrder order = inOrder(connection);
+        order.verify(connection).setAutoFlushCommands(false);
+        order.verify(connection).flushCommands();
+        assertThat(writer.flushes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should flush overlapping commands together when the last writer leaves")
+    void shouldCoalesceOverlappingCommands() {
+        AutoBatchingWriter writer = writer(64);
+
+        writer.write(api -> {
+            writer.write(inner -> {
+                writer.write(innermost -> mockFuture());
+                return mockFuture();
+            });
+            return mockFuture();
+        });
+
+        verify(connection).flushCommands();
+        assertThat(writer.flushes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should flush once the batch size is reached even while writers remain")
+    void shouldFlushAtBatchSize() {
+        AutoBatchingWriter writer = writer(2);
+
+        writer.write(api -> {
+            writer.write(inner -> {
+                writer.write(innermost -> mockFuture());
+                return mockFuture();
+            });
+            return mockFuture();
+        });
+
+        // One flush at the second command, one for the remainder.
+        assertThat(writer.flushes()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should leave nothing unflushed when many threads write at once")
+    void shouldFlushEveryCommandFromConcurrentWriters() throws Exception {
+        AutoBatchingWriter writer = writer(16);
+
+        int commands = writeConcurrently(writer, 8, 200);
+
+        assertThat(writer.pending()).isZero();
+        assertThat(writer.flushes()).isBetween(1L, (long) commands);
+    }
+
+    @Test
+    @DisplayName("Should coalesce concurrent writers into a flush one window later, without blocking them")
+    void shouldFlushConcurrentWritersAfterWindow() throws Exception {
+        AutoBatchingWriter writer = new AutoBatchingWriter(connection, StatefulRedisConnection::async, 100_000,
+                Duration.ofMillis(20));
+
+        int commands = writeConcurrently(writer, 8, 200);
+
+        verify(connection, timeout(1_000).atLeastOnce()).flushCommands();
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (writer.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(writer.pending()).isZero();
+        assertThat(writer.flushes()).isLessThan(commands);
+        writer.close();
+    }
+
+    /** Starts all threads at once and waits for them; returns the number of commands written. */
+    private static int writeConcurrently(AutoBatchingWriter writer, int threads, int writesPerThread)
+            throws Exception {
+        RedisFuture<String> reply = mockFuture();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        writer.write(api -> reply);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : done) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return threads * writesPerThread;
+    }
+
+    private AutoBatchingWriter writer(int maxBatchSize) {
+        return new AutoBatchingWriter(connection, StatefulRedisConnection::async, maxBatchSize, Duration.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisFuture<String> mockFuture() {
+        return mock(RedisFuture.class);
+    }
+}
@@ -1,51 +1,67 @@
 package com.lokesh.ratelimiter.redis.support;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Unit tests for LuaScriptLoader.
- * Verifies script loading from classpath, SHA1 calculation, and caching behavior.
+ * Verifies lookups in the build-generated LuaScript registry and its precomputed SHA1 hashes.
  */
 class LuaScriptLoaderTest {
 
     /**
-     * Verifies that a valid Lua script can be loaded from the classpath.
+     * Verifies that a bundled script is served minified: no comments or indentation, strings intact.
      */
     @Test
-    void shouldLoadScriptFromClasspath() {
+    void shouldLoadMinifiedScript() {
         LuaScriptLoader loader = new LuaScriptLoader();
         String script = loader.getScript("lua/acquire_token.lua");
-        
+
         assertThat(script).isNotEmpty();
-        // Check for a known comment in the script to verify correct content
-        assertThat(script).contains("acquire_token.lua");
+        assertThat(script).doesNotContain("--").doesNotContain("  ").doesNotStartWith("\n");
+        // String literals survive minification untouched
+        assertThat(script).contains("\"Rate limit configuration missing for: \"");
+        assertThat(script).isEqualTo(LuaScript.ACQUIRE_TOKEN.body());
     }
 
     /**
-     * Verifies that the SHA1 hash is correctly calculated and cached.
-     * Caching is critical for high-performance EVALSHA execution.
+     * Verifies that the precomputed SHA1 is the one Redis reports for the script body.
+     * Matching SHAs are critical for high-performance EVALSHA execution.
      */
     @Test
-    void shouldCalculateAndCacheSha1() {
+    void shouldServePrecomputedSha1() throws Exception {
         LuaScriptLoader loader = new LuaScriptLoader();
-        String sha = loader.getSha("lua/acquire_token.lua");
-        
-        assertThat(sha).hasSize(40); // Standard SHA1 hexadecimal length
-        
-        // Subsequent calls should return the same cached SHA
-        assertThat(sha).isEqualTo(loader.getSha("lua/acquire_token.lua"));
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+        for (LuaScript script : LuaScript.values()) {
+            String expected = HexFormat.of().formatHex(digest.digest(script.body().getBytes(StandardCharsets.UTF_8)));
+            assertThat(loader.getSha(script.path())).isEqualTo(expected);
+            assertThat(getClass().getClassLoader().getResource(script.path())).isNotNull();
+        }
+    }
+
+    /**
+     * Verifies that the protocol probe returns the version the build embedded.
+     */
+    @Test
+    void shouldEmbedProtocolVersion() {
+        assertThat(LuaScript.PROTOCOL.body()).isEqualTo("return " + LuaScript.PROTOCOL_VERSION);
     }
 
     /**
-     * Verifies that a descriptive RuntimeException is thrown when a script is missing.
+     * Verifies that a descriptive exception is thrown when a script is not bundled.
      */
     @Test
     void shouldThrowExceptionWhenScriptNotFound() {
         LuaScriptLoader loader = new LuaScriptLoader();
         assertThatThrownBy(() -> loader.getScript("non-existent.lua"))
-            .isInstanceOf(RuntimeException.class)
-            .hasMessageContaining("not found on classpath");
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("not bundled");
     }
 }
@@ -0,0 +1,34 @@
+package com.lokesh.ratelimiter.spring.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.List;
+
+/**
+ * Matches when {@code ratelimiter.redis.shards} binds to a non-empty list.
+ *
+ * <p>
+ * {@code @ConditionalOnProperty} only sees the indexed form
+ * ({@code shards[0]=...}); a comma-separated value or the
+ * {@code RATELIMITER_REDIS_SHARDS} environment variable binds to the same list
+ * without ever creating a {@code shards[0]} property.
+ */
+class OnRedisShardsCondition extends SpringBootCondition {
+
+    static final String PROPERTY = "ratelimiter.redis.shards";
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        List<String> shards = Binder.get(context.getEnvironment())
+                .bind(PROPERTY, Bindable.listOf(String.class))
+                .orElse(List.of());
+        return shards.isEmpty()
+                ? ConditionOutcome.noMatch("No Redis shards configured in " + PROPERTY)
+                : ConditionOutcome.match(shards.size() + " Redis shard(s) configured in " + PROPERTY);
+    }
+}
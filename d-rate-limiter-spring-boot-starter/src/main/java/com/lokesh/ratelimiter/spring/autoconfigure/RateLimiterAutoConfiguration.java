@@ -0,0 +1,393 @@
+package com.lokesh.ratelimiter.spring.autoconfigure;
+
+import com.lokesh.ratelimiter.core.model.PenaltyPolicy;
+import com.lokesh.ratelimiter.core.model.PriorityClass;
+import com.lokesh.ratelimiter.core.model.RateLimitConfig;
+import com.lokesh.ratelimiter.core.port.BucketStateExporter;
+import com.lokesh.ratelimiter.core.port.FairShareRateLimiter;
+import com.lokesh.ratelimiter.core.port.FairShareRepository;
+import com.lokesh.ratelimiter.core.port.PenaltyChannel;
+import com.lokesh.ratelimiter.core.port.PlanRegistry;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+import com.lokesh.ratelimiter.core.port.RateLimitEventListener;
+import com.lokesh.ratelimiter.core.port.RateLimiter;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.core.service.DefaultRateLimiter;
+import com.lokesh.ratelimiter.core.support.DecisionLog;
+import com.lokesh.ratelimiter.core.support.InMemoryPlanRegistry;
+import com.lokesh.ratelimiter.core.support.LoadShedder;
+import com.lokesh.ratelimiter.core.support.PenaltyBox;
+import com.lokesh.ratelimiter.core.support.PeriodicQuotaFlusher;
+import com.lokesh.ratelimiter.core.support.QuotaRateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.SampledRateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.SystemClock;
+import com.lokesh.ratelimiter.redis.PackedRedisBucketStateExporter;
+import com.lokesh.ratelimiter.redis.PackedRedisRateLimiterRepository;
+import com.lokesh.ratelimiter.redis.RedisBucketStateExporter;
+import com.lokesh.ratelimiter.redis.RedisPenaltyChannel;
+import com.lokesh.ratelimiter.redis.RedisQuotaStore;
+import com.lokesh.ratelimiter.redis.RedisRateLimiterRepository;
+import com.lokesh.ratelimiter.redis.RedisWarmUp;
+import com.lokesh.ratelimiter.redis.ShardedRedisRateLimiterRepository;
+import com.lokesh.ratelimiter.redis.support.AutoBatchingWriter;
+import com.lokesh.ratelimiter.redis.support.LettuceConnectionProvider;
+import com.lokesh.ratelimiter.redis.support.LuaScriptLoader;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Spring Boot auto-configuration wiring the Core with the Redis adapter.
+ *
+ * <p>
+ * Architectural Role: <b>Composition Root</b> (ADR 001). Every bean backs off
+ * when the application defines its own, so any port can be replaced.
+ *
+ * <p>
+ * <b>Virtual-Thread Mode</b>: Enabled by {@code ratelimiter.redis.virtual-threads}
+ * or, by default, by {@code spring.threads.virtual.enabled}. The Redis adapter is
+ * pinning-free in either mode; this mode additionally opens the Lettuce
+ * connection during startup on a platform thread, so client bootstrap code never
+ * runs on (and can never pin) a request's virtual thread.
+ *
+ * <p>
+ * <b>Warm-Up</b>: Unless {@code ratelimiter.warm-up.enabled=false}, scripts are
+ * loaded on every node, connections are opened and the decision path is
+ * exercised before the application reports readiness (see {@link RedisWarmUp}).
+ *
+ * <p>
+ * <b>Sharding</b>: With {@code ratelimiter.redis.shards} set, buckets are
+ * spread over those Redis instances (see
+ * {@link ShardedRedisRateLimiterRepository}). Warm-up, auto-batching and the
+ * bucket export then cover every shard; {@code ratelimiter.redis.url} only
+ * serves quotas and the penalty-box channel.
+ *
+ * <p>
+ * <b>Packed Layout</b>: With {@code ratelimiter.redis.packed.enabled}, buckets
+ * are stored as fields of a fixed number of listpack-encoded hashes instead of
+ * one key each (see {@link PackedRedisRateLimiterRepository}). Warm-up loads
+ * the packed scripts, and the bucket export walks the containers (see
+ * {@link PackedRedisBucketStateExporter}); {@code ratelimiter.export} then
+ * counts container hashes, not buckets.
+ *
+ * <p>
+ * <b>Auto-Batching</b>: With {@code ratelimiter.redis.auto-batching.enabled},
+ * decision commands are pipelined over a dedicated connection of the same
+ * topology as the shared one, or one per shard (see {@link AutoBatchingWriter}).
+ *
+ * <p>
+ * <b>Sampling</b>: Plans with {@code sampled: true} are checked against Redis
+ * for only a fraction of requests (see {@link SampledRateLimiterRepository}).
+ *
+ * <p>
+ * <b>Quotas</b>: With {@code ratelimiter.quotas.enabled}, plans with a
+ * {@code quota} period are counted locally and flushed to Redis in batches (see
+ * {@link QuotaRateLimiterRepository}); the last counts are flushed on shutdown.
+ *
+ * <p>
+ * <b>Penalty Box</b>: With {@code ratelimiter.penalty-box.enabled}, keys that
+ * keep being denied are banned and rejected before any Redis call; bans are
+ * shared between nodes over Redis Pub/Sub (see {@link PenaltyBox}).
+ *
+ * <p>
+ * <b>Load Shedding</b>: With {@code ratelimiter.load-shedding.enabled}, calls
+ * made with a priority class leave a reserved floor of every bucket to the
+ * classes above them, and the floors rise with CPU load and queue latency (see
+ * {@link LoadShedder}). Applications pass the class of each request to
+ * {@link RateLimiter#allow(String, List, int, PriorityClass)}; calls without one
+ * are not shed.
+ *
+ * <p>
+ * <b>Decision Log</b>: With {@code ratelimiter.decision-log.enabled}, every
+ * decision is appended as a binary record to rotating memory-mapped segments in
+ * {@code ratelimiter.decision-log.directory} (see {@link DecisionLog}).
+ *
+ * <p>
+ * <b>Fair Share</b>: With {@code ratelimiter.fair-share.enabled}, a
+ * {@link FairShareRateLimiter} evaluates hierarchical limits with the rate
+ * limiter's penalty box and listeners. It needs a store that implements
+ * {@link FairShareRepository} or the single-node Redis repository; any other
+ * store fails startup.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(RateLimiterProperties.class)
+public class RateLimiterAutoConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterAutoConfiguration.class);
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    public RedisClient rateLimiterRedisClient(RateLimiterProperties properties) {
+        return RedisClient.create(properties.getRedis().getUrl());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public LettuceConnectionProvider<StatefulRedisConnection<String, String>> rateLimiterConnectionProvider(
+            RedisClient redisClient, RateLimiterProperties properties, Environment environment) {
+        LettuceConnectionProvider<StatefulRedisConnection<String, String>> provider =
+                LettuceConnectionProvider.standalone(redisClient);
+        if (isVirtualThreadMode(properties, environment)) {
+            log.info("Rate limiter running in virtual-thread mode; opening Redis connection eagerly");
+            provider.connect();
+        }
+        return provider;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LuaScriptLoader rateLimiterScriptLoader() {
+        return new LuaScriptLoader();
+    }
+
+    // Declared before the single-node repository, which then backs off.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(RateLimiterRepository.class)
+    @Conditional(OnRedisShardsCondition.class)
+    public ShardedRedisRateLimiterRepository rateLimiterShardedRepository(LuaScriptLoader scriptLoader,
+            RateLimiterProperties properties, Environment environment) {
+        RateLimiterProperties.Redis redis = properties.getRedis();
+        RateLimiterProperties.AutoBatching autoBatching = redis.getAutoBatching();
+        ShardedRedisRateLimiterRepository repository = ShardedRedisRateLimiterRepository.connect(redis.getShards(),
+                scriptLoader, redis.getTimeout(), redis.isFunctions(), autoBatching.isEnabled()
+                        ? client -> AutoBatchingWriter.standalone(client, autoBatching.getMaxBatchSize(),
+                                autoBatching.getWindow())
+                        : null);
+        if (isVirtualThreadMode(properties, environment)) {
+            repository.connectionProviders().values().forEach(LettuceConnectionProvider::connect);
+        }
+        return repository;
+    }
+
+    // Also declared before the single-node repository.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(RateLimiterRepository.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.redis.packed", name = "enabled")
+    public PackedRedisRateLimiterRepository rateLimiterPackedRepository(
+            LettuceConnectionProvider<?> connectionProvider, LuaScriptLoader scriptLoader,
+            RateLimiterProperties properties) {
+        RateLimiterProperties.Redis redis = properties.getRedis();
+        return new PackedRedisRateLimiterRepository(connectionProvider, scriptLoader, redis.getTimeout(),
+                redis.getPacked().getContainers(), redis.getPacked().getSweepInterval());
+    }
+
+    // Only for the single-node repository: shards open their own writers, the
+    // packed layout has none. The connection follows the provider's topology.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean({ AutoBatchingWriter.class, RateLimiterRepository.class })
+    @ConditionalOnProperty(prefix = "ratelimiter.redis.auto-batching", name = "enabled")
+    public AutoBatchingWriter rateLimiterAutoBatchingWriter(LettuceConnectionProvider<?> connectionProvider,
+            RateLimiterProperties properties) {
+        RateLimiterProperties.AutoBatching autoBatching = properties.getRedis().getAutoBatching();
+        return AutoBatchingWriter.dedicated(connectionProvider, autoBatching.getMaxBatchSize(),
+                autoBatching.getWindow());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RateLimiterRepository.class)
+    public RedisRateLimiterRepository rateLimiterRepository(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader, ObjectProvider<AutoBatchingWriter> autoBatchingWriter,
+            RateLimiterProperties properties) {
+        return new RedisRateLimiterRepository(connectionProvider, scriptLoader, properties.getRedis().getTimeout(),
+                properties.getRedis().isFunctions(), autoBatchingWriter.getIfAvailable());
+    }
+
+    // Declared before the key-scanning exporter, which finds no packed bucket.
+    @Bean
+    @ConditionalOnMissingBean(BucketStateExporter.class)
+    @ConditionalOnBean(PackedRedisRateLimiterRepository.class)
+    public PackedRedisBucketStateExporter rateLimiterPackedBucketStateExporter(
+            PackedRedisRateLimiterRepository repository, RateLimiterProperties properties) {
+        RateLimiterProperties.Export export = properties.getExport();
+        return new PackedRedisBucketStateExporter(repository, export.getBatchSize(), export.getMaxKeysPerSecond());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(BucketStateExporter.class)
+    public RedisBucketStateExporter rateLimiterBucketStateExporter(LettuceConnectionProvider<?> connectionProvider,
+            ObjectProvider<ShardedRedisRateLimiterRepository> sharded, RateLimiterProperties properties) {
+        RateLimiterProperties.Export export = properties.getExport();
+        ShardedRedisRateLimiterRepository shards = sharded.getIfAvailable();
+        Collection<LettuceConnectionProvider<?>> connections = shards != null
+                ? shards.connectionProviders().values()
+                : List.of(connectionProvider);
+        return new RedisBucketStateExporter(connections, export.getBatchSize(), export.getMaxKeysPerSecond(),
+                properties.getRedis().getTimeout());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(PlanRegistry.class)
+    public InMemoryPlanRegistry rateLimiterPlanRegistry(RateLimiterProperties properties) {
+        InMemoryPlanRegistry registry = new InMemoryPlanRegistry();
+        properties.getPlans().forEach((name, plan) -> registry.registerPlan(plan.getQuota() != null
+                ? RateLimitConfig.quota(name, plan.getCapacity(), plan.getQuota())
+                : new RateLimitConfig(name, plan.getCapacity(), plan.getTokensPerSecond(), plan.isSampled())));
+        return registry;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(QuotaStore.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.quotas", name = "enabled")
+    public RedisQuotaStore rateLimiterQuotaStore(LettuceConnectionProvider<?> connectionProvider,
+            RateLimiterProperties properties) {
+        return new RedisQuotaStore(connectionProvider, properties.getRedis().getTimeout());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "ratelimiter.quotas", name = "enabled")
+    public PeriodicQuotaFlusher rateLimiterQuotaFlusher(RateLimiterRepository repository, QuotaStore quotaStore,
+            RateLimiterProperties properties) {
+        RateLimiterProperties.Quotas quotas = properties.getQuotas();
+        return PeriodicQuotaFlusher.start(new QuotaRateLimiterRepository(repository, quotaStore, quotas.getSlack()),
+                quotas.getFlushInterval());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(PenaltyChannel.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.penalty-box", name = "enabled")
+    public RedisPenaltyChannel rateLimiterPenaltyChannel(LettuceConnectionProvider<?> connectionProvider,
+            RedisClient redisClient, RateLimiterProperties properties) {
+        String nodeId = properties.getPenaltyBox().getNodeId();
+        return new RedisPenaltyChannel(connectionProvider, redisClient.connectPubSub(),
+                nodeId != null ? nodeId : UUID.randomUUID().toString(), properties.getRedis().getTimeout());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "ratelimiter.penalty-box", name = "enabled")
+    public PenaltyBox rateLimiterPenaltyBox(PenaltyChannel penaltyChannel, RateLimiterProperties properties) {
+        RateLimiterProperties.PenaltyBox penaltyBox = properties.getPenaltyBox();
+        PenaltyPolicy policy = new PenaltyPolicy(penaltyBox.getStrikes(), penaltyBox.getStrikeWindow(),
+                penaltyBox.getFirstBan(), penaltyBox.getMaxBan(), penaltyBox.getExpectedBans());
+        return new PenaltyBox(policy, penaltyChannel, penaltyBox.getSyncInterval());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "ratelimiter.load-shedding", name = "enabled")
+    public LoadShedder rateLimiterLoadShedder(RateLimiterProperties properties) {
+        RateLimiterProperties.LoadShedding loadShedding = properties.getLoadShedding();
+        return new LoadShedder(loadShedding.getFloors(), loadShedding.getCpuTarget(),
+                loadShedding.getLatencyTarget(), loadShedding.getSampleInterval());
+    }
+
+    // Registered as a listener, so the rate limiter picks it up with the others.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "ratelimiter.decision-log", name = "enabled")
+    public DecisionLog rateLimiterDecisionLog(RateLimiterProperties properties) throws IOException {
+        RateLimiterProperties.DecisionLog decisionLog = properties.getDecisionLog();
+        return DecisionLog.open(decisionLog.getDirectory(), decisionLog.getSegmentBytes(),
+                decisionLog.getMaxSegments(), SystemClock.INSTANCE);
+    }
+
+    // The penalty box is also a listener, so it receives the deny events it bans on.
+    @Bean
+    @ConditionalOnMissingBean(RateLimiter.class)
+    public DefaultRateLimiter rateLimiter(RateLimiterRepository repository, PlanRegistry planRegistry,
+            ObjectProvider<RateLimitEventListener> listeners, ObjectProvider<PeriodicQuotaFlusher> quotaFlusher,
+            ObjectProvider<PenaltyBox> penaltyBox, ObjectProvider<LoadShedder> loadShedder,
+            RateLimiterProperties properties) {
+        PeriodicQuotaFlusher flusher = quotaFlusher.getIfAvailable();
+        RateLimiterRepository effective = flusher != null ? flusher.repository() : repository;
+        if (flusher == null && properties.getPlans().values().stream().anyMatch(plan -> plan.getQuota() != null)) {
+            log.warn("Quota plans are enforced as token buckets; set ratelimiter.quotas.enabled=true to count them");
+        }
+        boolean sampling = properties.getPlans().values().stream().anyMatch(RateLimiterProperties.Plan::isSampled);
+        return new DefaultRateLimiter(sampling ? new SampledRateLimiterRepository(effective) : effective,
+                planRegistry, listeners.orderedStream().toList(), properties.getMissingPlanPolicy(),
+                penaltyBox.getIfAvailable(), loadShedder.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(FairShareRateLimiter.class)
+    @ConditionalOnBean(DefaultRateLimiter.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.fair-share", name = "enabled")
+    public FairShareRateLimiter rateLimiterFairShare(DefaultRateLimiter rateLimiter,
+            RateLimiterRepository repository) {
+        return rateLimiter.fairShare(fairShareRepository(repository));
+    }
+
+    @Bean
+    @ConditionalOnBean(RedisRateLimiterRepository.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.warm-up", name = "enabled", matchIfMissing = true)
+    public RateLimiterWarmUpRunner rateLimiterWarmUpRunner(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader, RedisRateLimiterRepository repository, RateLimiterProperties properties) {
+        RateLimiterProperties.WarmUp warmUp = properties.getWarmUp();
+        RedisWarmUp redisWarmUp = new RedisWarmUp(connectionProvider, scriptLoader, repository,
+                RedisRateLimiterRepository.BUNDLED_SCRIPTS, warmUp.getSyntheticDecisions(),
+                properties.getRedis().getTimeout());
+        return new RateLimiterWarmUpRunner(redisWarmUp, warmUp.getTimeout(), warmUp.isFailOnError());
+    }
+
+    @Bean
+    @ConditionalOnBean(PackedRedisRateLimiterRepository.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.warm-up", name = "enabled", matchIfMissing = true)
+    public RateLimiterWarmUpRunner rateLimiterPackedWarmUpRunner(LettuceConnectionProvider<?> connectionProvider,
+            LuaScriptLoader scriptLoader, PackedRedisRateLimiterRepository repository,
+            RateLimiterProperties properties) {
+        RateLimiterProperties.WarmUp warmUp = properties.getWarmUp();
+        RedisWarmUp redisWarmUp = new RedisWarmUp(connectionProvider, scriptLoader, repository,
+                PackedRedisRateLimiterRepository.BUNDLED_SCRIPTS, warmUp.getSyntheticDecisions(),
+                properties.getRedis().getTimeout());
+        return new RateLimiterWarmUpRunner(redisWarmUp, warmUp.getTimeout(), warmUp.isFailOnError());
+    }
+
+    @Bean
+    @ConditionalOnBean(ShardedRedisRateLimiterRepository.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.warm-up", name = "enabled", matchIfMissing = true)
+    public RateLimiterWarmUpRunner rateLimiterShardedWarmUpRunner(LuaScriptLoader scriptLoader,
+            ShardedRedisRateLimiterRepository repository, RateLimiterProperties properties) {
+        RateLimiterProperties.WarmUp warmUp = properties.getWarmUp();
+        Map<String, RateLimiterRepository> shards = repository.shards();
+        List<RedisWarmUp> warmUps = repository.connectionProviders().entrySet().stream()
+                .map(shard -> new RedisWarmUp(shard.getValue(), scriptLoader, shards.get(shard.getKey()),
+                        RedisRateLimiterRepository.BUNDLED_SCRIPTS, warmUp.getSyntheticDecisions(),
+                        properties.getRedis().getTimeout()))
+                .toList();
+        return new RateLimiterWarmUpRunner(warmUps, warmUp.getTimeout(), warmUp.isFailOnError());
+    }
+
+    /**
+     * Resolves the store of hierarchical limits, refusing one that cannot keep
+     * a path's buckets together.
+     */
+    private static FairShareRepository fairShareRepository(RateLimiterRepository repository) {
+        if (repository instanceof FairShareRepository fairShare) {
+            return fairShare;
+        }
+        if (repository instanceof RedisRateLimiterRepository redis) {
+            return redis.fairShare();
+        }
+        throw new IllegalStateException("ratelimiter.fair-share.enabled needs a store that supports hierarchical"
+                + " limits, not " + repository.getClass().getSimpleName());
+    }
+
+    /**
+     * Resolves the virtual-thread mode: an explicit
+     * {@code ratelimiter.redis.virtual-threads} wins, otherwise Spring's own
+     * threading setting is followed.
+     */
+    static boolean isVirtualThreadMode(RateLimiterProperties properties, Environment environment) {
+        Boolean configured = properties.getRedis().getVirtualThreads();
+        return configured != null ? configured : Threading.VIRTUAL.isActive(environment);
+    }
+}
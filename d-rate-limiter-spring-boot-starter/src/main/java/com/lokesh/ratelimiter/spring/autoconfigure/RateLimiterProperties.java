@@ -0,0 +1,676 @@
+package com.lokesh.ratelimiter.spring.autoconfigure;
+
+import com.lokesh.ratelimiter.core.model.PriorityClass;
+import com.lokesh.ratelimiter.core.model.QuotaPeriod;
+import com.lokesh.ratelimiter.core.support.MissingPlanPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Externalized configuration for the rate limiter, bound from the
+ * {@code ratelimiter.*} namespace.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * ratelimiter:
+ *   missing-plan-policy: FAIL_FAST
+ *   plans:
+ *     gold:
+ *       capacity: 100
+ *       tokens-per-second: 10
+ *   redis:
+ *     url: redis://localhost:6379
+ *     timeout: 100ms
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "ratelimiter")
+public class RateLimiterProperties {
+
+    /** How to react when a requested plan is not registered [Fix 2]. */
+    private MissingPlanPolicy missingPlanPolicy = MissingPlanPolicy.FAIL_FAST;
+
+    /** Static plans registered in the {@code InMemoryPlanRegistry}, keyed by plan name. */
+    private Map<String, Plan> plans = new LinkedHashMap<>();
+
+    private final Redis redis = new Redis();
+
+    private final WarmUp warmUp = new WarmUp();
+
+    private final Export export = new Export();
+
+    private final Quotas quotas = new Quotas();
+
+    private final PenaltyBox penaltyBox = new PenaltyBox();
+
+    private final LoadShedding loadShedding = new LoadShedding();
+
+    private final DecisionLog decisionLog = new DecisionLog();
+
+    private final FairShare fairShare = new FairShare();
+
+    public MissingPlanPolicy getMissingPlanPolicy() {
+        return missingPlanPolicy;
+    }
+
+    public void setMissingPlanPolicy(MissingPlanPolicy missingPlanPolicy) {
+        this.missingPlanPolicy = missingPlanPolicy;
+    }
+
+    public Map<String, Plan> getPlans() {
+        return plans;
+    }
+
+    public void setPlans(Map<String, Plan> plans) {
+        this.plans = plans;
+    }
+
+    public Redis getRedis() {
+        return redis;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Quotas getQuotas() {
+        return quotas;
+    }
+
+    public PenaltyBox getPenaltyBox() {
+        return penaltyBox;
+    }
+
+    public LoadShedding getLoadShedding() {
+        return loadShedding;
+    }
+
+    public DecisionLog getDecisionLog() {
+        return decisionLog;
+    }
+
+    public FairShare getFairShare() {
+        return fairShare;
+    }
+
+    /**
+     * A single plan definition (ADR 005).
+     */
+    public static class Plan {
+
+        /** Maximum number of tokens the bucket can hold (burst size). */
+        private long capacity;
+
+        /** Refill rate of the bucket. */
+        private double tokensPerSecond;
+
+        /**
+         * Whether only a sample of requests is checked against Redis (see
+         * {@code SampledRateLimiterRepository}); for limits where exactness does
+         * not matter.
+         */
+        private boolean sampled = false;
+
+        /**
+         * Calendar window if this plan is a quota of {@code capacity} tokens per
+         * window rather than a token bucket; requires
+         * {@code ratelimiter.quotas.enabled}.
+         */
+        private QuotaPeriod quota;
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(long capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getTokensPerSecond() {
+            return tokensPerSecond;
+        }
+
+        public void setTokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+        }
+
+        public boolean isSampled() {
+            return sampled;
+        }
+
+        public void setSampled(boolean sampled) {
+            this.sampled = sampled;
+        }
+
+        public QuotaPeriod getQuota() {
+            return quota;
+        }
+
+        public void setQuota(QuotaPeriod quota) {
+            this.quota = quota;
+        }
+    }
+
+    /**
+     * Redis adapter settings.
+     */
+    public static class Redis {
+
+        /** Redis URI, e.g. {@code redis://localhost:6379}. */
+        private String url = "redis://localhost:6379";
+
+        /** Upper bound for every Redis round-trip [Fix 5]. */
+        private Duration timeout = Duration.ofMillis(100);
+
+        /**
+         * Whether to run in virtual-thread mode. Defaults to the value of
+         * {@code spring.threads.virtual.enabled}.
+         */
+        private Boolean virtualThreads;
+
+        /**
+         * Whether to call the Redis 7 function library ({@code FCALL}). Older servers
+         * are detected and served through {@code EVALSHA} either way.
+         */
+        private boolean functions = true;
+
+        /**
+         * Independent standalone Redis URIs to spread buckets over by consistent
+         * hashing. When set, {@code url} is not used for rate limiting.
+         */
+        private List<String> shards = new ArrayList<>();
+
+        private final AutoBatching autoBatching = new AutoBatching();
+
+        private final Packed packed = new Packed();
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public Boolean getVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(Boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public boolean isFunctions() {
+            return functions;
+        }
+
+        public void setFunctions(boolean functions) {
+            this.functions = functions;
+        }
+
+        public List<String> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<String> shards) {
+            this.shards = shards;
+        }
+
+        public AutoBatching getAutoBatching() {
+            return autoBatching;
+        }
+
+        public Packed getPacked() {
+            return packed;
+        }
+    }
+
+    /**
+     * Pipelining of decision commands over a dedicated connection (see
+     * {@code AutoBatchingWriter}).
+     */
+    public static class AutoBatching {
+
+        /** Whether to coalesce concurrent decisions into batched socket writes. */
+        private boolean enabled = false;
+
+        /** Commands after which the buffer is flushed regardless. */
+        private int maxBatchSize = 64;
+
+        /** How long the last writer waits for others; zero flushes immediately. */
+        private Duration window = Duration.ZERO;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * Buckets packed into shared container hashes (see
+     * {@code PackedRedisRateLimiterRepository}). Changing the container count
+     * starts every key from a full bucket.
+     */
+    public static class Packed {
+
+        /** Whether buckets are stored as fields of listpack-encoded container hashes. */
+        private boolean enabled = false;
+
+        /** Number of container hashes, a power of two; about the expected buckets divided by 64. */
+        private int containers = 65_536;
+
+        /** Time between two sweeps of expired fields on servers without HPEXPIRE; zero disables it. */
+        private Duration sweepInterval = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getContainers() {
+            return containers;
+        }
+
+        public void setContainers(int containers) {
+            this.containers = containers;
+        }
+
+        public Duration getSweepInterval() {
+            return sweepInterval;
+        }
+
+        public void setSweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+        }
+    }
+
+    /**
+     * Write-behind enforcement of quota plans (see
+     * {@code QuotaRateLimiterRepository}).
+     */
+    public static class Quotas {
+
+        /** Whether quota plans are counted locally and flushed to Redis. */
+        private boolean enabled = false;
+
+        /** Time between flushes, and how stale other nodes' totals may get. */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /** Tokens a node may admit per quota counter between two flushes. */
+        private long slack = 1_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public long getSlack() {
+            return slack;
+        }
+
+        public void setSlack(long slack) {
+            this.slack = slack;
+        }
+    }
+
+    /**
+     * Bans for keys that keep being denied (see {@code PenaltyBox}). Must be
+     * the same on every node.
+     */
+    public static class PenaltyBox {
+
+        /** Whether repeat offenders are banned and the bans shared over Redis Pub/Sub. */
+        private boolean enabled = false;
+
+        /** Denials within the strike window that earn a ban. */
+        private int strikes = 100;
+
+        /** How long denials count towards a ban. */
+        private Duration strikeWindow = Duration.ofSeconds(10);
+
+        /** Length of a first ban; later bans double. */
+        private Duration firstBan = Duration.ofMinutes(1);
+
+        /** Upper bound of an escalated ban. */
+        private Duration maxBan = Duration.ofHours(1);
+
+        /** Bans expected to end within one first ban; sizes the filter. */
+        private int expectedBans = 10_000;
+
+        /** Time between two publishes of new bans. */
+        private Duration syncInterval = Duration.ofSeconds(1);
+
+        /** Name of this node on the ban channel; a random one if unset. */
+        private String nodeId;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getStrikes() {
+            return strikes;
+        }
+
+        public void setStrikes(int strikes) {
+            this.strikes = strikes;
+        }
+
+        public Duration getStrikeWindow() {
+            return strikeWindow;
+        }
+
+        public void setStrikeWindow(Duration strikeWindow) {
+            this.strikeWindow = strikeWindow;
+        }
+
+        public Duration getFirstBan() {
+            return firstBan;
+        }
+
+        public void setFirstBan(Duration firstBan) {
+            this.firstBan = firstBan;
+        }
+
+        public Duration getMaxBan() {
+            return maxBan;
+        }
+
+        public void setMaxBan(Duration maxBan) {
+            this.maxBan = maxBan;
+        }
+
+        public int getExpectedBans() {
+            return expectedBans;
+        }
+
+        public void setExpectedBans(int expectedBans) {
+            this.expectedBans = expectedBans;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    /**
+     * Reserved headroom per priority class and shedding under overload (see
+     * {@code LoadShedder}).
+     */
+    public static class LoadShedding {
+
+        /** Whether calls with a priority class leave their floor of every bucket untouched. */
+        private boolean enabled = false;
+
+        /** Fraction of each bucket's capacity a class must leave; unset classes use the defaults. */
+        private Map<PriorityClass, Double> floors = new EnumMap<>(PriorityClass.class);
+
+        /** CPU load above which floors rise; 1 ignores the CPU. */
+        private double cpuTarget = 0.8;
+
+        /** Average queue latency above which floors rise; 0 ignores the latency. */
+        private Duration latencyTarget = Duration.ofMillis(100);
+
+        /** Time between two readings of the CPU load and queue latency. */
+        private Duration sampleInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<PriorityClass, Double> getFloors() {
+            return floors;
+        }
+
+        public void setFloors(Map<PriorityClass, Double> floors) {
+            this.floors = floors;
+        }
+
+        public double getCpuTarget() {
+            return cpuTarget;
+        }
+
+        public void setCpuTarget(double cpuTarget) {
+            this.cpuTarget = cpuTarget;
+        }
+
+        public Duration getLatencyTarget() {
+            return latencyTarget;
+        }
+
+        public void setLatencyTarget(Duration latencyTarget) {
+            this.latencyTarget = latencyTarget;
+        }
+
+        public Duration getSampleInterval() {
+            return sampleInterval;
+        }
+
+        public void setSampleInterval(Duration sampleInterval) {
+            this.sampleInterval = sampleInterval;
+        }
+    }
+
+    /**
+     * Hierarchical limits evaluated along tenant → user paths (see
+     * {@code FairShareRateLimiter}).
+     */
+    public static class FairShare {
+
+        /** Whether a {@code FairShareRateLimiter} is created; needs a store that holds a path's buckets together. */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Binary record of every decision in memory-mapped segment files (see
+     * {@code DecisionLog}).
+     */
+    public static class DecisionLog {
+
+        /** Whether every decision is appended to the log. */
+        private boolean enabled = false;
+
+        /** Directory holding the segments and the plan dictionary. */
+        private Path directory = Path.of("decision-log");
+
+        /** Size of one segment file in bytes; a segment holds 32 bytes per decision. */
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        /** Number of segments kept on disk; older ones are deleted on rotation. */
+        private int maxSegments = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public int getMaxSegments() {
+            return maxSegments;
+        }
+
+        public void setMaxSegments(int maxSegments) {
+            this.maxSegments = maxSegments;
+        }
+    }
+
+    /**
+     * Startup warm-up settings (see {@code RedisWarmUp}).
+     */
+    public static class WarmUp {
+
+        /** Whether to load scripts, prime connections and warm the JIT at startup. */
+        private boolean enabled = true;
+
+        /** Number of synthetic decisions run against the reserved key namespace. */
+        private int syntheticDecisions = 1000;
+
+        /** Total time allowed for warm-up, including retries. */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * Whether a failed warm-up aborts startup, so the instance never reports
+         * readiness. When {@code false} the application starts anyway and the
+         * limiter fails open until Redis is reachable.
+         */
+        private boolean failOnError = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSyntheticDecisions() {
+            return syntheticDecisions;
+        }
+
+        public void setSyntheticDecisions(int syntheticDecisions) {
+            this.syntheticDecisions = syntheticDecisions;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public boolean isFailOnError() {
+            return failOnError;
+        }
+
+        public void setFailOnError(boolean failOnError) {
+            this.failOnError = failOnError;
+        }
+    }
+
+    /**
+     * Bulk state export settings (see {@code RedisBucketStateExporter}).
+     */
+    public static class Export {
+
+        /** {@code SCAN COUNT} hint and number of pipelined reads per page. */
+        private int batchSize = 100;
+
+        /** Average read-rate cap, so an export does not disturb production traffic. */
+        private double maxKeysPerSecond = 1000.0;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public double getMaxKeysPerSecond() {
+            return maxKeysPerSecond;
+        }
+
+        public void setMaxKeysPerSecond(double maxKeysPerSecond) {
+            this.maxKeysPerSecond = maxKeysPerSecond;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.lokesh.ratelimiter.spring.autoconfigure;
+
+import com.lokesh.ratelimiter.redis.RedisWarmUp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Runs {@link RedisWarmUp} during startup, once per Redis deployment (e.g. per
+ * shard).
+ *
+ * <p>
+ * Application runners complete before Spring Boot publishes
+ * {@code ReadinessState.ACCEPTING_TRAFFIC}, so an instance only reports
+ * readiness once warm-up has succeeded. Transient failures (e.g. Redis still
+ * starting next to the application) are retried with exponential backoff until
+ * {@code ratelimiter.warm-up.timeout} elapses; deployments that already
+ * succeeded are not warmed up again.
+ */
+public class RateLimiterWarmUpRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterWarmUpRunner.class);
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(2);
+
+    private final List<RedisWarmUp> warmUps;
+    private final Duration timeout;
+    private final boolean failOnError;
+
+    /**
+     * @param warmUp      the warm-up to run.
+     * @param timeout     total time allowed, including retries.
+     * @param failOnError whether to abort startup when warm-up does not succeed in
+     *                    time.
+     */
+    public RateLimiterWarmUpRunner(RedisWarmUp warmUp, Duration timeout, boolean failOnError) {
+        this(List.of(Objects.requireNonNull(warmUp, "WarmUp must not be null")), timeout, failOnError);
+    }
+
+    /**
+     * @param warmUps     the warm-ups to run, one per deployment.
+     * @param timeout     total time allowed for all of them, including retries.
+     * @param failOnError whether to abort startup when warm-up does not succeed in
+     *                    time.
+     */
+    public RateLimiterWarmUpRunner(List<RedisWarmUp> warmUps, Duration timeout, boolean failOnError) {
+        this.warmUps = List.copyOf(Objects.requireNonNull(warmUps, "WarmUps must not be null"));
+        this.timeout = Objects.requireNonNull(timeout, "Timeout must not be null");
+        this.failOnError = failOnError;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Duration backoff = INITIAL_BACKOFF;
+        int attempt = 1;
+        int done = 0;
+        while (true) {
+            try {
+                for (; done < warmUps.size(); done++) {
+                    warmUps.get(done).run();
+                }
+                return;
+            } catch (RuntimeException e) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= backoff.toNanos()) {
+                    if (failOnError) {
+                        throw new IllegalStateException(
+                                "Rate limiter warm-up failed after " + attempt + " attempt(s)", e);
+                    }
+                    log.error("Rate limiter warm-up failed after {} attempt(s); starting without it, "
+                            + "requests fail open until Redis is reachable", attempt, e);
+                    return;
+                }
+                log.warn("Rate limiter warm-up attempt {} failed: {}; retrying in {}ms",
+                        attempt, e.getMessage(), backoff.toMillis());
+                Thread.sleep(backoff);
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+                attempt++;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.lokesh.ratelimiter.spring.autoconfigure;
+
+import com.lokesh.ratelimiter.core.model.FairShareLimit;
+import com.lokesh.ratelimiter.core.model.FairSharePath;
+import com.lokesh.ratelimiter.core.model.PriorityClass;
+import com.lokesh.ratelimiter.core.model.RateLimitResult;
+import com.lokesh.ratelimiter.core.port.BucketStateExporter;
+import com.lokesh.ratelimiter.core.port.FairShareRateLimiter;
+import com.lokesh.ratelimiter.core.port.QuotaStore;
+import com.lokesh.ratelimiter.core.port.RateLimiter;
+import com.lokesh.ratelimiter.core.port.RateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.InMemoryQuotaStore;
+import com.lokesh.ratelimiter.core.support.InMemoryRateLimiterRepository;
+import com.lokesh.ratelimiter.core.support.LoadShedder;
+import com.lokesh.ratelimiter.redis.PackedRedisBucketStateExporter;
+import com.lokesh.ratelimiter.redis.PackedRedisRateLimiterRepository;
+import com.lokesh.ratelimiter.redis.RedisRateLimiterRepository;
+import com.lokesh.ratelimiter.redis.ShardedRedisRateLimiterRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterAutoConfigurationTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+            .withUserConfiguration(LocalStores.class)
+            .withPropertyValues(
+                    "ratelimiter.plans.api.capacity=10",
+                    "ratelimiter.plans.api.tokens-per-second=0.001",
+                    "ratelimiter.plans.api.sampled=true",
+                    "ratelimiter.plans.monthly.capacity=1000",
+                    "ratelimiter.plans.monthly.quota=MONTHLY",
+                    "ratelimiter.quotas.enabled=true",
+                    "ratelimiter.load-shedding.enabled=true",
+                    "ratelimiter.load-shedding.cpu-target=1.0",
+                    "ratelimiter.load-shedding.latency-target=0");
+
+    @Test
+    @DisplayName("Should shed low classes through the sampled and quota decorators and still serve critical traffic")
+    void shouldShedThroughDecoratedChain() {
+        runner.run(context -> {
+            RateLimiter rateLimiter = context.getBean(RateLimiter.class);
+            List<String> plans = List.of("api", "monthly");
+
+            // GIVEN: anonymous traffic may only take the upper half of the bucket
+            for (int i = 0; i < 5; i++) {
+                assertThat(rateLimiter.allow("user_1", plans, 1, PriorityClass.ANONYMOUS).allowed()).isTrue();
+            }
+
+            // WHEN
+            RateLimitResult anonymous = rateLimiter.allow("user_1", plans, 1, PriorityClass.ANONYMOUS);
+            RateLimitResult critical = rateLimiter.allow("user_1", plans, 1, PriorityClass.CRITICAL);
+
+            // THEN: shed by the floor rather than failed open
+            assertThat(anonymous.allowed()).isFalse();
+            assertThat(anonymous.reason()).isEqualTo(LoadShedder.DENY_REASON);
+            assertThat(critical.allowed()).isTrue();
+            assertThat(context.getBean(LoadShedder.class).shed(PriorityClass.ANONYMOUS)).isEqualTo(1);
+        });
+    }
+
+    @Test
+    @DisplayName("Should shard over a comma-separated list of Redis URIs")
+    void shouldShardOverCommaSeparatedList() {
+        assertSharded("ratelimiter.redis.shards=redis://shard-a:6379,redis://shard-b:6379");
+    }
+
+    @Test
+    @DisplayName("Should shard over an indexed list of Redis URIs")
+    void shouldShardOverIndexedList() {
+        assertSharded("ratelimiter.redis.shards[0]=redis://shard-a:6379",
+                "ratelimiter.redis.shards[1]=redis://shard-b:6379");
+    }
+
+    @Test
+    @DisplayName("Should use the single-node repository without shards")
+    void shouldUseSingleNodeWithoutShards() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+                .run(context -> assertThat(context).hasSingleBean(RedisRateLimiterRepository.class)
+                        .doesNotHaveBean(ShardedRedisRateLimiterRepository.class));
+    }
+
+    @Test
+    @DisplayName("Should export and warm up the packed layout rather than the one-key layout")
+    void shouldWireExportAndWarmUpForPackedLayout() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+                .withPropertyValues("ratelimiter.redis.packed.enabled=true",
+                        "ratelimiter.redis.packed.sweep-interval=0")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(PackedRedisRateLimiterRepository.class)
+                            .doesNotHaveBean(RedisRateLimiterRepository.class)
+                            .hasSingleBean(RateLimiterWarmUpRunner.class);
+                    assertThat(context.getBean(BucketStateExporter.class))
+                            .isInstanceOf(PackedRedisBucketStateExporter.class);
+                });
+    }
+
+    @Test
+    @DisplayName("Should evaluate hierarchical limits in a store that supports them")
+    void shouldServeFairShareFromLocalStore() {
+        runner.withPropertyValues("ratelimiter.fair-share.enabled=true").run(context -> {
+            FairShareRateLimiter fairShare = context.getBean(FairShareRateLimiter.class);
+
+            RateLimitResult result = fairShare.allowFairShare(new FairShareLimit("api", 100, 10.0, 2, 4),
+                    FairSharePath.of("acme", "user_1"), 1);
+
+            assertThat(result.allowed()).isTrue();
+            assertThat(result.remainingTokens()).as("not failed open").isPositive();
+        });
+    }
+
+    @Test
+    @DisplayName("Should bind hierarchical limits to the single-node Redis repository")
+    void shouldServeFairShareFromSingleNode() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+                .withPropertyValues("ratelimiter.fair-share.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(FairShareRateLimiter.class));
+    }
+
+    @Test
+    @DisplayName("Should fail startup when hierarchical limits are enabled over shards")
+    void shouldRefuseFairShareOverShards() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+                .withPropertyValues("ratelimiter.fair-share.enabled=true",
+                        "ratelimiter.redis.shards=redis://shard-a:6379,redis://shard-b:6379")
+                .run(context -> assertThat(context).hasFailed().getFailure()
+                        .rootCause().isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining("ShardedRedisRateLimiterRepository"));
+    }
+
+    /** Connections are opened lazily, so the shards need not be reachable. */
+    private static void assertSharded(String... properties) {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimiterAutoConfiguration.class))
+                .withPropertyValues(properties)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(ShardedRedisRateLimiterRepository.class)
+                            .doesNotHaveBean(RedisRateLimiterRepository.class);
+                    assertThat(context.getBean(ShardedRedisRateLimiterRepository.class).shards())
+                            .containsOnlyKeys("redis://shard-a:6379", "redis://shard-b:6379");
+                });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class LocalStores {
+
+        @Bean
+        RateLimiterRepository localRepository() {
+            return new InMemoryRateLimiterRepository();
+        }
+
+        @Bean
+        QuotaStore localQuotaStore() {
+            return new InMemoryQuotaStore();
+        }
+    }
+}